@@ -19,15 +19,23 @@
 
 package org.zeromq;
 
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.zeromq.ZMQ.Socket;
 import org.zeromq.ZPoller.EventsHandler;
+import org.zeromq.ZPoller.ItemHolder;
+import org.zeromq.ZStar.Cued;
 
 /**
  * First implementation of a background actor remotely controlled for 0MQ.
@@ -468,7 +476,45 @@ public class ZActor extends ZStar
     public ZActor(final ZContext context, final SelectorCreator selector,
             final Actor actor, final String motdelafin, final Object[] args)
     {
-        super(context, selector, new ActorFortune(actor), motdelafin, args);
+        this(null, context, selector, actor, motdelafin, args);
+    }
+
+    /**
+     * Creates a new ZActor performed by a runtime, sharing its thread with other actors.
+     *
+     * @param runtime
+     *            the runtime where the actor is performed.
+     * @param actor
+     *            the actor handling messages from either stage and backstage
+     * @param args
+     *            the optional arguments that will be passed to the distant actor
+     */
+    public ZActor(final ZRuntime runtime, final Actor actor, final String motdelafin, final Object... args)
+    {
+        this(runtime, null, null, actor, motdelafin, args);
+    }
+
+    /**
+     * Creates a new ZActor.
+     *
+     * @param runtime
+     *            the runtime where the actor is performed. If null, the actor is performed on its own thread.
+     * @param context
+     *            the main context used. If null, a new context will be created
+     *            and closed at the stop of the operation.
+     * <b>If not null, it is the responsibility of the caller to close it.</b>
+     *
+     * @param selector
+     *            the creator of the selector used on the Plateau.
+     * @param actor
+     *            the actor handling messages from either stage and backstage
+     * @param args
+     *            the optional arguments that will be passed to the distant actor
+     */
+    public ZActor(final ZRuntime runtime, final ZContext context, final SelectorCreator selector,
+            final Actor actor, final String motdelafin, final Object[] args)
+    {
+        super(runtime, context, selector, new ActorFortune(actor), motdelafin, args);
     }
 
     // actor creator
@@ -509,7 +555,7 @@ public class ZActor extends ZStar
     }
 
     // double for the loops, easing life for the actor
-    private static final class Double implements EventsHandler, Star
+    private static final class Double implements EventsHandler, Cued
     {
         // poller used for the loop
         private final ZPoller poller;
@@ -520,6 +566,9 @@ public class ZActor extends ZStar
         // managed sockets
         private final List<Socket> sockets;
 
+        // channels registered in the selector of a runtime
+        private Collection<SelectableChannel> cued = Collections.emptySet();
+
         // actor responsible for processing messages
         private final Actor actor;
 
@@ -561,6 +610,66 @@ public class ZActor extends ZStar
             // events have been dispatched,
         }
 
+        // registers the channels of the poller in the selector of the runtime
+        @Override
+        public long cue(final Selector selector, final Object attachment)
+        {
+            long timeout = actor.looping(pipe, poller);
+
+            // several items can share a channel
+            final Map<SelectableChannel, Integer> channels = new HashMap<SelectableChannel, Integer>();
+            for (ItemHolder holder : poller.items()) {
+                final zmq.PollItem item = holder.item();
+                final SelectableChannel channel;
+                if (item.getSocket() != null) {
+                    channel = item.getSocket().getFD();
+                }
+                else {
+                    channel = item.getRawSocket();
+                }
+                final Integer ops = channels.get(channel);
+                channels.put(channel, ops == null ? item.interestOps() : ops | item.interestOps());
+            }
+
+            for (Map.Entry<SelectableChannel, Integer> entry : channels.entrySet()) {
+                final SelectableChannel channel = entry.getKey();
+                final SelectionKey key = channel.keyFor(selector);
+                try {
+                    if (key == null) {
+                        channel.register(selector, entry.getValue(), attachment);
+                    }
+                    else if (key.interestOps() != entry.getValue()) {
+                        key.interestOps(entry.getValue());
+                    }
+                }
+                catch (ClosedChannelException e) {
+                    // the poller will report it
+                    timeout = 0;
+                }
+                catch (CancelledKeyException e) {
+                    // unregistered then registered again, try later
+                    timeout = 0;
+                }
+            }
+            for (SelectableChannel channel : cued) {
+                if (!channels.containsKey(channel)) {
+                    final SelectionKey key = channel.keyFor(selector);
+                    if (key != null) {
+                        key.cancel();
+                    }
+                }
+            }
+            cued = channels.keySet();
+            return timeout;
+        }
+
+        // gives the number of events to process without waiting
+        @Override
+        public int inhale()
+        {
+            return poller.poll(0);
+        }
+
         // acting takes place, return true to continue till the end
         @Override
         public boolean act(int events)
@@ -0,0 +1,593 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.Pipe;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.zeromq.ZMQ.Socket;
+
+import zmq.PollItem;
+import zmq.ZError;
+
+/**
+ * Asynchronous facade for sockets.
+ * <p>
+ * A single reactor thread watches the mailboxes of the sockets with pending operations,
+ * performs the sends and receives in non-blocking mode and completes the matching promises.
+ * All the operations ready after one poll are performed before the callbacks of their promises
+ * are invoked, so completions are delivered in batches.
+ * <p>
+ * Once a socket has been given to {@link #recvAsync(Socket)} or {@link #sendAsync(Socket, ZMsg)},
+ * it is owned by the reactor thread and shall not be used directly until this object is closed.
+ * Operations on the same socket are performed in the order of their submission.
+ * <p>
+ * One instance is shared per context, see {@link ZContext#getAsync()}.
+ */
+public class ZAsync implements Closeable
+{
+    /**
+     * Result of an asynchronous operation.
+     * <p>
+     * Callbacks registered with {@link #whenComplete(Object, CompletionHandler)} are called by the reactor thread,
+     * or by the registering thread if the promise is already completed. They shall not block.
+     */
+    public static class Promise<T> implements Future<T>
+    {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private List<Runnable> callbacks = new ArrayList<Runnable>(1);
+        private T value;
+        private Throwable failure;
+
+        public <A> void whenComplete(final A attachment, final CompletionHandler<? super T, ? super A> handler)
+        {
+            Runnable callback = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (failure == null) {
+                        handler.completed(value, attachment);
+                    }
+                    else {
+                        handler.failed(failure, attachment);
+                    }
+                }
+            };
+            synchronized (this) {
+                if (callbacks != null) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+            callback.run();
+        }
+
+        /**
+         * Cancels the operation if it has not been performed yet.
+         * A message received concurrently to the cancellation of its promise is dropped.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            return fail(new CancellationException());
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return isDone() && failure instanceof CancellationException;
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException
+        {
+            done.await();
+            return result();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+        {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        boolean complete(T value)
+        {
+            List<Runnable> pending;
+            synchronized (this) {
+                if (callbacks == null) {
+                    return false;
+                }
+                this.value = value;
+                pending = callbacks;
+                callbacks = null;
+            }
+            done.countDown();
+            for (Runnable callback : pending) {
+                callback.run();
+            }
+            return true;
+        }
+
+        boolean fail(Throwable failure)
+        {
+            List<Runnable> pending;
+            synchronized (this) {
+                if (callbacks == null) {
+                    return false;
+                }
+                this.failure = failure;
+                pending = callbacks;
+                callbacks = null;
+            }
+            done.countDown();
+            for (Runnable callback : pending) {
+                callback.run();
+            }
+            return true;
+        }
+
+        private T result() throws ExecutionException
+        {
+            if (failure instanceof CancellationException) {
+                throw (CancellationException) failure;
+            }
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return value;
+        }
+    }
+
+    //  Operation performed by the reactor on every pass until it is over,
+    //  such as the streams of ZFlow.
+    interface Task
+    {
+        //  Performs what can be done without blocking and returns the events
+        //  to poll for, 0 to wait for a wake up or -1 once over.
+        int perform(Socket socket, List<Runnable> completions);
+
+        //  Called when the reactor is closed before the task is over.
+        void abort(List<Runnable> completions);
+    }
+
+    //  Operation submitted to the reactor, msg is null for a receive.
+    private static final class Operation
+    {
+        private final Socket socket;
+        private final ZMsg msg;
+        private final Promise<?> promise;
+        private final Task task;
+
+        private Operation(Socket socket, ZMsg msg, Promise<?> promise)
+        {
+            this.socket = socket;
+            this.msg = msg;
+            this.promise = promise;
+            this.task = null;
+        }
+
+        private Operation(Socket socket, Task task)
+        {
+            this.socket = socket;
+            this.msg = null;
+            this.promise = null;
+            this.task = task;
+        }
+    }
+
+    //  Pending operations of one socket.
+    private static final class Entry
+    {
+        private final Deque<Promise<ZMsg>> receives = new ArrayDeque<Promise<ZMsg>>();
+        private final Deque<Operation> sends = new ArrayDeque<Operation>();
+        private final List<Task> tasks = new ArrayList<Task>(1);
+    }
+
+    private final Queue<Operation> submitted = new ConcurrentLinkedQueue<Operation>();
+    private final AtomicBoolean signaled = new AtomicBoolean();
+    private final Pipe.SinkChannel wakeup;
+    private final Pipe.SourceChannel woken;
+    private final Selector selector;
+    private final Thread reactor;
+
+    private volatile boolean closed;
+
+    public ZAsync()
+    {
+        try {
+            Pipe pipe = Pipe.open();
+            wakeup = pipe.sink();
+            woken = pipe.source();
+            wakeup.configureBlocking(false);
+            woken.configureBlocking(false);
+            selector = Selector.open();
+        }
+        catch (IOException e) {
+            throw new ZError.IOException(e);
+        }
+        reactor = new Thread("ZAsync")
+        {
+            @Override
+            public void run()
+            {
+                react();
+            }
+        };
+        reactor.setDaemon(true);
+        reactor.start();
+    }
+
+    /**
+     * Receives the next message of the socket.
+     *
+     * @param socket the socket to receive from.
+     * @return the promise completed with the received message.
+     */
+    public Promise<ZMsg> recvAsync(Socket socket)
+    {
+        Promise<ZMsg> promise = new Promise<ZMsg>();
+        submit(new Operation(socket, null, promise));
+        return promise;
+    }
+
+    /**
+     * Sends a message on the socket. The frames of the message are destroyed once sent.
+     *
+     * @param socket the socket to send to.
+     * @param msg the message to send.
+     * @return the promise completed with true once the message has been queued on the socket.
+     */
+    public Promise<Boolean> sendAsync(Socket socket, ZMsg msg)
+    {
+        if (msg == null || msg.isEmpty()) {
+            throw new IllegalArgumentException("message shall contain at least one frame");
+        }
+        Promise<Boolean> promise = new Promise<Boolean>();
+        submit(new Operation(socket, msg, promise));
+        return promise;
+    }
+
+    /**
+     * Stops the reactor thread. Pending operations are cancelled and the sockets
+     * can be used again by the calling thread.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        signal();
+        try {
+            reactor.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        cancelSubmitted();
+        try {
+            selector.close();
+            wakeup.close();
+            woken.close();
+        }
+        catch (IOException e) {
+            throw new ZError.IOException(e);
+        }
+    }
+
+    //  Performs the task on every pass of the reactor until it is over.
+    void attach(Socket socket, Task task)
+    {
+        submit(new Operation(socket, task));
+    }
+
+    //  Makes the reactor perform its operations again, for tasks whose
+    //  conditions changed outside of the sockets.
+    void wakeup()
+    {
+        signal();
+    }
+
+    private void submit(Operation operation)
+    {
+        if (operation.socket == null) {
+            throw new IllegalArgumentException("socket is null");
+        }
+        submitted.add(operation);
+        if (closed) {
+            //  the reactor may be gone before admitting it
+            cancelSubmitted();
+            return;
+        }
+        signal();
+    }
+
+    private void cancelSubmitted()
+    {
+        List<Runnable> completions = new ArrayList<Runnable>();
+        Operation operation = submitted.poll();
+        while (operation != null) {
+            if (operation.task == null) {
+                operation.promise.cancel(false);
+            }
+            else {
+                operation.task.abort(completions);
+            }
+            operation = submitted.poll();
+        }
+        for (Runnable completion : completions) {
+            completion.run();
+        }
+    }
+
+    private void signal()
+    {
+        //  only the first submission since the last wake up writes to the pipe
+        if (signaled.compareAndSet(false, true)) {
+            try {
+                wakeup.write(ByteBuffer.allocate(1));
+            }
+            catch (ClosedChannelException e) {
+                //  the reactor has been closed in the meantime
+                return;
+            }
+            catch (IOException e) {
+                throw new ZError.IOException(e);
+            }
+        }
+    }
+
+    private void react()
+    {
+        final Map<Socket, Entry> entries = new IdentityHashMap<Socket, Entry>();
+        final ByteBuffer drain = ByteBuffer.allocate(64);
+        final PollItem wake = new PollItem(woken, ZMQ.Poller.POLLIN);
+
+        try {
+            while (true) {
+                drain.clear();
+                while (woken.read(drain) > 0) {
+                    drain.clear();
+                }
+                //  reset and check for closing after draining,
+                //  so a wake up written in between is not lost
+                signaled.set(false);
+                if (closed) {
+                    break;
+                }
+                admit(entries);
+
+                List<Runnable> completions = new ArrayList<Runnable>();
+                PollItem[] items = new PollItem[entries.size() + 1];
+                int count = 0;
+                items[count++] = wake;
+
+                Iterator<Map.Entry<Socket, Entry>> it = entries.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Socket, Entry> pair = it.next();
+                    int events = perform(pair.getKey(), pair.getValue(), completions);
+                    if (events != 0) {
+                        items[count++] = new PollItem(pair.getKey().base(), events);
+                    }
+                    else if (pair.getValue().tasks.isEmpty()) {
+                        it.remove();
+                    }
+                }
+                for (Runnable completion : completions) {
+                    completion.run();
+                }
+                if (!completions.isEmpty()) {
+                    //  callbacks may have submitted further operations
+                    continue;
+                }
+                zmq.ZMQ.poll(selector, items, count, -1);
+            }
+        }
+        catch (IOException e) {
+            throw new ZError.IOException(e);
+        }
+        finally {
+            List<Runnable> completions = new ArrayList<Runnable>();
+            for (Entry entry : entries.values()) {
+                cancel(entry, completions);
+            }
+            for (Runnable completion : completions) {
+                completion.run();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void admit(Map<Socket, Entry> entries)
+    {
+        Operation operation = submitted.poll();
+        while (operation != null) {
+            Entry entry = entries.get(operation.socket);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(operation.socket, entry);
+            }
+            if (operation.task != null) {
+                entry.tasks.add(operation.task);
+            }
+            else if (operation.msg == null) {
+                entry.receives.add((Promise<ZMsg>) operation.promise);
+            }
+            else {
+                entry.sends.add(operation);
+            }
+            operation = submitted.poll();
+        }
+    }
+
+    //  Performs as many pending operations as possible without blocking
+    //  and returns the events to poll for the remaining ones.
+    @SuppressWarnings("unchecked")
+    private int perform(Socket socket, Entry entry, List<Runnable> completions)
+    {
+        try {
+            while (!entry.sends.isEmpty()) {
+                Operation operation = entry.sends.peek();
+                if (operation.promise.isDone()) {
+                    entry.sends.poll();
+                    continue;
+                }
+                if (!send(socket, operation.msg)) {
+                    break;
+                }
+                entry.sends.poll();
+                completions.add(completion((Promise<Boolean>) operation.promise, Boolean.TRUE));
+            }
+            while (!entry.receives.isEmpty()) {
+                Promise<ZMsg> promise = entry.receives.peek();
+                if (promise.isDone()) {
+                    entry.receives.poll();
+                    continue;
+                }
+                ZMsg msg = ZMsg.recvMsg(socket, ZMQ.DONTWAIT);
+                if (msg == null) {
+                    break;
+                }
+                entry.receives.poll();
+                completions.add(completion(promise, msg));
+            }
+        }
+        catch (RuntimeException e) {
+            for (Operation operation : entry.sends) {
+                completions.add(failure(operation.promise, e));
+            }
+            for (Promise<ZMsg> promise : entry.receives) {
+                completions.add(failure(promise, e));
+            }
+            entry.sends.clear();
+            entry.receives.clear();
+        }
+
+        int events = 0;
+        if (!entry.sends.isEmpty()) {
+            events |= ZMQ.Poller.POLLOUT;
+        }
+        if (!entry.receives.isEmpty()) {
+            events |= ZMQ.Poller.POLLIN;
+        }
+        Iterator<Task> tasks = entry.tasks.iterator();
+        while (tasks.hasNext()) {
+            int ops = tasks.next().perform(socket, completions);
+            if (ops < 0) {
+                tasks.remove();
+            }
+            else {
+                events |= ops;
+            }
+        }
+        return events;
+    }
+
+    //  Sends the message if the socket accepts it without blocking.
+    static boolean send(Socket socket, ZMsg msg)
+    {
+        //  once the first frame is accepted, the following ones are too
+        ZFrame frame = msg.peekFirst();
+        int flags = msg.size() > 1 ? ZMQ.SNDMORE : 0;
+        if (!frame.send(socket, flags | ZMQ.DONTWAIT)) {
+            return false;
+        }
+        msg.pollFirst().destroy();
+        while (!msg.isEmpty()) {
+            frame = msg.pollFirst();
+            frame.send(socket, msg.isEmpty() ? 0 : ZMQ.SNDMORE);
+            frame.destroy();
+        }
+        return true;
+    }
+
+    private <T> Runnable completion(final Promise<T> promise, final T value)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (!promise.complete(value) && value instanceof ZMsg) {
+                    //  cancelled while receiving, the message is dropped
+                    ((ZMsg) value).destroy();
+                }
+            }
+        };
+    }
+
+    private Runnable failure(final Promise<?> promise, final Throwable cause)
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                promise.fail(cause);
+            }
+        };
+    }
+
+    private void cancel(Entry entry, List<Runnable> completions)
+    {
+        for (Task task : entry.tasks) {
+            task.abort(completions);
+        }
+        for (Operation operation : entry.sends) {
+            operation.promise.cancel(false);
+        }
+        for (Promise<ZMsg> promise : entry.receives) {
+            promise.cancel(false);
+        }
+    }
+}
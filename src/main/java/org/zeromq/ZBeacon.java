@@ -20,29 +20,57 @@
 package org.zeromq;
 
 import java.io.IOException;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
-import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
 import java.util.Arrays;
-
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import zmq.Clock;
+
+/**
+ * Broadcasts a beacon on a UDP port at regular intervals, and passes the beacons received on that port to a listener.
+ * <p>
+ * Beacons do not run threads of their own: all the beacons of a {@link Service} are handled by its single thread,
+ * which broadcasts them on time and receives them with one channel per port.
+ * Unless specified otherwise, beacons share a default service.
+ */
 public class ZBeacon
 {
     public static final long DEFAULT_BROADCAST_INTERVAL = 1000L;
     public static final String DEFAULT_BROADCAST_HOST = "255.255.255.255";
 
+    private static final Service SHARED = new Service();
+
     private final int port;
-    private InetAddress broadcastInetAddress;
-    private final BroadcastClient broadcastClient;
-    private final BroadcastServer broadcastServer;
-    private final byte[] beacon;
-    private byte[] prefix = {};
-    private long broadcastInterval = DEFAULT_BROADCAST_INTERVAL;
-    private Listener listener = null;
+    private final InetSocketAddress broadcastSocketAddress;
+    private final ByteBuffer beacon;
+    private final boolean ignoreLocalAddress;
+    private final InetAddress localAddress;
+    private final Service service;
+    private volatile byte[] prefix = {};
+    private volatile long broadcastInterval = DEFAULT_BROADCAST_INTERVAL;
+    private volatile long deduplicationInterval = 0;
+    private volatile Listener listener = null;
+    private volatile Thread.UncaughtExceptionHandler clientHandler;
+    private volatile Thread.UncaughtExceptionHandler serverHandler;
+
+    // handled by the service thread
+    private long nextBroadcast;
+    private final Map<Peer, Long> peers = new HashMap<Peer, Long>();
 
     public ZBeacon(int port, byte[] beacon)
     {
@@ -55,46 +83,88 @@ public class ZBeacon
     }
 
     public ZBeacon(String host, int port, byte[] beacon, boolean ignoreLocalAddress)
+    {
+        this(host, port, beacon, ignoreLocalAddress, SHARED);
+    }
+
+    /**
+     * Creates a beacon handled by the given service.
+     *
+     * @param host the address to broadcast to.
+     * @param port the UDP port where to broadcast and receive the beacons.
+     * @param beacon the beacon to broadcast.
+     * @param ignoreLocalAddress true to ignore the beacons sent from the local host.
+     * @param service the service handling the beacon.
+     */
+    public ZBeacon(String host, int port, byte[] beacon, boolean ignoreLocalAddress, Service service)
     {
         this.port = port;
-        this.beacon = beacon;
+        this.beacon = ByteBuffer.wrap(beacon);
+        this.ignoreLocalAddress = ignoreLocalAddress;
+        this.service = service;
         try {
-            broadcastInetAddress = InetAddress.getByName(host);
+            broadcastSocketAddress = new InetSocketAddress(InetAddress.getByName(host), port);
         }
         catch (UnknownHostException unknownHostException) {
             throw new RuntimeException(unknownHostException);
         }
-
-        broadcastServer = new BroadcastServer(ignoreLocalAddress);
-        broadcastServer.setDaemon(true);
-        broadcastClient = new BroadcastClient();
-        broadcastClient.setDaemon(true);
+        InetAddress local = null;
+        if (ignoreLocalAddress) {
+            try {
+                local = InetAddress.getLocalHost();
+            }
+            catch (UnknownHostException e) {
+                // only the loopback and wildcard addresses will be ignored
+            }
+        }
+        localAddress = local;
     }
 
+    /**
+     * Sets the handlers of the errors occurring while broadcasting, and while receiving beacons.
+     * They are called by the thread of the service, which goes on handling the beacon.
+     */
     public void setUncaughtExceptionHandlers(Thread.UncaughtExceptionHandler clientHandler, Thread.UncaughtExceptionHandler serverHandler)
     {
-        broadcastClient.setUncaughtExceptionHandler(clientHandler);
-        broadcastServer.setUncaughtExceptionHandler(serverHandler);
+        this.clientHandler = clientHandler;
+        this.serverHandler = serverHandler;
     }
 
+    /**
+     * Starts broadcasting, and receiving beacons if a listener is set.
+     * The first beacon is broadcast at once.
+     */
     public void start()
     {
-        if (listener != null) {
-            broadcastServer.start();
+        try {
+            service.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    service.add(ZBeacon.this);
+                }
+            });
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        broadcastClient.start();
     }
 
+    /**
+     * Stops broadcasting and receiving beacons.
+     * The listener is not called anymore once this returns.
+     */
     public void stop() throws InterruptedException
     {
-        if (broadcastClient != null) {
-            broadcastClient.interrupt();
-            broadcastClient.join();
-        }
-        if (broadcastServer != null) {
-            broadcastServer.interrupt();
-            broadcastServer.join();
-        }
+        service.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                service.remove(ZBeacon.this);
+            }
+        });
     }
 
     public void setPrefix(byte[] prefix)
@@ -125,137 +195,425 @@ public class ZBeacon
         void onBeacon(InetAddress sender, byte[] beacon);
     }
 
+    public long getBroadcastInterval()
+    {
+        return broadcastInterval;
+    }
+
+    public void setBroadcastInterval(long broadcastInterval)
+    {
+        this.broadcastInterval = broadcastInterval;
+    }
+
+    public long getDeduplicationInterval()
+    {
+        return deduplicationInterval;
+    }
+
     /**
-     * The broadcast client periodically sends beacons via UDP to the network.
+     * Sets the minimum interval between two calls of the listener for the same beacon from the same sender.
+     * The repeated beacons received in the meantime are ignored, so a peer broadcasting more often than
+     * this interval is still reported once per interval.
+     *
+     * @param deduplicationInterval the interval in milliseconds. Default 0, every beacon is passed to the listener.
      */
-    private class BroadcastClient extends Thread
+    public void setDeduplicationInterval(long deduplicationInterval)
+    {
+        this.deduplicationInterval = deduplicationInterval;
+    }
+
+    // broadcasts the beacon if due, and returns the time of the next broadcast
+    private long broadcast(DatagramChannel channel, long now)
     {
-        private DatagramChannel broadcastChannel;
-        private final InetSocketAddress broadcastInetSocketAddress;
+        if (now >= nextBroadcast) {
+            nextBroadcast = now + broadcastInterval;
+            try {
+                beacon.rewind();
+                channel.send(beacon, broadcastSocketAddress);
+            }
+            catch (IOException e) {
+                report(clientHandler, e);
+            }
+            // forget the peers not heard of for long
+            long interval = deduplicationInterval;
+            Iterator<Long> it = peers.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next() >= interval) {
+                    it.remove();
+                }
+            }
+        }
+        return nextBroadcast;
+    }
+
+    // passes a received beacon to the listener if it shall be
+    private void receive(InetAddress sender, byte[] data, int size, Peer probe, long now)
+    {
+        Listener listener = this.listener;
+        if (listener == null) {
+            return;
+        }
+        if (ignoreLocalAddress
+                && (sender.equals(localAddress) || sender.isAnyLocalAddress() || sender.isLoopbackAddress())) {
+            return;
+        }
+        // Compare prefix
+        byte[] prefix = this.prefix;
+        if (size < prefix.length) {
+            return;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return;
+            }
+        }
+        if (deduplicationInterval > 0) {
+            Long last = peers.get(probe.set(sender, data, size));
+            if (last != null && now - last < deduplicationInterval) {
+                return;
+            }
+            // an existing entry keeps its key
+            peers.put(last == null ? probe.copy() : probe, now);
+        }
+        try {
+            listener.onBeacon(sender, Arrays.copyOf(data, size));
+        }
+        catch (RuntimeException e) {
+            report(serverHandler, e);
+        }
+    }
+
+    private static void report(Thread.UncaughtExceptionHandler handler, Throwable error)
+    {
+        Thread thread = Thread.currentThread();
+        if (handler == null) {
+            handler = thread.getUncaughtExceptionHandler();
+        }
+        handler.uncaughtException(thread, error);
+    }
+
+    // the beacon received from a sender, used for the deduplication
+    private static final class Peer
+    {
+        private InetAddress sender;
+        private byte[] data;
+        private int size;
+        private int hash;
+
+        private Peer set(InetAddress sender, byte[] data, int size)
+        {
+            this.sender = sender;
+            this.data = data;
+            this.size = size;
+            int hash = sender.hashCode();
+            for (int i = 0; i < size; i++) {
+                hash = 31 * hash + data[i];
+            }
+            this.hash = hash;
+            return this;
+        }
 
-        public BroadcastClient()
+        private Peer copy()
         {
-            broadcastInetSocketAddress = new InetSocketAddress(broadcastInetAddress, port);
+            return new Peer().set(sender, Arrays.copyOf(data, size), size);
         }
 
         @Override
-        public void run()
+        public int hashCode()
         {
-            try {
-                broadcastChannel = DatagramChannel.open();
-                broadcastChannel.socket().setBroadcast(true);
-                while (!interrupted()) {
-                    try {
-                        broadcastChannel.send(ByteBuffer.wrap(beacon), broadcastInetSocketAddress);
-                        Thread.sleep(broadcastInterval);
-                    }
-                    catch (InterruptedException interruptedException) {
-                        break;
-                    }
-                    catch (Exception exception) {
-                        throw new RuntimeException(exception);
-                    }
-                }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Peer)) {
+                return false;
             }
-            catch (IOException ioException) {
-                throw new RuntimeException(ioException);
+            Peer other = (Peer) o;
+            if (hash != other.hash || size != other.size || !sender.equals(other.sender)) {
+                return false;
             }
-            finally {
-                try {
-                    broadcastChannel.close();
-                }
-                catch (IOException ioException) {
-                    throw new RuntimeException(ioException);
+            for (int i = 0; i < size; i++) {
+                if (data[i] != other.data[i]) {
+                    return false;
                 }
             }
+            return true;
         }
-
     }
 
     /**
-     * The broadcast server receives beacons.
+     * Handles many beacons in a single thread.
+     * The thread is started with the first beacon, and stops with the last one.
      */
-    private class BroadcastServer extends Thread
+    public static final class Service
     {
-        private DatagramChannel handle; // Socket for send/recv
-        private final boolean ignoreLocalAddress;
+        // the maximum number of datagrams received at once on a port
+        private static final int BATCH = 64;
+
+        private final Queue<FutureTask<Void>> tasks = new ConcurrentLinkedQueue<FutureTask<Void>>();
+
+        // guarded by this
+        private Thread thread;
+        private Selector selector;
+
+        // handled by the thread of the service
+        private final List<ZBeacon> beacons = new ArrayList<ZBeacon>();
+        private final Map<Integer, Port> ports = new HashMap<Integer, Port>();
+        private final ByteBuffer buffer = ByteBuffer.allocate(65535);
+        private final Peer probe = new Peer();
+        private DatagramChannel broadcast;
+        private boolean dispatching;
+        private boolean closed;
+
+        // the channel receiving the beacons of a port
+        private static final class Port
+        {
+            private final DatagramChannel channel;
+            private final List<ZBeacon> beacons = new ArrayList<ZBeacon>();
 
-        public BroadcastServer(boolean ignoreLocalAddress)
+            private Port(DatagramChannel channel)
+            {
+                this.channel = channel;
+            }
+        }
+
+        // runs the command in the thread of the service and waits for its completion
+        private void execute(Runnable command) throws InterruptedException
         {
-            this.ignoreLocalAddress = ignoreLocalAddress;
+            FutureTask<Void> task = new FutureTask<Void>(command, null);
+            synchronized (this) {
+                if (thread == Thread.currentThread()) {
+                    // called from a listener
+                    command.run();
+                    return;
+                }
+                if (thread == null) {
+                    try {
+                        selector = Selector.open();
+                    }
+                    catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    final Selector selector = this.selector;
+                    thread = new Thread("ZBeacon")
+                    {
+                        @Override
+                        public void run()
+                        {
+                            loop(selector);
+                        }
+                    };
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+                tasks.add(task);
+                selector.wakeup();
+            }
             try {
-                // Create UDP socket
-                handle = DatagramChannel.open();
-                handle.configureBlocking(false);
-                DatagramSocket sock = handle.socket();
-                sock.setReuseAddress(true);
-                sock.bind(new InetSocketAddress(InetAddress.getByAddress(new byte[] { 0, 0, 0, 0 }), port));
+                task.get();
             }
-            catch (IOException ioException) {
-                throw new RuntimeException(ioException);
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
             }
         }
 
-        @Override
-        public void run()
+        private void loop(Selector selector)
         {
-            ByteBuffer buffer = ByteBuffer.allocate(65535);
-            SocketAddress sender;
-            int size;
-            while (!interrupted()) {
-                buffer.clear();
-                try {
-                    int read = buffer.remaining();
-                    sender = handle.receive(buffer);
-                    if (sender == null) {
+            try {
+                while (true) {
+                    FutureTask<Void> task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    if (closed) {
+                        closed = false;
+                        flush(selector);
+                    }
+                    if (beacons.isEmpty()) {
+                        synchronized (this) {
+                            if (tasks.isEmpty()) {
+                                thread = null;
+                                this.selector = null;
+                                return;
+                            }
+                        }
                         continue;
                     }
 
-                    InetAddress senderAddress = ((InetSocketAddress) sender).getAddress();
+                    long now = Clock.nowMS();
+                    long next = Long.MAX_VALUE;
+                    for (int i = 0; i < beacons.size(); i++) {
+                        next = Math.min(next, beacons.get(i).broadcast(broadcast, now));
+                    }
+                    selector.select(Math.max(1, next - now));
+
+                    // listeners may stop beacons while dispatching
+                    dispatching = true;
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (key.isValid()) {
+                            receive((Port) key.attachment());
+                        }
+                    }
+                    dispatching = false;
+                }
+            }
+            catch (IOException e) {
+                for (ZBeacon beacon : new ArrayList<ZBeacon>(beacons)) {
+                    report(beacon.serverHandler, e);
+                    remove(beacon);
+                }
+                synchronized (this) {
+                    thread = null;
+                    this.selector = null;
+                    FutureTask<Void> task;
+                    while ((task = tasks.poll()) != null) {
+                        task.cancel(false);
+                    }
+                }
+            }
+            finally {
+                try {
+                    selector.close();
+                }
+                catch (IOException e) {
+                    // nothing to do
+                }
+            }
+        }
 
-                    if (ignoreLocalAddress &&
-                                (InetAddress.getLocalHost().getHostAddress().equals(senderAddress.getHostAddress())
-                                         || senderAddress.isAnyLocalAddress()
-                                         || senderAddress.isLoopbackAddress())) {
-                        continue;
+        private void receive(Port port)
+        {
+            long now = Clock.nowMS();
+            for (int count = 0; count < BATCH; ++count) {
+                buffer.clear();
+                SocketAddress sender;
+                try {
+                    sender = port.channel.receive(buffer);
+                }
+                catch (IOException e) {
+                    for (ZBeacon beacon : port.beacons) {
+                        report(beacon.serverHandler, e);
                     }
+                    return;
+                }
+                if (sender == null) {
+                    return;
+                }
+                InetAddress address = ((InetSocketAddress) sender).getAddress();
+                for (int i = 0; i < port.beacons.size(); i++) {
+                    port.beacons.get(i).receive(address, buffer.array(), buffer.position(), probe, now);
+                }
+                if (port.beacons.isEmpty()) {
+                    // closed by a listener
+                    return;
+                }
+            }
+        }
 
-                    size = read - buffer.remaining();
-                    handleMessage(buffer, size, senderAddress);
+        private void add(ZBeacon beacon)
+        {
+            if (beacons.contains(beacon)) {
+                return;
+            }
+            try {
+                if (broadcast == null) {
+                    broadcast = DatagramChannel.open();
+                    broadcast.configureBlocking(false);
+                    broadcast.socket().setBroadcast(true);
                 }
-                catch (ClosedChannelException ioException) {
-                    break;
+                if (beacon.listener != null) {
+                    Port port = ports.get(beacon.port);
+                    if (port == null) {
+                        DatagramChannel channel = DatagramChannel.open();
+                        try {
+                            channel.configureBlocking(false);
+                            channel.socket().setReuseAddress(true);
+                            channel.socket().bind(new InetSocketAddress(
+                                    InetAddress.getByAddress(new byte[] { 0, 0, 0, 0 }), beacon.port));
+                        }
+                        catch (IOException e) {
+                            channel.close();
+                            throw e;
+                        }
+                        port = new Port(channel);
+                        channel.register(selector(), SelectionKey.OP_READ, port);
+                        ports.put(beacon.port, port);
+                    }
+                    port.beacons.add(beacon);
                 }
-                catch (IOException ioException) {
-                    throw new RuntimeException(ioException);
+            }
+            catch (IOException e) {
+                if (beacons.isEmpty()) {
+                    closeBroadcast();
                 }
+                throw new RuntimeException(e);
             }
-            handle.socket().close();
+            beacon.nextBroadcast = Clock.nowMS();
+            beacons.add(beacon);
         }
 
-        private void handleMessage(ByteBuffer buffer, int size, InetAddress from)
+        private void remove(ZBeacon beacon)
         {
-            if (size < prefix.length) {
+            if (!beacons.remove(beacon)) {
                 return;
             }
-            byte[] bytes = buffer.array();
-            // Compare prefix
-            for (int i = 0; i < prefix.length; i++) {
-                if (bytes[i] != prefix[i]) {
-                    return;
+            beacon.peers.clear();
+            Port port = ports.get(beacon.port);
+            if (port != null && port.beacons.remove(beacon) && port.beacons.isEmpty()) {
+                ports.remove(beacon.port);
+                try {
+                    port.channel.close();
+                }
+                catch (IOException e) {
+                    report(beacon.serverHandler, e);
+                }
+                if (dispatching) {
+                    closed = true;
+                }
+                else {
+                    flush(selector());
                 }
             }
-            listener.onBeacon(from, Arrays.copyOf(bytes, size));
+            if (beacons.isEmpty()) {
+                closeBroadcast();
+            }
         }
-    }
 
-    public long getBroadcastInterval()
-    {
-        return broadcastInterval;
-    }
+        // flushes the cancelled keys so the closed ports are released at once
+        private void flush(Selector selector)
+        {
+            try {
+                selector.selectNow();
+            }
+            catch (IOException e) {
+                // released at the next selection
+            }
+        }
 
-    public void setBroadcastInterval(long broadcastInterval)
-    {
-        this.broadcastInterval = broadcastInterval;
+        private void closeBroadcast()
+        {
+            if (broadcast != null) {
+                try {
+                    broadcast.close();
+                }
+                catch (IOException e) {
+                    // nothing to do
+                }
+                broadcast = null;
+            }
+        }
+
+        private synchronized Selector selector()
+        {
+            return selector;
+        }
     }
 }
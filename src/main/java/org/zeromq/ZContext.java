@@ -76,6 +76,11 @@ public class ZContext implements Closeable
      */
     private boolean main;
 
+    /**
+     * Reactor of the asynchronous operations, created on first use
+     */
+    private ZAsync async;
+
     /**
      * Class Constructor
      */
@@ -97,6 +102,12 @@ public class ZContext implements Closeable
      */
     public void destroy()
     {
+        synchronized (this) {
+            if (async != null) {
+                async.close();
+                async = null;
+            }
+        }
         for (Socket socket : sockets) {
             try {
                 socket.setLinger(linger);
@@ -253,6 +264,19 @@ public class ZContext implements Closeable
         return result;
     }
 
+    /**
+     * Returns the reactor performing the asynchronous operations on the sockets of this context.
+     *
+     * @return the reactor, started on the first call and stopped when the context is destroyed.
+     */
+    public synchronized ZAsync getAsync()
+    {
+        if (async == null) {
+            async = new ZAsync();
+        }
+        return async;
+    }
+
     /**
      * @param ctx   sets the underlying org.zeromq.Context associated with this ZContext wrapper object
      */
@@ -0,0 +1,399 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zeromq.ZMQ.Socket;
+
+/**
+ * Reactive streams of messages over sockets.
+ * <p>
+ * The interfaces have the same contract as the ones of java.util.concurrent.Flow and of the
+ * Reactive Streams specification, so they can be bridged with a one-line adapter.
+ * <p>
+ * A {@link #publisher(ZAsync, Socket) publisher} receives from a socket only what its subscriber requested,
+ * so the unread messages stay in the socket pipes where the high water marks apply.
+ * A {@link #subscriber(ZAsync, Socket, int) subscriber} requests at most a window of messages upstream and
+ * sends them as soon as the socket accepts them, requesting more for the ones sent.
+ * <p>
+ * Both are driven by the reactor thread of a {@link ZAsync} that owns the socket, which is also
+ * the thread calling the methods of a subscriber attached to a publisher.
+ */
+public final class ZFlow
+{
+    public interface Publisher<T>
+    {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T>
+    {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription
+    {
+        void request(long n);
+
+        void cancel();
+    }
+
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R>
+    {
+    }
+
+    //  Maximum number of messages transferred for a socket in one pass of the reactor.
+    private static final int BATCH = 256;
+
+    private ZFlow()
+    {
+    }
+
+    /**
+     * Creates a publisher of the messages received on a socket.
+     * A socket accepts one subscriber only.
+     *
+     * @param async the reactor driving the socket.
+     * @param socket the socket to receive from.
+     * @return the publisher.
+     */
+    public static Publisher<ZMsg> publisher(ZAsync async, Socket socket)
+    {
+        return new SocketPublisher(async, socket);
+    }
+
+    /**
+     * Creates a subscriber sending the messages to a socket,
+     * with a window equal to the send high water mark of the socket.
+     *
+     * @param async the reactor driving the socket.
+     * @param socket the socket to send to.
+     * @return the subscriber.
+     */
+    public static Subscriber<ZMsg> subscriber(ZAsync async, Socket socket)
+    {
+        long hwm = socket.getSndHWM();
+        return subscriber(async, socket, hwm > 0 && hwm < Integer.MAX_VALUE ? (int) hwm : BATCH);
+    }
+
+    /**
+     * Creates a subscriber sending the messages to a socket.
+     *
+     * @param async the reactor driving the socket.
+     * @param socket the socket to send to.
+     * @param window the maximum number of messages requested and not sent yet.
+     * @return the subscriber.
+     */
+    public static Subscriber<ZMsg> subscriber(ZAsync async, Socket socket, int window)
+    {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window shall be positive: " + window);
+        }
+        return new SocketSubscriber(async, socket, window);
+    }
+
+    private static final class SocketPublisher implements Publisher<ZMsg>
+    {
+        private final ZAsync async;
+        private final Socket socket;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        private SocketPublisher(ZAsync async, Socket socket)
+        {
+            this.async = async;
+            this.socket = socket;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super ZMsg> subscriber)
+        {
+            if (subscriber == null) {
+                throw new NullPointerException("subscriber");
+            }
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Subscription()
+                {
+                    @Override
+                    public void request(long n)
+                    {
+                    }
+
+                    @Override
+                    public void cancel()
+                    {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("socket already subscribed"));
+                return;
+            }
+            Inbound inbound = new Inbound(async, subscriber);
+            subscriber.onSubscribe(inbound);
+            async.attach(socket, inbound);
+        }
+    }
+
+    //  Subscription of a publisher, receiving on the reactor thread.
+    private static final class Inbound implements Subscription, ZAsync.Task
+    {
+        private final ZAsync async;
+        private final Subscriber<? super ZMsg> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile Throwable invalid;
+
+        private Inbound(ZAsync async, Subscriber<? super ZMsg> subscriber)
+        {
+            this.async = async;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0) {
+                invalid = new IllegalArgumentException("non-positive request: " + n);
+            }
+            else {
+                long current = demand.get();
+                //  saturate at Long.MAX_VALUE, meaning an unbounded demand
+                while (!demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n)) {
+                    current = demand.get();
+                }
+            }
+            async.wakeup();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            async.wakeup();
+        }
+
+        @Override
+        public int perform(Socket socket, List<Runnable> completions)
+        {
+            if (cancelled) {
+                return -1;
+            }
+            if (invalid != null) {
+                completions.add(error(invalid));
+                return -1;
+            }
+            long wanted = demand.get();
+            int received = 0;
+            try {
+                while (received < wanted && received < BATCH) {
+                    ZMsg msg = ZMsg.recvMsg(socket, ZMQ.DONTWAIT);
+                    if (msg == null) {
+                        break;
+                    }
+                    ++received;
+                    completions.add(next(msg));
+                }
+            }
+            catch (RuntimeException e) {
+                completions.add(error(e));
+                return -1;
+            }
+            if (wanted != Long.MAX_VALUE) {
+                wanted = demand.addAndGet(-received);
+            }
+            return wanted > 0 ? ZMQ.Poller.POLLIN : 0;
+        }
+
+        @Override
+        public void abort(List<Runnable> completions)
+        {
+            if (!cancelled) {
+                completions.add(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        subscriber.onComplete();
+                    }
+                });
+            }
+        }
+
+        private Runnable next(final ZMsg msg)
+        {
+            return new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (cancelled) {
+                        msg.destroy();
+                    }
+                    else {
+                        subscriber.onNext(msg);
+                    }
+                }
+            };
+        }
+
+        private Runnable error(final Throwable cause)
+        {
+            return new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    cancelled = true;
+                    subscriber.onError(cause);
+                }
+            };
+        }
+    }
+
+    //  Subscriber queuing the messages for the reactor thread to send.
+    private static final class SocketSubscriber implements Subscriber<ZMsg>, ZAsync.Task
+    {
+        private final ZAsync async;
+        private final Socket socket;
+        private final int window;
+        private final Queue<ZMsg> queue = new ConcurrentLinkedQueue<ZMsg>();
+        private volatile Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable failed;
+
+        private SocketSubscriber(ZAsync async, Socket socket, int window)
+        {
+            this.async = async;
+            this.socket = socket;
+            this.window = window;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription)
+        {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            async.attach(socket, this);
+            subscription.request(window);
+        }
+
+        @Override
+        public void onNext(ZMsg msg)
+        {
+            if (msg == null) {
+                throw new NullPointerException("msg");
+            }
+            queue.add(msg);
+            async.wakeup();
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            failed = throwable;
+            async.wakeup();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+            async.wakeup();
+        }
+
+        @Override
+        public int perform(Socket socket, List<Runnable> completions)
+        {
+            if (failed != null) {
+                clear();
+                return -1;
+            }
+            //  read before draining, the messages are queued before the completion
+            boolean done = completed;
+            int sent = 0;
+            try {
+                ZMsg msg = queue.peek();
+                while (msg != null && sent < BATCH && ZAsync.send(socket, msg)) {
+                    queue.poll();
+                    ++sent;
+                    msg = queue.peek();
+                }
+            }
+            catch (RuntimeException e) {
+                clear();
+                completions.add(request(0));
+                return -1;
+            }
+            if (sent > 0) {
+                completions.add(request(sent));
+            }
+            if (!queue.isEmpty()) {
+                return ZMQ.Poller.POLLOUT;
+            }
+            return done ? -1 : 0;
+        }
+
+        @Override
+        public void abort(List<Runnable> completions)
+        {
+            clear();
+            completions.add(request(0));
+        }
+
+        //  Requests more messages upstream, or cancels the subscription if none.
+        private Runnable request(final int count)
+        {
+            return new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (count > 0) {
+                        subscription.request(count);
+                    }
+                    else {
+                        subscription.cancel();
+                    }
+                }
+            };
+        }
+
+        private void clear()
+        {
+            ZMsg msg = queue.poll();
+            while (msg != null) {
+                msg.destroy();
+                msg = queue.poll();
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.zeromq;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 import org.zeromq.ZMQ.Socket;
@@ -52,6 +53,15 @@ public class ZFrame
 
     private byte[] data;
 
+    //  Message holding the content when it has not been copied
+    //  into data yet, e.g. a file region or a received message.
+    private zmq.Msg msg;
+
+    //  Pool the frame returns to when destroyed, if any.
+    private final ZMsg.Pool pool;
+    //  True when the frame is back in its pool.
+    boolean free;
+
     /**
      * Class Constructor
      * Creates an empty frame.
@@ -61,6 +71,13 @@ public class ZFrame
      */
     protected ZFrame()
     {
+        this.pool = null;
+    }
+
+    //  Creates an empty frame returning to the given pool when destroyed.
+    ZFrame(ZMsg.Pool pool)
+    {
+        this.pool = pool;
     }
 
     /**
@@ -73,6 +90,7 @@ public class ZFrame
      */
     public ZFrame(byte[] data)
     {
+        this.pool = null;
         if (data != null) {
             this.data = data;
         }
@@ -87,18 +105,45 @@ public class ZFrame
      */
     public ZFrame(String data)
     {
+        this.pool = null;
         if (data != null) {
             this.data = data.getBytes(ZMQ.CHARSET);
         }
     }
 
+    /**
+     * Class Constructor
+     * Creates a frame whose content is a region of a file.
+     * The content is sent with FileChannel.transferTo over tcp and is only
+     * read into memory if getData() is called.
+     * The channel is not closed and must stay open until the frame is sent.
+     *
+     * @param channel
+     *          File to read the content from
+     * @param position
+     *          Position of the region in the file
+     * @param size
+     *          Number of bytes in the region
+     */
+    public ZFrame(FileChannel channel, long position, int size)
+    {
+        this.pool = null;
+        this.msg = new zmq.Msg(channel, position, size);
+    }
+
     /**
      * Destructor.
+     * A frame received with a {@link ZMsg.Pool} returns to it, and shall not be used afterwards.
      */
     public void destroy()
     {
         if (hasData()) {
             data = null;
+            msg = null;
+        }
+        if (pool != null && !free) {
+            more = false;
+            pool.release(this);
         }
     }
 
@@ -107,6 +152,10 @@ public class ZFrame
      */
     public byte[] getData()
     {
+        if (data == null && msg != null) {
+            data = msg.data();
+            msg = null;
+        }
         return data;
     }
 
@@ -128,9 +177,12 @@ public class ZFrame
      */
     public int size()
     {
-        if (hasData()) {
+        if (data != null) {
             return data.length;
         }
+        else if (msg != null) {
+            return msg.size();
+        }
         else {
             return 0;
         }
@@ -145,7 +197,7 @@ public class ZFrame
      */
     public boolean hasData()
     {
-        return data != null;
+        return data != null || msg != null;
     }
 
     /**
@@ -165,6 +217,10 @@ public class ZFrame
             throw new IllegalArgumentException("socket parameter must be set");
         }
 
+        if (data == null && msg != null) {
+            //  Share the content so the frame can be sent again.
+            return socket.sendMsg(msg.share(), flags);
+        }
         return socket.send(data, flags);
     }
 
@@ -243,7 +299,7 @@ public class ZFrame
      */
     public ZFrame duplicate()
     {
-        return new ZFrame(this.data);
+        return new ZFrame(getData());
     }
 
     /**
@@ -262,7 +318,7 @@ public class ZFrame
         }
 
         if (size() == other.size()) {
-            return Arrays.equals(data, other.data);
+            return Arrays.equals(getData(), other.getData());
         }
         return false;
     }
@@ -276,6 +332,7 @@ public class ZFrame
     public void reset(String data)
     {
         this.data = data.getBytes(ZMQ.CHARSET);
+        this.msg = null;
     }
 
     /**
@@ -287,6 +344,7 @@ public class ZFrame
     public void reset(byte[] data)
     {
         this.data = data;
+        this.msg = null;
     }
 
     /**
@@ -298,7 +356,7 @@ public class ZFrame
         String hexChar = "0123456789ABCDEF";
 
         StringBuilder b = new StringBuilder();
-        for (byte aData : data) {
+        for (byte aData : getData()) {
             int b1 = aData >>> 4 & 0xf;
             int b2 = aData & 0xf;
             b.append(hexChar.charAt(b1));
@@ -321,7 +379,7 @@ public class ZFrame
         if (!hasData()) {
             return false;
         }
-        return new String(this.data, ZMQ.CHARSET).compareTo(str) == 0;
+        return new String(getData(), ZMQ.CHARSET).compareTo(str) == 0;
     }
 
     @Override
@@ -334,13 +392,13 @@ public class ZFrame
             return false;
         }
         ZFrame zFrame = (ZFrame) o;
-        return Arrays.equals(data, zFrame.data);
+        return Arrays.equals(getData(), zFrame.getData());
     }
 
     @Override
     public int hashCode()
     {
-        return Arrays.hashCode(data);
+        return Arrays.hashCode(getData());
     }
 
     /**
@@ -355,6 +413,7 @@ public class ZFrame
             return "";
         }
         // Dump message as text or hex-encoded string
+        byte[] data = getData();
         boolean isText = true;
         for (byte aData : data) {
             if (aData < 32) {
@@ -381,7 +440,7 @@ public class ZFrame
      * @return
      *          byte[] data
      */
-    private byte[] recv(Socket socket, int flags)
+    byte[] recv(Socket socket, int flags)
     {
         if (socket == null) {
             throw new IllegalArgumentException("socket parameter must not be null");
@@ -392,6 +451,24 @@ public class ZFrame
         return data;
     }
 
+    //  Receives the frame without copying its content,
+    //  which is only turned into a byte array by getData().
+    //  Returns false if nothing was received.
+    boolean receive(Socket socket, int flags)
+    {
+        if (socket == null) {
+            throw new IllegalArgumentException("socket parameter must not be null");
+        }
+
+        msg = socket.recvMsg(flags);
+        data = null;
+        if (msg == null) {
+            return false;
+        }
+        more = msg.hasMore();
+        return true;
+    }
+
     /**
      * Receives single frame from socket, returns the received frame object, or null if the recv
      * was interrupted. Does a blocking recv, if you want to not block then use
@@ -424,8 +501,7 @@ public class ZFrame
     public static ZFrame recvFrame(Socket socket, int flags)
     {
         ZFrame f = new ZFrame();
-        byte [] data = f.recv(socket, flags);
-        if (data == null) {
+        if (!f.receive(socket, flags)) {
             return null;
         }
         return f;
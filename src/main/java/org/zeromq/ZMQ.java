@@ -21,10 +21,12 @@ package org.zeromq;
 
 import java.io.Closeable;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.charset.Charset;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import zmq.CodecFactory;
 import zmq.Ctx;
 import zmq.DecoderBase;
 import zmq.EncoderBase;
@@ -115,6 +117,21 @@ public class ZMQ
      * Flag to specify the receiving part of the PUB or XPUB socket. Allows
      */
     public static final int XSUB = zmq.ZMQ.ZMQ_XSUB;
+    /**
+     * Flag to specify a STREAM socket, exchanging raw bytes with plain TCP peers.
+     * Each message is the connection identity followed by the data.
+     */
+    public static final int STREAM = zmq.ZMQ.ZMQ_STREAM;
+    /**
+     * Flag to specify a RADIO socket, publishing messages to groups.
+     * Receiving side must be a DISH.
+     */
+    public static final int RADIO = zmq.ZMQ.ZMQ_RADIO;
+    /**
+     * Flag to specify a DISH socket, receiving the messages of the groups
+     * it has joined from a RADIO.
+     */
+    public static final int DISH = zmq.ZMQ.ZMQ_DISH;
 
     /**
      * Flag to specify a STREAMER device.
@@ -233,6 +250,25 @@ public class ZMQ
      */
     public static final int EVENT_ALL = zmq.ZMQ.ZMQ_EVENT_ALL;
 
+    /**
+     * LB_ROUND_ROBIN: each message goes to the next peer in turn.
+     */
+    public static final int LB_ROUND_ROBIN = zmq.ZMQ.ZMQ_LB_ROUND_ROBIN;
+    /**
+     * LB_WEIGHTED: each peer gets as many messages in a row as its weight, then the next one in turn.
+     */
+    public static final int LB_WEIGHTED = zmq.ZMQ.ZMQ_LB_WEIGHTED;
+    /**
+     * LB_LEAST_QUEUED: each message goes to the peer with the fewest messages queued for its weight,
+     * as found by comparing the current peer with the next one in turn.
+     */
+    public static final int LB_LEAST_QUEUED = zmq.ZMQ.ZMQ_LB_LEAST_QUEUED;
+    /**
+     * LB_POWER_OF_TWO: each message goes to the peer with the fewest messages queued for its weight,
+     * among two peers picked at random.
+     */
+    public static final int LB_POWER_OF_TWO = zmq.ZMQ.ZMQ_LB_POWER_OF_TWO;
+
     public static final byte[] MESSAGE_SEPARATOR = new byte[0];
 
     public static final byte[] SUBSCRIPTION_ALL = new byte[0];
@@ -600,28 +636,48 @@ public class ZMQ
         /**
          * @see #setSwap(long)
          *
-         * @return the number of messages to swap at most.
+         * @return the maximum size of the swap space in bytes, 0 if disabled.
          */
-        @Deprecated
         public final long getSwap()
         {
-            // not support at zeromq 3
-            return -1L;
+            return (Long) base.getsockoptx(zmq.ZMQ.ZMQ_SWAP);
         }
 
         /**
-         * Get the Swap. The 'ZMQ_SWAP' option shall set the disk offload (swap) size for the
+         * Set the Swap. The 'ZMQ_SWAP' option shall set the disk offload (swap) size for the
          * specified 'socket'. A socket which has 'ZMQ_SWAP' set to a non-zero value may exceed its
          * high water mark; in this case outstanding messages shall be offloaded to storage on disk
-         * rather than held in memory.
+         * rather than held in memory. The swap space is per connection, and the messages swapped
+         * out are sent in order as the peer catches up, whenever the socket is used.
          *
          * @param value
          *            The value of 'ZMQ_SWAP' defines the maximum size of the swap space in bytes.
+         *            Default 0 (disabled).
          */
-        @Deprecated
         public final void setSwap(long value)
         {
-            throw new UnsupportedOperationException();
+            setsockopt(zmq.ZMQ.ZMQ_SWAP, value);
+        }
+
+        /**
+         * @see #setSwapDirectory(String)
+         *
+         * @return the directory of the swap files, null for the default temporary directory.
+         */
+        public final String getSwapDirectory()
+        {
+            return (String) base.getsockoptx(zmq.ZMQ.ZMQ_SWAP_DIR);
+        }
+
+        /**
+         * Set the directory where the swap files of the connections made afterwards are created.
+         *
+         * @param dir
+         *            the directory, or null for the default temporary directory.
+         */
+        public final void setSwapDirectory(String dir)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_SWAP_DIR, dir);
         }
 
         /**
@@ -1039,6 +1095,39 @@ public class ZMQ
             setsockopt(zmq.ZMQ.ZMQ_UNSUBSCRIBE, topic);
         }
 
+        /**
+         * Join a group on a 'ZMQ_DISH' socket. Only the messages published to
+         * the joined groups are received.
+         *
+         * @param group the group to join, at most 255 bytes long.
+         * @return true if successful.
+         */
+        public final boolean join(String group)
+        {
+            if (base.join(group)) {
+                return true;
+            }
+
+            mayRaise();
+            return false;
+        }
+
+        /**
+         * Leave a group previously joined on a 'ZMQ_DISH' socket.
+         *
+         * @param group the group to leave.
+         * @return true if successful.
+         */
+        public final boolean leave(String group)
+        {
+            if (base.leave(group)) {
+                return true;
+            }
+
+            mayRaise();
+            return false;
+        }
+
         /**
          * Set custom Encoder
          * @param cls
@@ -1057,6 +1146,16 @@ public class ZMQ
             base.setSocketOpt(zmq.ZMQ.ZMQ_DECODER, cls);
         }
 
+        /**
+         * Set the factory creating the encoder and decoder of each connection.
+         * Replaces any custom Encoder or Decoder class.
+         * @param codec the codec factory, null for the default codecs
+         */
+        public final void setCodec(CodecFactory codec)
+        {
+            base.setSocketOpt(zmq.ZMQ.ZMQ_CODEC, codec);
+        }
+
         /**
          * Sets the ROUTER socket behavior when an unroutable message is encountered.
          *
@@ -1091,6 +1190,56 @@ public class ZMQ
             setsockopt(zmq.ZMQ.ZMQ_XPUB_VERBOSE, verbose ? 1 : 0);
         }
 
+        /**
+         * Sets the number of topics of which the PUB or XPUB socket keeps the last message,
+         * sending it to the subscribers as they subscribe to the topic. The topic is the first
+         * frame of the message. The least recently published topics are evicted first.
+         *
+         * @param topics the number of topics held, 0 (default) to disable the cache.
+         */
+        public final void setXpubLastValues(int topics)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_XPUB_LAST_VALUES, topics);
+        }
+
+        /**
+         * @see #setXSubSnapshot(boolean)
+         *
+         * @return true if the subscriptions are sent as a single message.
+         */
+        public final boolean getXSubSnapshot()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_XSUB_SNAPSHOT) != 0;
+        }
+
+        /**
+         * Sets whether a SUB or XSUB socket sends all its subscriptions as a single message
+         * to a publisher it connects or reconnects to, rather than one message per topic.
+         * The subscriptions made afterwards are still sent one by one. Only XPUB sockets of
+         * this library understand it, and only if they set it too: they then pass it on as a
+         * single message to the user, which an XSUB socket setting it forwards as such.
+         * Otherwise an XPUB socket takes such a message for a user message.
+         *
+         * @param value true to send the subscriptions as a single message. Default false.
+         */
+        public final void setXSubSnapshot(boolean value)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_XSUB_SNAPSHOT, value ? 1 : 0);
+        }
+
+        /**
+         * Sets the number of first bytes of the messages a SUB socket hashes to reject
+         * most of the ones that match no subscription, before checking the subscriptions.
+         * It pays off with many subscriptions and mostly non-matching messages, and requires
+         * the subscriptions to be at least that long, otherwise every message is checked.
+         *
+         * @param length the number of bytes hashed, 0 (default) to disable the prefilter.
+         */
+        public final void setSubPrefilter(int length)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_SUB_PREFILTER, length);
+        }
+
         /**
          * @see #setIPv4Only (boolean)
          *
@@ -1157,6 +1306,324 @@ public class ZMQ
             setsockopt(zmq.ZMQ.ZMQ_DELAY_ATTACH_ON_CONNECT, value ? 1 : 0);
         }
 
+        /**
+         * @see #setParking(boolean)
+         *
+         * @return true if blocking calls park the calling thread.
+         */
+        public boolean isParking()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_PARKING) == 1;
+        }
+
+        /**
+         * Wait for messages by parking the calling thread
+         *
+         * If set to true, blocking send and receive calls park the calling thread with LockSupport
+         * and are woken up by the thread delivering the commands, instead of waiting on a selector.
+         * This avoids pinning a selector per waiting thread when many threads block on sockets.
+         *
+         * @param value The value of 'ZMQ_PARKING'. Default false.
+         */
+        public void setParking(boolean value)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_PARKING, value ? 1 : 0);
+        }
+
+        /**
+         * @see #setCompression(int)
+         *
+         * @return the minimum size of the compressed frames, 0 if compression is disabled.
+         */
+        public int getCompression()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_COMPRESSION);
+        }
+
+        /**
+         * Compress the frames over tcp
+         *
+         * If set to a positive size, the frames at least as large are compressed with Deflate by the I/O thread,
+         * when this makes them smaller. Compression is negotiated on each connection, and is only used when
+         * both peers are JeroMQ sockets enabling it. Other connections are not affected.
+         * This trades I/O thread CPU for bandwidth, and suits compressible content over constrained links.
+         * The option only applies to the connections established after it is set.
+         *
+         * @param threshold The value of 'ZMQ_COMPRESSION', in bytes. Default 0, no compression.
+         */
+        public void setCompression(int threshold)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_COMPRESSION, threshold);
+        }
+
+        /**
+         * @see #setTcpListeners(int)
+         *
+         * @return the number of listeners of the tcp endpoints.
+         */
+        public int getTcpListeners()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_TCP_LISTENERS);
+        }
+
+        /**
+         * Listen to tcp endpoints in several I/O threads
+         *
+         * If above 1, binding to a tcp endpoint opens as many listeners sharing its port with SO_REUSEPORT,
+         * each in its own I/O thread when the context has enough of them, so that accepting a storm of connections
+         * is spread over the threads by the kernel. When the platform or the Java runtime does not support
+         * SO_REUSEPORT, a single listener is opened.
+         * The option only applies to the endpoints bound after it is set.
+         *
+         * @param listeners The value of 'ZMQ_TCP_LISTENERS'. Default 1.
+         */
+        public void setTcpListeners(int listeners)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_TCP_LISTENERS, listeners);
+        }
+
+        /**
+         * @see #setTcpConnections(int)
+         *
+         * @return the number of connections to each peer of the tcp endpoints.
+         */
+        public int getTcpConnections()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_TCP_CONNECTIONS);
+        }
+
+        /**
+         * Open several connections to each peer of the tcp endpoints
+         *
+         * Connecting to a tcp endpoint opens as many connections to the peer, each with its own pipe and
+         * reconnection, in the least loaded I/O threads. With DEALER or PUSH sockets, the messages are then
+         * spread over the connections, and over the I/O threads.
+         * The option only applies to the endpoints connected after it is set.
+         *
+         * @param connections The value of 'ZMQ_TCP_CONNECTIONS'. Default 1.
+         */
+        public void setTcpConnections(int connections)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_TCP_CONNECTIONS, connections);
+        }
+
+        /**
+         * @see #setTcpResolveAll(boolean)
+         *
+         * @return true if all the addresses of the host names are connected to.
+         */
+        public boolean isTcpResolveAll()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_TCP_RESOLVE_ALL) != 0;
+        }
+
+        /**
+         * Connect to all the addresses of a host name
+         *
+         * If true, connecting to a tcp endpoint connects to each of the addresses its host name resolves to,
+         * e.g. all the brokers of a DNS record, instead of the first one. Disconnecting from the endpoint
+         * closes all these connections.
+         * The option only applies to the endpoints connected after it is set.
+         *
+         * @param value The value of 'ZMQ_TCP_RESOLVE_ALL'. Default false.
+         */
+        public void setTcpResolveAll(boolean value)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_TCP_RESOLVE_ALL, value ? 1 : 0);
+        }
+
+        /**
+         * Set the resolver of host names
+         *
+         * The host names of the tcp endpoints connected to are resolved in background threads, so that connecting
+         * never waits for the name servers. A custom resolver may query a service registry instead of the system,
+         * or stub the lookups out in tests.
+         * The option only applies to the endpoints connected after it is set.
+         *
+         * @param resolver The resolver of host names, or null for the system one.
+         */
+        public void setResolver(zmq.Resolver resolver)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_RESOLVER, resolver);
+        }
+
+        /**
+         * @see #setResolveTTL(int)
+         *
+         * @return the time the resolved addresses are cached for, in milliseconds.
+         */
+        public int getResolveTTL()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_RESOLVE_TTL);
+        }
+
+        /**
+         * Set the time to live of the resolved addresses
+         *
+         * The addresses host names resolve to are cached for this time, and shared by the sockets of the context
+         * with the same resolver, so that reconnecting, or connecting many times to the same host, does not query
+         * the name servers again. Failed lookups are not cached.
+         *
+         * @param ttl The value of 'ZMQ_RESOLVE_TTL' in milliseconds. 0 disables the cache. Default 30000.
+         */
+        public void setResolveTTL(int ttl)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_RESOLVE_TTL, ttl);
+        }
+
+        /**
+         * @see #setReconnectResolve(boolean)
+         *
+         * @return true if host names are resolved again before reconnecting.
+         */
+        public boolean isReconnectResolve()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_RECONNECT_RESOLVE) != 0;
+        }
+
+        /**
+         * Resolve host names again before reconnecting
+         *
+         * If true, the host name of a tcp endpoint is resolved again, through the cache, before each reconnection,
+         * following the changes of its records and trying its other addresses after a failure. If false, the
+         * addresses found the first time are reused.
+         *
+         * @param value The value of 'ZMQ_RECONNECT_RESOLVE'. Default true.
+         */
+        public void setReconnectResolve(boolean value)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_RECONNECT_RESOLVE, value ? 1 : 0);
+        }
+
+        /**
+         * @see #setLoadBalancing(int)
+         *
+         * @return the strategy load-balancing the messages.
+         */
+        public int getLoadBalancing()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_LB_STRATEGY);
+        }
+
+        /**
+         * Set the load balancing strategy
+         *
+         * Chooses the peer each message of a PUSH, DEALER or REQ socket is sent to, among the ones below their high
+         * water mark: LB_ROUND_ROBIN, LB_WEIGHTED, LB_LEAST_QUEUED or LB_POWER_OF_TWO. The last two send less to
+         * the peers slow to read their messages, instead of queuing as many messages to every peer. Every strategy
+         * chooses a peer in constant time.
+         *
+         * The messages queued to a peer are the ones it is not known to have read yet, and peers report the
+         * messages they read in batches of the low water mark: half the high water mark, or the high water mark
+         * less 1024 above 2048 messages. LB_LEAST_QUEUED and LB_POWER_OF_TWO thus tell apart the peers falling
+         * behind by about that many messages, not the ones a few messages apart.
+         *
+         * @param strategy The value of 'ZMQ_LB_STRATEGY'. Default LB_ROUND_ROBIN.
+         */
+        public void setLoadBalancing(int strategy)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_LB_STRATEGY, strategy);
+        }
+
+        /**
+         * @see #setLoadBalancingWeight(int)
+         *
+         * @return the weight of the peers connected from now on.
+         */
+        public int getLoadBalancingWeight()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_LB_WEIGHT);
+        }
+
+        /**
+         * Set the weight of the next peers
+         *
+         * The peers attached after the option is set get a share of the messages proportional to their weight,
+         * e.g. twice as many messages for a weight of 2 than for a weight of 1, with the LB_WEIGHTED strategy,
+         * or twice as many messages queued with LB_LEAST_QUEUED and LB_POWER_OF_TWO.
+         *
+         * @param weight The value of 'ZMQ_LB_WEIGHT'. Default 1.
+         */
+        public void setLoadBalancingWeight(int weight)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_LB_WEIGHT, weight);
+        }
+
+        /**
+         * @see #setFQPriority(int)
+         *
+         * @return the priority class of the endpoints connected or bound from now on.
+         */
+        public int getFQPriority()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_FQ_PRIORITY);
+        }
+
+        /**
+         * Set the priority class of the next endpoints
+         *
+         * The peers of the endpoints connected or bound after the option is set belong to this class, from 0 to 7.
+         * The messages of a class are received only when no peer of a higher class has any, e.g. to read the
+         * messages of control peers before the ones of data peers, bound on another endpoint of the socket.
+         *
+         * @param priority The value of 'ZMQ_FQ_PRIORITY'. Default 0.
+         */
+        public void setFQPriority(int priority)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_FQ_PRIORITY, priority);
+        }
+
+        /**
+         * @see #setFQQuantum(int)
+         *
+         * @return the number of bytes received in turn from each peer.
+         */
+        public int getFQQuantum()
+        {
+            return base.getSocketOpt(zmq.ZMQ.ZMQ_FQ_QUANTUM);
+        }
+
+        /**
+         * Set the quantum of fair queueing
+         *
+         * If above 0, the peers of a priority class are received from in turn for as many bytes, instead of a
+         * message at a time, so that a peer sending large messages does not get more of the bandwidth than the
+         * others. It should be at least the size of the usual messages.
+         *
+         * @param quantum The value of 'ZMQ_FQ_QUANTUM' in bytes. Default 0.
+         */
+        public void setFQQuantum(int quantum)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_FQ_QUANTUM, quantum);
+        }
+
+        /**
+         * Filter the connections accepted on tcp endpoints
+         *
+         * Adds a rule in CIDR notation, e.g. "192.168.1.0/24", "10.1.2.3" or "2001:db8::/32", allowing the peers
+         * of the range. A rule starting with '!' denies them instead. The most specific rule matching a peer
+         * decides, and once allow rules are set the peers matching no rule are rejected. The rules are checked
+         * before any resource is allocated for the connection, and apply to the endpoints already bound.
+         *
+         * @param rule The value of 'ZMQ_TCP_ACCEPT_FILTER', or null to remove all the rules.
+         */
+        public void setTcpAcceptFilter(String rule)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_TCP_ACCEPT_FILTER, rule);
+        }
+
+        /**
+         * Replaces all the rules filtering the connections accepted on tcp endpoints at once.
+         *
+         * @see #setTcpAcceptFilter(String)
+         *
+         * @param filter The rules, built with {@link zmq.TcpAcceptFilter#of(boolean, String...)}.
+         */
+        public void setTcpAcceptFilter(zmq.TcpAcceptFilter filter)
+        {
+            setsockopt(zmq.ZMQ.ZMQ_TCP_ACCEPT_FILTER, filter);
+        }
+
         /**
          * Bind to network interface. Start listening for new connections.
          *
@@ -1248,6 +1715,20 @@ public class ZMQ
             mayRaise();
         }
 
+        /**
+         * Connect to a group of remote applications.
+         * The messages are spread over the endpoints according to the pattern of the socket.
+         *
+         * @param addrs
+         *            the endpoints to connect to.
+         */
+        public final void connect(String... addrs)
+        {
+            for (String addr : addrs) {
+                connect(addr);
+            }
+        }
+
         /**
          * Disconnect to remote application.
          *
@@ -1323,6 +1804,8 @@ public class ZMQ
 
         /**
          * Send a message
+         * A MappedByteBuffer can be passed to send a memory-mapped file
+         * without copying it into the heap.
          *
          * @param data ByteBuffer payload
          * @param flags the flags to apply to the send operation
@@ -1338,6 +1821,65 @@ public class ZMQ
             mayRaise();
             return -1;
         }
+
+        /**
+         * Send a region of a file as a single message frame.
+         * Over tcp the region is written with FileChannel.transferTo,
+         * so the content is never copied into the heap.
+         * The channel is not closed and must stay open until the message is sent.
+         *
+         * @param channel the file to send from
+         * @param position the position of the region in the file
+         * @param count the number of bytes to send
+         * @param flags the flags to apply to the send operation
+         * @return the number of bytes sent, -1 on error
+         */
+        public final int sendFile(FileChannel channel, long position, int count, int flags)
+        {
+            zmq.Msg msg = new zmq.Msg(channel, position, count);
+            if (base.send(msg, flags)) {
+                return count;
+            }
+
+            mayRaise();
+            return -1;
+        }
+
+        /**
+         * Publish a message to a group from a 'ZMQ_RADIO' socket.
+         *
+         * @param group the group to publish to.
+         * @param data the message payload.
+         * @param flags the flags to apply to the send operation.
+         * @return true if successful.
+         */
+        public final boolean send(String group, byte[] data, int flags)
+        {
+            zmq.Msg msg = new zmq.Msg(data);
+            msg.setGroup(group);
+            return sendMsg(msg, flags);
+        }
+
+        final boolean sendMsg(zmq.Msg msg, int flags)
+        {
+            if (base.send(msg, flags)) {
+                return true;
+            }
+
+            mayRaise();
+            return false;
+        }
+
+        final zmq.Msg recvMsg(int flags)
+        {
+            zmq.Msg msg = base.recv(flags);
+
+            if (msg == null) {
+                mayRaise();
+            }
+            return msg;
+        }
+
         /**
          * Receive a message.
          *
@@ -1934,6 +2476,61 @@ public class ZMQ
         return zmq.ZMQ.proxy(frontend.base, backend.base, capture != null ? capture.base : null);
     }
 
+    /**
+     * Starts the built-in 0MQ proxy in the current application thread, steered by a control socket.
+     * The proxy behaves as {@link #proxy(Socket, Socket, Socket)}, and executes the commands received on the
+     * control socket:
+     * <ul>
+     * <li>PAUSE stops the forwarding of the messages, which queue up in the frontend and backend sockets,</li>
+     * <li>RESUME restarts the forwarding,</li>
+     * <li>TERMINATE stops the proxy, which returns true,</li>
+     * <li>STATISTICS is replied with a message of six 8-byte frames holding the counters of messages, frames
+     * and bytes flowing from the frontend to the backend, then from the backend to the frontend,
+     * in the order of the indexes of {@link zmq.Proxy.Statistics}.</li>
+     * </ul>
+     * A ZMQ_REP control socket receives an empty reply to the commands other than STATISTICS.
+     * @param frontend ZMQ.Socket
+     * @param backend ZMQ.Socket
+     * @param capture If the capture socket is not NULL, the proxy shall send all messages, received on both
+     *                frontend and backend, to the capture socket.
+     * @param control If the control socket is not NULL, the proxy shall execute the commands received on it.
+     */
+    public static boolean proxy(Socket frontend, Socket backend, Socket capture, Socket control)
+    {
+        return zmq.ZMQ.proxy(frontend.base, backend.base,
+                             capture != null ? capture.base : null,
+                             control != null ? control.base : null);
+    }
+
+    /**
+     * Starts as many proxies as there are pairs of frontend and backend sockets, each one in a thread of
+     * its own, so that a broker is not bound to a single core.
+     *
+     * When the frontends are ZMQ_ROUTER sockets, replies are routed back through the frontend the request
+     * came from, whichever backend they are received on: each shard prefixes the routing identity with
+     * its index before forwarding a request.
+     *
+     * Returns only if/when any of the proxies stops, typically when the current context is closed,
+     * once all of them have stopped: the others are stopped along with it, as they are when the current
+     * application thread is interrupted. The sockets are not closed.
+     * @param frontends ZMQ.Socket, one per shard
+     * @param backends ZMQ.Socket, one per shard
+     * @param captures If not NULL, one capture socket per shard, receiving all the messages of the shard.
+     */
+    public static boolean proxy(Socket[] frontends, Socket[] backends, Socket[] captures)
+    {
+        return zmq.ZMQ.proxy(bases(frontends), bases(backends), captures != null ? bases(captures) : null);
+    }
+
+    private static zmq.SocketBase[] bases(Socket[] sockets)
+    {
+        zmq.SocketBase[] bases = new zmq.SocketBase[sockets.length];
+        for (int i = 0; i < sockets.length; i++) {
+            bases[i] = sockets[i].base;
+        }
+        return bases;
+    }
+
     public static int poll(PollItem[] items, long timeout)
     {
         return poll(items, items.length, timeout);
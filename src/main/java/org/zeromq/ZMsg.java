@@ -67,11 +67,27 @@ public class ZMsg implements Iterable<ZFrame>, Deque<ZFrame>
      */
     private ArrayDeque<ZFrame> frames;
 
+    /**
+     * Pool the message returns to when destroyed, if any
+     */
+    private final Pool pool;
+
+    /**
+     * List of frames kept while the message is in its pool
+     */
+    private ArrayDeque<ZFrame> spare;
+
     /**
      * Class Constructor
      */
     public ZMsg()
     {
+        this(null);
+    }
+
+    private ZMsg(Pool pool)
+    {
+        this.pool = pool;
         frames = new ArrayDeque<ZFrame>();
     }
 
@@ -88,7 +104,14 @@ public class ZMsg implements Iterable<ZFrame>, Deque<ZFrame>
             f.destroy();
         }
         frames.clear();
-        frames = null;
+        if (pool != null) {
+            spare = frames;
+            frames = null;
+            pool.release(this);
+        }
+        else {
+            frames = null;
+        }
     }
 
     /**
@@ -265,6 +288,38 @@ public class ZMsg implements Iterable<ZFrame>, Deque<ZFrame>
         return msg;
     }
 
+    /**
+     * Receives message from socket into frames and message taken from the given pool, returns ZMsg object
+     * or null if the recv was interrupted. Setting the flag to ZMQ.DONTWAIT does a non-blocking recv.
+     * The content of the frames is not copied until their data is requested, and the message and its frames
+     * return to the pool when destroyed, e.g. when sent.
+     * @param   socket
+     * @param   flag see ZMQ constants
+     * @param   pool the pool providing the message and its frames
+     * @return
+     *          ZMsg object, null if interrupted
+     */
+    public static ZMsg recvMsg(Socket socket, int flag, Pool pool)
+    {
+        if (socket == null) {
+            throw new IllegalArgumentException("socket is null");
+        }
+
+        ZMsg msg = pool.message();
+        while (true) {
+            ZFrame f = pool.frame();
+            if (!f.receive(socket, flag)) {
+                f.destroy();
+                msg.destroy();
+                return null;
+            }
+            msg.add(f);
+            if (!f.hasMore()) {
+                return msg;
+            }
+        }
+    }
+
     /**
      * Save message to an open data output stream.
      *
@@ -780,4 +835,88 @@ public class ZMsg implements Iterable<ZFrame>, Deque<ZFrame>
         out.append(" ]");
         return out.toString();
     }
+
+    /**
+     * Recycles messages and frames, so receiving messages does not allocate them anymore.
+     * Destroyed messages and frames return to the pool they have been taken from, up to its capacity.
+     * Like sockets, a pool and its messages shall be used by a single thread.
+     *
+     * <pre>
+     * ZMsg.Pool pool = new ZMsg.Pool(16);
+     * while (true) {
+     *     ZMsg msg = ZMsg.recvMsg(frontend, 0, pool);
+     *     ...
+     *     msg.send(backend); // back to the pool
+     * }
+     * </pre>
+     */
+    public static final class Pool
+    {
+        private final int capacity;
+        private final Deque<ZMsg> messages = new ArrayDeque<ZMsg>();
+        private final Deque<ZFrame> frames = new ArrayDeque<ZFrame>();
+
+        /**
+         * @param capacity the maximum number of messages kept in the pool, which keeps up to 4 frames per message.
+         */
+        public Pool(int capacity)
+        {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("capacity must be positive");
+            }
+            this.capacity = capacity;
+        }
+
+        /**
+         * @return the number of spare messages in the pool.
+         */
+        public int messages()
+        {
+            return messages.size();
+        }
+
+        /**
+         * @return the number of spare frames in the pool.
+         */
+        public int frames()
+        {
+            return frames.size();
+        }
+
+        ZMsg message()
+        {
+            ZMsg msg = messages.poll();
+            if (msg == null) {
+                return new ZMsg(this);
+            }
+            msg.frames = msg.spare;
+            msg.spare = null;
+            return msg;
+        }
+
+        ZFrame frame()
+        {
+            ZFrame frame = frames.poll();
+            if (frame == null) {
+                return new ZFrame(this);
+            }
+            frame.free = false;
+            return frame;
+        }
+
+        void release(ZMsg msg)
+        {
+            if (messages.size() < capacity) {
+                messages.push(msg);
+            }
+        }
+
+        void release(ZFrame frame)
+        {
+            frame.free = true;
+            if (frames.size() < capacity * 4) {
+                frames.push(frame);
+            }
+        }
+    }
 }
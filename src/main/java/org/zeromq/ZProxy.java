@@ -19,7 +19,10 @@
 
 package org.zeromq;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -29,6 +32,7 @@ import org.zeromq.ZMQ.Socket;
 import org.zeromq.ZStar.Exit;
 
 import zmq.Msg;
+import zmq.Proxy.Statistics;
 import zmq.SocketBase;
 
 /**
@@ -522,6 +526,39 @@ public class ZProxy
         }
     }
 
+    /**
+     * Inquires for the counters of the traffic of the proxy.
+     * This call is synchronous.
+     * Frames and bytes are only counted by the built-in pumps.
+     *
+     * @return the statistics of the proxy, or null if it exited.
+     */
+    public Statistics statistics()
+    {
+        if (exit.isExited()) {
+            return null;
+        }
+        if (agent.send(STATISTICS)) {
+            // consume the status in the pipe
+            recvStatus();
+
+            ZMsg reply = agent.recv();
+            if (reply == null) {
+                return null;
+            }
+            // refill the pipe with status
+            agent.send(STATUS);
+
+            long[] counters = new long[reply.size()];
+            for (int index = 0; index < counters.length; ++index) {
+                counters[index] = ByteBuffer.wrap(reply.pop().getData()).getLong();
+            }
+            reply.destroy();
+            return new Statistics(counters);
+        }
+        return null;
+    }
+
     // receives the last known state of the proxy
     private String recvStatus()
     {
@@ -577,6 +614,8 @@ public class ZProxy
     private static final String EXIT    = Command.EXIT.name();
     private static final String STATUS  = Command.STATUS.name();
     private static final String CONFIG  = Command.CONFIG.name();
+    // not a command of the state machine
+    private static final String STATISTICS = "STATISTICS";
 
     // to handle states in a more java-centric way
     public static enum State
@@ -697,6 +736,20 @@ public class ZProxy
                 Plug dst, Socket destination);
     }
 
+    // defines a pump that accounts for the traffic it flows
+    private static interface MeteredPump extends Pump
+    {
+        /**
+         * Transfers a message from one source to one destination, with an optional capture.
+         *
+         * @param statistics    the counters where to account for the message.
+         * @param direction     the index of the counter of messages of the flow direction.
+         * @see #flow(Plug, Socket, Socket, Plug, Socket)
+         */
+        boolean flow(Plug src, Socket source, Socket capture,
+                Plug dst, Socket destination, Statistics statistics, int direction);
+    }
+
     // acts in background to proxy messages
     private static final class ProxyActor extends ZActor.SimpleActor
     {
@@ -719,6 +772,9 @@ public class ZProxy
         // the state of the proxy
         private final State state = new State();
 
+        // the counters of the traffic, kept across restarts
+        private final Statistics statistics = new Statistics();
+
         // used to transfer message from one socket to another
         private final Pump transport;
 
@@ -813,6 +869,13 @@ public class ZProxy
             else if (STATUS.equals(cmd)) {
                 return status().send(pipe);
             }
+            else if (STATISTICS.equals(cmd)) {
+                ZMsg reply = new ZMsg();
+                for (int index = 0; index <= Statistics.REPLY_BYTES; ++index) {
+                    reply.add(ByteBuffer.allocate(8).putLong(0, statistics.get(index)).array());
+                }
+                return reply.send(pipe);
+            }
             else if (CONFIG.equals(cmd)) {
                 ZMsg cfg = ZMsg.recvMsg(pipe);
                 boolean rc = provider.configure(pipe, cfg, frontend, backend, capture, args);
@@ -923,21 +986,38 @@ public class ZProxy
         {
             if (socket == frontend) {
                 //  Process a request.
-                return transport.flow(
+                return flow(
                         Plug.FRONT, frontend,
                         capture,
-                        Plug.BACK, backend);
+                        Plug.BACK, backend,
+                        Statistics.REQUEST_MESSAGES);
             }
             if (socket == backend) {
                 //  Process a reply.
-                return transport.flow(
+                return flow(
                         Plug.BACK, backend,
                         capture,
-                        Plug.FRONT, frontend);
+                        Plug.FRONT, frontend,
+                        Statistics.REPLY_MESSAGES);
             }
             return false;
         }
 
+        // transfers a message, accounting for it
+        private boolean flow(Plug splug, Socket source, Socket capture,
+                             Plug dplug, Socket destination, int direction)
+        {
+            if (transport instanceof MeteredPump) {
+                return ((MeteredPump) transport).flow(
+                        splug, source, capture, dplug, destination, statistics, direction);
+            }
+            boolean rc = transport.flow(splug, source, capture, dplug, destination);
+            if (rc) {
+                statistics.count(direction, 0, 0);
+            }
+            return rc;
+        }
+
         @Override
         public boolean looped(Socket pipe, ZPoller poller)
         {
@@ -990,14 +1070,26 @@ public class ZProxy
     /**
      * A pump that reads a message as a whole before transmitting it.
      * It offers a way to transform messages for capture and destination.
+     * It can drain a batch of messages each time its source is ready.
      */
-    public static class ZPump implements Pump
+    public static class ZPump implements MeteredPump
     {
         private static final Identity IDENTITY = new Identity();
 
+        // the number of spare frames kept per message of the batch
+        private static final int SPARE_FRAMES = 4;
+
         // the messages transformer
         private final Transformer transformer;
 
+        // the maximum number of messages transferred per flow
+        private final int batch;
+        // the messages received in the current flow
+        private final ZMsg[] received;
+        // the containers to reuse for the next batches
+        private final Deque<ZMsg> messages = new ArrayDeque<ZMsg>();
+        private final Deque<ZFrame> frames = new ArrayDeque<ZFrame>();
+
         // transforms one message into another
         public static interface Transformer
         {
@@ -1029,24 +1121,80 @@ public class ZProxy
         }
 
         public ZPump(Transformer transformer)
+        {
+            this(transformer, 1);
+        }
+
+        /**
+         * Creates a pump transferring up to a batch of whole messages each time its source is ready,
+         * then sending them in a burst.
+         * The containers of the messages are reused once these are sent, so the transformer
+         * shall not keep the messages it is given, and the pump shall be used by a single proxy.
+         *
+         * @param transformer the messages transformer. Possibly null.
+         * @param batch the maximum number of messages transferred at once. 1 to disable batching.
+         */
+        public ZPump(Transformer transformer, int batch)
         {
             super();
+            if (batch < 1) {
+                throw new IllegalArgumentException("batch must be positive");
+            }
             this.transformer = transformer == null ? IDENTITY : transformer;
+            this.batch = batch;
+            this.received = new ZMsg[batch];
         }
 
         @Override
         public boolean flow(Plug splug, Socket source, Socket capture,
                             Plug dplug, Socket destination)
         {
-            boolean success = false;
+            return flow(splug, source, capture, dplug, destination, null, 0);
+        }
+
+        @Override
+        public boolean flow(Plug splug, Socket source, Socket capture,
+                            Plug dplug, Socket destination, Statistics statistics, int direction)
+        {
+            if (batch == 1) {
+                // we read the whole message
+                ZMsg msg = ZMsg.recvMsg(source);
 
-            // we read the whole message
-            ZMsg msg = ZMsg.recvMsg(source);
+                if (msg == null) {
+                    return false;
+                }
+                return transfer(msg, splug, capture, dplug, destination, statistics, direction, false);
+            }
 
-            if (msg == null) {
+            // we read as many whole messages as available, up to the batch
+            int count = 0;
+            while (count < batch) {
+                ZMsg msg = receive(source, count == 0 ? 0 : ZMQ.DONTWAIT);
+                if (msg == null) {
+                    break;
+                }
+                received[count++] = msg;
+            }
+            if (count == 0) {
                 return false;
             }
 
+            // and send them in a burst
+            boolean success = true;
+            for (int index = 0; index < count; ++index) {
+                ZMsg msg = received[index];
+                received[index] = null;
+                success &= transfer(msg, splug, capture, dplug, destination, statistics, direction, true);
+            }
+            return success;
+        }
+
+        // transforms and sends a message, then destroys or recycles it
+        private boolean transfer(ZMsg msg, Plug splug, Socket capture,
+                                 Plug dplug, Socket destination, Statistics statistics, int direction, boolean reuse)
+        {
+            boolean success = false;
+
             if (capture != null) {
                 //  Copy transformed message to capture socket if any message
                 // TODO what if the transformer modifies or destroys the original message ?
@@ -1054,6 +1202,8 @@ public class ZProxy
 
 //                boolean destroy = !msg.equals(cpt); // TODO ?? which one
                 boolean destroy = msg != cpt;
+                // only the messages untouched by the transformer are reused
+                reuse &= !destroy;
                 success = cpt.send(capture, destroy);
                 if (!success) {
                     // not successful, but we can still try to send it to the destination
@@ -1061,26 +1211,77 @@ public class ZProxy
             }
 
             ZMsg dst = transformer.transform(msg, splug, dplug);
+            if (statistics != null) {
+                statistics.count(direction, dst.size(), dst.contentSize());
+            }
+            reuse &= dst == msg;
             // we send the whole transformed message
-            success = dst.send(destination);
+            success = dst.send(destination, !reuse);
 
             // finished
-            msg.destroy();
+            if (reuse) {
+                recycle(msg);
+            }
+            else {
+                msg.destroy();
+            }
 
             return success;
         }
+
+        // receives a whole message into reused containers, or null if none was available
+        private ZMsg receive(Socket source, int flags)
+        {
+            ZMsg msg = messages.isEmpty() ? new ZMsg() : messages.pop();
+            while (true) {
+                ZFrame frame = frames.isEmpty() ? new ZFrame() : frames.pop();
+                if (!frame.receive(source, flags)) {
+                    frames.push(frame);
+                    recycle(msg);
+                    return null;
+                }
+                msg.add(frame);
+                if (!frame.hasMore()) {
+                    return msg;
+                }
+                // the other parts of a message are always available
+                flags = 0;
+            }
+        }
+
+        // keeps the containers of a sent message for the next batches
+        private void recycle(ZMsg msg)
+        {
+            for (ZFrame frame : msg) {
+                if (frames.size() < batch * SPARE_FRAMES) {
+                    frame.reset((byte[]) null);
+                    frames.push(frame);
+                }
+            }
+            msg.clear();
+            if (messages.size() < batch) {
+                messages.push(msg);
+            }
+        }
     }
 
     /**
      * A specialized transport for better transmission purposes
      * that will send each packets individually instead of the whole message.
      */
-    private static final class ZmqPump implements Pump
+    private static final class ZmqPump implements MeteredPump
     {
-        // transfers each message as a whole by sending each packet received to the capture socket
         @Override
         public boolean flow(Plug splug, Socket source, Socket capture,
                 Plug dplug, Socket destination)
+        {
+            return flow(splug, source, capture, dplug, destination, null, 0);
+        }
+
+        // transfers each message as a whole by sending each packet received to the capture socket
+        @Override
+        public boolean flow(Plug splug, Socket source, Socket capture,
+                Plug dplug, Socket destination, Statistics statistics, int direction)
         {
             boolean rc;
 
@@ -1112,6 +1313,9 @@ public class ZProxy
                     }
                 }
 
+                if (statistics != null) {
+                    statistics.count(direction, msg);
+                }
                 // we send the packet
                 rc = dst.send(msg, more > 0 ? zmq.ZMQ.ZMQ_SNDMORE : 0);
 
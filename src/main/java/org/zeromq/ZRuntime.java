@@ -0,0 +1,366 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.zeromq.ZMQ.Socket;
+
+/**
+ * A fixed pool of event-loop threads running many {@link ZStar stars} and {@link ZActor actors}.
+ * <p>
+ * Without a runtime, every star is forked on its own thread with its own selector.
+ * With a runtime, the stars are spread over a few loops. Each loop waits for all of its stars at once,
+ * on a single selector, and calls back the star that has something to do.
+ * <p>
+ * The stars of a runtime SHALL implement {@link ZStar.Cued}, which is the case of the ones created by {@link ZActor}.
+ * Their callbacks are called exactly like on a dedicated thread, but SHALL not block,
+ * as it would block all the other stars of the same loop.
+ */
+public class ZRuntime implements Closeable
+{
+    // results of a performance
+    // the show is over
+    static final int OVER = -1;
+    // woken up for nothing, the star is still waiting for the same cue
+    static final int IDLE = 0;
+    // the star acted, it needs a new cue
+    static final int ACTED = 1;
+    // the star acted on events, more may be ready
+    static final int BUSY = 2;
+
+    // contract for a show performed on a loop
+    interface Show
+    {
+        // called on the loop when the show is scheduled. Returns false if the show did not start.
+        boolean open(Object[] args, ZContext ctx, Socket pipe);
+
+        // registers into the selector what the show waits for, with the given attachment.
+        // returns the timeout of the wait: -1 to wait indefinitely, 0 to not wait, > 0 for a duration in milliseconds
+        long cue(Selector selector, Object attachment);
+
+        // performs without waiting. Returns one of OVER, IDLE, ACTED or BUSY.
+        int perform(boolean expired);
+
+        // called on the loop once the show is over
+        void close();
+    }
+
+    private static final AtomicInteger runtimes = new AtomicInteger();
+
+    private final Loop[] loops;
+
+    // index of the next loop to schedule a show on
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Creates a runtime with one loop per available processor.
+     */
+    public ZRuntime()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a runtime.
+     *
+     * @param threads the number of event-loop threads.
+     */
+    public ZRuntime(int threads)
+    {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads " + threads);
+        }
+        final int id = runtimes.incrementAndGet();
+        loops = new Loop[threads];
+        try {
+            for (int index = 0; index < threads; ++index) {
+                loops[index] = new Loop(String.format("zruntime-%d-%d", id, index));
+            }
+        }
+        catch (IOException e) {
+            throw new ZMQException.IOException(e);
+        }
+        for (Loop loop : loops) {
+            loop.start();
+        }
+    }
+
+    // same as ZThread.fork, but the show is performed on one of the loops
+    Socket fork(ZContext ctx, Show show, Object... args)
+    {
+        Socket pipe = ctx.createSocket(ZMQ.PAIR);
+
+        if (pipe != null) {
+            pipe.bind(String.format("inproc://zctx-pipe-%d", pipe.hashCode()));
+        }
+        else {
+            return null;
+        }
+
+        //  Connect child pipe to our pipe
+        ZContext ccontext = ZContext.shadow(ctx);
+        Socket cpipe = ccontext.createSocket(ZMQ.PAIR);
+        if (cpipe == null) {
+            return null;
+        }
+        cpipe.connect(String.format("inproc://zctx-pipe-%d", pipe.hashCode()));
+
+        final Loop loop = loops[(next.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+        loop.schedule(new Entry(show, args, ccontext, cpipe));
+
+        return pipe;
+    }
+
+    /**
+     * Stops the loops. The shows still running are closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        for (Loop loop : loops) {
+            loop.shutdown();
+        }
+        for (Loop loop : loops) {
+            try {
+                loop.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    // a show scheduled on a loop
+    private static final class Entry
+    {
+        private final Show show;
+        private final Object[] args;
+        private final ZContext ctx;
+        private final Socket pipe;
+
+        // true when the show needs a new cue
+        private boolean cue = true;
+        // true when the show shall be performed without waiting
+        private boolean hot;
+        // true when a channel of the show has been selected
+        private boolean fired;
+        // time when the wait of the show expires
+        private long deadline;
+
+        private Entry(Show show, Object[] args, ZContext ctx, Socket pipe)
+        {
+            this.show = show;
+            this.args = args;
+            this.ctx = ctx;
+            this.pipe = pipe;
+        }
+    }
+
+    // an event-loop thread
+    private static final class Loop extends Thread
+    {
+        private final Selector selector;
+
+        // shows scheduled from other threads
+        private final Queue<Entry> incoming = new ConcurrentLinkedQueue<Entry>();
+
+        // shows performed on this loop
+        private final List<Entry> entries = new ArrayList<Entry>();
+
+        private volatile boolean running = true;
+
+        private Loop(String name) throws IOException
+        {
+            super(name);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        private void schedule(Entry entry)
+        {
+            incoming.add(entry);
+            selector.wakeup();
+        }
+
+        private void shutdown()
+        {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                while (running) {
+                    admit();
+                    select(cue());
+                    perform();
+                }
+            }
+            finally {
+                admit();
+                for (Entry entry : entries) {
+                    close(entry);
+                }
+                entries.clear();
+                try {
+                    selector.close();
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        // opens the newly scheduled shows
+        private void admit()
+        {
+            Entry entry = incoming.poll();
+            while (entry != null) {
+                boolean opened = false;
+                try {
+                    opened = entry.show.open(entry.args, entry.ctx, entry.pipe);
+                }
+                catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                if (opened) {
+                    entries.add(entry);
+                }
+                else {
+                    close(entry);
+                }
+                entry = incoming.poll();
+            }
+        }
+
+        // cues the shows which need it and returns the time to wait for
+        private long cue()
+        {
+            long now = System.currentTimeMillis();
+            long wait = -1;
+            Iterator<Entry> iter = entries.iterator();
+            while (iter.hasNext()) {
+                final Entry entry = iter.next();
+                if (entry.cue) {
+                    final long timeout;
+                    try {
+                        timeout = entry.show.cue(selector, entry);
+                    }
+                    catch (RuntimeException e) {
+                        e.printStackTrace();
+                        iter.remove();
+                        close(entry);
+                        continue;
+                    }
+                    entry.deadline = timeout < 0 ? Long.MAX_VALUE : now + timeout;
+                    entry.cue = false;
+                }
+                if (entry.hot) {
+                    wait = 0;
+                }
+                else if (entry.deadline != Long.MAX_VALUE) {
+                    final long left = Math.max(0, entry.deadline - now);
+                    wait = wait < 0 ? left : Math.min(wait, left);
+                }
+            }
+            return wait;
+        }
+
+        private void select(long wait)
+        {
+            try {
+                if (wait < 0) {
+                    selector.select();
+                }
+                else if (wait == 0) {
+                    selector.selectNow();
+                }
+                else {
+                    selector.select(wait);
+                }
+            }
+            catch (IOException e) {
+                throw new ZMQException.IOException(e);
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                ((Entry) key.attachment()).fired = true;
+            }
+            selector.selectedKeys().clear();
+        }
+
+        // performs the shows which have something to do
+        private void perform()
+        {
+            final long now = System.currentTimeMillis();
+            Iterator<Entry> iter = entries.iterator();
+            while (iter.hasNext()) {
+                final Entry entry = iter.next();
+                final boolean expired = entry.deadline <= now;
+                if (!entry.hot && !entry.fired && !expired) {
+                    continue;
+                }
+                entry.fired = false;
+
+                int rc;
+                try {
+                    rc = entry.show.perform(expired);
+                }
+                catch (RuntimeException e) {
+                    e.printStackTrace();
+                    rc = OVER;
+                }
+
+                if (rc == OVER) {
+                    iter.remove();
+                    close(entry);
+                    continue;
+                }
+                entry.hot = rc == BUSY;
+                entry.cue = rc != IDLE;
+            }
+        }
+
+        private void close(Entry entry)
+        {
+            try {
+                entry.show.close();
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            finally {
+                entry.ctx.destroy();
+            }
+        }
+    }
+}
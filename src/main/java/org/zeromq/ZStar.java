@@ -138,6 +138,31 @@ public class ZStar implements ZAgent
         boolean renews();
     }
 
+    /**
+     * Contract for a star able to share its thread with other stars in a {@link ZRuntime}.
+     * Instead of waiting in {@link Star#breathe()}, the star tells the runtime what it is waiting for,
+     * and breathes without waiting when the runtime calls it back.
+     */
+    public static interface Cued extends Star
+    {
+        /**
+         * Called instead of the waiting part of breathe, when a loop starts.<br/>
+         * Registers the channels the star is waiting for into the selector of the runtime.
+         *
+         * @param selector      the selector shared by the stars of the runtime loop
+         * @param attachment    the attachment of the registered selection keys
+         * @return the timeout of the coming loop. <b>-1 to block, 0 to not wait, > 0 to wait</b> till max the returned duration in milliseconds
+         */
+        long cue(Selector selector, Object attachment);
+
+        /**
+         * Breathes without waiting.
+         *
+         * @return the number of events to process
+         */
+        int inhale();
+    }
+
     /**
      * Utility class with callback for when the Star has finished its performances.
      */
@@ -314,6 +339,28 @@ public class ZStar implements ZAgent
      */
     public ZStar(final ZContext context, final SelectorCreator selector,
             final Fortune fortune, String motdelafin, final Object[] bags)
+    {
+        this(null, context, selector, fortune, motdelafin, bags);
+    }
+
+    /**
+     * Creates a new ZStar.
+     *
+     * @param runtime
+     *            the runtime where the star is performed. If null, the star is performed on its own thread.
+     *            Otherwise the stars created by the fortune SHALL be {@link Cued}.
+     * @param context
+     *            the main context used. If null, a new context will be created
+     *            and closed at the stop of the operation.
+     * <b>If not null, it is the responsibility of the caller to close it.</b>
+     *
+     * @param selector   the creator of the selector used on the Plateau.
+     * @param fortune    the creator of stars on the Plateau
+     * @param motdelafin the final word used to mark the end of the star. Null to disable this mechanism.
+     * @param bags       the optional arguments that will be passed to the distant star
+     */
+    public ZStar(final ZRuntime runtime, final ZContext context, final SelectorCreator selector,
+            final Fortune fortune, String motdelafin, final Object[] bags)
     {
         super();
         assert (fortune != null);
@@ -348,7 +395,8 @@ public class ZStar implements ZAgent
             }
         }
         if (set == null) {
-           set = new SimpleSet();
+            // the thread of a runtime is shared and keeps its name
+            set = runtime == null ? new SimpleSet() : new AnonymousSet();
         }
 
         final List<Object> train = new ArrayList<Object>(6 + bags.length);
@@ -363,7 +411,13 @@ public class ZStar implements ZAgent
         train.addAll(Arrays.asList(bags));
 
         // now going to the plateau
-        Socket phone = ZThread.fork(chef, plateau, train.toArray());
+        Socket phone;
+        if (runtime == null) {
+            phone = ZThread.fork(chef, plateau, train.toArray());
+        }
+        else {
+            phone = runtime.fork(chef, plateau, train.toArray());
+        }
 
         agent = agent(phone, motdelafin);
     }
@@ -392,7 +446,7 @@ public class ZStar implements ZAgent
 
     // the plateau where the acting will take place (stage and backstage), or
     // the forked runnable containing the loop processing all messages in the background
-    private static final class Plateau implements IAttachedRunnable, Exit
+    private static final class Plateau implements IAttachedRunnable, ZRuntime.Show, Exit
     {
         private static final AtomicInteger shows = new AtomicInteger();
         // id if unnamed
@@ -401,27 +455,61 @@ public class ZStar implements ZAgent
         // waiting-flag for the end of the remote operations
         private final CountDownLatch exit = new CountDownLatch(1);
 
+        // the troupe, once unloaded on the plateau
+        private Fortune star;
+        private Entourage entourage;
+        private ZContext producer;
+        private SelectorCreator feather;
+        private Set set;
+        // the word informing the world that the plateau is closed and the star vanished
+        private String gossip;
+        private Object[] bags;
+        private ZContext chef;
+        private Socket mic;
+        private Selector story;
+
+        // the star acting when performed by a runtime, and the number of stars created
+        private Star actor;
+        private int count;
+
         @Override
         public void run(final Object[] train,
                         final ZContext chef,
                         final Socket mic)
+        {
+            try {
+                if (enter(train, chef, mic)) {
+                    // star is entering the wings
+                    showMustGoOn(chef, set, story, mic, star, bags);
+                    // star is leaving the plateau
+                }
+            }
+            finally {
+                leave();
+            }
+        }
+
+        // unloads the trucks and opens the show. Returns false if there is no show
+        private boolean enter(final Object[] train, final ZContext chef, final Socket mic)
         {
             final int mandat = 6;
 
+            this.chef = chef;
+            this.mic = mic;
+
             // end of a trip can be a bit messy...
-            Fortune star = (Fortune) train[1];
+            star = (Fortune) train[1];
 
-            final Entourage entourage = (Entourage) train[4];
+            entourage = (Entourage) train[4];
 
-            final ZContext        producer = (ZContext) train[3];
-            final SelectorCreator feather  = (SelectorCreator) train[2];
+            producer = (ZContext) train[3];
+            feather  = (SelectorCreator) train[2];
 
-            final Set set = (Set) train[0];
-            // the word informing the world that the plateau is closed and the star vanished
-            final String gossip = (String) train[5];
+            set = (Set) train[0];
+            gossip = (String) train[5];
 
             // prune our mandatory transit variables from the arguments
-            final Object[] bags = new Object[train.length - mandat];
+            bags = new Object[train.length - mandat];
             System.arraycopy(train, mandat, bags, 0, bags.length);
 
             // leaving unloaded platform
@@ -429,7 +517,6 @@ public class ZStar implements ZAgent
                 entourage.breakaleg(chef, star, mic, bags);
             }
 
-            Selector story = null;
             // now entering artistic zone
             try {
                 // create the selector used for polling operations
@@ -439,56 +526,111 @@ public class ZStar implements ZAgent
                 String name = star.premiere(mic, bags);
                 // put the name of the performance on the front door with lightnings
                 set.lights(name, number);
-
-                // star is entering the wings
-                showMustGoOn(chef, set, story, mic, star, bags);
-                // star is leaving the plateau
+                return true;
             }
             catch (IOException e) {
                 // Who stole the story? There is no play if there is no story! C'est un scandale!
                 e.printStackTrace();
                 // TODO enhance error
+                return false;
             }
-            finally {
-                try {
-                    // star is interviewed about this event
-                    boolean tell = star.interview(mic);
-
-                    if (tell && gossip != null) {
-                        // inform the Corbeille side of the future closing of the plateau and the vanishing of the star
-                        try {
-                            mic.send(gossip);
-                        }
-                        catch (Exception e) {
-                            // really ?
-                            e.printStackTrace();
-                        }
-                    }
+        }
 
-                    // we are not in a hurry at this point when cleaning up the remains of a good show ...
-                    star.party(chef);
-                    star = null;
-                    if (entourage != null) {
-                        entourage.party(chef);
-                    }
-                    // Sober again ...
+        // closes the show
+        private void leave()
+        {
+            try {
+                // star is interviewed about this event
+                boolean tell = star.interview(mic);
 
-                    // show is over, time to close
-                    chef.close();
-                    if (producer != null) {
-                        // this is a self-generated context, destroy it
-                        producer.close();
+                if (tell && gossip != null) {
+                    // inform the Corbeille side of the future closing of the plateau and the vanishing of the star
+                    try {
+                        mic.send(gossip);
+                    }
+                    catch (Exception e) {
+                        // really ?
+                        e.printStackTrace();
                     }
-                    feather.destroy(story);
                 }
-                catch (IOException e) {
-                    e.printStackTrace();
-                    // TODO enhance error
+
+                // we are not in a hurry at this point when cleaning up the remains of a good show ...
+                star.party(chef);
+                star = null;
+                actor = null;
+                if (entourage != null) {
+                    entourage.party(chef);
                 }
-                finally {
-                    exit.countDown();
+                // Sober again ...
+
+                // show is over, time to close
+                chef.close();
+                if (producer != null) {
+                    // this is a self-generated context, destroy it
+                    producer.close();
                 }
+                feather.destroy(story);
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                // TODO enhance error
             }
+            finally {
+                exit.countDown();
+            }
+        }
+
+        // a new star is born on the stage of a runtime
+        private void cast()
+        {
+            actor = star.create(chef, mic, story, count++, actor, bags);
+            if (!(actor instanceof Cued)) {
+                throw new UnsupportedOperationException("A star performed in a runtime has to be cued");
+            }
+            actor.prepare();
+        }
+
+        @Override
+        public boolean open(final Object[] train, final ZContext chef, final Socket mic)
+        {
+            if (!enter(train, chef, mic)) {
+                return false;
+            }
+            cast();
+            return true;
+        }
+
+        @Override
+        public long cue(final Selector selector, final Object attachment)
+        {
+            return ((Cued) actor).cue(selector, attachment);
+        }
+
+        // same steps as the loops of showMustGoOn, without waiting
+        @Override
+        public int perform(final boolean expired)
+        {
+            if (!set.fire()) {
+                int events = ((Cued) actor).inhale();
+                if (events == 0 && !expired) {
+                    // the cue was not for us
+                    return ZRuntime.IDLE;
+                }
+                if (actor.act(events) && actor.entract()) {
+                    return events > 0 ? ZRuntime.BUSY : ZRuntime.ACTED;
+                }
+            }
+            if (!actor.renews()) {
+                return ZRuntime.OVER;
+            }
+            cast();
+            return ZRuntime.BUSY;
+        }
+
+        @Override
+        public void close()
+        {
+            leave();
         }
 
         /******************************************************************************/
@@ -626,6 +768,15 @@ public class ZStar implements ZAgent
         boolean fire();
     }
 
+    // set keeping the name of the thread, for the stars sharing it
+    private static class AnonymousSet extends SimpleSet
+    {
+        @Override
+        public void lights(String name, int id)
+        {
+        }
+    }
+
     public static class SimpleSet implements Set
     {
         @Override
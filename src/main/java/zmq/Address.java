@@ -63,6 +63,12 @@ public class Address
         else if (protocol.equals("ipc") && isResolved()) {
             return resolved.toString();
         }
+        else if (protocol.equals("shm") && isResolved()) {
+            return resolved.toString();
+        }
+        else if (protocol.equals("udp") && isResolved()) {
+            return resolved.toString();
+        }
         else if (!protocol.isEmpty() && !address.isEmpty()) {
             return protocol + "://" + address;
         }
@@ -86,6 +92,12 @@ public class Address
         return resolved;
     }
 
+    //  Sets the address resolved elsewhere, e.g. in the background.
+    void resolved(IZAddress resolved)
+    {
+        this.resolved = resolved;
+    }
+
     public boolean isResolved()
     {
         return resolved != null;
@@ -103,6 +115,16 @@ public class Address
             resolved.resolve(address, true);
             return true;
         }
+        else if (protocol.equals("shm")) {
+            resolved = new ShmAddress();
+            resolved.resolve(address, true);
+            return true;
+        }
+        else if (protocol.equals("udp")) {
+            resolved = new UdpAddress();
+            resolved.resolve(address, ipv4only);
+            return true;
+        }
         else {
             return false;
         }
@@ -0,0 +1,223 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+//  Creates the encoder and the decoder of a connection once the protocol
+//  version has been negotiated. Version 0 stands for the unversioned
+//  protocol and ZMTP/1.0; the message source and sink are then set by the
+//  engine after creation and passed as null here.
+public interface CodecFactory
+{
+    DecoderBase createDecoder(int size, long max, IMsgSink sink, int version);
+
+    EncoderBase createEncoder(int size, IMsgSource source, int version);
+
+    //  Returns true if the codec talks to the peer directly and the
+    //  greeting must not be sent.
+    boolean isRaw();
+
+    //  Unversioned protocol and ZMTP/1.0 framing.
+    public static class Zmtp10 implements CodecFactory
+    {
+        @Override
+        public DecoderBase createDecoder(int size, long max, IMsgSink sink, int version)
+        {
+            return new Decoder(size, max);
+        }
+
+        @Override
+        public EncoderBase createEncoder(int size, IMsgSource source, int version)
+        {
+            return new Encoder(size);
+        }
+
+        @Override
+        public boolean isRaw()
+        {
+            return false;
+        }
+    }
+
+    //  V1 framing protocol (ZMTP/2.0).
+    public static class V1 implements CodecFactory
+    {
+        @Override
+        public DecoderBase createDecoder(int size, long max, IMsgSink sink, int version)
+        {
+            return new V1Decoder(size, max, sink);
+        }
+
+        @Override
+        public EncoderBase createEncoder(int size, IMsgSource source, int version)
+        {
+            return new V1Encoder(size, source);
+        }
+
+        @Override
+        public boolean isRaw()
+        {
+            return false;
+        }
+    }
+
+    //  V1 framing with the frames of at least threshold bytes compressed,
+    //  used when both peers enable ZMQ_COMPRESSION.
+    public static class V1Deflate implements CodecFactory
+    {
+        private final int threshold;
+
+        public V1Deflate(int threshold)
+        {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public DecoderBase createDecoder(int size, long max, IMsgSink sink, int version)
+        {
+            return new V1Decoder(size, max, sink, true);
+        }
+
+        @Override
+        public EncoderBase createEncoder(int size, IMsgSource source, int version)
+        {
+            return new V1Encoder(size, source, threshold);
+        }
+
+        @Override
+        public boolean isRaw()
+        {
+            return false;
+        }
+    }
+
+    //  Adapter for codec classes set through ZMQ_ENCODER and ZMQ_DECODER.
+    //  Constructors are looked up once, when the option is set, instead of
+    //  for every connection. A side without a custom class falls back on
+    //  the built-in codec of the negotiated version.
+    public static class Reflective implements CodecFactory
+    {
+        private final Constructor<? extends DecoderBase> decoder;
+        private final Constructor<? extends DecoderBase> versionedDecoder;
+        private final Constructor<? extends EncoderBase> encoder;
+        private final Constructor<? extends EncoderBase> versionedEncoder;
+        private final boolean raw;
+
+        public Reflective(Class<? extends EncoderBase> encoderClass, Class<? extends DecoderBase> decoderClass)
+        {
+            if (decoderClass != null) {
+                decoder = constructor(decoderClass, int.class, long.class);
+                versionedDecoder = constructor(decoderClass, int.class, long.class, IMsgSink.class, int.class);
+            }
+            else {
+                decoder = null;
+                versionedDecoder = null;
+            }
+            if (encoderClass != null) {
+                encoder = constructor(encoderClass, int.class);
+                versionedEncoder = constructor(encoderClass, int.class, IMsgSource.class, int.class);
+                raw = hasField(encoderClass, "RAW_ENCODER");
+            }
+            else {
+                encoder = null;
+                versionedEncoder = null;
+                raw = false;
+            }
+        }
+
+        @Override
+        public DecoderBase createDecoder(int size, long max, IMsgSink sink, int version)
+        {
+            if (decoder == null && versionedDecoder == null) {
+                return CodecRegistry.get(version).createDecoder(size, max, sink, version);
+            }
+            if (version == 0) {
+                return newInstance(decoder, size, max);
+            }
+            return newInstance(versionedDecoder, size, max, sink, version);
+        }
+
+        @Override
+        public EncoderBase createEncoder(int size, IMsgSource source, int version)
+        {
+            if (encoder == null && versionedEncoder == null) {
+                return CodecRegistry.get(version).createEncoder(size, source, version);
+            }
+            if (version == 0) {
+                return newInstance(encoder, size);
+            }
+            return newInstance(versionedEncoder, size, source, version);
+        }
+
+        @Override
+        public boolean isRaw()
+        {
+            return raw;
+        }
+
+        //  Returns null if the class has no such constructor. The error is
+        //  reported if the constructor is actually needed.
+        private static <T> Constructor<? extends T> constructor(Class<? extends T> cls, Class<?>... types)
+        {
+            try {
+                return cls.getConstructor(types);
+            }
+            catch (SecurityException e) {
+                return null;
+            }
+            catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private static boolean hasField(Class<?> cls, String name)
+        {
+            try {
+                return cls.getDeclaredField(name) != null;
+            }
+            catch (SecurityException e) {
+                return false;
+            }
+            catch (NoSuchFieldException e) {
+                return false;
+            }
+        }
+
+        private static <T> T newInstance(Constructor<? extends T> con, Object... args)
+        {
+            if (con == null) {
+                throw new ZError.InstantiationException(new NoSuchMethodException());
+            }
+            try {
+                return con.newInstance(args);
+            }
+            catch (InvocationTargetException e) {
+                throw new ZError.InstantiationException(e);
+            }
+            catch (IllegalAccessException e) {
+                throw new ZError.InstantiationException(e);
+            }
+            catch (InstantiationException e) {
+                throw new ZError.InstantiationException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+//  Codecs of the built-in protocol versions. The highest one is announced
+//  in the greeting and the engine speaks the lowest of its own and the
+//  peer's version. Other codecs are set per socket with ZMQ_CODEC, so that
+//  they change neither the greeting nor the other sockets of the process.
+public final class CodecRegistry
+{
+    private static final CodecFactory[] CODECS = {
+        new CodecFactory.Zmtp10(),
+        new CodecFactory.V1()
+    };
+
+    private CodecRegistry()
+    {
+    }
+
+    //  Returns the codec to use with a peer announcing the given version,
+    //  or null if there is none.
+    public static CodecFactory get(int version)
+    {
+        if (version < 0) {
+            return null;
+        }
+        return CODECS[Math.min(version, highest())];
+    }
+
+    //  Protocol version announced in the greeting.
+    public static int highest()
+    {
+        return V1Protocol.VERSION;
+    }
+}
@@ -122,6 +122,9 @@ class Command
          * 关闭的socket通知reaper 他已经释放了
          */
         REAPED,
+        //  Sent by a resolver thread to a connecter with the addresses its
+        //  host name resolved to, or null if the lookup failed.
+        RESOLVED,
         //  Sent by reaper thread to the term thread when all the sockets
         //  are successfully deallocated.
         /**
@@ -113,12 +113,39 @@ public enum Config
      */
     PGM_MAX_TPDU  (1500),
 
+    //  Maximum size of a UDP datagram (group and body).
+    /**
+     * udp数据报的最大长度(包括group和消息体)
+     */
+    UDP_MAX_MSG  (8192),
+
     //  On some OSes the signaler has to be emulated using a TCP
     //  connection. In such cases following port is used.
     /**
      * 在部分os上signaler是通过tcp连接的,在这个情况下使用该端口
      */
-    SIGNALER_PORT (5905);
+    SIGNALER_PORT (5905),
+
+    //  Default size of each ring of a shm:// connection. The connecting
+    //  side uses ZMQ_SNDBUF instead when it is set.
+    /**
+     * shm:// 连接每个方向ring的默认大小,如果设置了ZMQ_SNDBUF则使用该值
+     */
+    SHM_RING_SIZE (4 * 1024 * 1024),
+
+    //  Size of the segment files of ZMQ_SWAP. A message larger than that
+    //  gets a segment of its own.
+    /**
+     * ZMQ_SWAP 磁盘交换段文件的大小,超过该大小的消息单独占用一个段
+     */
+    SWAP_SEGMENT_SIZE (4 * 1024 * 1024),
+
+    //  Number of counters of the prefilter of ZMQ_SUB_PREFILTER. Has to be
+    //  a power of 2.
+    /**
+     * ZMQ_SUB_PREFILTER 前置过滤器的计数器个数,必须是2的幂
+     */
+    SUB_PREFILTER_SIZE (1 << 16);
 
     private final int value;
 
@@ -57,10 +57,15 @@ public class Ctx
         public final SocketBase socket;
         public final Options options;
 
+        //  Priority class of the pipes connected to the endpoint, as of
+        //  the time it was bound.
+        public final int priority;
+
         public Endpoint(SocketBase socket, Options options)
         {
             this.socket = socket;
             this.options = options;
+            priority = options.fqPriority;
         }
 
     }
@@ -166,6 +171,9 @@ public class Ctx
      */
     private final Lock optSync;
 
+    //  Host names resolved by the sockets connecting to tcp endpoints.
+    private final ResolverCache resolverCache;
+
     public static final int TERM_TID = 0;
     public static final int REAPER_TID = 1;
 
@@ -189,6 +197,7 @@ public class Ctx
         ioThreads = new ArrayList<IOThread>();
         sockets = new ArrayList<SocketBase>();
         endpoints = new HashMap<String, Endpoint>();
+        resolverCache = new ResolverCache();
     }
 
     private void destroy() throws IOException
@@ -204,6 +213,7 @@ public class Ctx
             reaper.close();
         }
         termMailbox.close();
+        resolverCache.close();
 
         tag = 0xdeadbeef;
     }
@@ -466,6 +476,11 @@ public class Ctx
         return reaper;
     }
 
+    ResolverCache resolverCache()
+    {
+        return resolverCache;
+    }
+
     //  Send command to the destination thread.
     /**
      * 发送命令去目标线程
@@ -50,8 +50,8 @@ public class Dealer extends SocketBase
         prefetched = false;
         options.type = ZMQ.ZMQ_DEALER;
 
-        fq = new FQ();
-        lb = new LB();
+        fq = new FQ(options);
+        lb = new LB(options);
         //  TODO: Uncomment the following line when DEALER will become true DEALER
         //  rather than generic dealer socket.
         //  If the socket is closing we can drop all the outbound requests. There'll
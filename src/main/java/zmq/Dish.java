@@ -0,0 +1,277 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+//  DISH socket: receives the messages of the groups it has joined.
+public class Dish extends SocketBase
+{
+    public static class DishSession extends SessionBase
+    {
+        //  Group frame waiting for its body.
+        private Msg group;
+
+        public DishSession(IOThread ioThread, boolean connect,
+                SocketBase socket, Options options, Address addr)
+        {
+            super(ioThread, connect, socket, options, addr);
+        }
+
+        @Override
+        public int pushMsg(Msg msg)
+        {
+            if (group == null) {
+                //  Identity, or a group frame followed by the body.
+                if (!msg.hasMore()) {
+                    return super.pushMsg(msg);
+                }
+                group = msg;
+                return 0;
+            }
+
+            //  The group is kept until the body is pushed, as the engine
+            //  pushes the same body again when the pipe is full.
+            msg.setGroup(new String(group.data(), ZMQ.CHARSET));
+            int rc = super.pushMsg(msg);
+            if (rc == 0) {
+                group = null;
+            }
+            return rc;
+        }
+
+        @Override
+        protected void reset()
+        {
+            super.reset();
+            group = null;
+        }
+    }
+
+    //  Joins and leaves are sent upstream as plain messages.
+    private static final byte[] JOIN = {4, 'J', 'O', 'I', 'N'};
+    private static final byte[] LEAVE = {5, 'L', 'E', 'A', 'V', 'E'};
+
+    //  Fair queueing object for inbound pipes.
+    private final FQ fq;
+
+    //  Object for distributing the joins upstream.
+    private final Dist dist;
+
+    //  The groups joined.
+    private final Set<String> subscriptions;
+
+    //  If true, 'message' contains a matching message to return on the
+    //  next recv call.
+    private boolean hasMessage;
+    private Msg message;
+
+    public Dish(Ctx parent, int tid, int sid)
+    {
+        super(parent, tid, sid);
+
+        options.type = ZMQ.ZMQ_DISH;
+
+        //  When socket is being closed down we don't want to wait till pending
+        //  subscription commands are sent to the wire.
+        options.linger = 0;
+
+        hasMessage = false;
+        fq = new FQ(options);
+        dist = new Dist();
+        subscriptions = new HashSet<String>();
+    }
+
+    @Override
+    protected void xattachPipe(Pipe pipe, boolean icanhasall)
+    {
+        assert (pipe != null);
+        fq.attach(pipe);
+        dist.attach(pipe);
+
+        //  Send all the cached subscriptions to the new upstream peer.
+        sendSubscriptions(pipe);
+    }
+
+    @Override
+    protected void xreadActivated(Pipe pipe)
+    {
+        fq.activated(pipe);
+    }
+
+    @Override
+    protected void xwriteActivated(Pipe pipe)
+    {
+        dist.activated(pipe);
+    }
+
+    @Override
+    protected void xpipeTerminated(Pipe pipe)
+    {
+        fq.terminated(pipe);
+        dist.terminated(pipe);
+    }
+
+    @Override
+    protected void xhiccuped(Pipe pipe)
+    {
+        //  Send all the cached subscriptions to the hiccuped pipe.
+        sendSubscriptions(pipe);
+    }
+
+    @Override
+    protected boolean xjoin(String group)
+    {
+        if (!valid(group) || !subscriptions.add(group)) {
+            errno.set(ZError.EINVAL);
+            return false;
+        }
+
+        dist.sendToAll(command(JOIN, group));
+        return true;
+    }
+
+    @Override
+    protected boolean xleave(String group)
+    {
+        if (!valid(group) || !subscriptions.remove(group)) {
+            errno.set(ZError.EINVAL);
+            return false;
+        }
+
+        dist.sendToAll(command(LEAVE, group));
+        return true;
+    }
+
+    @Override
+    protected boolean xsend(Msg msg)
+    {
+        //  Messages cannot be sent from DISH socket.
+        errno.set(ZError.ENOTSUP);
+        return false;
+    }
+
+    @Override
+    protected boolean xhasOut()
+    {
+        //  Subscription can be added/removed anytime.
+        return true;
+    }
+
+    @Override
+    protected Msg xrecv()
+    {
+        //  If there's already a message prepared by a previous call to zmq_poll,
+        //  return it straight ahead.
+        if (hasMessage) {
+            hasMessage = false;
+            return message;
+        }
+
+        while (true) {
+            //  Get a message using fair queueing algorithm.
+            Msg msg = fq.recv(errno);
+
+            //  If there's no message available, return immediately.
+            //  The same when error occurs.
+            if (msg == null) {
+                return null;
+            }
+
+            //  Filtering non matching messages.
+            if (subscriptions.contains(msg.group())) {
+                return msg;
+            }
+        }
+    }
+
+    @Override
+    protected boolean xhasIn()
+    {
+        //  If there's already a message prepared by a previous call to zmq_poll,
+        //  return straight ahead.
+        if (hasMessage) {
+            return true;
+        }
+
+        while (true) {
+            //  Get a message using fair queueing algorithm.
+            message = fq.recv(errno);
+
+            //  If there's no message available, return immediately.
+            //  The same when error occurs.
+            if (message == null) {
+                return false;
+            }
+
+            //  Filtering non matching messages.
+            if (subscriptions.contains(message.group())) {
+                hasMessage = true;
+                return true;
+            }
+        }
+    }
+
+    private void sendSubscriptions(Pipe pipe)
+    {
+        for (String group : subscriptions) {
+            //  If we reached the SNDHWM the join is dropped, like a
+            //  subscription of a SUB socket.
+            pipe.write(command(JOIN, group));
+        }
+        pipe.flush();
+    }
+
+    private static boolean valid(String group)
+    {
+        return group != null && group.getBytes(ZMQ.CHARSET).length <= ZMQ.ZMQ_GROUP_MAX_LENGTH;
+    }
+
+    private static Msg command(byte[] name, String group)
+    {
+        byte[] data = group.getBytes(ZMQ.CHARSET);
+        Msg msg = new Msg(name.length + data.length);
+        msg.put(name).put(data);
+        return msg;
+    }
+
+    //  Returns the group of a join message, or null.
+    static String joined(Msg msg)
+    {
+        return parse(msg, JOIN);
+    }
+
+    //  Returns the group of a leave message, or null.
+    static String left(Msg msg)
+    {
+        return parse(msg, LEAVE);
+    }
+
+    private static String parse(Msg msg, byte[] name)
+    {
+        byte[] data = msg.data();
+        if (data.length < name.length || !Arrays.equals(Arrays.copyOf(data, name.length), name)) {
+            return null;
+        }
+        return new String(data, name.length, data.length - name.length, ZMQ.CHARSET);
+    }
+}
@@ -62,8 +62,7 @@ public class Encoder extends EncoderBase
     private boolean sizeReady()
     {
         //  Write message body into the buffer.  写入消息体到buffer
-        nextStep(inProgress.buf(),
-                MESSAGE_READY, !inProgress.hasMore());
+        nextStep(inProgress, MESSAGE_READY, !inProgress.hasMore());
         return true;
     }
 
@@ -27,6 +27,7 @@ public abstract class EncoderBase implements IEncoder
     //  Where to get the data to write from.  写入的数据
     private ByteBuffer writeBuf;
     private FileChannel writeChannel;
+    private long writeChannelPos;
     private int writePos;
 
     //  Next step. If set to -1, it means that associated data stream
@@ -90,7 +91,9 @@ public abstract class EncoderBase implements IEncoder
             if (writeChannel != null) {
                 buffer.flip();
                 Transfer t = new Transfer.FileChannelTransfer(buffer, writeChannel,
-                                                    (long) writePos, (long) toWrite);
+                                                    writeChannelPos, (long) toWrite);
+                writeChannel = null;
+                writeChannelPos = 0;
                 writePos = 0;
                 toWrite = 0;
 
@@ -174,6 +177,9 @@ public abstract class EncoderBase implements IEncoder
         if (msg == null) {
             nextStep(null, 0, state, beginning);
         }
+        else if (msg.isFileRegion()) {
+            nextStep(msg.fileChannel(), msg.filePosition(), msg.size(), state, beginning);
+        }
         else {
             nextStep(msg.buf(), state, beginning);
         }
@@ -212,7 +218,8 @@ public abstract class EncoderBase implements IEncoder
     {
         writeBuf = null;
         writeChannel = ch;
-        writePos = (int) pos;
+        writeChannelPos = pos;
+        writePos = 0;
         this.toWrite = (int) toWrite;
         this.next = next;
         this.beginning = beginning;
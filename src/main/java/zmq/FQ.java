@@ -26,6 +26,12 @@ import java.util.List;
 //  Class manages a set of inbound pipes. On receive it performs fair
 //  queueing so that senders gone berserk won't cause denial of
 //  service for decent senders.
+//
+//  The pipes are grouped in priority classes, the messages of a class
+//  being received only when no pipe of a higher class has any. Within a
+//  class, the pipes are served in turn, a message at a time, or as many
+//  bytes as the quantum with deficit round-robin, so that a peer sending
+//  large messages gets no more bandwidth than the others.
 /**
  * 该类管理写入的pipe,这是一个公平的queue在接收数据上,
  * 不会导致
@@ -34,21 +40,54 @@ import java.util.List;
  */
 class FQ
 {
-    //  Inbound pipes.
-    private final List<Pipe> pipes;
+    //  Number of priority classes.
+    static final int PRIORITIES = 8;
 
-    //  Number of active pipes. All the active pipes are located at the
-    //  beginning of the pipes array.
-    /**
-     * active的pipe数, 
-     */
-    private int active;
+    //  Inbound pipes of a priority class.
+    private static final class Queue
+    {
+        private final List<Pipe> pipes = new ArrayList<Pipe>();
 
-    //  Index of the next bound pipe to read a message from.
-    /**
-     * 从下一个bound pipe读取消息的索引 
-     */
-    private int current;
+        //  Number of active pipes. All the active pipes are located at the
+        //  beginning of the pipes array.
+        /**
+         * active的pipe数,
+         */
+        private int active;
+
+        //  Index of the next bound pipe to read a message from.
+        /**
+         * 从下一个bound pipe读取消息的索引
+         */
+        private int current;
+
+        //  Deactivates the current pipe.
+        private void deactivate()
+        {
+            active--;
+            Collections.swap(pipes, current, active);
+            if (current == active) {
+                current = 0;
+            }
+        }
+
+        //  Moves on to the next pipe.
+        private void next()
+        {
+            if (++current >= active) {
+                current = 0;
+            }
+        }
+    }
+
+    //  Options of the socket, giving the quantum.
+    private final Options options;
+
+    //  Inbound pipes, by priority class.
+    private final Queue[] queues;
+
+    //  Bit set of the priority classes having active pipes.
+    private int ready;
 
     //  If true, part of a multipart message was already received, but
     //  there are following parts still waiting in the current pipe.
@@ -57,46 +96,67 @@ class FQ
      */
     private boolean more;
 
+    //  Priority class of the multipart message being received.
+    private int reading;
+
     public FQ()
     {
-        active = 0;
-        current = 0;
+        this(new Options());
+    }
+
+    public FQ(Options options)
+    {
+        this.options = options;
+        ready = 0;
         more = false;
+        reading = 0;
 
-        pipes = new ArrayList<Pipe>();
+        queues = new Queue[PRIORITIES];
+        for (int idx = 0; idx < PRIORITIES; ++idx) {
+            queues[idx] = new Queue();
+        }
     }
 
     public void attach(Pipe pipe)
     {
-        pipes.add(pipe);
-        Collections.swap(pipes, active, pipes.size() - 1);
-        active++;
+        pipe.setDeficit(options.fqQuantum);
+        Queue queue = queues[pipe.priority()];
+        queue.pipes.add(pipe);
+        Collections.swap(queue.pipes, queue.active, queue.pipes.size() - 1);
+        queue.active++;
+        ready |= 1 << pipe.priority();
     }
 
     public void terminated(Pipe pipe)
     {
-        final int index = pipes.indexOf(pipe);
+        Queue queue = queues[pipe.priority()];
+        final int index = queue.pipes.indexOf(pipe);
 
         //  Remove the pipe from the list; adjust number of active pipes
         //  accordingly.
         /**
          * 移除pipe从list,调整active pipe的数量
          */
-        if (index < active) {
-            active--;
-            Collections.swap(pipes, index, active);
-            if (current == active) {
-                current = 0;
+        if (index < queue.active) {
+            queue.active--;
+            Collections.swap(queue.pipes, index, queue.active);
+            if (queue.current == queue.active) {
+                queue.current = 0;
+            }
+            if (queue.active == 0) {
+                ready &= ~(1 << pipe.priority());
             }
         }
-        pipes.remove(pipe);
+        queue.pipes.remove(pipe);
     }
 
     public void activated(Pipe pipe)
     {
         //  Move the pipe to the list of active pipes.  移动该pipe到active pipes中
-        Collections.swap(pipes, pipes.indexOf(pipe), active);
-        active++;
+        Queue queue = queues[pipe.priority()];
+        Collections.swap(queue.pipes, queue.pipes.indexOf(pipe), queue.active);
+        queue.active++;
+        ready |= 1 << pipe.priority();
     }
 
     public Msg recv(ValueReference<Integer> errno)
@@ -106,38 +166,62 @@ class FQ
 
     public Msg recvPipe(ValueReference<Integer> errno, ValueReference<Pipe> pipe)
     {
-        //  Round-robin over the pipes to get the next message.
-        while (active > 0) {
-            //  Try to fetch new message. If we've already read part of the message
-            //  subsequent part should be immediately available.
-            // 尝试去获取一个新消息,如果我们已经读取的部分消息,那么剩余的部分应该立刻可用
-            Msg msg = pipes.get(current).read();
-            boolean fetched = msg != null;
-
-            //  Note that when message is not fetched, current pipe is deactivated
-            //  and replaced by another active pipe. Thus we don't have to increase
-            //  the 'current' pointer.
-            if (fetched) {
-                if (pipe != null) {
-                    pipe.set(pipes.get(current));
+        //  Serve the highest priority class with active pipes, unless the
+        //  rest of a multipart message is to be received.
+        while (ready != 0) {
+            int priority = more ? reading : highest(ready);
+            Queue queue = queues[priority];
+
+            //  Round-robin over the pipes to get the next message.
+            while (queue.active > 0) {
+                Pipe current = queue.pipes.get(queue.current);
+                int quantum = options.fqQuantum;
+
+                //  A pipe still owing bytes from the large messages read in
+                //  its previous turns is given its quantum and skipped.
+                if (quantum > 0 && !more && current.deficit() <= 0) {
+                    current.setDeficit(current.deficit() + quantum);
+                    queue.next();
+                    continue;
                 }
-                more = msg.hasMore();
-                if (!more) {
-                    current = (current + 1) % active;
+
+                //  Try to fetch new message. If we've already read part of the message
+                //  subsequent part should be immediately available.
+                // 尝试去获取一个新消息,如果我们已经读取的部分消息,那么剩余的部分应该立刻可用
+                Msg msg = current.read();
+
+                //  Note that when message is not fetched, current pipe is deactivated
+                //  and replaced by another active pipe. Thus we don't have to increase
+                //  the 'current' pointer.
+                if (msg != null) {
+                    if (pipe != null) {
+                        pipe.set(current);
+                    }
+                    more = msg.hasMore();
+                    reading = priority;
+                    if (quantum > 0) {
+                        //  Stay on the pipe while it has bytes left in its turn.
+                        long deficit = current.deficit() - msg.size();
+                        if (deficit <= 0 && !more) {
+                            deficit += quantum;
+                            queue.next();
+                        }
+                        current.setDeficit(deficit);
+                    }
+                    else if (!more) {
+                        queue.next();
+                    }
+                    return msg;
                 }
-                return msg;
-            }
 
-            //  Check the atomicity of the message.
-            //  If we've already received the first part of the message
-            //  we should get the remaining parts without blocking.
-            assert (!more);
+                //  Check the atomicity of the message.
+                //  If we've already received the first part of the message
+                //  we should get the remaining parts without blocking.
+                assert (!more);
 
-            active--;
-            Collections.swap(pipes, current, active);
-            if (current == active) {
-                current = 0;
+                queue.deactivate();
             }
+            ready &= ~(1 << priority);
         }
 
         //  No message is available. Initialise the output parameter
@@ -157,19 +241,26 @@ class FQ
         //  queueing algorithm. If there are no messages available current will
         //  get back to its original value. Otherwise it'll point to the first
         //  pipe holding messages, skipping only pipes with no messages available.
-        while (active > 0) {
-            if (pipes.get(current).checkRead()) {
-                return true;
-            }
+        while (ready != 0) {
+            int priority = highest(ready);
+            Queue queue = queues[priority];
+            while (queue.active > 0) {
+                if (queue.pipes.get(queue.current).checkRead()) {
+                    return true;
+                }
 
-            //  Deactivate the pipe.
-            active--;
-            Collections.swap(pipes, current, active);
-            if (current == active) {
-                current = 0;
+                //  Deactivate the pipe.
+                queue.deactivate();
             }
+            ready &= ~(1 << priority);
         }
 
         return false;
     }
+
+    //  Returns the highest priority class of the set.
+    private static int highest(int classes)
+    {
+        return 31 - Integer.numberOfLeadingZeros(classes);
+    }
 }
@@ -22,6 +22,7 @@ package zmq;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.channels.SelectableChannel;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class IOThread extends ZObject implements IPollEvents, Closeable
 {
@@ -38,6 +39,11 @@ public class IOThread extends ZObject implements IPollEvents, Closeable
 
     final String name;
 
+    //  Number of objects handed to this thread that do not count in the
+    //  load of the poller yet, e.g. the sessions of accepted connections
+    //  waiting for their engine.
+    private final AtomicInteger pending = new AtomicInteger();
+
     public IOThread(Ctx ctx, int tid)
     {
         super(ctx, tid);
@@ -74,7 +80,17 @@ public class IOThread extends ZObject implements IPollEvents, Closeable
 
     public int getLoad()
     {
-        return poller.getLoad();
+        return poller.getLoad() + pending.get();
+    }
+
+    void incPending()
+    {
+        pending.incrementAndGet();
+    }
+
+    void decPending()
+    {
+        pending.decrementAndGet();
     }
 
     @Override
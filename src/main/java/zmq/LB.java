@@ -51,18 +51,41 @@ public class LB
     
     private boolean dropping;
 
+    //  Options of the socket, giving the strategy choosing the pipes.
+    private final Options options;
+
+    //  Number of messages sent to the current pipe in a row, in weighted
+    //  round-robin.
+    private int sent;
+
+    //  Next pipe compared with the current one, in least-queued.
+    private int probe;
+
+    //  State of the generator of the random pipes, in power-of-two-choices.
+    private long seed;
+
     public LB()
     {
+        this(new Options());
+    }
+
+    public LB(Options options)
+    {
+        this.options = options;
         active = 0;
         current = 0;
         more = false;
         dropping = false;
+        sent = 0;
+        probe = 0;
+        seed = System.nanoTime() | 1;
 
         pipes = new ArrayList<Pipe>();
     }
 
     public void attach(Pipe pipe)
     {
+        pipe.setWeight(options.lbWeight);
         pipes.add(pipe);
         activated(pipe);
     }
@@ -84,6 +107,7 @@ public class LB
             Collections.swap(pipes, index, active);
             if (current == active) {
                 current = 0;
+                sent = 0;
             }
         }
         pipes.remove(pipe);
@@ -109,6 +133,11 @@ public class LB
             return true;
         }
 
+        //  Choose the pipe at the start of each message.
+        if (!more) {
+            select();
+        }
+
         while (active > 0) {
             if (pipes.get(current).write(msg)) {
                 break;
@@ -122,6 +151,8 @@ public class LB
             else {
                 current = 0;
             }
+            sent = 0;
+            select();
         }
 
         //  If there are no pipes we cannot send the message.  如果没有pipe,那么我们就不能发送消息
@@ -136,7 +167,13 @@ public class LB
         
         more = msg.hasMore();
         if (!more) {
-            pipes.get(current).flush();
+            Pipe pipe = pipes.get(current);
+            pipe.flush();
+            if (options.lbStrategy == ZMQ.ZMQ_LB_WEIGHTED && ++sent < pipe.weight()) {
+                //  Stay on the pipe until it got as many messages as its weight.
+                return true;
+            }
+            sent = 0;
             if (++current >= active) {
                 current = 0;
             }
@@ -145,6 +182,57 @@ public class LB
         return true;
     }
 
+    //  Chooses the pipe to send the next message to, in constant time. The
+    //  round-robin strategies just move on to the next pipe once done with
+    //  the current one.
+    private void select()
+    {
+        if (active < 2) {
+            return;
+        }
+        if (options.lbStrategy == ZMQ.ZMQ_LB_LEAST_QUEUED) {
+            //  Compare the current pipe with the next one in turn, so that
+            //  the shortest queue is caught up with within 'active' messages.
+            if (++probe >= active) {
+                probe = 0;
+            }
+            if (probe == current && ++probe >= active) {
+                probe = 0;
+            }
+            if (shorter(probe, current)) {
+                current = probe;
+            }
+        }
+        else if (options.lbStrategy == ZMQ.ZMQ_LB_POWER_OF_TWO) {
+            //  Compare two pipes picked at random.
+            int first = random(active);
+            int second = random(active - 1);
+            if (second >= first) {
+                second++;
+            }
+            current = shorter(second, first) ? second : first;
+        }
+    }
+
+    //  Returns true if the first pipe has fewer messages queued than the
+    //  second one, for its weight. As the readers acknowledge the messages
+    //  read once per low watermark, the counts are only that accurate.
+    private boolean shorter(int first, int second)
+    {
+        Pipe a = pipes.get(first);
+        Pipe b = pipes.get(second);
+        return (a.queued() + 1) * b.weight() < (b.queued() + 1) * a.weight();
+    }
+
+    //  Returns a random number between 0 included and bound excluded.
+    private int random(int bound)
+    {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) ((seed >>> 1) % bound);
+    }
+
     public boolean hasOut()
     {
         //  If one part of the message was already written we can definitely
@@ -166,6 +254,7 @@ public class LB
             if (current == active) {
                 current = 0;
             }
+            sent = 0;
         }
 
         return false;
@@ -0,0 +1,133 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//  Last message published on each topic, replayed to the late joiners that
+//  subscribe to it. The topic is the first part of the message, and all the
+//  parts are kept. The messages are held in direct buffers, off the heap,
+//  and the least recently published topics are evicted past the capacity.
+class LastValueCache
+{
+    //  Size of the header of each part: its size and its flags.
+    private static final int HEADER_SIZE = 5;
+
+    //  Maximum number of topics held.
+    private final int capacity;
+
+    //  Last message of the topics, from the least recently published one.
+    private final LinkedHashMap<Blob, ByteBuffer> values;
+
+    //  Parts of the message being published.
+    private final List<Msg> parts;
+
+    LastValueCache(int capacity)
+    {
+        this.capacity = capacity;
+        values = new LinkedHashMap<Blob, ByteBuffer>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Blob, ByteBuffer> eldest)
+            {
+                return size() > LastValueCache.this.capacity;
+            }
+        };
+        parts = new ArrayList<Msg>();
+    }
+
+    int size()
+    {
+        return values.size();
+    }
+
+    //  Stores a message part published. The message is held as the last
+    //  value of its topic once all its parts are.
+    void store(Msg msg)
+    {
+        parts.add(msg);
+        if (msg.hasMore()) {
+            return;
+        }
+
+        int length = 0;
+        for (Msg part : parts) {
+            length += HEADER_SIZE + part.size();
+        }
+
+        Blob topic = Blob.createBlob(parts.get(0).data(), true);
+        ByteBuffer value = values.get(topic);
+        if (value == null || value.capacity() < length) {
+            value = ByteBuffer.allocateDirect(length);
+        }
+        value.clear();
+        for (Msg part : parts) {
+            value.putInt(part.size());
+            value.put((byte) (part.flags() & Msg.MORE));
+            value.put(part.buf());
+        }
+        value.flip();
+        values.put(topic, value);
+        parts.clear();
+    }
+
+    //  Returns the parts of the messages of the topics starting with the
+    //  given prefix, starting at the given offset of the data.
+    List<Msg> match(byte[] data, int offset)
+    {
+        List<Msg> matching = new ArrayList<Msg>();
+        for (Map.Entry<Blob, ByteBuffer> entry : values.entrySet()) {
+            if (!startsWith(entry.getKey().data(), data, offset)) {
+                continue;
+            }
+            ByteBuffer value = entry.getValue().duplicate();
+            while (value.hasRemaining()) {
+                int size = value.getInt();
+                int flags = value.get();
+                ByteBuffer src = value.duplicate();
+                src.limit(src.position() + size);
+                Msg msg = new Msg(size);
+                msg.put(src);
+                msg.setFlags(flags);
+                matching.add(msg);
+                value.position(value.position() + size);
+            }
+        }
+        return matching;
+    }
+
+    private static boolean startsWith(byte[] topic, byte[] prefix, int offset)
+    {
+        if (topic.length < prefix.length - offset) {
+            return false;
+        }
+        for (int idx = offset; idx < prefix.length; ++idx) {
+            if (topic[idx - offset] != prefix[idx]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -103,6 +103,13 @@ public class Mailbox
         }
     }
 
+    //  In parking mode the reader thread is parked while waiting for
+    //  commands and the sender unparks it, so no selector is involved.
+    public void setParking(boolean parking)
+    {
+        signaler.setParking(parking);
+    }
+
     public Command recv(long timeout)
     {
         Command cmd = null;
@@ -19,8 +19,10 @@
 
 package zmq;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 public class Msg
 {
@@ -39,7 +41,13 @@ public class Msg
 
     private int size;
     private byte[] data;
-    private final ByteBuffer buf;
+    private ByteBuffer buf;
+    //  File region backing the message, if any. The content is only
+    //  copied into memory when it is explicitly accessed.
+    private final FileChannel channel;
+    private final long position;
+    //  Group the message is published to (RADIO/DISH sockets).
+    private String group;
     // keep track of relative write position   保存write的相对地址
     private int writeIndex = 0;
     // keep track of relative read position    保存read的相对地址
@@ -52,6 +60,8 @@ public class Msg
         this.size = 0;
         this.buf = ByteBuffer.wrap(new byte[0]).order(ByteOrder.BIG_ENDIAN);
         this.data = buf.array();
+        this.channel = null;
+        this.position = 0;
     }
 
     public Msg(int capacity)
@@ -61,6 +71,8 @@ public class Msg
         this.size = capacity;
         this.buf = ByteBuffer.wrap(new byte[capacity]).order(ByteOrder.BIG_ENDIAN);
         this.data = buf.array();
+        this.channel = null;
+        this.position = 0;
     }
 
     public Msg(byte[] src)
@@ -73,6 +85,8 @@ public class Msg
         this.size = src.length;
         this.data = src;
         this.buf = ByteBuffer.wrap(src).order(ByteOrder.BIG_ENDIAN);
+        this.channel = null;
+        this.position = 0;
     }
 
     public Msg(final ByteBuffer src)
@@ -83,13 +97,39 @@ public class Msg
         this.type = Type.DATA;
         this.flags = 0;
         this.buf = src.duplicate();
-        if (buf.hasArray() && buf.position() == 0 && buf.limit() == buf.capacity()) {
+        //  A slice has an array offset and a backing array larger than
+        //  its content, so only share arrays that hold exactly the content.
+        if (buf.hasArray() && buf.arrayOffset() == 0 && buf.position() == 0
+                && buf.limit() == buf.array().length) {
             this.data = buf.array();
         }
         else {
             this.data = null;
         }
         this.size = buf.remaining();
+        this.channel = null;
+        this.position = 0;
+    }
+
+    //  Creates a message whose content is the given region of the file.
+    //  Over TCP the region is written with FileChannel.transferTo, so
+    //  the content never goes through the Java heap. The channel is not
+    //  closed by the library and must stay open until the message is sent.
+    public Msg(final FileChannel channel, final long position, final int size)
+    {
+        if (channel == null) {
+            throw new IllegalArgumentException("FileChannel cannot be null");
+        }
+        if (position < 0 || size < 0) {
+            throw new IllegalArgumentException("Invalid file region " + position + "+" + size);
+        }
+        this.type = Type.DATA;
+        this.flags = 0;
+        this.size = size;
+        this.buf = null;
+        this.data = null;
+        this.channel = channel;
+        this.position = position;
     }
 
     public Msg(final Msg m)
@@ -105,6 +145,30 @@ public class Msg
            this.data = new byte[this.size];
            System.arraycopy(m.data, 0, this.data, 0, m.size);
         }
+        this.channel = m.channel;
+        this.position = m.position;
+        this.group = m.group;
+    }
+
+    //  Creates a message sharing the content of the given one.
+    private Msg(final Msg m, final boolean share)
+    {
+        assert (share);
+        this.type = m.type;
+        this.flags = m.flags;
+        this.size = m.size;
+        this.buf = m.buf != null ? m.buf.duplicate() : null;
+        this.data = m.data;
+        this.channel = m.channel;
+        this.position = m.position;
+        this.group = m.group;
+    }
+
+    //  Returns a message with the same content as this one without copying
+    //  it, so neither of them shall be modified afterwards.
+    public Msg share()
+    {
+        return new Msg(this, true);
     }
 
     public boolean isIdentity()
@@ -117,6 +181,23 @@ public class Msg
         return type == Type.DELIMITER;
     }
 
+    //  Returns true if the content of the message is a file region
+    //  which has not been loaded into memory yet.
+    public boolean isFileRegion()
+    {
+        return channel != null && buf == null;
+    }
+
+    public FileChannel fileChannel()
+    {
+        return channel;
+    }
+
+    public long filePosition()
+    {
+        return position;
+    }
+
     public boolean check()
     {
         return true; // type >= TYPE_MIN && type <= TYPE_MAX;
@@ -137,6 +218,17 @@ public class Msg
         this.flags |= flags;
     }
 
+    public String group()
+    {
+        return group;
+    }
+
+    public Msg setGroup(String group)
+    {
+        this.group = group;
+        return this;
+    }
+
     public void initDelimiter()
     {
         type = Type.DELIMITER;
@@ -146,15 +238,39 @@ public class Msg
     public byte[] data()
     {
         if (data == null) {
-            data = new byte[buf.remaining()];
-            buf.duplicate().get(data);
+            ByteBuffer content = content();
+            data = new byte[content.remaining()];
+            content.duplicate().get(data);
         }
         return data;
     }
 
     public ByteBuffer buf()
     {
-        return buf.duplicate();
+        return content().duplicate();
+    }
+
+    //  Loads the backing file region on first access. This only happens
+    //  when the message is consumed in-process (e.g. over inproc).
+    private ByteBuffer content()
+    {
+        if (buf == null) {
+            ByteBuffer dst = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+            try {
+                while (dst.hasRemaining()) {
+                    if (channel.read(dst, position + dst.position()) < 0) {
+                        throw new IllegalStateException("Unexpected end of file region");
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new ZError.IOException(e);
+            }
+            dst.flip();
+            buf = dst;
+            data = dst.array();
+        }
+        return buf;
     }
 
     public int size()
@@ -174,7 +290,7 @@ public class Msg
 
     public byte get(int index)
     {
-        return buf.get(index);
+        return content().get(index);
     }
 
     public Msg put(byte b)
@@ -184,7 +300,7 @@ public class Msg
 
     public Msg put(int index, byte b)
     {
-        buf.put(index, b);
+        content().put(index, b);
         return this;
     }
 
@@ -198,7 +314,7 @@ public class Msg
         if (src == null) {
             return this;
         }
-        ByteBuffer dup = buf.duplicate();
+        ByteBuffer dup = content().duplicate();
         dup.position(writeIndex);
         writeIndex += len;
         dup.put(src, off, len);
@@ -207,7 +323,7 @@ public class Msg
 
     public Msg put(ByteBuffer src)
     {
-        ByteBuffer dup = buf.duplicate();
+        ByteBuffer dup = content().duplicate();
         dup.position(writeIndex);
         writeIndex += Math.min(dup.remaining(), src.remaining());
         dup.put(src);
@@ -218,7 +334,7 @@ public class Msg
     {
         int count = Math.min(len, size - index);
         if (data == null) {
-            ByteBuffer dup = buf.duplicate();
+            ByteBuffer dup = content().duplicate();
             dup.position(index);
             dup.put(dst, off, count);
         }
@@ -231,7 +347,7 @@ public class Msg
 
     public int getBytes(int index, ByteBuffer bb, int len)
     {
-        ByteBuffer dup = buf.duplicate();
+        ByteBuffer dup = content().duplicate();
         dup.position(index);
         int count = Math.min(bb.remaining(), dup.remaining());
         count = Math.min(count, len);
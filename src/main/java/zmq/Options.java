@@ -19,9 +19,7 @@
 
 package zmq;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import zmq.TcpAddress.TcpAddressMask;
 
@@ -127,15 +125,77 @@ public class Options
     int tcpKeepAliveIntvl;
 
     // TCP accept() filters  tcp 过滤
-    //typedef std::vector <tcp_address_mask_t> tcp_accept_filters_t;
-    final List<TcpAddress.TcpAddressMask> tcpAcceptFilters;
+    //  Replaced as a whole when changed, so the listeners of the socket
+    //  always check peers against a consistent set of rules.
+    volatile TcpAcceptFilter tcpAcceptFilter;
 
     //  ID of the socket.
     int socketId;
     Class<? extends DecoderBase> decoder;
     Class<? extends EncoderBase> encoder;
+
+    //  Creates the codecs of the connections, null for the built-in ones
+    //  of the negotiated protocol version.
+    CodecFactory codec;
     MsgAllocator msgAllocator;
 
+    //  If 1, blocking calls park the calling thread instead of waiting
+    //  on the selector of the socket's mailbox.
+    int parking;
+
+    //  Minimum size of the frames compressed over tcp, if both peers
+    //  enable it. 0 disables compression.
+    int compression;
+
+    //  Number of listeners sharing the port of a tcp endpoint, each in its
+    //  own I/O thread, where SO_REUSEPORT is supported.
+    int tcpListeners;
+
+    //  Number of connections opened in parallel to each peer of the tcp
+    //  endpoints connected to.
+    int tcpConnections;
+
+    //  If 1, connecting to a tcp endpoint connects to all the addresses
+    //  its host name resolves to, instead of the first one.
+    int tcpResolveAll;
+
+    //  Resolver of the host names of the tcp endpoints connected to.
+    Resolver resolver;
+
+    //  Time in milliseconds the resolved addresses are cached for.
+    //  0 disables the cache.
+    int resolveTtl;
+
+    //  If 1, the host name of a tcp endpoint is resolved again before
+    //  reconnecting, instead of reusing the addresses found the first time.
+    int reconnectResolve;
+
+    //  Strategy choosing the pipe of each message load-balanced by PUSH,
+    //  DEALER and REQ sockets.
+    int lbStrategy;
+
+    //  Weight given to the pipes attached after it is set, e.g. 2 to get
+    //  twice as many messages as the pipes of weight 1.
+    int lbWeight;
+
+    //  Priority class of the pipes of the endpoints connected or bound
+    //  after it is set. The messages of higher classes are received first.
+    int fqPriority;
+
+    //  Number of bytes received in turn from each pipe of a priority class.
+    //  0 receives a message in turn instead.
+    int fqQuantum;
+
+    //  Number of bytes of the messages past the send high watermark of each
+    //  pipe written to disk, and the directory of these. 0 disables it.
+    long swap;
+    String swapDir;
+
+    //  If 1, (X)SUB sockets send their subscriptions to a new or hiccuped
+    //  upstream peer as a single message, and XPUB sockets take such
+    //  messages for subscriptions. Both peers have to set it.
+    int xsubSnapshot;
+
     public Options()
     {
         sendHwm = 1000;
@@ -156,6 +216,21 @@ public class Options
         recvTimeout = -1;
         sendTimeout = -1;
         ipv4only = 1;
+        parking = 0;
+        compression = 0;
+        tcpListeners = 1;
+        tcpConnections = 1;
+        tcpResolveAll = 0;
+        resolver = Resolver.SYSTEM;
+        resolveTtl = 30000;
+        reconnectResolve = 1;
+        lbStrategy = ZMQ.ZMQ_LB_ROUND_ROBIN;
+        lbWeight = 1;
+        fqPriority = 0;
+        fqQuantum = 0;
+        swap = 0;
+        swapDir = null;
+        xsubSnapshot = 0;
         delayAttachOnConnect =  0;
         delayOnClose = true;
         delayOnDisconnect = true;
@@ -168,9 +243,10 @@ public class Options
         socketId = 0;
 
         identity = null;
-        tcpAcceptFilters = new ArrayList<TcpAddress.TcpAddressMask>();
+        tcpAcceptFilter = TcpAcceptFilter.EMPTY;
         decoder = null;
         encoder = null;
+        codec = null;
         msgAllocator = null;
     }
 
@@ -282,6 +358,120 @@ public class Options
             }
             return;
 
+        case ZMQ.ZMQ_PARKING:
+
+            parking = (Integer) optval;
+            if (parking != 0 && parking != 1) {
+                throw new IllegalArgumentException("parking only accepts 0 or 1 " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_COMPRESSION:
+
+            compression = (Integer) optval;
+            if (compression < 0) {
+                throw new IllegalArgumentException("compression " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_TCP_LISTENERS:
+
+            tcpListeners = (Integer) optval;
+            if (tcpListeners < 1) {
+                throw new IllegalArgumentException("tcpListeners " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_TCP_CONNECTIONS:
+
+            tcpConnections = (Integer) optval;
+            if (tcpConnections < 1) {
+                throw new IllegalArgumentException("tcpConnections " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_TCP_RESOLVE_ALL:
+
+            tcpResolveAll = (Integer) optval;
+            if (tcpResolveAll != 0 && tcpResolveAll != 1) {
+                throw new IllegalArgumentException("tcpResolveAll only accepts 0 or 1 " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_RESOLVER:
+
+            resolver = optval == null ? Resolver.SYSTEM : (Resolver) optval;
+            return;
+
+        case ZMQ.ZMQ_RESOLVE_TTL:
+
+            resolveTtl = (Integer) optval;
+            if (resolveTtl < 0) {
+                throw new IllegalArgumentException("resolveTtl " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_RECONNECT_RESOLVE:
+
+            reconnectResolve = (Integer) optval;
+            if (reconnectResolve != 0 && reconnectResolve != 1) {
+                throw new IllegalArgumentException("reconnectResolve only accepts 0 or 1 " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_LB_STRATEGY:
+
+            lbStrategy = (Integer) optval;
+            if (lbStrategy < ZMQ.ZMQ_LB_ROUND_ROBIN || lbStrategy > ZMQ.ZMQ_LB_POWER_OF_TWO) {
+                throw new IllegalArgumentException("lbStrategy " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_LB_WEIGHT:
+
+            lbWeight = (Integer) optval;
+            if (lbWeight < 1) {
+                throw new IllegalArgumentException("lbWeight " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_FQ_PRIORITY:
+
+            fqPriority = (Integer) optval;
+            if (fqPriority < 0 || fqPriority >= FQ.PRIORITIES) {
+                throw new IllegalArgumentException("fqPriority " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_FQ_QUANTUM:
+
+            fqQuantum = (Integer) optval;
+            if (fqQuantum < 0) {
+                throw new IllegalArgumentException("fqQuantum " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_SWAP:
+
+            swap = ((Number) optval).longValue();
+            if (swap < 0) {
+                throw new IllegalArgumentException("swap " + optval);
+            }
+            return;
+
+        case ZMQ.ZMQ_SWAP_DIR:
+
+            swapDir = (String) optval;
+            return;
+
+        case ZMQ.ZMQ_XSUB_SNAPSHOT:
+
+            xsubSnapshot = (Integer) optval;
+            if (xsubSnapshot != 0 && xsubSnapshot != 1) {
+                throw new IllegalArgumentException("xsubSnapshot only accepts 0 or 1 " + optval);
+            }
+            return;
+
         case ZMQ.ZMQ_TCP_KEEPALIVE:
 
             tcpKeepAlive = (Integer) optval;
@@ -305,17 +495,23 @@ public class Options
             return;
 
         case ZMQ.ZMQ_TCP_ACCEPT_FILTER:
-            String filterStr = (String) optval;
-            if (filterStr == null) {
-                tcpAcceptFilters.clear();
+            if (optval == null) {
+                tcpAcceptFilter = TcpAcceptFilter.EMPTY;
+                return;
+            }
+            if (optval instanceof TcpAcceptFilter) {
+                //  A whole set of rules compiled beforehand.
+                tcpAcceptFilter = (TcpAcceptFilter) optval;
+                return;
             }
-            else if (filterStr.length() == 0 || filterStr.length() > 255) {
+            String filterStr = (String) optval;
+            if (filterStr.length() == 0 || filterStr.length() > 255) {
                 throw new IllegalArgumentException("tcp_accept_filter " + optval);
             }
             else {
                 TcpAddressMask filter = new TcpAddressMask();
                 filter.resolve(filterStr, ipv4only == 1);
-                tcpAcceptFilters.add(filter);
+                tcpAcceptFilter = tcpAcceptFilter.add(filter);
             }
             return;
 
@@ -334,6 +530,7 @@ public class Options
             else {
                 throw new IllegalArgumentException("encoder " + optval);
             }
+            codec = new CodecFactory.Reflective(encoder, decoder);
             return;
 
         case ZMQ.ZMQ_DECODER:
@@ -351,7 +548,20 @@ public class Options
             else {
                 throw new IllegalArgumentException("decoder " + optval);
             }
+            codec = new CodecFactory.Reflective(encoder, decoder);
+            return;
+
+        case ZMQ.ZMQ_CODEC:
+            if (optval == null || optval instanceof CodecFactory) {
+                codec = (CodecFactory) optval;
+            }
+            else {
+                throw new IllegalArgumentException("codec " + optval);
+            }
+            encoder = null;
+            decoder = null;
             return;
+
         case ZMQ.ZMQ_MSG_ALLOCATOR:
            if (optval instanceof String) {
                try {
@@ -450,6 +660,51 @@ public class Options
         case ZMQ.ZMQ_IPV4ONLY:
             return ipv4only;
 
+        case ZMQ.ZMQ_PARKING:
+            return parking;
+
+        case ZMQ.ZMQ_COMPRESSION:
+            return compression;
+
+        case ZMQ.ZMQ_TCP_LISTENERS:
+            return tcpListeners;
+
+        case ZMQ.ZMQ_TCP_CONNECTIONS:
+            return tcpConnections;
+
+        case ZMQ.ZMQ_TCP_RESOLVE_ALL:
+            return tcpResolveAll;
+
+        case ZMQ.ZMQ_RESOLVER:
+            return resolver;
+
+        case ZMQ.ZMQ_RESOLVE_TTL:
+            return resolveTtl;
+
+        case ZMQ.ZMQ_RECONNECT_RESOLVE:
+            return reconnectResolve;
+
+        case ZMQ.ZMQ_LB_STRATEGY:
+            return lbStrategy;
+
+        case ZMQ.ZMQ_LB_WEIGHT:
+            return lbWeight;
+
+        case ZMQ.ZMQ_FQ_PRIORITY:
+            return fqPriority;
+
+        case ZMQ.ZMQ_FQ_QUANTUM:
+            return fqQuantum;
+
+        case ZMQ.ZMQ_SWAP:
+            return swap;
+
+        case ZMQ.ZMQ_SWAP_DIR:
+            return swapDir;
+
+        case ZMQ.ZMQ_XSUB_SNAPSHOT:
+            return xsubSnapshot;
+
         case ZMQ.ZMQ_TCP_KEEPALIVE:
             return tcpKeepAlive;
 
@@ -465,6 +720,9 @@ public class Options
         case ZMQ.ZMQ_LAST_ENDPOINT:
             return lastEndpoint;
 
+        case ZMQ.ZMQ_TCP_ACCEPT_FILTER:
+            return tcpAcceptFilter;
+
         default:
             throw new IllegalArgumentException("option=" + option);
         }
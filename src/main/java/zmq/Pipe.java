@@ -63,6 +63,20 @@ class Pipe extends ZObject
     //  can be higher at the moment.  最近收到的peer的消息读,实际数字可能会相对高一点
     private long peersMsgsRead;
 
+    //  Share of the messages load-balanced to the pipe, relative to the
+    //  other pipes of the socket.
+    private int weight;
+
+    //  Priority class of the pipe, and number of bytes it may still be
+    //  read in its turn, in fair-queueing.
+    private int priority;
+    private long deficit;
+
+    //  Messages written past the high watermark, if swapping is enabled,
+    //  and whether the delimiter is to be written once they are sent.
+    private Swap swap;
+    private boolean pendingDelimiter;
+
     //  The pipe object on the other side of the pipepair.  管道对象在piper对的其他
     private Pipe peer;
 
@@ -139,6 +153,11 @@ class Pipe extends ZObject
         msgsRead = 0;
         msgsWritten = 0;
         peersMsgsRead = 0;
+        weight = 1;
+        priority = 0;
+        deficit = 0;
+        swap = null;
+        pendingDelimiter = false;
         peer = null;
         sink = null;
         state = State.ACTIVE;
@@ -307,6 +326,49 @@ class Pipe extends ZObject
         return msg;
     }
 
+    //  Returns the number of messages written to the pipe that the peer
+    //  is not known to have read yet. The peer acknowledges the messages
+    //  read in batches, so the number is accurate up to the low watermark.
+    long queued()
+    {
+        return msgsWritten - peersMsgsRead;
+    }
+
+    int weight()
+    {
+        return weight;
+    }
+
+    void setWeight(int weight)
+    {
+        this.weight = weight;
+    }
+
+    int priority()
+    {
+        return priority;
+    }
+
+    void setPriority(int priority)
+    {
+        this.priority = priority;
+    }
+
+    long deficit()
+    {
+        return deficit;
+    }
+
+    void setDeficit(long deficit)
+    {
+        this.deficit = deficit;
+    }
+
+    void setSwap(Swap swap)
+    {
+        this.swap = swap;
+    }
+
     //  Checks whether messages can be written to the pipe. If writing
     //  the message would cause high watermark the function returns false.
     /**
@@ -322,9 +384,7 @@ class Pipe extends ZObject
             return false;
         }
 
-        boolean full = hwm > 0 && msgsWritten - peersMsgsRead == (long) (hwm);
-
-        if (full) {
+        if (isFull() && (swap == null || swap.isFull())) {
             outActive = false;
             return false;
         }
@@ -348,6 +408,16 @@ class Pipe extends ZObject
             return false;
         }
 
+        //  Past the high watermark, and until all the messages swapped out
+        //  are sent, the messages go to the swap to keep them in order.
+        if (swap != null && (!swap.isEmpty() || isFull())) {
+            if (!swap.write(msg)) {
+                outActive = false;
+                return false;
+            }
+            return true;
+        }
+
         boolean more = msg.hasMore();
         outpipe.write(msg, more);
 
@@ -368,6 +438,9 @@ class Pipe extends ZObject
                 assert ((msg.flags() & Msg.MORE) > 0);
             }
         }
+        if (swap != null) {
+            swap.rollback();
+        }
     }
 
     //  Flush the messages downsteam.
@@ -399,6 +472,10 @@ class Pipe extends ZObject
         //  Remember the peers's message sequence number.
         peersMsgsRead = msgsRead;
 
+        if (swap != null && outpipe != null) {
+            swapIn();
+        }
+
         if (!outActive && state == State.ACTIVE) {
             outActive = true;
             sink.writeActivated(this);
@@ -501,6 +578,12 @@ class Pipe extends ZObject
 
         inpipe = null;
 
+        //  Delete the messages swapped out and not sent.
+        if (swap != null) {
+            swap.close();
+            swap = null;
+        }
+
         //  Deallocate the pipe object
     }
 
@@ -561,6 +644,12 @@ class Pipe extends ZObject
             //  Write the delimiter into the pipe. Note that watermarks are not
             //  checked; thus the delimiter can be written even when the pipe is full.
 
+            //  The messages swapped out are sent before, as the peer reads.
+            if (swap != null && !swap.isEmpty()) {
+                pendingDelimiter = true;
+                return;
+            }
+
             Msg msg = new Msg();
             msg.initDelimiter();
             outpipe.write(msg, false);
@@ -568,6 +657,37 @@ class Pipe extends ZObject
         }
     }
 
+    //  Returns true if the high watermark is reached.
+    private boolean isFull()
+    {
+        return hwm > 0 && msgsWritten - peersMsgsRead >= (long) (hwm);
+    }
+
+    //  Moves the messages swapped out to the pipe, up to the high watermark.
+    private void swapIn()
+    {
+        boolean more = false;
+        while (more || !isFull()) {
+            Msg msg = swap.read();
+            if (msg == null) {
+                break;
+            }
+            more = msg.hasMore();
+            outpipe.write(msg, more);
+            if (!more) {
+                msgsWritten++;
+            }
+        }
+
+        if (pendingDelimiter && swap.isEmpty()) {
+            pendingDelimiter = false;
+            Msg msg = new Msg();
+            msg.initDelimiter();
+            outpipe.write(msg, false);
+        }
+        flush();
+    }
+
     //  Returns true if the message is delimiter; false otherwise.
     private static boolean isDelimiter(Msg msg)
     {
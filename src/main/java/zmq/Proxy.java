@@ -20,16 +20,36 @@
 package zmq;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.Selector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Proxy
 {
+    //  Distinguishes the hand-over endpoints of concurrent sharded proxies.
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    //  Time in milliseconds a shard waits for a full hand-over pipe, and the
+    //  caller for a shard, before checking whether it was stopped.
+    private static final int STOP_CHECK_INTERVAL = 100;
+
     private Proxy()
     {
     }
 
     public static boolean proxy(SocketBase frontend,
             SocketBase backend, SocketBase capture)
+    {
+        return proxy(frontend, backend, capture, null);
+    }
+
+    //  Steerable proxy. The control socket, if any, accepts the commands
+    //  PAUSE, RESUME, TERMINATE and STATISTICS. The latter is replied with
+    //  the counters of the traffic, one 8-byte frame per counter, in the
+    //  order of the indexes of the Statistics. A REP control socket gets an
+    //  empty reply to the other commands.
+    public static boolean proxy(SocketBase frontend,
+            SocketBase backend, SocketBase capture, SocketBase control)
     {
         //  The algorithm below assumes ratio of requests and replies processed
         //  under full load to be 1:1.
@@ -39,105 +59,505 @@ public class Proxy
         //  TODO: The current implementation drops messages when
         //  any of the pipes becomes full.
 
-        boolean success = true;
-        int rc;
-        long more;
-        Msg msg;
-        PollItem[] items = new PollItem[2];
+        Statistics statistics = new Statistics();
+        boolean paused = false;
+        boolean reply = control != null && control.getSocketOpt(ZMQ.ZMQ_TYPE) == ZMQ.ZMQ_REP;
 
-        items[0] = new PollItem(frontend, ZMQ.ZMQ_POLLIN);
-        items[1] = new PollItem(backend, ZMQ.ZMQ_POLLIN);
+        //  The control socket goes first, so it alone is polled while paused.
+        int first = control == null ? 0 : 1;
+        PollItem[] items = new PollItem[first + 2];
 
-        Selector selector;
-        try {
-            selector = Selector.open();
-        }
-        catch (IOException e) {
-            throw new ZError.IOException(e);
+        if (control != null) {
+            items[0] = new PollItem(control, ZMQ.ZMQ_POLLIN);
         }
+        items[first] = new PollItem(frontend, ZMQ.ZMQ_POLLIN);
+        items[first + 1] = new PollItem(backend, ZMQ.ZMQ_POLLIN);
+
+        Selector selector = open();
 
         try {
             while (!Thread.currentThread().isInterrupted()) {
                 //  Wait while there are either requests or replies to process.
-                rc = ZMQ.poll(selector, items, -1);
+                int rc = ZMQ.poll(selector, items, paused ? first : items.length, -1);
                 if (rc < 0) {
                     return false;
                 }
 
-                //  Process a request.
-                if (items[0].isReadable()) {
-                    while (true) {
-                        msg = frontend.recv(0);
-                        if (msg == null) {
-                            return false;
-                        }
-
-                        more = frontend.getSocketOpt(ZMQ.ZMQ_RCVMORE);
-
-                        if (more < 0) {
-                            return false;
-                        }
-
-                        //  Copy message to capture socket if any
-                        if (capture != null) {
-                            Msg ctrl = new Msg(msg);
-                            success = capture.send(ctrl, more > 0 ? ZMQ.ZMQ_SNDMORE : 0);
-                            if (!success) {
-                                return false;
-                            }
-                        }
-
-                        success = backend.send(msg, more > 0 ? ZMQ.ZMQ_SNDMORE : 0);
-                        if (!success) {
-                            return false;
-                        }
-                        if (more == 0) {
-                            break;
-                        }
+                //  Process a command.
+                if (control != null && items[0].isReadable()) {
+                    Msg msg = control.recv(0);
+                    if (msg == null) {
+                        return false;
+                    }
+                    String command = new String(msg.data(), ZMQ.CHARSET);
+                    boolean success = true;
+                    if ("STATISTICS".equals(command)) {
+                        success = statistics.send(control);
+                    }
+                    else if (reply) {
+                        success = control.send(new Msg(), 0);
+                    }
+                    if (!success) {
+                        return false;
+                    }
+
+                    if ("PAUSE".equals(command)) {
+                        paused = true;
                     }
+                    else if ("RESUME".equals(command)) {
+                        paused = false;
+                    }
+                    else if ("TERMINATE".equals(command)) {
+                        break;
+                    }
+                    continue;
+                }
+
+                //  Process a request.
+                if (items[first].isReadable()
+                        && !relay(frontend, backend, capture, statistics, Statistics.REQUEST_MESSAGES)) {
+                    return false;
                 }
                 //  Process a reply.
-                if (items[1].isReadable()) {
-                    while (true) {
-                        msg = backend.recv(0);
-                        if (msg == null) {
-                            return false;
-                        }
-
-                        more = backend.getSocketOpt(ZMQ.ZMQ_RCVMORE);
-
-                        if (more < 0) {
-                            return false;
-                        }
-
-                        //  Copy message to capture socket if any
-                        if (capture != null) {
-                            Msg ctrl = new Msg(msg);
-                            success = capture.send(ctrl, more > 0 ? ZMQ.ZMQ_SNDMORE : 0);
-                            if (!success) {
-                                return false;
-                            }
-                        }
-
-                        success = frontend.send(msg, more > 0 ? ZMQ.ZMQ_SNDMORE : 0);
-                        if (!success) {
-                            return false;
-                        }
-                        if (more == 0) {
-                            break;
-                        }
-                    }
+                if (items[first + 1].isReadable()
+                        && !relay(backend, frontend, capture, statistics, Statistics.REPLY_MESSAGES)) {
+                    return false;
                 }
             }
         }
         finally {
-            try {
-                selector.close();
+            close(selector);
+        }
+
+        return true;
+    }
+
+    //  Runs one proxy per pair of frontend and backend sockets, each in a
+    //  thread of its own, so that a broker can use as many cores as it has
+    //  shards. Captures are optional,
+    //  but if given there shall be one per shard.
+    //
+    //  With ROUTER frontends, each shard prefixes the routing identity of the
+    //  requests it forwards with its own index. A reply received by the
+    //  backend of another shard is then handed over to the owning one through
+    //  an inproc pipe, and the prefix is stripped before the reply leaves by
+    //  the frontend it came from.
+    //
+    //  Any shard stopping, or the calling thread being interrupted, stops all
+    //  the others. Returns once all of them have stopped.
+    public static boolean proxy(SocketBase[] frontends,
+            SocketBase[] backends, SocketBase[] captures)
+    {
+        int count = frontends.length;
+        if (count == 0 || count != backends.length || count > 256
+                || (captures != null && captures.length != count)) {
+            throw new IllegalArgumentException();
+        }
+        if (count == 1) {
+            return proxy(frontends[0], backends[0], captures != null ? captures[0] : null);
+        }
+
+        Shard[] shards = new Shard[count];
+        for (int i = 0; i < count; ++i) {
+            shards[i] = new Shard(i, frontends[i], backends[i], captures != null ? captures[i] : null);
+        }
+        if (frontends[0].getSocketOpt(ZMQ.ZMQ_TYPE) == ZMQ.ZMQ_ROUTER && !handOver(shards)) {
+            for (Shard shard : shards) {
+                shard.close();
             }
-            catch (Exception e) {
+            return false;
+        }
+
+        for (Shard shard : shards) {
+            shard.shards = shards;
+            shard.thread = new Thread(shard, "proxy-shard-" + shard.index);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+
+        boolean interrupted = false;
+        boolean success = true;
+        for (Shard shard : shards) {
+            while (shard.thread.isAlive()) {
+                try {
+                    shard.thread.join(STOP_CHECK_INTERVAL);
+                }
+                catch (InterruptedException e) {
+                    //  Stopping the caller stops every shard.
+                    interrupted = true;
+                    stop(shards);
+                }
+                if (shard.stopped) {
+                    //  Sending a command clears the interrupt status of the
+                    //  thread, see Signaler, so it is set again until the
+                    //  shard notices it.
+                    shard.thread.interrupt();
+                }
             }
+            success &= shard.success;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return success;
+    }
+
+    //  Makes every shard stop, be it waiting for messages or for a full
+    //  hand-over pipe.
+    private static void stop(Shard[] shards)
+    {
+        for (Shard shard : shards) {
+            shard.stopped = true;
+            shard.thread.interrupt();
         }
+    }
+
+    //  Connects every shard to the inbox of every other one.
+    private static boolean handOver(Shard[] shards)
+    {
+        Ctx ctx = shards[0].frontend.getCtx();
+        String prefix = "inproc://proxy-" + SEQUENCE.incrementAndGet() + "-";
 
+        for (Shard shard : shards) {
+            shard.inbox = ctx.createSocket(ZMQ.ZMQ_PULL);
+            if (shard.inbox == null) {
+                return false;
+            }
+            shard.inbox.setSocketOpt(ZMQ.ZMQ_LINGER, 0);
+            if (!shard.inbox.bind(prefix + shard.index)) {
+                return false;
+            }
+            shard.outboxes = new SocketBase[shards.length];
+        }
+        for (Shard shard : shards) {
+            for (Shard other : shards) {
+                if (other == shard) {
+                    continue;
+                }
+                SocketBase outbox = ctx.createSocket(ZMQ.ZMQ_PUSH);
+                if (outbox == null) {
+                    return false;
+                }
+                shard.outboxes[other.index] = outbox;
+                outbox.setSocketOpt(ZMQ.ZMQ_LINGER, 0);
+                outbox.setSocketOpt(ZMQ.ZMQ_SNDTIMEO, STOP_CHECK_INTERVAL);
+                if (!outbox.connect(prefix + other.index)) {
+                    return false;
+                }
+            }
+        }
         return true;
     }
+
+    //  Forwards the rest of a message whose first frame has been received,
+    //  counting it in the given statistics if any.
+    private static boolean relay(Msg msg, SocketBase from, SocketBase to, SocketBase capture,
+            Statistics statistics, int direction)
+    {
+        while (true) {
+            int flags = msg.hasMore() ? ZMQ.ZMQ_SNDMORE : 0;
+
+            //  Copy message to capture socket if any
+            if (capture != null && !capture.send(msg.share(), flags)) {
+                return false;
+            }
+            if (statistics != null) {
+                statistics.count(direction, msg);
+            }
+            if (!to.send(msg, flags)) {
+                return false;
+            }
+            if (flags == 0) {
+                return true;
+            }
+            msg = from.recv(0);
+            if (msg == null) {
+                return false;
+            }
+        }
+    }
+
+    private static boolean relay(SocketBase from, SocketBase to, SocketBase capture,
+            Statistics statistics, int direction)
+    {
+        Msg msg = from.recv(0);
+        if (msg == null) {
+            return false;
+        }
+        return relay(msg, from, to, capture, statistics, direction);
+    }
+
+    private static Selector open()
+    {
+        try {
+            return Selector.open();
+        }
+        catch (IOException e) {
+            throw new ZError.IOException(e);
+        }
+    }
+
+    private static void close(Selector selector)
+    {
+        try {
+            selector.close();
+        }
+        catch (Exception e) {
+        }
+    }
+
+    //  Counters of the traffic of a proxy, updated by the proxy thread only.
+    public static final class Statistics
+    {
+        //  Indexes of the counters, from the frontend to the backend
+        public static final int REQUEST_MESSAGES = 0;
+        public static final int REQUEST_FRAMES   = 1;
+        public static final int REQUEST_BYTES    = 2;
+        //  and from the backend to the frontend.
+        public static final int REPLY_MESSAGES   = 3;
+        public static final int REPLY_FRAMES     = 4;
+        public static final int REPLY_BYTES      = 5;
+
+        private final long[] counters;
+
+        public Statistics()
+        {
+            this(new long[REPLY_BYTES + 1]);
+        }
+
+        public Statistics(long[] counters)
+        {
+            if (counters.length != REPLY_BYTES + 1) {
+                throw new IllegalArgumentException();
+            }
+            this.counters = counters;
+        }
+
+        //  Returns the counter at the given index.
+        public long get(int index)
+        {
+            return counters[index];
+        }
+
+        //  Counts a frame going in the direction of the given messages index.
+        public void count(int direction, Msg msg)
+        {
+            if (!msg.hasMore()) {
+                counters[direction]++;
+            }
+            counters[direction + 1]++;
+            counters[direction + 2] += msg.size();
+        }
+
+        //  Counts a whole message going in the direction of the given messages index.
+        public void count(int direction, int frames, long bytes)
+        {
+            counters[direction]++;
+            counters[direction + 1] += frames;
+            counters[direction + 2] += bytes;
+        }
+
+        //  Sends the counters as a multi-part message of 8-byte frames.
+        private boolean send(SocketBase socket)
+        {
+            for (int index = 0; index < counters.length; ++index) {
+                Msg msg = new Msg(ByteBuffer.allocate(8).putLong(0, counters[index]));
+                if (!socket.send(msg, index < counters.length - 1 ? ZMQ.ZMQ_SNDMORE : 0)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Statistics [requests=" + counters[REQUEST_MESSAGES] + "/" + counters[REQUEST_FRAMES]
+                    + "/" + counters[REQUEST_BYTES] + ", replies=" + counters[REPLY_MESSAGES]
+                    + "/" + counters[REPLY_FRAMES] + "/" + counters[REPLY_BYTES] + "]";
+        }
+    }
+
+    private static final class Shard implements Runnable
+    {
+        private final int index;
+        private final SocketBase frontend;
+        private final SocketBase backend;
+        private final SocketBase capture;
+
+        //  Hand-over sockets, only used with ROUTER frontends.
+        private SocketBase inbox;
+        private SocketBase[] outboxes;
+
+        //  All the shards, this one included, stopped along with it.
+        private Shard[] shards;
+
+        private Thread thread;
+        private volatile boolean stopped;
+        private volatile boolean success;
+
+        private Shard(int index, SocketBase frontend, SocketBase backend, SocketBase capture)
+        {
+            this.index = index;
+            this.frontend = frontend;
+            this.backend = backend;
+            this.capture = capture;
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                if (inbox == null) {
+                    success = proxy(frontend, backend, capture);
+                }
+                else {
+                    success = route();
+                }
+            }
+            finally {
+                stop(shards);
+                close();
+            }
+        }
+
+        private boolean route()
+        {
+            PollItem[] items = new PollItem[3];
+
+            items[0] = new PollItem(frontend, ZMQ.ZMQ_POLLIN);
+            items[1] = new PollItem(backend, ZMQ.ZMQ_POLLIN);
+            items[2] = new PollItem(inbox, ZMQ.ZMQ_POLLIN);
+
+            Selector selector = open();
+
+            try {
+                while (!stopped && !Thread.currentThread().isInterrupted()) {
+                    int rc = ZMQ.poll(selector, items, -1);
+                    if (rc < 0) {
+                        return false;
+                    }
+
+                    //  Process a request, tagging its routing identity.
+                    if (items[0].isReadable() && !request()) {
+                        return false;
+                    }
+                    //  Process a reply, possibly owned by another shard.
+                    if (items[1].isReadable() && !reply()) {
+                        return false;
+                    }
+                    //  Process a reply handed over by another shard.
+                    if (items[2].isReadable() && !handed()) {
+                        return false;
+                    }
+                }
+            }
+            finally {
+                Proxy.close(selector);
+            }
+            return true;
+        }
+
+        private boolean request()
+        {
+            Msg identity = frontend.recv(0);
+            if (identity == null) {
+                return false;
+            }
+            if (capture != null && !capture.send(identity.share(), ZMQ.ZMQ_SNDMORE)) {
+                return false;
+            }
+            Msg tagged = new Msg(identity.size() + 1);
+            tagged.put((byte) index);
+            tagged.put(identity.data(), 0, identity.size());
+            if (!backend.send(tagged, ZMQ.ZMQ_SNDMORE)) {
+                return false;
+            }
+            return relay(frontend, backend, capture, null, 0);
+        }
+
+        private boolean reply()
+        {
+            Msg tagged = backend.recv(0);
+            if (tagged == null) {
+                return false;
+            }
+            int owner = tagged.size() > 0 ? tagged.data()[0] & 0xff : -1;
+            if (owner == index || owner < 0 || owner >= outboxes.length) {
+                //  Replies with an unknown owner are left for the frontend
+                //  to drop, as it would with any unknown routing identity.
+                return reply(tagged, backend, capture);
+            }
+            return handOver(tagged, outboxes[owner]);
+        }
+
+        //  Forwards a reply to the shard owning it, giving up once stopped
+        //  rather than waiting for a full pipe that may never be read again.
+        private boolean handOver(Msg msg, SocketBase outbox)
+        {
+            while (true) {
+                int flags = msg.hasMore() ? ZMQ.ZMQ_SNDMORE : 0;
+
+                if (capture != null && !capture.send(msg.share(), flags)) {
+                    return false;
+                }
+                while (!outbox.send(msg, flags)) {
+                    if (stopped || outbox.errno() != ZError.EAGAIN) {
+                        return false;
+                    }
+                }
+                if (flags == 0) {
+                    return true;
+                }
+                msg = backend.recv(0);
+                if (msg == null) {
+                    return false;
+                }
+            }
+        }
+
+        private boolean handed()
+        {
+            Msg tagged = inbox.recv(0);
+            if (tagged == null) {
+                return false;
+            }
+            return reply(tagged, inbox, null);
+        }
+
+        //  Strips the shard index and sends the reply out of the frontend.
+        private boolean reply(Msg tagged, SocketBase from, SocketBase capture)
+        {
+            if (!tagged.hasMore()) {
+                //  A lone routing identity, nothing to route.
+                return true;
+            }
+            if (capture != null && !capture.send(tagged.share(), ZMQ.ZMQ_SNDMORE)) {
+                return false;
+            }
+            Msg identity = new Msg(Math.max(tagged.size() - 1, 0));
+            if (identity.size() > 0) {
+                identity.put(tagged.data(), 1, identity.size());
+            }
+            if (!frontend.send(identity, ZMQ.ZMQ_SNDMORE)) {
+                return false;
+            }
+            return relay(from, frontend, capture, null, 0);
+        }
+
+        private void close()
+        {
+            if (inbox != null) {
+                inbox.close();
+            }
+            if (outboxes != null) {
+                for (SocketBase outbox : outboxes) {
+                    if (outbox != null) {
+                        outbox.close();
+                    }
+                }
+            }
+        }
+    }
 }
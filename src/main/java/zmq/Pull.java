@@ -40,7 +40,7 @@ class Pull extends SocketBase
         super(parent, tid, sid);
         options.type = ZMQ.ZMQ_PULL;
 
-        fq = new FQ();
+        fq = new FQ(options);
     }
 
     @Override
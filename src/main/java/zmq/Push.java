@@ -40,7 +40,7 @@ public class Push extends SocketBase
         super(parent, tid, sid);
         options.type = ZMQ.ZMQ_PUSH;
 
-        lb = new LB();
+        lb = new LB(options);
     }
 
     @Override
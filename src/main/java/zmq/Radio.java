@@ -0,0 +1,200 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//  RADIO socket: publishes messages to groups. Only peers that joined a
+//  group get its messages, except for UDP peers which get all of them and
+//  filter on their side.
+public class Radio extends SocketBase
+{
+    public static class RadioSession extends SessionBase
+    {
+        //  On the wire the group travels as a frame of its own, followed by
+        //  the body.
+        private Msg pending;
+
+        public RadioSession(IOThread ioThread, boolean connect,
+                SocketBase socket, Options options, Address addr)
+        {
+            super(ioThread, connect, socket, options, addr);
+        }
+
+        @Override
+        public Msg pullMsg()
+        {
+            if (pending != null) {
+                Msg msg = pending;
+                pending = null;
+                return msg;
+            }
+
+            Msg msg = super.pullMsg();
+            if (msg == null || msg.group() == null) {
+                return msg;
+            }
+
+            Msg group = new Msg(msg.group().getBytes(ZMQ.CHARSET));
+            group.setFlags(Msg.MORE);
+            pending = msg;
+            return group;
+        }
+
+        @Override
+        protected void reset()
+        {
+            super.reset();
+            pending = null;
+        }
+    }
+
+    //  Pipes subscribed to each group.
+    private final Map<String, Set<Pipe>> subscriptions;
+
+    //  Pipes receiving all the groups (UDP).
+    private final List<Pipe> udpPipes;
+
+    //  Distributor of messages holding the list of outbound pipes.
+    private final Dist dist;
+
+    public Radio(Ctx parent, int tid, int sid)
+    {
+        super(parent, tid, sid);
+
+        options.type = ZMQ.ZMQ_RADIO;
+
+        subscriptions = new HashMap<String, Set<Pipe>>();
+        udpPipes = new ArrayList<Pipe>();
+        dist = new Dist();
+    }
+
+    @Override
+    protected void xattachPipe(Pipe pipe, boolean icanhasall)
+    {
+        assert (pipe != null);
+
+        dist.attach(pipe);
+
+        if (icanhasall) {
+            udpPipes.add(pipe);
+        }
+        else {
+            //  The pipe is active when attached. Let's read the joins
+            //  from it, if any.
+            xreadActivated(pipe);
+        }
+    }
+
+    @Override
+    protected void xreadActivated(Pipe pipe)
+    {
+        //  There are some joins or leaves waiting in the pipe.
+        Msg msg = pipe.read();
+        while (msg != null) {
+            String group = Dish.joined(msg);
+            if (group != null) {
+                //  A dish joins again on a new or hiccuped pipe, so a pipe
+                //  is only registered once per group.
+                Set<Pipe> pipes = subscriptions.get(group);
+                if (pipes == null) {
+                    pipes = new HashSet<Pipe>();
+                    subscriptions.put(group, pipes);
+                }
+                pipes.add(pipe);
+            }
+            else {
+                group = Dish.left(msg);
+                if (group != null) {
+                    Set<Pipe> pipes = subscriptions.get(group);
+                    if (pipes != null && pipes.remove(pipe) && pipes.isEmpty()) {
+                        subscriptions.remove(group);
+                    }
+                }
+            }
+            msg = pipe.read();
+        }
+    }
+
+    @Override
+    protected void xwriteActivated(Pipe pipe)
+    {
+        dist.activated(pipe);
+    }
+
+    @Override
+    protected void xpipeTerminated(Pipe pipe)
+    {
+        Iterator<Set<Pipe>> it = subscriptions.values().iterator();
+        while (it.hasNext()) {
+            Set<Pipe> pipes = it.next();
+            pipes.remove(pipe);
+            if (pipes.isEmpty()) {
+                it.remove();
+            }
+        }
+        udpPipes.remove(pipe);
+        dist.terminated(pipe);
+    }
+
+    @Override
+    protected boolean xsend(Msg msg)
+    {
+        //  Radio sockets do not allow multipart data (ZMQ_SNDMORE).
+        if (msg.hasMore() || msg.group() == null) {
+            errno.set(ZError.EINVAL);
+            return false;
+        }
+
+        dist.unmatch();
+
+        Set<Pipe> pipes = subscriptions.get(msg.group());
+        if (pipes != null) {
+            for (Pipe pipe : pipes) {
+                dist.match(pipe);
+            }
+        }
+        for (Pipe pipe : udpPipes) {
+            dist.match(pipe);
+        }
+
+        return dist.sendToMatching(msg);
+    }
+
+    @Override
+    protected boolean xhasOut()
+    {
+        return dist.hasOut();
+    }
+
+    @Override
+    protected Msg xrecv()
+    {
+        //  Messages cannot be received from RADIO socket.
+        errno.set(ZError.ENOTSUP);
+        return null;
+    }
+}
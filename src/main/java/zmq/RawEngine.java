@@ -0,0 +1,332 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+//  Engine for ZMQ_STREAM sockets. There is no greeting and no framing:
+//  whatever arrives on the wire is handed to the session as a message
+//  and every message pulled from the session is written out verbatim.
+public class RawEngine implements IEngine, IPollEvents
+{
+    //  Once less than this is left in the read buffer, a fresh one is
+    //  allocated instead of reading a few bytes at a time.
+    private static final int MIN_READ_ROOM = 512;
+
+    //  Underlying socket.
+    private SocketChannel handle;
+
+    //  Buffer the socket is read into. Received messages are slices of it,
+    //  so it is never rewound; a new buffer replaces it once it is full.
+    private ByteBuffer inbuf;
+
+    //  Message read from the socket but not yet accepted by the session.
+    private Msg pendingIn;
+
+    //  Data currently being written to the socket.
+    private Transfer outbuf;
+
+    //  True iff the identity slot of the session has been consumed.
+    private boolean identityPulled;
+
+    private boolean ioEnabled;
+    private boolean plugged;
+
+    private final Options options;
+
+    // String representation of endpoint
+    private final String endpoint;
+
+    //  The session this engine is attached to.
+    private SessionBase session;
+    private SocketBase socket;
+
+    private IOObject ioObject;
+
+    public RawEngine(SocketChannel handle, final Options options, final String endpoint)
+    {
+        this.handle = handle;
+        this.options = options;
+        this.endpoint = endpoint;
+        ioEnabled = false;
+        plugged = false;
+        identityPulled = false;
+
+        //  Put the socket into non-blocking mode.
+        try {
+            Utils.unblockSocket(this.handle);
+
+            //  Set the socket buffer limits for the underlying socket.
+            if (this.options.sndbuf != 0) {
+                this.handle.socket().setSendBufferSize(this.options.sndbuf);
+            }
+            if (this.options.rcvbuf != 0) {
+                this.handle.socket().setReceiveBufferSize(this.options.rcvbuf);
+            }
+        }
+        catch (SocketException e) {
+            throw new ZError.InstantiationException(e);
+        }
+        catch (IOException e) {
+            throw new ZError.InstantiationException(e);
+        }
+    }
+
+    public void destroy()
+    {
+        assert (!plugged);
+
+        if (handle != null) {
+            try {
+                handle.close();
+            }
+            catch (IOException e) {
+            }
+            handle = null;
+        }
+    }
+
+    @Override
+    public void plug(IOThread ioThread, SessionBase session)
+    {
+        assert (!plugged);
+        plugged = true;
+
+        //  Connect to session object.
+        assert (this.session == null);
+        assert (session != null);
+        this.session = session;
+        socket = this.session.getSocket();
+
+        ioObject = new IOObject(null);
+        ioObject.setHandler(this);
+        ioObject.plug(ioThread);
+        ioObject.addHandle(handle);
+        ioEnabled = true;
+
+        //  The peer sends no identity; fill the session's identity slot
+        //  and tell the socket about the new connection with an empty
+        //  message.
+        session.pushMsg(new Msg());
+        session.pushMsg(new Msg());
+        session.flush();
+
+        ioObject.setPollIn(handle);
+        ioObject.setPollOut(handle);
+
+        //  Flush all the data that may have been already received downstream.
+        inEvent();
+    }
+
+    private void unplug()
+    {
+        assert (plugged);
+        plugged = false;
+
+        //  Cancel all fd subscriptions.
+        if (ioEnabled) {
+            ioObject.removeHandle(handle);
+            ioEnabled = false;
+        }
+
+        //  Disconnect from I/O threads poller object.
+        ioObject.unplug();
+
+        session = null;
+    }
+
+    @Override
+    public void terminate()
+    {
+        unplug();
+        destroy();
+    }
+
+    @Override
+    public void inEvent()
+    {
+        if (pendingIn != null) {
+            return;
+        }
+
+        if (inbuf == null || inbuf.remaining() < MIN_READ_ROOM) {
+            inbuf = ByteBuffer.allocate(Config.IN_BATCH_SIZE.getValue());
+        }
+
+        int start = inbuf.position();
+        int nbytes = read(inbuf);
+
+        //  Check whether the peer has closed the connection.
+        if (nbytes == -1) {
+            error();
+            return;
+        }
+        if (nbytes == 0) {
+            return;
+        }
+
+        //  Hand the received bytes over without copying them.
+        ByteBuffer data = inbuf.duplicate();
+        data.position(start);
+        data.limit(inbuf.position());
+        Msg msg = new Msg(data.slice());
+
+        if (session.pushMsg(msg) != 0) {
+            //  The pipe is full. Stop reading until the session asks for more.
+            pendingIn = msg;
+            ioObject.resetPollIn(handle);
+        }
+        session.flush();
+    }
+
+    @Override
+    public void outEvent()
+    {
+        while (true) {
+            if (outbuf == null) {
+                Msg msg = session.pullMsg();
+                if (msg == null) {
+                    //  No data to send, stop polling for output.
+                    ioObject.resetPollOut(handle);
+                    return;
+                }
+
+                //  The first message is the identity of the socket,
+                //  which is meaningless to a raw peer.
+                if (!identityPulled) {
+                    identityPulled = true;
+                    continue;
+                }
+
+                if (msg.size() == 0) {
+                    continue;
+                }
+
+                if (msg.isFileRegion()) {
+                    outbuf = new Transfer.FileChannelTransfer(ByteBuffer.allocate(0),
+                            msg.fileChannel(), msg.filePosition(), msg.size());
+                }
+                else {
+                    outbuf = new Transfer.ByteBufferTransfer(msg.buf());
+                }
+            }
+
+            //  IO error has occurred. We stop waiting for output events.
+            //  The engine is not terminated until we detect input error;
+            //  this is necessary to prevent losing incoming messages.
+            if (write(outbuf) == -1) {
+                ioObject.resetPollOut(handle);
+                return;
+            }
+
+            //  The socket is full, wait until it is writable again.
+            if (outbuf.remaining() > 0) {
+                return;
+            }
+            outbuf = null;
+        }
+    }
+
+    @Override
+    public void connectEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void acceptEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void timerEvent(int id)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void activateOut()
+    {
+        ioObject.setPollOut(handle);
+
+        //  Speculative write, see StreamEngine.activateOut.
+        outEvent();
+    }
+
+    @Override
+    public void activateIn()
+    {
+        if (pendingIn != null) {
+            if (session.pushMsg(pendingIn) != 0) {
+                return;
+            }
+            pendingIn = null;
+            session.flush();
+        }
+
+        ioObject.setPollIn(handle);
+
+        //  Speculative read.
+        inEvent();
+    }
+
+    private void error()
+    {
+        assert (session != null);
+
+        //  Tell the socket that the connection is gone with an empty message.
+        session.pushMsg(new Msg());
+        session.flush();
+
+        socket.eventDisconnected(endpoint, handle);
+        session.detach();
+        unplug();
+        destroy();
+    }
+
+    private int write(Transfer buf)
+    {
+        int nbytes;
+        try {
+            nbytes = buf.transferTo(handle);
+        }
+        catch (IOException e) {
+            return -1;
+        }
+
+        return nbytes;
+    }
+
+    private int read(ByteBuffer buf)
+    {
+        int nbytes;
+        try {
+            nbytes = handle.read(buf);
+        }
+        catch (IOException e) {
+            return -1;
+        }
+
+        return nbytes;
+    }
+}
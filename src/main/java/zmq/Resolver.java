@@ -0,0 +1,44 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+//  Looks up the addresses of host names for the tcp endpoints connected
+//  to. A socket may be given its own resolver with ZMQ_RESOLVER, e.g. to
+//  query a service registry instead of the system, or to stub the lookups
+//  out in tests. Resolvers are called from a background thread and may
+//  block as long as needed.
+public interface Resolver
+{
+    //  Resolver asking the system, i.e. the name service of the JVM.
+    Resolver SYSTEM = new Resolver()
+    {
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException
+        {
+            return InetAddress.getAllByName(host);
+        }
+    };
+
+    //  Returns the addresses of the host, or throws if it is unknown.
+    InetAddress[] resolve(String host) throws UnknownHostException;
+}
@@ -0,0 +1,216 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//  Host names resolved by the sockets of a context. The lookups run in
+//  background threads, so that a slow name server neither stalls the
+//  application threads calling connect nor the I/O threads, and their
+//  results are kept for a while, so that reconnecting to a peer, or
+//  connecting many times to the same host, does not query it again.
+//  Failed lookups are not cached.
+final class ResolverCache
+{
+    //  Notified of the completion of a background lookup.
+    interface Listener
+    {
+        //  Called from the lookup thread with the addresses of the host,
+        //  or null if it could not be resolved.
+        void resolved(InetAddress[] addrs);
+    }
+
+    //  Maximum number of lookups running at the same time.
+    private static final int LOOKUP_THREADS = 4;
+
+    //  Number of entries above which the expired ones are purged.
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private static final class Key
+    {
+        private final Resolver resolver;
+        private final String host;
+
+        private Key(Resolver resolver, String host)
+        {
+            this.resolver = resolver;
+            this.host = host;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return resolver == key.resolver && host.equals(key.host);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(resolver) * 31 + host.hashCode();
+        }
+    }
+
+    private static final class Entry
+    {
+        private final InetAddress[] addrs;
+        private final long expiry;
+
+        private Entry(InetAddress[] addrs, long expiry)
+        {
+            this.addrs = addrs;
+            this.expiry = expiry;
+        }
+    }
+
+    private final Map<Key, Entry> entries;
+    private final ThreadPoolExecutor lookups;
+
+    ResolverCache()
+    {
+        entries = new HashMap<Key, Entry>();
+
+        final AtomicInteger count = new AtomicInteger();
+        lookups = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable task)
+                    {
+                        Thread thread = new Thread(task, "resolver-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        //  The threads are only started on demand, and end once idle.
+        lookups.allowCoreThreadTimeOut(true);
+    }
+
+    //  Returns the cached addresses of the host, or null if they are
+    //  unknown or older than ttl milliseconds.
+    InetAddress[] cached(Resolver resolver, String host, long ttl)
+    {
+        if (ttl <= 0) {
+            return null;
+        }
+        Key key = new Key(resolver, host);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiry - Clock.nowMS() <= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.addrs;
+        }
+    }
+
+    //  Resolves the host in the calling thread, unless its addresses are
+    //  cached already.
+    InetAddress[] resolve(Resolver resolver, String host, long ttl) throws UnknownHostException
+    {
+        InetAddress[] addrs = cached(resolver, host, ttl);
+        if (addrs == null) {
+            addrs = lookup(resolver, host, ttl);
+        }
+        return addrs;
+    }
+
+    //  Resolves the host in a background thread, the listener being
+    //  notified once done. Returns the cached addresses instead, without
+    //  notifying the listener, if they are available.
+    InetAddress[] resolve(final Resolver resolver, final String host, final long ttl,
+                          final Listener listener)
+    {
+        InetAddress[] addrs = cached(resolver, host, ttl);
+        if (addrs != null) {
+            return addrs;
+        }
+        try {
+            lookups.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    InetAddress[] addrs = null;
+                    try {
+                        addrs = lookup(resolver, host, ttl);
+                    }
+                    catch (UnknownHostException e) {
+                        addrs = null;
+                    }
+                    catch (RuntimeException e) {
+                        addrs = null;
+                    }
+                    if (!lookups.isShutdown()) {
+                        listener.resolved(addrs);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            //  The context is terminating.
+        }
+        return null;
+    }
+
+    private InetAddress[] lookup(Resolver resolver, String host, long ttl) throws UnknownHostException
+    {
+        InetAddress[] addrs = resolver.resolve(host);
+        if (addrs == null || addrs.length == 0) {
+            throw new UnknownHostException(host);
+        }
+        if (ttl > 0) {
+            long now = Clock.nowMS();
+            synchronized (entries) {
+                if (entries.size() >= PURGE_THRESHOLD) {
+                    Iterator<Entry> it = entries.values().iterator();
+                    while (it.hasNext()) {
+                        if (it.next().expiry - now <= 0) {
+                            it.remove();
+                        }
+                    }
+                }
+                entries.put(new Key(resolver, host), new Entry(addrs, now + ttl));
+            }
+        }
+        return addrs;
+    }
+
+    void close()
+    {
+        lookups.shutdownNow();
+    }
+}
@@ -105,7 +105,7 @@ public class Router extends SocketBase
 
         options.type = ZMQ.ZMQ_ROUTER;
 
-        fq = new FQ();
+        fq = new FQ(options);
         prefetchedId = new Msg();
         prefetchedMsg = new Msg();
 
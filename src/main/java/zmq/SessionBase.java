@@ -19,6 +19,7 @@
 
 package zmq;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -61,12 +62,20 @@ class SessionBase extends Own implements
     //  the engines into the same thread.   session存在的i/o线程,用于plug该engine到相同的线程
     private IOThread ioThread;
 
+    //  True while the session counts in the load of its I/O thread
+    //  before the engine of an accepted connection is attached.
+    private boolean attaching;
+
     //  ID of the linger timer  
     private static final int LINGER_TIMER_ID = 0x20;
 
     //  True is linger timer is running.
     private boolean hasLingerTimer;
 
+    //  ID of the timer retrying to open a udp engine, and whether it runs.
+    private static final int RECONNECT_TIMER_ID = 0x21;
+    private boolean hasReconnectTimer;
+
     //  If true, identity has been sent/received from the network.  标记接收/发送
     private boolean identitySent;
     private boolean identityReceived;
@@ -74,6 +83,9 @@ class SessionBase extends Own implements
     //  Protocol and address to use when connecting.   连接到一个地址的协议
     private final Address addr;
 
+    //  Priority class of the pipe attached to the socket.
+    private int priority;
+
     private IOObject ioObject;
 
     public static SessionBase create(IOThread ioThread, boolean connect,
@@ -125,6 +137,18 @@ class SessionBase extends Own implements
             s = new Pair.PairSession(ioThread, connect,
                 socket, options, addr);
             break;
+        case ZMQ.ZMQ_STREAM:
+            s = new Stream.StreamSession(ioThread, connect,
+                socket, options, addr);
+            break;
+        case ZMQ.ZMQ_RADIO:
+            s = new Radio.RadioSession(ioThread, connect,
+                socket, options, addr);
+            break;
+        case ZMQ.ZMQ_DISH:
+            s = new Dish.DishSession(ioThread, connect,
+                socket, options, addr);
+            break;
         default:
             throw new IllegalArgumentException("type=" + options.type);
         }
@@ -145,24 +169,40 @@ class SessionBase extends Own implements
         this.socket = socket;
         this.ioThread = ioThread;
         hasLingerTimer = false;
+        hasReconnectTimer = false;
         identitySent = false;
         identityReceived = false;
         this.addr = addr;
+        priority = options.fqPriority;
 
         terminatingPipes = new HashSet<Pipe>();
     }
 
+    //  Sets the priority class of the pipe, e.g. as of the time the
+    //  endpoint accepting the connection was bound.
+    void setPriority(int priority)
+    {
+        this.priority = priority;
+    }
+
     @Override
     public void destroy()
     {
         assert (pipe == null);
 
+        attached();
+
         //  If there's still a pending linger timer, remove it.  如果还有pending linger timer,移除它
         if (hasLingerTimer) {
             ioObject.cancelTimer(LINGER_TIMER_ID);
             hasLingerTimer = false;
         }
 
+        if (hasReconnectTimer) {
+            ioObject.cancelTimer(RECONNECT_TIMER_ID);
+            hasReconnectTimer = false;
+        }
+
         //  Close the engine.
         if (engine != null) {
             engine.terminate();
@@ -274,6 +314,15 @@ class SessionBase extends Own implements
                 ioObject.cancelTimer(LINGER_TIMER_ID);
                 hasLingerTimer = false;
             }
+
+            //  A STREAM socket drops the pipe to close the connection.
+            if (options.type == ZMQ.ZMQ_STREAM && !isTerminating()) {
+                if (engine != null) {
+                    engine.terminate();
+                    engine = null;
+                }
+                terminate();
+            }
         }
         else {
             // Remove the pipe from the detached pipes set
@@ -343,11 +392,30 @@ class SessionBase extends Own implements
         }
     }
 
+    //  Counts the session in the load of its I/O thread until the engine
+    //  is attached. Called before launching the session, so that the
+    //  sessions created at once are spread over the I/O threads.
+    void expectAttach()
+    {
+        attaching = true;
+        ioThread.incPending();
+    }
+
+    private void attached()
+    {
+        if (attaching) {
+            attaching = false;
+            ioThread.decPending();
+        }
+    }
+
     @Override
     protected void processAttach(IEngine engine)
     {
         assert (engine != null);
 
+        attached();
+
         //  Create the pipe if it does not exist yet.
         if (pipe == null && !isTerminating()) {
             ZObject[] parents = {this, socket};
@@ -364,6 +432,7 @@ class SessionBase extends Own implements
             pipe = pipes[0];
 
             //  Ask socket to plug into the remote end of the pipe.
+            pipes[1].setPriority(priority);
             sendBind(socket, pipes[1]);
         }
 
@@ -428,6 +497,13 @@ class SessionBase extends Own implements
     @Override
     public void timerEvent(int id)
     {
+        //  Time to open the udp engine again.
+        if (id == RECONNECT_TIMER_ID) {
+            hasReconnectTimer = false;
+            startConnecting(false);
+            return;
+        }
+
         //  Linger period expired. We can proceed with termination even though
         //  there are still pending messages to be sent.
         assert (id == LINGER_TIMER_ID);
@@ -449,7 +525,8 @@ class SessionBase extends Own implements
         //  For delayed connect situations, terminate the pipe
         //  and reestablish later on
         if (pipe != null && options.delayAttachOnConnect == 1
-            && !addr.protocol().equals("pgm") && !addr.protocol().equals("epgm")) {
+            && !addr.protocol().equals("pgm") && !addr.protocol().equals("epgm")
+            && !addr.protocol().equals("udp")) {
             pipe.hiccup();
             pipe.terminate(false);
             terminatingPipes.add(pipe);
@@ -465,7 +542,8 @@ class SessionBase extends Own implements
 
         //  For subscriber sockets we hiccup the inbound pipe, which will cause
         //  the socket object to resend all the subscriptions.
-        if (pipe != null && (options.type == ZMQ.ZMQ_SUB || options.type == ZMQ.ZMQ_XSUB)) {
+        if (pipe != null && (options.type == ZMQ.ZMQ_SUB || options.type == ZMQ.ZMQ_XSUB
+            || options.type == ZMQ.ZMQ_DISH)) {
             pipe.hiccup();
         }
     }
@@ -495,6 +573,35 @@ class SessionBase extends Own implements
             return;
         }
 
+        if (addr.protocol().equals("udp")) {
+            //  There is no connection to establish; the engine is ready
+            //  as soon as its channel is open.
+            UdpEngine engine = new UdpEngine(options, addr,
+                options.type == ZMQ.ZMQ_RADIO, options.type == ZMQ.ZMQ_DISH);
+            try {
+                engine.open();
+            }
+            catch (IOException e) {
+                //  Retry after the reconnect interval, as connecters do.
+                getSocket().eventConnectDelayed(addr.toString(), ZError.exccode(e));
+                if (options.reconnectIvl != -1) {
+                    ioObject.addTimer(options.reconnectIvl, RECONNECT_TIMER_ID);
+                    hasReconnectTimer = true;
+                    getSocket().eventConnectRetried(addr.toString(), options.reconnectIvl);
+                }
+                return;
+            }
+            sendAttach(this, engine);
+            return;
+        }
+
+        if (addr.protocol().equals("shm")) {
+            ShmConnecter connecter = new ShmConnecter(
+                ioThread, this, options, addr, wait);
+            launchChild(connecter);
+            return;
+        }
+
         assert (false);
     }
 
@@ -0,0 +1,70 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.io.File;
+import java.net.SocketAddress;
+
+//  Shared memory endpoint. The name designates a rendezvous file: either
+//  an absolute path or a plain name created in the temporary directory.
+public class ShmAddress implements Address.IZAddress
+{
+    private String name;
+    private File file;
+
+    @Override
+    public String toString()
+    {
+        if (name == null) {
+            return "";
+        }
+
+        return "shm://" + name;
+    }
+
+    @Override
+    public void resolve(String name, boolean ip4only)
+    {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("shm name must not be empty");
+        }
+        this.name = name;
+
+        File path = new File(name);
+        if (path.isAbsolute()) {
+            file = path;
+        }
+        else {
+            file = new File(System.getProperty("java.io.tmpdir"), "jeromq-shm-" + name);
+        }
+    }
+
+    //  Shared memory endpoints have no socket address.
+    @Override
+    public SocketAddress address()
+    {
+        return null;
+    }
+
+    public File file()
+    {
+        return file;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.UUID;
+
+//  Connecter for shm:// endpoints. It creates the shared segment and hands
+//  it to a new engine, which asks the listener to attach to it. If there is
+//  no listener yet, the connecter retries after the reconnect interval.
+public class ShmConnecter extends Own implements IPollEvents
+{
+    //  ID of the timer used to delay the reconnection.
+    private static final int RECONNECT_TIMER_ID = 1;
+
+    private final IOObject ioObject;
+
+    //  Address to connect to. Owned by session_base_t.
+    private final Address addr;
+
+    //  If true, connecter is waiting a while before trying to connect.
+    private final boolean delayedStart;
+
+    //  True iff a timer has been started.
+    private boolean timerStarted;
+
+    //  Reference to the session we belong to.
+    private final SessionBase session;
+
+    // Socket
+    private final SocketBase socket;
+
+    public ShmConnecter(IOThread ioThread,
+      SessionBase session, final Options options,
+      final Address addr, boolean delayedStart)
+    {
+        super(ioThread, options);
+        ioObject = new IOObject(ioThread);
+        this.addr = addr;
+        this.delayedStart = delayedStart;
+        timerStarted = false;
+        this.session = session;
+
+        assert (this.addr != null);
+        socket = session.getSocket();
+    }
+
+    public void destroy()
+    {
+        assert (!timerStarted);
+    }
+
+    @Override
+    protected void processPlug()
+    {
+        ioObject.setHandler(this);
+        if (delayedStart) {
+            addReconnectTimer();
+        }
+        else {
+            startConnecting();
+        }
+    }
+
+    @Override
+    protected void processTerm(int linger)
+    {
+        if (timerStarted) {
+            ioObject.cancelTimer(RECONNECT_TIMER_ID);
+            timerStarted = false;
+        }
+
+        super.processTerm(linger);
+    }
+
+    @Override
+    public void timerEvent(int id)
+    {
+        timerStarted = false;
+        startConnecting();
+    }
+
+    private void startConnecting()
+    {
+        File rendezvous = ((ShmAddress) addr.resolved()).file();
+
+        //  Wait for the listener to show up.
+        if (ShmListener.readPort(rendezvous) <= 0) {
+            addReconnectTimer();
+            return;
+        }
+
+        int capacity = options.sndbuf > 0 ? options.sndbuf : Config.SHM_RING_SIZE.getValue();
+        File file = new File(rendezvous.getAbsoluteFile().getParentFile(),
+                rendezvous.getName() + "." + UUID.randomUUID().toString());
+        MsgAllocator allocator = options.msgAllocator != null ? options.msgAllocator : new MsgAllocatorHeap();
+
+        ShmSegment segment = null;
+        DatagramChannel fd = null;
+        try {
+            segment = ShmSegment.create(file, capacity, allocator);
+            fd = DatagramChannel.open();
+            fd.configureBlocking(false);
+            fd.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        }
+        catch (IOException e) {
+            if (fd != null) {
+                try {
+                    fd.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+            file.delete();
+            addReconnectTimer();
+            return;
+        }
+
+        //  Create the engine object for this connection.
+        ShmEngine engine = new ShmEngine(segment, fd, options, addr.toString(), rendezvous);
+
+        //  Attach the engine to the corresponding session object.
+        sendAttach(session, engine);
+
+        //  Shut the connecter down.
+        terminate();
+
+        socket.eventConnected(addr.toString(), fd);
+    }
+
+    private void addReconnectTimer()
+    {
+        ioObject.addTimer(options.reconnectIvl, RECONNECT_TIMER_ID);
+        socket.eventConnectRetried(addr.toString(), options.reconnectIvl);
+        timerStarted = true;
+    }
+
+    @Override
+    public void inEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void outEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void acceptEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void connectEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
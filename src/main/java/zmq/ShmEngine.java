@@ -0,0 +1,374 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+//  Engine moving messages between a session and a shared memory segment.
+//  Messages travel through the segment's rings; a loopback datagram is
+//  only sent when the peer's reader (or writer) sleeps, so that a busy
+//  connection does not touch the kernel at all.
+public class ShmEngine implements IEngine, IPollEvents
+{
+    //  ID of the timer used to repeat the attach request.
+    private static final int ATTACH_TIMER_ID = 1;
+
+    private static final int DEFAULT_ATTACH_IVL = 100;
+
+    //  Shared segment and our ends of its rings.
+    private final ShmSegment segment;
+    private final ShmSegment.Ring in;
+    private final ShmSegment.Ring out;
+
+    //  Datagram channel used to wake the peer up and to be woken up.
+    private DatagramChannel handle;
+    private final ByteBuffer wakeBuffer;
+
+    //  Rendezvous file of the listener. Only set on the connecting side
+    //  until the listener has attached to the segment.
+    private File rendezvous;
+    private boolean attachTimerStarted;
+
+    private final Options options;
+    private final String endpoint;
+
+    private boolean plugged;
+    private boolean ioEnabled;
+    private IOObject ioObject;
+
+    //  The session this engine is attached to.
+    private SessionBase session;
+    private SocketBase socket;
+
+    //  Message read from the ring but not yet accepted by the session.
+    private Msg pendingIn;
+    private boolean inputStopped;
+
+    //  Set when the wake-up channel fails, e.g. the peer process is gone.
+    private boolean broken;
+
+    public ShmEngine(ShmSegment segment, DatagramChannel handle, final Options options, String endpoint,
+            File rendezvous)
+    {
+        this.segment = segment;
+        this.handle = handle;
+        this.options = options;
+        this.endpoint = endpoint;
+        this.rendezvous = rendezvous;
+        in = segment.in();
+        out = segment.out();
+        wakeBuffer = ByteBuffer.allocate(64);
+        plugged = false;
+        ioEnabled = false;
+        inputStopped = false;
+        broken = false;
+    }
+
+    public void destroy()
+    {
+        assert (!plugged);
+
+        if (handle != null) {
+            //  Let the peer know we are gone.
+            segment.close();
+            signal();
+            try {
+                handle.close();
+            }
+            catch (IOException e) {
+            }
+            handle = null;
+        }
+        segment.unlink();
+    }
+
+    @Override
+    public void plug(IOThread ioThread, SessionBase session)
+    {
+        assert (!plugged);
+        plugged = true;
+
+        //  Connect to session object.
+        assert (this.session == null);
+        assert (session != null);
+        this.session = session;
+        socket = this.session.getSocket();
+
+        ioObject = new IOObject(null);
+        ioObject.setHandler(this);
+        ioObject.plug(ioThread);
+        ioObject.addHandle(handle);
+        ioObject.setPollIn(handle);
+        ioEnabled = true;
+
+        segment.setPort(handle.socket().getLocalPort());
+        if (rendezvous != null) {
+            attach();
+        }
+        else {
+            //  We have just attached to the segment created by the peer.
+            connectPeer();
+            signal();
+        }
+
+        //  Flush all the data that may have been already written downstream.
+        process();
+    }
+
+    private void unplug()
+    {
+        assert (plugged);
+        plugged = false;
+
+        if (attachTimerStarted) {
+            ioObject.cancelTimer(ATTACH_TIMER_ID);
+            attachTimerStarted = false;
+        }
+
+        //  Cancel all fd subscriptions.
+        if (ioEnabled) {
+            ioObject.removeHandle(handle);
+            ioEnabled = false;
+        }
+
+        //  Disconnect from I/O threads poller object.
+        ioObject.unplug();
+
+        session = null;
+    }
+
+    @Override
+    public void terminate()
+    {
+        unplug();
+        destroy();
+    }
+
+    @Override
+    public void inEvent()
+    {
+        //  Drain the wake-up datagrams, they carry no information.
+        try {
+            do {
+                wakeBuffer.clear();
+            } while (handle.receive(wakeBuffer) != null);
+        }
+        catch (IOException e) {
+            broken = true;
+        }
+
+        process();
+    }
+
+    @Override
+    public void outEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void connectEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void acceptEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void timerEvent(int id)
+    {
+        assert (id == ATTACH_TIMER_ID);
+        attachTimerStarted = false;
+        if (rendezvous != null) {
+            attach();
+            process();
+        }
+    }
+
+    @Override
+    public void activateOut()
+    {
+        if (processOutput()) {
+            signal();
+        }
+        if (broken) {
+            error();
+        }
+    }
+
+    @Override
+    public void activateIn()
+    {
+        inputStopped = false;
+        process();
+    }
+
+    //  Moves messages in both directions and wakes the peer up if needed.
+    private void process()
+    {
+        if (rendezvous != null && segment.peerPort() != 0) {
+            //  The listener has attached to the segment.
+            rendezvous = null;
+            if (attachTimerStarted) {
+                ioObject.cancelTimer(ATTACH_TIMER_ID);
+                attachTimerStarted = false;
+            }
+            connectPeer();
+        }
+
+        while (true) {
+            boolean drained = false;
+            boolean wake = false;
+            if (!inputStopped) {
+                drained = processInput();
+                wake = in.release();
+            }
+            wake |= processOutput();
+            if (wake) {
+                signal();
+            }
+
+            if (broken) {
+                error();
+                return;
+            }
+
+            //  The peer has closed the connection. Terminate as soon as all
+            //  the messages it has sent have been passed to the session.
+            if (!drained || !segment.isPeerClosed()) {
+                return;
+            }
+            if (in.isEmpty()) {
+                error();
+                return;
+            }
+        }
+    }
+
+    //  Passes messages from the ring to the session. Returns true if the
+    //  ring is empty, false if the session does not accept more messages.
+    private boolean processInput()
+    {
+        in.wakeUp();
+        boolean drained = true;
+        while (true) {
+            if (pendingIn != null) {
+                if (session.pushMsg(pendingIn) != 0) {
+                    //  The pipe is full, wait for activateIn.
+                    inputStopped = true;
+                    drained = false;
+                    break;
+                }
+                pendingIn = null;
+            }
+            pendingIn = in.read();
+            if (pendingIn == null && in.sleep()) {
+                break;
+            }
+        }
+        session.flush();
+        return drained;
+    }
+
+    //  Passes messages from the session to the ring. Returns true if the
+    //  peer sleeps and there is something new for it.
+    private boolean processOutput()
+    {
+        out.stopWaitingForRoom();
+        while (true) {
+            if (!out.flush()) {
+                //  The ring is full; the peer will wake us up once it
+                //  consumed some of it.
+                if (out.waitForRoom()) {
+                    break;
+                }
+                continue;
+            }
+            Msg msg = session.pullMsg();
+            if (msg == null) {
+                break;
+            }
+            out.write(msg);
+        }
+        return out.publish() && out.readerWaiting();
+    }
+
+    //  Asks the listener to attach to our segment.
+    private void attach()
+    {
+        int port = ShmListener.readPort(rendezvous);
+        if (port > 0) {
+            try {
+                String path = segment.file().getAbsolutePath();
+                handle.send(ByteBuffer.wrap(path.getBytes(ZMQ.CHARSET)),
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            }
+            catch (IOException e) {
+                //  Try again later.
+            }
+        }
+        int ivl = options.reconnectIvl > 0 ? options.reconnectIvl : DEFAULT_ATTACH_IVL;
+        ioObject.addTimer(ivl, ATTACH_TIMER_ID);
+        attachTimerStarted = true;
+    }
+
+    //  From now on the wake-up channel only talks to the peer, which lets
+    //  us notice when the peer's process has gone away.
+    private void connectPeer()
+    {
+        try {
+            handle.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), segment.peerPort()));
+        }
+        catch (IOException e) {
+            broken = true;
+        }
+    }
+
+    private void signal()
+    {
+        if (!handle.isConnected()) {
+            return;
+        }
+        try {
+            handle.write(ByteBuffer.wrap(new byte[] {1}));
+        }
+        catch (IOException e) {
+            broken = true;
+        }
+    }
+
+    private void error()
+    {
+        assert (session != null);
+        socket.eventDisconnected(endpoint, handle);
+        session.detach();
+        unplug();
+        destroy();
+    }
+}
@@ -0,0 +1,329 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+//  Listener for shm:// endpoints. It owns a loopback datagram channel
+//  whose port is written to the rendezvous file. Connecting peers create
+//  a segment next to that file and send its path to this channel.
+public class ShmListener extends Own implements IPollEvents
+{
+    //  Maximum length of a segment path in an attach request.
+    private static final int MAX_PATH = 4096;
+
+    //  Address to listen on.
+    private final ShmAddress address;
+
+    //  Underlying channel.
+    private DatagramChannel handle;
+
+    //  Socket the listener belongs to.
+    private final SocketBase socket;
+
+    // String representation of endpoint to bind to
+    private String endpoint;
+
+    //  Priority class of the connections, as of the time of the bind.
+    private final int priority;
+
+    private final IOObject ioObject;
+    private final ByteBuffer request;
+
+    public ShmListener(IOThread ioThread, SocketBase socket, final Options options)
+    {
+        super(ioThread, options);
+
+        ioObject = new IOObject(ioThread);
+        address = new ShmAddress();
+        request = ByteBuffer.allocate(MAX_PATH);
+        handle = null;
+        this.socket = socket;
+        priority = options.fqPriority;
+    }
+
+    @Override
+    public void destroy()
+    {
+        assert (handle == null);
+    }
+
+    @Override
+    protected void processPlug()
+    {
+        //  Start polling for attach requests.
+        ioObject.setHandler(this);
+        ioObject.addHandle(handle);
+        ioObject.setPollIn(handle);
+    }
+
+    @Override
+    protected void processTerm(int linger)
+    {
+        ioObject.setHandler(this);
+        ioObject.removeHandle(handle);
+        close();
+        super.processTerm(linger);
+    }
+
+    @Override
+    public void inEvent()
+    {
+        while (true) {
+            request.clear();
+            try {
+                if (handle.receive(request) == null) {
+                    return;
+                }
+            }
+            catch (IOException e) {
+                return;
+            }
+            request.flip();
+            File file = new File(new String(request.array(), 0, request.limit(), ZMQ.CHARSET));
+            accept(file);
+        }
+    }
+
+    //  Attaches to the segment created by a connecting peer.
+    private void accept(File file)
+    {
+        //  Only accept segments created for this endpoint. A segment that
+        //  does not exist anymore has already been accepted.
+        File rendezvous = address.file();
+        if (!rendezvous.getAbsoluteFile().getParentFile().equals(file.getParentFile())
+                || !file.getName().startsWith(rendezvous.getName() + ".")
+                || !file.isFile()) {
+            return;
+        }
+
+        ShmSegment segment = null;
+        DatagramChannel fd = null;
+        try {
+            segment = ShmSegment.open(file, allocator());
+            fd = DatagramChannel.open();
+            fd.configureBlocking(false);
+            fd.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        }
+        catch (IOException e) {
+            socket.eventAcceptFailed(endpoint, ZError.exccode(e));
+            if (fd != null) {
+                try {
+                    fd.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+            return;
+        }
+        finally {
+            //  Both sides have the segment mapped now.
+            if (segment != null) {
+                segment.unlink();
+            }
+        }
+
+        //  Create the engine object for this connection.
+        ShmEngine engine = new ShmEngine(segment, fd, options, endpoint, null);
+
+        //  Choose I/O thread to run connecter in. Given that we are already
+        //  running in an I/O thread, there must be at least one available.
+        IOThread ioThread = chooseIoThread(options.affinity);
+
+        //  Create and launch a session object.
+        SessionBase session = SessionBase.create(ioThread, false, socket,
+            options, new Address("shm", file.getName(), true));
+        session.setPriority(priority);
+        session.incSeqnum();
+        launchChild(session);
+        sendAttach(session, engine, false);
+        socket.eventAccepted(endpoint, fd);
+    }
+
+    private MsgAllocator allocator()
+    {
+        return options.msgAllocator != null ? options.msgAllocator : new MsgAllocatorHeap();
+    }
+
+    private void close()
+    {
+        if (handle == null) {
+            return;
+        }
+
+        //  Remove the rendezvous file unless somebody else has bound to
+        //  the same name meanwhile.
+        File file = address.file();
+        if (readPort(file) == handle.socket().getLocalPort()) {
+            file.delete();
+        }
+
+        try {
+            handle.close();
+            socket.eventClosed(endpoint, handle);
+        }
+        catch (IOException e) {
+            socket.eventCloseFailed(endpoint, ZError.exccode(e));
+        }
+        handle = null;
+    }
+
+    public String getAddress()
+    {
+        return address.toString();
+    }
+
+    //  Set address to listen on.
+    public int setAddress(final String addr)
+    {
+        address.resolve(addr, true);
+
+        //  Do not take over the rendezvous file of a live listener, only
+        //  the one left behind by a listener that did not close.
+        int port = readPort(address.file());
+        if (port > 0 && isBound(port)) {
+            return ZError.EADDRINUSE;
+        }
+
+        try {
+            handle = DatagramChannel.open();
+            handle.configureBlocking(false);
+            handle.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            writePort(address.file(), handle.socket().getLocalPort());
+        }
+        catch (IOException e) {
+            close();
+            return ZError.EADDRINUSE;
+        }
+        endpoint = address.toString();
+        socket.eventListening(endpoint, handle);
+        return 0;
+    }
+
+    //  Returns the port stored in the rendezvous file or -1 if there is
+    //  no listener.
+    static int readPort(File file)
+    {
+        byte[] content = new byte[16];
+        int size = 0;
+        try {
+            InputStream input = new FileInputStream(file);
+            try {
+                while (size < content.length) {
+                    int nbytes = input.read(content, size, content.length - size);
+                    if (nbytes <= 0) {
+                        break;
+                    }
+                    size += nbytes;
+                }
+            }
+            finally {
+                input.close();
+            }
+            return Integer.parseInt(new String(content, 0, size, ZMQ.CHARSET).trim());
+        }
+        catch (IOException e) {
+            return -1;
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //  Returns true if a channel is bound to the given loopback port, as
+    //  the one of a live listener is.
+    private static boolean isBound(int port)
+    {
+        DatagramChannel probe = null;
+        try {
+            probe = DatagramChannel.open();
+            probe.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            return false;
+        }
+        catch (BindException e) {
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+        finally {
+            if (probe != null) {
+                try {
+                    probe.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    //  The file is written aside and renamed so that connecting peers never
+    //  see a partial content.
+    private static void writePort(File file, int port) throws IOException
+    {
+        File tmp = new File(file.getPath() + "~");
+        OutputStream output = new FileOutputStream(tmp);
+        try {
+            output.write(String.valueOf(port).getBytes(ZMQ.CHARSET));
+        }
+        finally {
+            output.close();
+        }
+        file.delete();
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot create " + file);
+        }
+    }
+
+    @Override
+    public void outEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void connectEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void acceptEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void timerEvent(int id)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
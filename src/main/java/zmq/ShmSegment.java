@@ -0,0 +1,446 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+//  Memory-mapped segment shared by the two ends of a shm:// connection.
+//  It consists of a small header followed by two single-producer,
+//  single-consumer rings, one per direction. The connecting side creates
+//  the segment and writes to the first ring, the accepting side maps it
+//  and writes to the second one.
+final class ShmSegment
+{
+    static final int CONNECTER = 0;
+    static final int LISTENER = 1;
+
+    private static final int MAGIC = 0x5a4d5153;
+    private static final int VERSION = 1;
+
+    //  Segment header layout.
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int PORT_OFFSET = 16;
+    private static final int CLOSED_OFFSET = 24;
+    private static final int HEADER_SIZE = 128;
+
+    private static final int MIN_CAPACITY = 4096;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int side;
+    private final Ring in;
+    private final Ring out;
+
+    //  Only used as a memory barrier, see Ring.
+    private volatile int barrier;
+
+    private ShmSegment(File file, MappedByteBuffer buffer, int side, int capacity, MsgAllocator allocator)
+    {
+        this.file = file;
+        this.buffer = buffer;
+        this.side = side;
+
+        Ring first = new Ring(buffer, HEADER_SIZE, capacity, allocator);
+        Ring second = new Ring(buffer, HEADER_SIZE + Ring.HEADER_SIZE + capacity, capacity, allocator);
+        out = side == CONNECTER ? first : second;
+        in = side == CONNECTER ? second : first;
+    }
+
+    //  Creates a new segment file with rings of (at least) the given
+    //  capacity. Called by the connecting side.
+    static ShmSegment create(File file, int capacity, MsgAllocator allocator) throws IOException
+    {
+        int size = MIN_CAPACITY;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        MappedByteBuffer buffer = map(file, HEADER_SIZE + 2 * (Ring.HEADER_SIZE + size));
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, size);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.force();
+
+        return new ShmSegment(file, buffer, CONNECTER, size, allocator);
+    }
+
+    //  Maps an existing segment file. Called by the accepting side.
+    static ShmSegment open(File file, MsgAllocator allocator) throws IOException
+    {
+        MappedByteBuffer buffer = map(file, -1);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(MAGIC_OFFSET) != MAGIC
+                || buffer.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("Not a shm segment: " + file);
+        }
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        if (capacity < MIN_CAPACITY || Integer.bitCount(capacity) != 1
+                || buffer.capacity() != HEADER_SIZE + 2 * (Ring.HEADER_SIZE + capacity)) {
+            throw new IOException("Corrupted shm segment: " + file);
+        }
+
+        return new ShmSegment(file, buffer, LISTENER, capacity, allocator);
+    }
+
+    //  The mapping stays valid after the file is closed. Java offers no way
+    //  to unmap it explicitly; it is released once the buffer is collected.
+    private static MappedByteBuffer map(File file, long size) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (size < 0) {
+                size = raf.length();
+            }
+            else {
+                raf.setLength(size);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    File file()
+    {
+        return file;
+    }
+
+    //  Removes the segment file. Existing mappings are not affected.
+    void unlink()
+    {
+        file.delete();
+    }
+
+    Ring in()
+    {
+        return in;
+    }
+
+    Ring out()
+    {
+        return out;
+    }
+
+    //  Publishes the port of our wake-up channel.
+    void setPort(int port)
+    {
+        buffer.putInt(PORT_OFFSET + 4 * side, port);
+        barrier = 0;
+    }
+
+    int peerPort()
+    {
+        return buffer.getInt(PORT_OFFSET + 4 * (1 - side));
+    }
+
+    void close()
+    {
+        buffer.putInt(CLOSED_OFFSET + 4 * side, 1);
+        barrier = 0;
+    }
+
+    boolean isPeerClosed()
+    {
+        boolean closed = buffer.getInt(CLOSED_OFFSET + 4 * (1 - side)) != 0;
+        //  The volatile read keeps the rings from being read before the flag.
+        return barrier == 0 && closed;
+    }
+
+    //  Single-producer, single-consumer ring of message records. Each side
+    //  caches the peer's cursor and re-reads it from the shared memory only
+    //  when the cached value says the ring is full (producer) or empty
+    //  (consumer). Messages that do not fit are split into several records.
+    //
+    //  Java 7 offers no fences for off-heap memory. A volatile access is
+    //  used instead: HotSpot never reorders memory accesses across it and
+    //  implements volatile stores with a full fence.
+    static final class Ring
+    {
+        static final int HEADER_SIZE = 128;
+
+        //  Ring header layout. Producer and consumer fields live on
+        //  different cache lines.
+        private static final int HEAD_OFFSET = 0;
+        private static final int WRITER_WAITING_OFFSET = 8;
+        private static final int TAIL_OFFSET = 64;
+        private static final int READER_WAITING_OFFSET = 72;
+
+        //  Record layout: length, flags, size of the whole message.
+        private static final int RECORD_HEADER = 16;
+        private static final int ALIGN = 8;
+        private static final int WRAP = -1;
+        private static final int LAST = 0x100;
+
+        private final ByteBuffer buffer;
+        private final int base;
+        private final int data;
+        private final int capacity;
+        private final int mask;
+        private final MsgAllocator allocator;
+
+        //  Producer state.
+        private long head;
+        private long publishedHead;
+        private long tailCache;
+        private ByteBuffer pending;
+        private int pendingSize;
+        private int pendingFlags;
+
+        //  Consumer state.
+        private long tail;
+        private long headCache;
+        private long published;
+        private Msg partial;
+
+        private volatile int barrier;
+
+        private Ring(ByteBuffer buffer, int base, int capacity, MsgAllocator allocator)
+        {
+            this.buffer = buffer;
+            this.base = base;
+            this.capacity = capacity;
+            this.allocator = allocator;
+            data = base + HEADER_SIZE;
+            mask = capacity - 1;
+
+            head = buffer.getLong(base + HEAD_OFFSET);
+            publishedHead = head;
+            tail = buffer.getLong(base + TAIL_OFFSET);
+            tailCache = tail;
+            headCache = head;
+            published = tail;
+        }
+
+        //  Queues the message for writing. The actual copy is done by flush.
+        void write(Msg msg)
+        {
+            assert (pending == null);
+
+            pending = msg.buf();
+            pendingSize = msg.size();
+            pendingFlags = msg.flags() & Msg.MORE;
+        }
+
+        //  Copies as much of the queued message as fits. Returns false if
+        //  part of it is still waiting for room in the ring.
+        boolean flush()
+        {
+            if (pending == null) {
+                return true;
+            }
+
+            while (true) {
+                int index = (int) (head & mask);
+                int contiguous = capacity - index;
+                if (contiguous < RECORD_HEADER + ALIGN) {
+                    //  Not enough room for a record before the end of the ring.
+                    if (free(contiguous) < contiguous) {
+                        return false;
+                    }
+                    buffer.putInt(data + index, WRAP);
+                    head += contiguous;
+                    continue;
+                }
+
+                int remaining = pending.remaining();
+                long free = free(align(RECORD_HEADER + remaining));
+                int len = (int) Math.min(remaining, Math.min(contiguous, free) - RECORD_HEADER);
+                if (len < 0 || (len == 0 && remaining > 0)) {
+                    return false;
+                }
+                boolean last = len == remaining;
+
+                int pos = data + index;
+                buffer.putInt(pos, len);
+                buffer.putInt(pos + 4, last ? pendingFlags | LAST : pendingFlags);
+                buffer.putInt(pos + 8, pendingSize);
+
+                ByteBuffer chunk = pending.duplicate();
+                chunk.limit(chunk.position() + len);
+                ByteBuffer dst = buffer.duplicate();
+                dst.position(pos + RECORD_HEADER);
+                dst.put(chunk);
+                pending.position(pending.position() + len);
+
+                head += align(RECORD_HEADER + len);
+                if (last) {
+                    pending = null;
+                    return true;
+                }
+            }
+        }
+
+        //  Makes the written records visible to the consumer. Returns false
+        //  if there was nothing new to publish.
+        boolean publish()
+        {
+            if (head == publishedHead) {
+                return false;
+            }
+            storeFence();
+            buffer.putLong(base + HEAD_OFFSET, head);
+            storeFence();
+            publishedHead = head;
+            return true;
+        }
+
+        //  Announces that the producer waits for room. Returns false if
+        //  room appeared meanwhile, in which case the producer should retry.
+        boolean waitForRoom()
+        {
+            buffer.putInt(base + WRITER_WAITING_OFFSET, 1);
+            storeFence();
+            tailCache = buffer.getLong(base + TAIL_OFFSET);
+            if (capacity - (head - tailCache) >= RECORD_HEADER + ALIGN) {
+                buffer.putInt(base + WRITER_WAITING_OFFSET, 0);
+                return false;
+            }
+            return true;
+        }
+
+        void stopWaitingForRoom()
+        {
+            buffer.putInt(base + WRITER_WAITING_OFFSET, 0);
+        }
+
+        //  Returns true if the consumer sleeps and has to be woken up.
+        boolean readerWaiting()
+        {
+            return buffer.getInt(base + READER_WAITING_OFFSET) != 0;
+        }
+
+        //  Returns the next complete message or null if there is none.
+        Msg read()
+        {
+            while (true) {
+                if (tail == headCache) {
+                    headCache = buffer.getLong(base + HEAD_OFFSET);
+                    loadFence();
+                    if (tail == headCache) {
+                        return null;
+                    }
+                }
+
+                int index = (int) (tail & mask);
+                int pos = data + index;
+                int len = buffer.getInt(pos);
+                if (len == WRAP) {
+                    tail += capacity - index;
+                    continue;
+                }
+                int flags = buffer.getInt(pos + 4);
+                if (partial == null) {
+                    partial = allocator.allocate(buffer.getInt(pos + 8));
+                }
+
+                ByteBuffer chunk = buffer.duplicate();
+                chunk.limit(pos + RECORD_HEADER + len);
+                chunk.position(pos + RECORD_HEADER);
+                partial.put(chunk);
+
+                tail += align(RECORD_HEADER + len);
+                if (tail - published > capacity / 2) {
+                    release();
+                }
+
+                if ((flags & LAST) != 0) {
+                    Msg msg = partial;
+                    partial = null;
+                    msg.setFlags(flags & Msg.MORE);
+                    return msg;
+                }
+            }
+        }
+
+        //  Returns true if there are no records left to read.
+        boolean isEmpty()
+        {
+            loadFence();
+            headCache = buffer.getLong(base + HEAD_OFFSET);
+            return tail == headCache;
+        }
+
+        //  Hands the consumed records back to the producer. Returns true
+        //  if the producer waits for room and has to be woken up.
+        boolean release()
+        {
+            if (tail != published) {
+                storeFence();
+                buffer.putLong(base + TAIL_OFFSET, tail);
+                storeFence();
+                published = tail;
+            }
+            return buffer.getInt(base + WRITER_WAITING_OFFSET) != 0;
+        }
+
+        //  Announces that the consumer goes to sleep. Returns false if new
+        //  records arrived meanwhile, in which case the consumer should
+        //  keep reading.
+        boolean sleep()
+        {
+            buffer.putInt(base + READER_WAITING_OFFSET, 1);
+            storeFence();
+            headCache = buffer.getLong(base + HEAD_OFFSET);
+            if (tail != headCache) {
+                buffer.putInt(base + READER_WAITING_OFFSET, 0);
+                return false;
+            }
+            return true;
+        }
+
+        void wakeUp()
+        {
+            buffer.putInt(base + READER_WAITING_OFFSET, 0);
+        }
+
+        private long free(int wanted)
+        {
+            long free = capacity - (head - tailCache);
+            if (free < wanted) {
+                tailCache = buffer.getLong(base + TAIL_OFFSET);
+                loadFence();
+                free = capacity - (head - tailCache);
+            }
+            return free;
+        }
+
+        private void storeFence()
+        {
+            barrier = 0;
+        }
+
+        private int loadFence()
+        {
+            return barrier;
+        }
+
+        private static int align(int size)
+        {
+            return (size + ALIGN - 1) & ~(ALIGN - 1);
+        }
+    }
+}
@@ -26,7 +26,9 @@ import java.nio.channels.Pipe;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 //  This is a cross-platform equivalent to signal_fd. However, as opposed
 //  to signal_fd there can be at most one signal in the signaler at any
@@ -45,7 +47,14 @@ public class Signaler
      */
     private final Pipe.SinkChannel w;
     private final Pipe.SourceChannel r;
-    private final Selector selector;
+    //  Opened on the first wait that goes through the selector, so
+    //  parking signalers never allocate one.
+    private Selector selector;
+
+    //  When parking, the reader waits with LockSupport instead of the
+    //  selector and the sender unparks the thread registered here.
+    private boolean parking;
+    private volatile Thread waiter;
 
     // Selector.selectNow at every sending message doesn't show enough performance
     /**
@@ -76,15 +85,6 @@ public class Signaler
         catch (IOException e) {
             throw new ZError.IOException(e);
         }
-
-        try {
-            selector = Selector.open();
-            r.register(selector, SelectionKey.OP_READ);
-        }
-        catch (IOException e) {
-            throw new ZError.IOException(e);
-        }
-
     }
 
     @Override
@@ -103,17 +103,24 @@ public class Signaler
         catch (IOException e) {
             exception = e;
         }
-        try {
-            selector.close();
-        }
-        catch (IOException e) {
-            exception = e;
+        if (selector != null) {
+            try {
+                selector.close();
+            }
+            catch (IOException e) {
+                exception = e;
+            }
         }
         if (exception != null) {
             throw exception;
         }
     }
 
+    public void setParking(boolean parking)
+    {
+        this.parking = parking;
+    }
+
     public SelectableChannel getFd()
     {
         return r;
@@ -137,6 +144,10 @@ public class Signaler
             }
             assert (nbytes == 1);
             wcursor.incrementAndGet();
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
             break;
         }
     }
@@ -157,11 +168,14 @@ public class Signaler
                 return rcursor < wcursor.get();
 
             }
+            else if (parking) {
+                return park(timeout);
+            }
             else if (timeout < 0) {
-                rc = selector.select(0);
+                rc = selector().select(0);
             }
             else {
-                rc = selector.select(timeout);
+                rc = selector().select(timeout);
             }
         }
         catch (IOException e) {
@@ -177,6 +191,46 @@ public class Signaler
         return true;
     }
 
+    private Selector selector() throws IOException
+    {
+        if (selector == null) {
+            selector = Selector.open();
+            r.register(selector, SelectionKey.OP_READ);
+        }
+        return selector;
+    }
+
+    //  Parks until the sender has signaled, the timeout has expired or
+    //  the thread is interrupted. The byte written to the pipe is still
+    //  consumed by recv(), so pollers watching getFd() are unaffected.
+    private boolean park(long timeout)
+    {
+        long deadline = timeout < 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        waiter = Thread.currentThread();
+        try {
+            while (rcursor >= wcursor.get()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                if (timeout < 0) {
+                    LockSupport.park(this);
+                }
+                else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+            return true;
+        }
+        finally {
+            waiter = null;
+        }
+    }
+
     public void recv()
     {
         int nbytes = 0;
@@ -20,6 +20,8 @@
 package zmq;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.nio.channels.SelectableChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -177,6 +179,18 @@ public abstract class SocketBase extends Own
             s = new XSub(parent, tid, sid);
             break;
 
+        case ZMQ.ZMQ_STREAM:
+            s = new Stream(parent, tid, sid);
+            break;
+
+        case ZMQ.ZMQ_RADIO:
+            s = new Radio(parent, tid, sid);
+            break;
+
+        case ZMQ.ZMQ_DISH:
+            s = new Dish(parent, tid, sid);
+            break;
+
         default:
             throw new IllegalArgumentException("type=" + type);
         }
@@ -231,7 +245,8 @@ public abstract class SocketBase extends Own
     private void checkProtocol(String protocol)
     {
         //  First check out whether the protcol is something we are aware of. 
-        if (!protocol.equals("inproc") && !protocol.equals("ipc") && !protocol.equals("tcp") /*&&
+        if (!protocol.equals("inproc") && !protocol.equals("ipc") && !protocol.equals("tcp")
+              && !protocol.equals("shm") && !protocol.equals("udp") /*&&
               !protocol.equals("pgm") && !protocol.equals("epgm")*/) {
             throw new UnsupportedOperationException(protocol);
         }
@@ -245,6 +260,16 @@ public abstract class SocketBase extends Own
             throw new UnsupportedOperationException(protocol + ",type=" + options.type);
         }
 
+        //  UDP only carries group messages.
+        if (protocol.equals("udp") && options.type != ZMQ.ZMQ_RADIO && options.type != ZMQ.ZMQ_DISH) {
+            throw new UnsupportedOperationException(protocol + ",type=" + options.type);
+        }
+
+        //  Raw streams only exist over TCP connections.
+        if (options.type == ZMQ.ZMQ_STREAM && !protocol.equals("tcp") && !protocol.equals("ipc")) {
+            throw new UnsupportedOperationException(protocol + ",type=" + options.type);
+        }
+
         //  Protocol is available.
     }
 
@@ -262,6 +287,11 @@ public abstract class SocketBase extends Own
         pipe.setEventSink(this);
         pipes.add(pipe);
 
+        //  Messages sent past the high watermark are swapped out to disk.
+        if (options.swap > 0) {
+            pipe.setSwap(new Swap(options.swapDir, options.swap));
+        }
+
         //  Let the derived socket type know about new pipe.  让衍生的socket类型知道新的pipe
         xattachPipe(pipe, icanhasall);
 
@@ -287,6 +317,10 @@ public abstract class SocketBase extends Own
         //  If the socket type doesn't support the option, pass it to
         //  the generic option parser.  如果该socket类型不支持该选项,交给通用的选项处理
         options.setSocketOpt(option, optval);
+
+        if (option == ZMQ.ZMQ_PARKING) {
+            mailbox.setParking(options.parking == 1);
+        }
     }
 
     public int getSocketOpt(int option)
@@ -382,9 +416,9 @@ public abstract class SocketBase extends Own
             }
             return rc;
         }
-        if (protocol.equals("pgm") || protocol.equals("epgm")) {
+        if (protocol.equals("pgm") || protocol.equals("epgm") || protocol.equals("udp")) {
             //  For convenience's sake, bind can be used interchageable with
-            //  connect for PGM and EPGM transports.
+            //  connect for PGM, EPGM and UDP transports.
             return connect(addr);
         }
 
@@ -429,6 +463,23 @@ public abstract class SocketBase extends Own
             return true;
         }
 
+        if (protocol.equals("shm")) {
+            ShmListener listener = new ShmListener(ioThread, this, options);
+            int rc = listener.setAddress(address);
+            if (rc != 0) {
+                listener.destroy();
+                eventBindFailed(address, rc);
+                errno.set(rc);
+                return false;
+            }
+
+            // Save last endpoint URI
+            options.lastEndpoint = listener.getAddress();
+
+            addEndpoint(addr, listener);
+            return true;
+        }
+
         throw new IllegalArgumentException(addr);
     }
 
@@ -477,6 +528,8 @@ public abstract class SocketBase extends Own
             int[] hwms = {sndhwm, rcvhwm};
             boolean[] delays = {options.delayOnDisconnect, options.delayOnClose};
             Pipe.pipepair(parents, pipes, hwms, delays);
+            pipes[0].setPriority(options.fqPriority);
+            pipes[1].setPriority(peer.priority);
 
             //  Attach local end of the pipe to this socket object.
             attachPipe(pipes[0]);
@@ -515,26 +568,83 @@ public abstract class SocketBase extends Own
             return true;
         }
 
-        //  Choose the I/O thread to run the session in.
-        IOThread ioThread = chooseIoThread(options.affinity);
-        if (ioThread == null) {
-            throw new IllegalStateException("Empty IO Thread");
-        }
         boolean ipv4only = options.ipv4only != 0;
         Address paddr = new Address(protocol, address, ipv4only);
 
-        //  Resolve address (if needed by the protocol)
-        paddr.resolve();
+        if (protocol.equals("tcp")) {
+            //  Host names are resolved by the connecters, in the background,
+            //  so that slow name servers do not block the caller.
+            TcpAddress tcpAddr = new TcpAddress();
+            tcpAddr.parse(address);
+            if (tcpAddr.isLiteral()) {
+                paddr.resolve();
+            }
+            else if (options.tcpResolveAll == 1) {
+                //  Except if the sessions depend on the addresses found.
+                try {
+                    tcpAddr.set(getCtx().resolverCache().resolve(options.resolver, tcpAddr.host(),
+                        options.resolveTtl), ipv4only, 0);
+                }
+                catch (UnknownHostException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                paddr.resolved(tcpAddr);
+            }
+        }
+        else {
+            //  Resolve address (if needed by the protocol)
+            paddr.resolve();
+        }
 
+        //  The peers of a tcp endpoint may be several, each of them being
+        //  connected to several times, in the least loaded I/O threads.
+        List<Address> peers = new ArrayList<Address>();
+        int connections = 1;
+        if (protocol.equals("tcp")) {
+            if (options.tcpResolveAll == 1) {
+                for (InetSocketAddress peer : ((TcpAddress) paddr.resolved()).addresses()) {
+                    Address peerAddr = new Address(peer);
+                    peerAddr.resolve();
+                    peers.add(peerAddr);
+                }
+            }
+            connections = options.tcpConnections;
+        }
+        if (peers.isEmpty()) {
+            peers.add(paddr);
+        }
+
+        for (Address peer : peers) {
+            for (int idx = 0; idx < connections; ++idx) {
+                //  Choose the I/O thread to run the session in.
+                IOThread ioThread = chooseIoThread(options.affinity);
+                if (ioThread == null) {
+                    throw new IllegalStateException("Empty IO Thread");
+                }
+                connect(addr, protocol, ioThread, peer, peers.size() > 1 || connections > 1);
+            }
+        }
+
+        // Save last endpoint URI
+        options.lastEndpoint = paddr.toString();
+        return true;
+    }
+
+    //  Creates and launches a session connecting to the given peer.
+    private void connect(String addr, String protocol, IOThread ioThread, Address paddr, boolean spread)
+    {
         //  Create session.
         SessionBase session = SessionBase.create(ioThread, true, this,
             options, paddr);
         assert (session != null);
+        if (spread) {
+            session.expectAttach();
+        }
 
-        //  PGM does not support subscription forwarding; ask for all data to be
+        //  PGM and UDP do not support subscription forwarding; ask for all data to be
         //  sent to this pipe.
         boolean icanhasall = false;
-        if (protocol.equals("pgm") || protocol.equals("epgm")) {
+        if (protocol.equals("pgm") || protocol.equals("epgm") || protocol.equals("udp")) {
             icanhasall = true;
         }
 
@@ -545,6 +655,7 @@ public abstract class SocketBase extends Own
             int[] hwms = {options.sendHwm, options.recvHwm};
             boolean[] delays = {options.delayOnDisconnect, options.delayOnClose};
             Pipe.pipepair(parents, pipes, hwms, delays);
+            pipes[0].setPriority(options.fqPriority);
 
             //  Attach local end of the pipe to the socket object.   attach本地的pipe到socket
             attachPipe(pipes[0], icanhasall);
@@ -553,11 +664,7 @@ public abstract class SocketBase extends Own
             session.attachPipe(pipes[1]);
         }
 
-        // Save last endpoint URI
-        options.lastEndpoint = paddr.toString();
-
         addEndpoint(addr, session);
-        return true;
     }
 
     //  Creates new endpoint ID and adds the endpoint to the map.
@@ -632,6 +739,28 @@ public abstract class SocketBase extends Own
 
     }
 
+    //  Joins a group (DISH sockets).
+    public boolean join(String group)
+    {
+        if (ctxTerminated) {
+            errno.set(ZError.ETERM);
+            return false;
+        }
+
+        return xjoin(group);
+    }
+
+    //  Leaves a group (DISH sockets).
+    public boolean leave(String group)
+    {
+        if (ctxTerminated) {
+            errno.set(ZError.ETERM);
+            return false;
+        }
+
+        return xleave(group);
+    }
+
     public boolean send(Msg msg, int flags)
     {
         if (ctxTerminated) {
@@ -964,6 +1093,19 @@ public abstract class SocketBase extends Own
         return false;
     }
 
+    //  Only sockets with groups (DISH) overload these.
+    protected boolean xjoin(String group)
+    {
+        errno.set(ZError.ENOTSUP);
+        return false;
+    }
+
+    protected boolean xleave(String group)
+    {
+        errno.set(ZError.ENOTSUP);
+        return false;
+    }
+
     protected boolean xhasOut()
     {
         return false;
@@ -1327,6 +1469,8 @@ public abstract class SocketBase extends Own
             return "PULL";
         case ZMQ.ZMQ_PUSH:
             return "PUSH";
+        case ZMQ.ZMQ_STREAM:
+            return "STREAM";
         default:
             return "UNKOWN";
         }
@@ -0,0 +1,272 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+//  STREAM socket: talks to plain TCP peers. Every message is a pair of
+//  the connection ID and the raw bytes. An empty data frame received
+//  signals a new connection or a disconnection, an empty data frame
+//  sent closes the connection.
+public class Stream extends SocketBase
+{
+    public static class StreamSession extends SessionBase
+    {
+        public StreamSession(IOThread ioThread, boolean connect,
+            SocketBase socket, final Options options,
+            final Address addr)
+        {
+            super(ioThread, connect, socket, options, addr);
+        }
+    }
+
+    //  Fair queueing object for inbound pipes.
+    private final FQ fq;
+
+    //  True iff there is a message held in the pre-fetch buffer.
+    private boolean prefetched;
+
+    //  If true, the receiver got the message part with
+    //  the peer's identity.
+    private boolean identitySent;
+
+    //  Holds the prefetched identity.
+    private Msg prefetchedId;
+
+    //  Holds the prefetched message.
+    private Msg prefetchedMsg;
+
+    class Outpipe
+    {
+        private Pipe pipe;
+        private boolean active;
+
+        public Outpipe(Pipe pipe, boolean active)
+        {
+            this.pipe = pipe;
+            this.active = active;
+        }
+    };
+
+    //  Outbound pipes indexed by the peer IDs.
+    private final Map<Blob, Outpipe> outpipes;
+
+    //  The pipe we are currently writing to.
+    private Pipe currentOut;
+
+    //  If true, more outgoing message parts are expected.
+    private boolean moreOut;
+
+    //  Peer ID are generated. It's a simple increment and wrap-over
+    //  algorithm. This value is the next ID to use (if not used already).
+    private int nextPeerId;
+
+    public Stream(Ctx parent, int tid, int sid)
+    {
+        super(parent, tid, sid);
+        prefetched = false;
+        identitySent = false;
+        currentOut = null;
+        moreOut = false;
+        nextPeerId = Utils.generateRandom();
+
+        options.type = ZMQ.ZMQ_STREAM;
+
+        fq = new FQ(options);
+        prefetchedId = new Msg();
+        prefetchedMsg = new Msg();
+
+        outpipes = new HashMap<Blob, Outpipe>();
+    }
+
+    @Override
+    public void xattachPipe(Pipe pipe, boolean icanhasall)
+    {
+        assert (pipe != null);
+
+        //  Raw peers have no identity, always generate one.
+        ByteBuffer buf = ByteBuffer.allocate(5);
+        buf.put((byte) 0);
+        buf.putInt(nextPeerId++);
+        Blob identity = Blob.createBlob(buf.array(), false);
+
+        pipe.setIdentity(identity);
+        outpipes.put(identity, new Outpipe(pipe, true));
+        fq.attach(pipe);
+    }
+
+    @Override
+    public void xpipeTerminated(Pipe pipe)
+    {
+        Outpipe old = outpipes.remove(pipe.getIdentity());
+        assert (old != null);
+
+        fq.terminated(pipe);
+        if (pipe == currentOut) {
+            currentOut = null;
+        }
+    }
+
+    @Override
+    public void xreadActivated(Pipe pipe)
+    {
+        fq.activated(pipe);
+    }
+
+    @Override
+    public void xwriteActivated(Pipe pipe)
+    {
+        Outpipe op = outpipes.get(pipe.getIdentity());
+        assert (op != null);
+        assert (!op.active);
+        op.active = true;
+    }
+
+    @Override
+    protected boolean xsend(Msg msg)
+    {
+        //  If this is the first part of the message it's the ID of the
+        //  peer to send the message to.
+        if (!moreOut) {
+            assert (currentOut == null);
+
+            //  A connection ID must be followed by the data.
+            if (!msg.hasMore()) {
+                errno.set(ZError.EINVAL);
+                return false;
+            }
+
+            Outpipe op = outpipes.get(Blob.createBlob(msg.data(), true));
+            if (op == null) {
+                errno.set(ZError.EHOSTUNREACH);
+                return false;
+            }
+
+            currentOut = op.pipe;
+            if (!currentOut.checkWrite()) {
+                op.active = false;
+                currentOut = null;
+                errno.set(ZError.EAGAIN);
+                return false;
+            }
+
+            moreOut = true;
+            return true;
+        }
+
+        //  The data frame is always the last one, there is no framing
+        //  on the wire.
+        moreOut = false;
+
+        if (currentOut != null) {
+            if (msg.size() == 0) {
+                //  An empty data frame closes the connection once the
+                //  data queued before it has been handed to the engine.
+                currentOut.terminate(true);
+            }
+            else {
+                msg.resetFlags(Msg.MORE);
+                if (currentOut.write(msg)) {
+                    currentOut.flush();
+                }
+            }
+            currentOut = null;
+        }
+
+        return true;
+    }
+
+    @Override
+    protected Msg xrecv()
+    {
+        Msg msg = null;
+        if (prefetched) {
+            if (!identitySent) {
+                msg = prefetchedId;
+                prefetchedId = null;
+                identitySent = true;
+            }
+            else {
+                msg = prefetchedMsg;
+                prefetchedMsg = null;
+                prefetched = false;
+            }
+            return msg;
+        }
+
+        ValueReference<Pipe> pipe = new ValueReference<Pipe>();
+        msg = fq.recvPipe(errno, pipe);
+        if (msg == null) {
+            return null;
+        }
+
+        assert (pipe.get() != null);
+
+        //  Keep the data in the prefetch buffer and return the ID
+        //  of the peer instead.
+        prefetchedMsg = msg;
+        prefetched = true;
+
+        Blob identity = pipe.get().getIdentity();
+        msg = new Msg(identity.data());
+        msg.setFlags(Msg.MORE);
+        identitySent = true;
+
+        return msg;
+    }
+
+    @Override
+    protected boolean xhasIn()
+    {
+        //  We may already have a message pre-fetched.
+        if (prefetched) {
+            return true;
+        }
+
+        //  Try to read the next message.
+        //  The message, if read, is kept in the pre-fetch buffer.
+        ValueReference<Pipe> pipe = new ValueReference<Pipe>();
+        prefetchedMsg = fq.recvPipe(errno, pipe);
+        if (prefetchedMsg == null) {
+            return false;
+        }
+
+        assert (pipe.get() != null);
+
+        Blob identity = pipe.get().getIdentity();
+        prefetchedId = new Msg(identity.data());
+        prefetchedId.setFlags(Msg.MORE);
+
+        prefetched = true;
+        identitySent = false;
+
+        return true;
+    }
+
+    @Override
+    protected boolean xhasOut()
+    {
+        //  In theory, STREAM socket is always ready for writing. Whether actual
+        //  attempt to write succeeds depends on which pipe the message is going
+        //  to be routed to.
+        return true;
+    }
+}
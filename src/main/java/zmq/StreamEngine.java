@@ -20,8 +20,6 @@
 package zmq;
 
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.SocketChannel;
@@ -116,47 +114,34 @@ public class StreamEngine implements IEngine, IPollEvents, IMsgSink
         }
     }
 
-    private DecoderBase newDecoder(int size, long max, SessionBase session, int version)
+    //  Codec used for the given protocol version. Compression is only used
+    //  with the V1 framing, when both peers signalled it in the greeting.
+    private CodecFactory codec(int version)
     {
-       DecoderBase decoder;
-       if (options.decoder == null) {
-            if (version == V1Protocol.VERSION) {
-               decoder = new V1Decoder(size, max, session);
-            }
-            else {
-               decoder = new Decoder(size, max);
-            }
+        if (options.codec != null) {
+            return options.codec;
         }
-        else {
-           try {
-               Constructor<? extends DecoderBase> dcon;
-
-               if (version == 0)  {
-                   dcon = options.decoder.getConstructor(int.class, long.class);
-                   decoder = dcon.newInstance(size, max);
-               }
-               else {
-                   dcon = options.decoder.getConstructor(int.class, long.class, IMsgSink.class, int.class);
-                   decoder = dcon.newInstance(size, max, session, version);
-               }
-           }
-           catch (SecurityException e) {
-               throw new ZError.InstantiationException(e);
-           }
-           catch (NoSuchMethodException e) {
-               throw new ZError.InstantiationException(e);
-           }
-           catch (InvocationTargetException e) {
-               throw new ZError.InstantiationException(e);
-           }
-           catch (IllegalAccessException e) {
-               throw new ZError.InstantiationException(e);
-           }
-           catch (InstantiationException e) {
-               throw new ZError.InstantiationException(e);
-           }
+        if (version == V1Protocol.VERSION && compressing()
+                && (greeting.get(9) & V1Protocol.COMPRESSION_SIGNAL) == 0) {
+            return new CodecFactory.V1Deflate(options.compression);
         }
+        return CodecRegistry.get(version);
+    }
+
+    private boolean compressing()
+    {
+        return options.compression > 0 && options.codec == null;
+    }
+
+    //  Protocol version announced in the greeting.
+    private int version()
+    {
+        return CodecRegistry.highest();
+    }
 
+    private DecoderBase newDecoder(int size, long max, SessionBase session, int version)
+    {
+        DecoderBase decoder = codec(version).createDecoder(size, max, session, version);
         if (options.msgAllocator != null) {
            decoder.setMsgAllocator(options.msgAllocator);
         }
@@ -165,40 +150,7 @@ public class StreamEngine implements IEngine, IPollEvents, IMsgSink
 
     private EncoderBase newEncoder(int size, SessionBase session, int version)
     {
-        if (options.encoder == null) {
-            if (version == V1Protocol.VERSION) {
-                return new V1Encoder(size, session);
-            }
-            return new Encoder(size);
-        }
-
-        try {
-            Constructor<? extends EncoderBase> econ;
-
-            if (version == 0) {
-                econ = options.encoder.getConstructor(int.class);
-                return econ.newInstance(size);
-            }
-            else {
-                econ = options.encoder.getConstructor(int.class, IMsgSource.class, int.class);
-                return econ.newInstance(size, session, version);
-            }
-        }
-        catch (SecurityException e) {
-            throw new ZError.InstantiationException(e);
-        }
-        catch (NoSuchMethodException e) {
-            throw new ZError.InstantiationException(e);
-        }
-        catch (InvocationTargetException e) {
-            throw new ZError.InstantiationException(e);
-        }
-        catch (IllegalAccessException e) {
-            throw new ZError.InstantiationException(e);
-        }
-        catch (InstantiationException e) {
-            throw new ZError.InstantiationException(e);
-        }
+        return codec(version).createEncoder(size, session, version);
     }
 
     public void destroy()
@@ -237,20 +189,16 @@ public class StreamEngine implements IEngine, IPollEvents, IMsgSink
         //  The 'length' field is encoded in the long format.
         greetingOutputBuffer.put((byte) 0xff);
         greetingOutputBuffer.putLong(options.identitySize + 1);
-        greetingOutputBuffer.put((byte) 0x7f);
-
-        ioObject.setPollIn(handle);
-        //  When there's a raw custom encoder, we don't send 10 bytes frame
-        boolean custom = false;
-        try {
-            custom = options.encoder != null && options.encoder.getDeclaredField("RAW_ENCODER") != null;
-        }
-        catch (SecurityException e) {
+        if (compressing()) {
+            greetingOutputBuffer.put((byte) (0x7f & ~V1Protocol.COMPRESSION_SIGNAL));
         }
-        catch (NoSuchFieldException e) {
+        else {
+            greetingOutputBuffer.put((byte) 0x7f);
         }
 
-        if (!custom) {
+        ioObject.setPollIn(handle);
+        //  When there's a raw custom encoder, we don't send 10 bytes frame
+        if (options.codec == null || !options.codec.isRaw()) {
             outsize = greetingOutputBuffer.position();
             greetingOutputBuffer.flip();
             outbuf = new Transfer.ByteBufferTransfer(greetingOutputBuffer);
@@ -511,7 +459,7 @@ public class StreamEngine implements IEngine, IPollEvents, IMsgSink
                 }
                 int pos = greetingOutputBuffer.position();
                 greetingOutputBuffer.position(10).limit(GREETING_SIZE);
-                greetingOutputBuffer.put((byte) 1); // Protocol version
+                greetingOutputBuffer.put((byte) version()); // Protocol version
                 greetingOutputBuffer.put((byte) options.type);  // Socket type
                 greetingOutputBuffer.position(pos);
                 outsize += 2;
@@ -566,10 +514,16 @@ public class StreamEngine implements IEngine, IPollEvents, IMsgSink
             decoder.setMsgSink(session);
         }
         else {
-            //  v1 framing protocol.
-            encoder = newEncoder(Config.OUT_BATCH_SIZE.getValue(), session, V1Protocol.VERSION);
+            //  v1 framing protocol, spoken with later versions too.
+            int version = Math.min(greeting.get(versionPos) & 0xff, version());
+            if (codec(version) == null) {
+                //  No codec speaks the negotiated version.
+                error();
+                return false;
+            }
+            encoder = newEncoder(Config.OUT_BATCH_SIZE.getValue(), session, version);
 
-            decoder = newDecoder(Config.IN_BATCH_SIZE.getValue(), options.maxMsgSize, session, V1Protocol.VERSION);
+            decoder = newDecoder(Config.IN_BATCH_SIZE.getValue(), options.maxMsgSize, session, version);
         }
         // Start polling for output if necessary.
         if (outsize == 0) {
@@ -46,7 +46,7 @@ public class Sub extends XSub
     public boolean xsetsockopt(int option, Object optval)
     {
         if (option != ZMQ.ZMQ_SUBSCRIBE && option != ZMQ.ZMQ_UNSUBSCRIBE) {
-            return false;
+            return super.xsetsockopt(option, optval);
         }
 
         byte[] val;
@@ -0,0 +1,102 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+//  Subscriptions sent upstream as a single message, with ZMQ_XSUB_SNAPSHOT,
+//  instead of a message each. The message starts with 2, after the 1 and 0
+//  of a subscription and an unsubscription, followed by the size and the
+//  bytes of each topic.
+final class SubscriptionBatch
+{
+    static final byte BATCH = 2;
+
+    private SubscriptionBatch()
+    {
+    }
+
+    //  Returns the subscriptions of the trie as a batch, or null if there
+    //  are none.
+    static Msg encode(Trie subscriptions)
+    {
+        final int[] length = {1, 0};
+        subscriptions.apply(new Trie.ITrieHandler()
+        {
+            @Override
+            public void added(byte[] data, int size, Object arg)
+            {
+                length[0] += 4 + size;
+                length[1]++;
+            }
+        }, null);
+        if (length[1] == 0) {
+            return null;
+        }
+
+        final ByteBuffer buf = ByteBuffer.allocate(length[0]);
+        buf.put(BATCH);
+        subscriptions.apply(new Trie.ITrieHandler()
+        {
+            @Override
+            public void added(byte[] data, int size, Object arg)
+            {
+                buf.putInt(size);
+                buf.put(data, 0, size);
+            }
+        }, null);
+        return new Msg(buf.array());
+    }
+
+    //  Returns the given topics as a batch.
+    static Msg encode(List<byte[]> topics)
+    {
+        int length = 1;
+        for (byte[] topic : topics) {
+            length += 4 + topic.length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        buf.put(BATCH);
+        for (byte[] topic : topics) {
+            buf.putInt(topic.length);
+            buf.put(topic);
+        }
+        return new Msg(buf.array());
+    }
+
+    //  Returns the topics of a batch, up to the first malformed one.
+    static List<byte[]> decode(byte[] data)
+    {
+        List<byte[]> topics = new ArrayList<byte[]>();
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        buf.get();
+        while (buf.remaining() >= 4) {
+            int size = buf.getInt();
+            if (size < 0 || size > buf.remaining()) {
+                break;
+            }
+            byte[] topic = new byte[size];
+            buf.get(topic);
+            topics.add(topic);
+        }
+        return topics;
+    }
+}
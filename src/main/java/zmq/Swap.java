@@ -0,0 +1,295 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+//  Overflow of a pipe past its high watermark, as ZMQ_SWAP of 0MQ 2.x.
+//  The messages are appended to memory-mapped segment files and read back
+//  in order as the peer catches up, so that a burst does not block or
+//  drop messages, nor pin them on the heap. The segments are of a bounded
+//  size, and the ones read are recycled for the following messages as
+//  unmapping them is not possible before Java 9.
+class Swap
+{
+    //  Size of the header of each message: its size and its flags. The
+    //  length of its group and the group follow if it has one, then the
+    //  message.
+    private static final int HEADER_SIZE = 5;
+
+    //  Flag of the header of the messages having a group, unused by Msg.
+    private static final int GROUP = 16;
+
+    private static final class Segment
+    {
+        private final File file;
+        private final FileChannel channel;
+        private final ByteBuffer writer;
+        private final ByteBuffer reader;
+
+        private Segment(File dir, int size) throws IOException
+        {
+            file = File.createTempFile("zmq", ".swap", dir);
+            file.deleteOnExit();
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                channel = raf.getChannel();
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                writer = mapped.duplicate();
+                reader = mapped.duplicate();
+            }
+            catch (IOException e) {
+                raf.close();
+                file.delete();
+                throw e;
+            }
+        }
+
+        private boolean fits(int size)
+        {
+            return writer.remaining() >= size;
+        }
+
+        private boolean isRead()
+        {
+            return reader.position() == writer.position();
+        }
+
+        private void clear()
+        {
+            writer.clear();
+            reader.clear();
+        }
+
+        private void close()
+        {
+            try {
+                channel.close();
+            }
+            catch (IOException ignored) {
+                //  The file is deleted anyway.
+            }
+            file.delete();
+        }
+    }
+
+    //  Directory of the segment files.
+    private final File dir;
+
+    //  Maximum number of bytes of messages held.
+    private final long capacity;
+
+    //  Size of the segments, unless a message does not fit in one.
+    private final int segmentSize;
+
+    //  Segments holding messages, from the one read to the one written.
+    private final Deque<Segment> segments;
+
+    //  Segment read already, kept to be written again.
+    private Segment spare;
+
+    //  Number of bytes of messages held.
+    private long size;
+
+    //  True if the last message part written has more parts following.
+    private boolean more;
+
+    //  Segment, position and number of bytes held where the message being
+    //  written started.
+    private Segment mark;
+    private int markPosition;
+    private long markSize;
+
+    Swap(String dir, long capacity)
+    {
+        this.dir = dir == null ? null : new File(dir);
+        this.capacity = capacity;
+        segmentSize = (int) Math.min(capacity + HEADER_SIZE, Config.SWAP_SEGMENT_SIZE.getValue());
+        segments = new ArrayDeque<Segment>();
+        size = 0;
+        more = false;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0 && !more;
+    }
+
+    //  Returns true if no more messages can be swapped.
+    boolean isFull()
+    {
+        return size >= capacity;
+    }
+
+    //  Appends a message part. Returns false if it does not fit, unless it
+    //  follows a part written already, the whole message being kept then.
+    boolean write(Msg msg)
+    {
+        byte[] group = msg.group() == null ? null : msg.group().getBytes(ZMQ.CHARSET);
+        int length = HEADER_SIZE + (group == null ? 0 : 1 + group.length) + msg.size();
+        if (!more && size + length > capacity) {
+            return false;
+        }
+
+        Segment segment = segments.peekLast();
+        if (segment == null || !segment.fits(length)) {
+            try {
+                segment = allocate(length);
+            }
+            catch (IOException e) {
+                return false;
+            }
+            segments.addLast(segment);
+        }
+
+        if (!more) {
+            mark = segment;
+            markPosition = segment.writer.position();
+            markSize = size;
+        }
+        segment.writer.putInt(msg.size());
+        if (group == null) {
+            segment.writer.put((byte) msg.flags());
+        }
+        else {
+            //  Groups are at most ZMQ_GROUP_MAX_LENGTH (255) bytes long.
+            segment.writer.put((byte) (msg.flags() | GROUP));
+            segment.writer.put((byte) group.length);
+            segment.writer.put(group);
+        }
+        segment.writer.put(msg.buf());
+        size += length;
+        more = msg.hasMore();
+        return true;
+    }
+
+    //  Returns the next message part, or null if there is none.
+    Msg read()
+    {
+        Segment segment = segments.peekFirst();
+        while (segment != null && segment.isRead()) {
+            if (segment == segments.peekLast()) {
+                //  Everything was read, start over.
+                if (!more) {
+                    segment.clear();
+                }
+                return null;
+            }
+            recycle(segments.pollFirst());
+            segment = segments.peekFirst();
+        }
+        if (segment == null) {
+            return null;
+        }
+
+        int length = segment.reader.getInt();
+        int flags = segment.reader.get() & 0xff;
+        Msg msg = new Msg(length);
+        if ((flags & GROUP) != 0) {
+            int groupLength = segment.reader.get() & 0xff;
+            byte[] group = new byte[groupLength];
+            segment.reader.get(group);
+            msg.setGroup(new String(group, ZMQ.CHARSET));
+            size -= 1 + groupLength;
+            flags &= ~GROUP;
+        }
+        ByteBuffer src = segment.reader.duplicate();
+        src.limit(src.position() + length);
+        msg.put(src);
+        segment.reader.position(segment.reader.position() + length);
+        msg.setFlags(flags);
+        size -= HEADER_SIZE + length;
+        return msg;
+    }
+
+    //  Removes the parts of the message being written.
+    void rollback()
+    {
+        if (!more) {
+            return;
+        }
+        if (mark != null && (mark != segments.peekFirst() || mark.reader.position() <= markPosition)) {
+            //  The whole message is still there.
+            while (segments.peekLast() != mark) {
+                recycle(segments.pollLast());
+            }
+            mark.writer.position(markPosition);
+            size = markSize;
+        }
+        else {
+            //  Its first parts were read already, all the others are dropped.
+            while (segments.size() > 1) {
+                recycle(segments.pollLast());
+            }
+            Segment segment = segments.peekFirst();
+            if (segment != null) {
+                segment.writer.position(segment.reader.position());
+            }
+            size = 0;
+        }
+        more = false;
+    }
+
+    void close()
+    {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        if (spare != null) {
+            spare.close();
+            spare = null;
+        }
+        mark = null;
+        size = 0;
+        more = false;
+    }
+
+    private Segment allocate(int length) throws IOException
+    {
+        if (spare != null && spare.fits(length)) {
+            Segment segment = spare;
+            spare = null;
+            return segment;
+        }
+        return new Segment(dir, Math.max(segmentSize, length));
+    }
+
+    private void recycle(Segment segment)
+    {
+        if (segment == mark) {
+            mark = null;
+        }
+        if (spare == null && segment.writer.capacity() == segmentSize) {
+            segment.clear();
+            spare = segment;
+        }
+        else {
+            segment.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import zmq.TcpAddress.TcpAddressMask;
+
+//  Compiled accept filters of the tcp listeners.
+//
+//  The CIDR rules are stored in binary prefix trees, one per address
+//  family, so checking a peer walks at most 32 or 128 nodes whatever the
+//  number of rules. The most specific rule matching the peer decides.
+//  A peer matching no rule is accepted, unless the filter has allow
+//  rules, as only the listed ranges are accepted then.
+//
+//  Filters are immutable. Adding a rule only copies the nodes on its
+//  path, so the rules of a socket can be rebuilt while its listeners
+//  keep checking peers with the previous filter.
+public final class TcpAcceptFilter
+{
+    public static final TcpAcceptFilter EMPTY = new TcpAcceptFilter(null, null, 0, 0);
+
+    private static final byte NONE = 0;
+    private static final byte ALLOW = 1;
+    private static final byte DENY = 2;
+
+    private static final class Node
+    {
+        private final Node zero;
+        private final Node one;
+        private final byte rule;
+
+        private Node(Node zero, Node one, byte rule)
+        {
+            this.zero = zero;
+            this.one = one;
+            this.rule = rule;
+        }
+    }
+
+    private final Node ipv4;
+    private final Node ipv6;
+
+    //  Number of allow and deny rules.
+    private final int allows;
+    private final int denies;
+
+    private TcpAcceptFilter(Node ipv4, Node ipv6, int allows, int denies)
+    {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        this.allows = allows;
+        this.denies = denies;
+    }
+
+    //  Returns the filter with the given rule in addition to the ones of
+    //  this filter. A rule replaces the one of the same range, if any.
+    public TcpAcceptFilter add(TcpAddressMask mask)
+    {
+        byte[] network = ((InetSocketAddress) mask.address()).getAddress().getAddress();
+        byte rule = mask.isDeny() ? DENY : ALLOW;
+        boolean v4 = network.length == 4;
+        Node root = v4 ? ipv4 : ipv6;
+
+        byte previous = find(root, network, mask.mask());
+        int allows = this.allows + (rule == ALLOW ? 1 : 0) - (previous == ALLOW ? 1 : 0);
+        int denies = this.denies + (rule == DENY ? 1 : 0) - (previous == DENY ? 1 : 0);
+
+        root = insert(root, network, 0, mask.mask(), rule);
+        return new TcpAcceptFilter(v4 ? root : ipv4, v4 ? ipv6 : root, allows, denies);
+    }
+
+    //  Returns the filter of the given rules, as for ZMQ_TCP_ACCEPT_FILTER.
+    public static TcpAcceptFilter of(boolean ipv4only, String... rules)
+    {
+        TcpAcceptFilter filter = EMPTY;
+        for (String rule : rules) {
+            TcpAddressMask mask = new TcpAddressMask();
+            mask.resolve(rule, ipv4only);
+            filter = filter.add(mask);
+        }
+        return filter;
+    }
+
+    public boolean isEmpty()
+    {
+        return allows == 0 && denies == 0;
+    }
+
+    //  Number of rules of the filter.
+    public int size()
+    {
+        return allows + denies;
+    }
+
+    //  Returns true if a connection from the given peer is accepted.
+    public boolean accept(InetAddress peer)
+    {
+        if (isEmpty()) {
+            return true;
+        }
+        if (peer == null) {
+            return allows == 0;
+        }
+        byte[] bytes = peer.getAddress();
+        byte rule = NONE;
+        Node node = bytes.length == 4 ? ipv4 : ipv6;
+        int bits = bytes.length * 8;
+        for (int depth = 0; node != null; depth++) {
+            if (node.rule != NONE) {
+                rule = node.rule;
+            }
+            if (depth == bits) {
+                break;
+            }
+            node = bit(bytes, depth) ? node.one : node.zero;
+        }
+        if (rule == NONE) {
+            return allows == 0;
+        }
+        return rule == ALLOW;
+    }
+
+    private static boolean bit(byte[] bytes, int index)
+    {
+        return (bytes[index >> 3] & (0x80 >> (index & 7))) != 0;
+    }
+
+    //  Returns the rule of the exact given range.
+    private static byte find(Node node, byte[] network, int mask)
+    {
+        for (int depth = 0; node != null; depth++) {
+            if (depth == mask) {
+                return node.rule;
+            }
+            node = bit(network, depth) ? node.one : node.zero;
+        }
+        return NONE;
+    }
+
+    //  Returns a copy of the node with the rule set at the end of its path.
+    private static Node insert(Node node, byte[] network, int depth, int mask, byte rule)
+    {
+        Node zero = node == null ? null : node.zero;
+        Node one = node == null ? null : node.one;
+        if (depth == mask) {
+            return new Node(zero, one, rule);
+        }
+        if (bit(network, depth)) {
+            one = insert(one, network, depth + 1, mask, rule);
+        }
+        else {
+            zero = insert(zero, network, depth + 1, mask, rule);
+        }
+        return new Node(zero, one, node == null ? NONE : node.rule);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TcpAcceptFilter[allows=" + allows + ", denies=" + denies + "]";
+    }
+}
@@ -24,19 +24,133 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TcpAddress implements Address.IZAddress
 {
+    //  Range of addresses in CIDR notation, e.g. 192.168.1.0/24 or
+    //  2001:db8::/32, as given to ZMQ_TCP_ACCEPT_FILTER. A leading '!'
+    //  denies the range instead of allowing it. Without a prefix length,
+    //  the mask matches a single address.
     public static class TcpAddressMask extends TcpAddress
     {
+        //  Number of leading bits of the address matched by the mask.
+        private int mask;
+
+        //  True if the peers in the range shall be denied.
+        private boolean deny;
+
+        @Override
+        public void resolve(String name, boolean ipv4only)
+        {
+            String addrStr = name;
+            deny = addrStr.startsWith("!");
+            if (deny) {
+                addrStr = addrStr.substring(1);
+            }
+
+            //  Separate the address from the prefix length, if any.
+            String maskStr = null;
+            int delimiter = addrStr.lastIndexOf('/');
+            if (delimiter >= 0) {
+                maskStr = addrStr.substring(delimiter + 1);
+                addrStr = addrStr.substring(0, delimiter);
+            }
+
+            //  Remove square brackets around the address, if any.
+            if (addrStr.length() >= 2 && addrStr.charAt(0) == '[' &&
+                  addrStr.charAt(addrStr.length() - 1) == ']') {
+                addrStr = addrStr.substring(1, addrStr.length() - 1);
+            }
+
+            InetAddress addrNet;
+            try {
+                addrNet = InetAddress.getByName(addrStr);
+            }
+            catch (UnknownHostException e) {
+                throw new IllegalArgumentException(e);
+            }
+            if (ipv4only && addrNet instanceof Inet6Address) {
+                throw new IllegalArgumentException(name);
+            }
+
+            int bits = addrNet.getAddress().length * 8;
+            if (maskStr == null) {
+                mask = bits;
+            }
+            else {
+                try {
+                    mask = Integer.parseInt(maskStr);
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(name);
+                }
+                if (mask < 0 || mask > bits) {
+                    throw new IllegalArgumentException(name);
+                }
+            }
+            address = new InetSocketAddress(addrNet, 0);
+        }
+
+        public int mask()
+        {
+            return mask;
+        }
+
+        public boolean isDeny()
+        {
+            return deny;
+        }
+
         public boolean matchAddress(SocketAddress addr)
         {
-            return address.equals(addr);
+            if (!(addr instanceof InetSocketAddress)) {
+                return false;
+            }
+            InetAddress peer = ((InetSocketAddress) addr).getAddress();
+            if (peer == null) {
+                return false;
+            }
+            byte[] network = address.getAddress().getAddress();
+            byte[] bytes = peer.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int full = mask / 8;
+            for (int idx = 0; idx < full; idx++) {
+                if (bytes[idx] != network[idx]) {
+                    return false;
+                }
+            }
+            int rest = mask % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int bitmask = (0xff << (8 - rest)) & 0xff;
+            return (bytes[full] & bitmask) == (network[full] & bitmask);
+        }
+
+        @Override
+        public String toString()
+        {
+            if (address == null) {
+                return "";
+            }
+            return (deny ? "!" : "") + address.getAddress().getHostAddress() + "/" + mask;
         }
     }
 
     protected InetSocketAddress address;
 
+    //  All the addresses the host name resolved to, including the address
+    //  used.
+    private List<InetSocketAddress> addresses;
+
+    //  Host name or address, and port of the endpoint, once parsed.
+    private String host;
+    private int port;
+
     public TcpAddress(String addr)
     {
         resolve(addr, false);
@@ -77,6 +191,19 @@ public class TcpAddress implements Address.IZAddress
 
     @Override
     public void resolve(String name, boolean ipv4only)
+    {
+        parse(name);
+        try {
+            set(InetAddress.getAllByName(host), ipv4only, 0);
+        }
+        catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    //  Parses the host and the port of the endpoint, without resolving the
+    //  host name.
+    public void parse(String name)
     {
         //  Find the ':' at end that separates address from the port number.
         //  找到最后一个':' ,分割地址和端口
@@ -96,7 +223,6 @@ public class TcpAddress implements Address.IZAddress
             addrStr = addrStr.substring(1, addrStr.length() - 1);
         }
 
-        int port;
         //  Allow 0 specifically, to detect invalid port error in atoi if not
         if (portStr.equals("*") || portStr.equals("0")) {
             //  Resolve wildcard to 0 to allow autoselection of port
@@ -110,29 +236,44 @@ public class TcpAddress implements Address.IZAddress
             }
         }
 
-        InetAddress addrNet = null;
-
         if (addrStr.equals("*")) {
             addrStr = "0.0.0.0";
         }
-        try {
-            for (InetAddress ia : InetAddress.getAllByName(addrStr)) {
-                if (ipv4only && (ia instanceof Inet6Address)) {
-                    continue;
-                }
-                addrNet = ia;
-                break;
+        host = addrStr;
+    }
+
+    //  Returns the host of the endpoint, as parsed.
+    public String host()
+    {
+        return host;
+    }
+
+    //  Returns true if the host is an address rather than a name, that is
+    //  resolving it does not query any name service.
+    public boolean isLiteral()
+    {
+        return host.indexOf(':') >= 0 || host.matches("[0-9]{1,3}(\\.[0-9]{1,3}){3}");
+    }
+
+    //  Sets the addresses the host resolved to. The address used is the
+    //  one at the given offset among the ones of the right family, e.g. to
+    //  try the next one after a failed connection.
+    void set(InetAddress[] addrs, boolean ipv4only, int offset)
+    {
+        List<InetSocketAddress> all = new ArrayList<InetSocketAddress>();
+        for (InetAddress ia : addrs) {
+            if (ipv4only && (ia instanceof Inet6Address)) {
+                continue;
             }
-        }
-        catch (UnknownHostException e) {
-            throw new IllegalArgumentException(e);
+            all.add(new InetSocketAddress(ia, port));
         }
 
-        if (addrNet == null) {
-            throw new IllegalArgumentException(name);
+        if (all.isEmpty()) {
+            throw new IllegalArgumentException(host);
         }
 
-        address = new InetSocketAddress(addrNet, port);
+        address = all.get((offset & Integer.MAX_VALUE) % all.size());
+        addresses = all;
     }
 
     @Override
@@ -140,4 +281,17 @@ public class TcpAddress implements Address.IZAddress
     {
         return address;
     }
+
+    //  Returns all the addresses the host name resolved to.
+    public List<InetSocketAddress> addresses()
+    {
+        List<InetSocketAddress> all = new ArrayList<InetSocketAddress>();
+        if (addresses != null) {
+            all.addAll(addresses);
+        }
+        else if (address != null) {
+            all.add(address);
+        }
+        return all;
+    }
 }
@@ -21,6 +21,7 @@ package zmq;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.net.InetAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
@@ -63,6 +64,20 @@ public class TcpConnecter extends Own implements IPollEvents
     // Socket
     private final SocketBase socket;
 
+    //  Host name to resolve before connecting, or null if the address is
+    //  given as such.
+    private final String host;
+
+    //  If true, the host name is to be resolved again before connecting.
+    private boolean stale;
+
+    //  True iff the host name is being resolved in the background.
+    private boolean resolving;
+
+    //  Number of failed connection attempts, to pick the next address of
+    //  the host name after each failure.
+    private int failures;
+
     public TcpConnecter(IOThread ioThread,
       SessionBase session, final Options options,
       final Address addr, boolean delayedStart)
@@ -80,10 +95,25 @@ public class TcpConnecter extends Own implements IPollEvents
         assert (this.addr != null);
         address = this.addr;
         socket = session.getSocket();
+
+        //  The addresses of ipc endpoints are resolved already.
+        String name = null;
+        if (addr.protocol().equals("tcp")) {
+            TcpAddress parsed = new TcpAddress();
+            parsed.parse(addr.address());
+            if (!parsed.isLiteral()) {
+                name = parsed.host();
+            }
+        }
+        host = name;
+        stale = !addr.isResolved() || options.reconnectResolve == 1;
+        resolving = false;
+        failures = 0;
     }
 
     public void destroy()
     {
+        assert (!resolving);
         assert (!timerStarted);
         assert (!handleValid);
         assert (handle == null);
@@ -109,6 +139,9 @@ public class TcpConnecter extends Own implements IPollEvents
             timerStarted = false;
         }
 
+        //  A lookup still running is ignored once done.
+        resolving = false;
+
         if (handleValid) {
             ioObject.removeHandle(handle);
             handleValid = false;
@@ -165,6 +198,7 @@ public class TcpConnecter extends Own implements IPollEvents
 
         if (err) {
             //  Handle the error condition by attempt to reconnect.
+            failures++;
             close();
             addreconnectTimer();
             return;
@@ -181,9 +215,14 @@ public class TcpConnecter extends Own implements IPollEvents
         }
 
         //  Create the engine object for this connection.
-        StreamEngine engine = null;
+        IEngine engine = null;
         try {
-            engine = new StreamEngine(fd, options, address.toString());
+            if (options.type == ZMQ.ZMQ_STREAM) {
+                engine = new RawEngine(fd, options, address.toString());
+            }
+            else {
+                engine = new StreamEngine(fd, options, address.toString());
+            }
         }
         catch (ZError.InstantiationException e) {
             socket.eventConnectDelayed(address.toString(), -1);
@@ -206,9 +245,30 @@ public class TcpConnecter extends Own implements IPollEvents
         startConnecting();
     }
 
+    @Override
+    protected void processResolved(Object addrs)
+    {
+        if (!resolving) {
+            return;
+        }
+        resolving = false;
+
+        if (addrs == null) {
+            addreconnectTimer();
+        }
+        else if (use((InetAddress[]) addrs)) {
+            startConnecting();
+        }
+    }
+
     //  Internal function to start the actual connection establishment.
     private void startConnecting()
     {
+        //  The host name may have to be resolved first.
+        if (!resolve()) {
+            return;
+        }
+
         //  Open the connecting socket.
 
         try {
@@ -231,6 +291,7 @@ public class TcpConnecter extends Own implements IPollEvents
         }
         catch (IOException e) {
             //  Handle any other error condition by eventual reconnect.
+            failures++;
             if (handle != null) {
                 close();
             }
@@ -244,41 +305,89 @@ public class TcpConnecter extends Own implements IPollEvents
         int rcIvl = getNewReconnectIvl();
         ioObject.addTimer(rcIvl, RECONNECT_TIMER_ID);
 
-        // resolve address again to take into account other addresses
-        // besides the failing one (e.g. multiple dns entries).
-        try {
-            address.resolve();
-        }
-        catch (Exception ignored) {
-            // This will fail if the network goes away and the
-            // address cannot be resolved for some reason. Try
-            // not to fail as the event loop will quit
+        //  Resolve the host name again before reconnecting, to take into
+        //  account other addresses besides the failing one (e.g. multiple
+        //  dns entries), unless the ones found already shall be reused.
+        if (options.reconnectResolve == 1) {
+            stale = true;
         }
 
         socket.eventConnectRetried(address.toString(), rcIvl);
         timerStarted = true;
     }
 
+    //  Resolves the host name of the address, if needed. Returns false if
+    //  the connection cannot be started yet, either because the lookup goes
+    //  on in the background, the connecter being sent the addresses once
+    //  done, or because none of them fits and a reconnection is scheduled.
+    private boolean resolve()
+    {
+        if (host == null || (addr.isResolved() && !stale)) {
+            return true;
+        }
+
+        InetAddress[] addrs = getCtx().resolverCache().resolve(options.resolver, host, options.resolveTtl,
+            new ResolverCache.Listener()
+            {
+                @Override
+                public void resolved(InetAddress[] addrs)
+                {
+                    sendResolved(TcpConnecter.this, addrs);
+                }
+            });
+        if (addrs == null) {
+            resolving = true;
+            return false;
+        }
+        return use(addrs);
+    }
+
+    //  Connects to one of the addresses the host name resolved to. Returns
+    //  false and schedules a reconnection if none of them fits.
+    private boolean use(InetAddress[] addrs)
+    {
+        TcpAddress resolved = new TcpAddress();
+        resolved.parse(addr.address());
+        try {
+            resolved.set(addrs, options.ipv4only != 0, failures);
+        }
+        catch (IllegalArgumentException e) {
+            addreconnectTimer();
+            return false;
+        }
+        addr.resolved(resolved);
+        stale = false;
+        return true;
+    }
+
     //  Internal function to return a reconnect backoff delay.
     //  Will modify the currentReconnectIvl used for next call
     //  Returns the currently used interval
     private int getNewReconnectIvl()
     {
-        //  The new interval is the current interval + random value.
-        int thisInterval = currentReconnectIvl +
-            (Utils.generateRandom() % options.reconnectIvl);
-
-        //  Only change the current reconnect interval  if the maximum reconnect
-        //  interval was set and if it's larger than the reconnect interval.
+        //  Only back off if the maximum reconnect interval was set
+        //  and if it's larger than the reconnect interval.
         if (options.reconnectIvlMax > 0 &&
             options.reconnectIvlMax > options.reconnectIvl) {
-            //  Calculate the next interval
-            currentReconnectIvl = currentReconnectIvl * 2;
-            if (currentReconnectIvl >= options.reconnectIvlMax) {
-                currentReconnectIvl = options.reconnectIvlMax;
-            }
+            //  Decorrelated jitter: the next interval is drawn between the
+            //  reconnect interval and three times the current one, up to the
+            //  maximum. Peers disconnected at once, e.g. by the restart of a
+            //  server, spread their attempts instead of retrying in waves.
+            long upper = Math.min(currentReconnectIvl * 3L, options.reconnectIvlMax);
+            currentReconnectIvl = options.reconnectIvl + random(upper - options.reconnectIvl + 1);
+            return currentReconnectIvl;
+        }
+        //  The new interval is the current interval + random value.
+        return currentReconnectIvl + random(options.reconnectIvl);
+    }
+
+    //  Returns a random value between 0 included and bound excluded.
+    private static int random(long bound)
+    {
+        if (bound <= 0) {
+            return 0;
         }
-        return thisInterval;
+        return (int) ((Utils.generateRandom() & 0x7fffffffL) % bound);
     }
 
     //  Open TCP connecting socket. Returns -1 in case of error,
@@ -20,7 +20,9 @@
 package zmq;
 
 import java.io.IOException;
-import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 
@@ -33,6 +35,9 @@ public class TcpListener extends Own implements IPollEvents
         isWindows = os.indexOf("win") >= 0;
     }
 
+    //  SO_REUSEPORT, when the runtime supports it (Java 9 onwards).
+    private static final SocketOption<Boolean> REUSEPORT = reusePort();
+
     //  Address to listen on.
     private final TcpAddress address;
 
@@ -45,16 +50,52 @@ public class TcpListener extends Own implements IPollEvents
     // String representation of endpoint to bind to
     private String endpoint;
 
+    //  True for the first listener of the endpoint, which opens the
+    //  other ones sharing its port if ZMQ_TCP_LISTENERS is above 1.
+    private final boolean primary;
+
+    //  True if the port can be shared with other listeners.
+    private boolean shared;
+
+    //  Priority class of the connections, as of the time of the bind.
+    private int priority;
+
     private final IOObject ioObject;
 
+    //  I/O thread of the listener, in whose load an extra listener counts
+    //  until it is plugged.
+    private final IOThread ioThread;
+
     public TcpListener(IOThread ioThread, SocketBase socket, final Options options)
+    {
+        this(ioThread, socket, options, new TcpAddress(), true);
+    }
+
+    private TcpListener(IOThread ioThread, SocketBase socket, final Options options, TcpAddress address, boolean primary)
     {
         super(ioThread, options);
 
         ioObject = new IOObject(ioThread);
-        address = new TcpAddress();
+        this.ioThread = ioThread;
+        this.address = address;
+        this.primary = primary;
         handle = null;
         this.socket = socket;
+        priority = options.fqPriority;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePort()
+    {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        }
+        catch (NoSuchFieldException e) {
+            return null;
+        }
+        catch (IllegalAccessException e) {
+            return null;
+        }
     }
 
     @Override
@@ -70,6 +111,30 @@ public class TcpListener extends Own implements IPollEvents
         ioObject.setHandler(this);
         ioObject.addHandle(handle);
         ioObject.setPollAccept(handle);
+        if (!primary) {
+            ioThread.decPending();
+        }
+
+        if (primary && shared) {
+            //  Open the other listeners of the port in the other I/O threads,
+            //  the kernel spreading the incoming connections over them.
+            for (int idx = 1; idx < options.tcpListeners; ++idx) {
+                IOThread ioThread = chooseIoThread(options.affinity);
+                TcpListener listener = new TcpListener(ioThread, socket, options, address, false);
+                //  Counted before being plugged, so that the next listeners
+                //  are placed in the other I/O threads.
+                ioThread.incPending();
+                if (listener.listen(address.address()) != 0) {
+                    ioThread.decPending();
+                    listener.destroy();
+                    socket.eventBindFailed(endpoint, ZError.EADDRINUSE);
+                    break;
+                }
+                listener.endpoint = endpoint;
+                listener.priority = priority;
+                launchChild(listener);
+            }
+        }
     }
 
     @Override
@@ -84,36 +149,74 @@ public class TcpListener extends Own implements IPollEvents
     @Override
     public void acceptEvent()
     {
-        SocketChannel fd = null;
+        //  Drain the listen backlog rather than accepting a single connection
+        //  per wake-up, so that a storm of reconnections is absorbed quickly.
+        //  The count is bounded to still serve the other handles of the thread.
+        int max = Math.max(options.backlog, 1);
+        for (int count = 0; count < max; ++count) {
+            SocketChannel fd = null;
+            try {
+                fd = handle.accept();
+            }
+            catch (IOException e) {
+                //  TODO: Handle specific errors like ENFILE/EMFILE etc.
+                socket.eventAcceptFailed(endpoint, ZError.exccode(e));
+                return;
+            }
+            if (fd == null) {
+                //  No more pending connections.
+                return;
+            }
+            //  Check the peer before allocating anything for the connection.
+            if (!options.tcpAcceptFilter.accept(fd.socket().getInetAddress())) {
+                close(fd);
+                continue;
+            }
+            attach(fd);
+        }
+    }
 
+    //  Creates the engine and the session of an accepted connection.
+    private void attach(SocketChannel fd)
+    {
         try {
-            fd = accept();
             Utils.tuneTcpSocket(fd);
             Utils.tuneTcpKeepalives(fd, options.tcpKeepAlive, options.tcpKeepAliveCnt, options.tcpKeepAliveIdle, options.tcpKeepAliveIntvl);
         }
         catch (IOException e) {
             //  If connection was reset by the peer in the meantime, just ignore it.
-            //  TODO: Handle specific errors like ENFILE/EMFILE etc.
             socket.eventAcceptFailed(endpoint, ZError.exccode(e));
+            close(fd);
             return;
         }
 
         //  Create the engine object for this connection.
-        StreamEngine engine = null;
+        IEngine engine = null;
         try {
-            engine = new StreamEngine(fd, options, endpoint);
+            if (options.type == ZMQ.ZMQ_STREAM) {
+                engine = new RawEngine(fd, options, endpoint);
+            }
+            else {
+                engine = new StreamEngine(fd, options, endpoint);
+            }
         }
         catch (ZError.InstantiationException e) {
             socket.eventAcceptFailed(endpoint, ZError.EINVAL);
+            close(fd);
             return;
         }
         //  Choose I/O thread to run connecter in. Given that we are already
         //  running in an I/O thread, there must be at least one available.
+        //  The session counts in the load of the thread until the engine is
+        //  attached, so that the connections accepted at once are spread
+        //  over the least loaded threads.
         IOThread ioThread = chooseIoThread(options.affinity);
 
         //  Create and launch a session object.
         SessionBase session = SessionBase.create(ioThread, false, socket,
             options, new Address(fd.socket().getRemoteSocketAddress()));
+        session.setPriority(priority);
+        session.expectAttach();
         session.incSeqnum();
         launchChild(session);
         sendAttach(session, engine, false);
@@ -137,6 +240,15 @@ public class TcpListener extends Own implements IPollEvents
         handle = null;
     }
 
+    private void close(SocketChannel fd)
+    {
+        try {
+            fd.close();
+        }
+        catch (IOException e) {
+        }
+    }
+
     public String getAddress()
     {
         return address.toString();
@@ -147,60 +259,40 @@ public class TcpListener extends Own implements IPollEvents
     {
         address.resolve(addr, options.ipv4only > 0);
 
+        int rc = listen(address.address());
+        if (rc != 0) {
+            return rc;
+        }
+        if (address.getPort() == 0) {
+            address.updatePort(handle.socket().getLocalPort());
+        }
+        endpoint = address.toString();
+        socket.eventListening(endpoint, handle);
+        return 0;
+    }
+
+    //  Opens the listening socket.
+    private int listen(SocketAddress bound)
+    {
         try {
             handle = ServerSocketChannel.open();
             handle.configureBlocking(false);
             if (!isWindows) {
                 handle.socket().setReuseAddress(true);
             }
-            handle.socket().bind(address.address(), options.backlog);
-            if (address.getPort() == 0) {
-                address.updatePort(handle.socket().getLocalPort());
+            if (options.tcpListeners > 1 && REUSEPORT != null && handle.supportedOptions().contains(REUSEPORT)) {
+                handle.setOption(REUSEPORT, true);
+                shared = true;
             }
+            handle.socket().bind(bound, options.backlog);
         }
         catch (IOException e) {
             close();
             return ZError.EADDRINUSE;
         }
-        endpoint = address.toString();
-        socket.eventListening(endpoint, handle);
         return 0;
     }
 
-    //  Accept the new connection. Returns the file descriptor of the
-    //  newly created connection. The function may return retired_fd
-    //  if the connection was dropped while waiting in the listen backlog
-    //  or was denied because of accept filters.
-    private SocketChannel accept()
-    {
-        Socket sock = null;
-        try {
-            sock = handle.socket().accept();
-        }
-        catch (IOException e) {
-            return null;
-        }
-
-        if (!options.tcpAcceptFilters.isEmpty()) {
-            boolean matched = false;
-            for (TcpAddress.TcpAddressMask am : options.tcpAcceptFilters) {
-                if (am.matchAddress(address.address())) {
-                    matched = true;
-                    break;
-                }
-            }
-            if (!matched) {
-                try {
-                    sock.close();
-                }
-                catch (IOException e) {
-                }
-                return null;
-            }
-        }
-        return sock.getChannel();
-    }
-
     @Override
     public void inEvent()
     {
@@ -0,0 +1,93 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.nio.ByteBuffer;
+
+//  Prefilter of the messages received by a SUB socket, rejecting most of
+//  the ones that match no subscription without walking the trie. It counts
+//  the subscriptions by the hash of their first bytes, of a fixed length, so
+//  that a message whose first bytes hash to a counter of 0 cannot match any.
+//  The subscriptions shorter than that length can match messages of any
+//  hash, so everything passes while there are some.
+final class TopicPrefilter
+{
+    //  Number of first bytes of the subscriptions and messages hashed.
+    private final int length;
+
+    //  Number of subscriptions of each hash of their first bytes.
+    private final int[] counts;
+
+    //  Number of subscriptions shorter than the length.
+    private int shorter;
+
+    TopicPrefilter(int length)
+    {
+        this.length = length;
+        counts = new int[Config.SUB_PREFILTER_SIZE.getValue()];
+        shorter = 0;
+    }
+
+    //  Counts a subscription made of the bytes of data from start to end.
+    void add(byte[] data, int start, int end)
+    {
+        if (end - start < length) {
+            shorter++;
+        }
+        else {
+            counts[hash(data, start)]++;
+        }
+    }
+
+    void rm(byte[] data, int start, int end)
+    {
+        if (end - start < length) {
+            shorter--;
+        }
+        else {
+            counts[hash(data, start)]--;
+        }
+    }
+
+    //  Returns false if the message matches no subscription for sure.
+    boolean check(ByteBuffer data)
+    {
+        if (shorter > 0) {
+            return true;
+        }
+        if (data.remaining() < length) {
+            return false;
+        }
+        int hash = 0x811c9dc5;
+        for (int idx = 0; idx < length; ++idx) {
+            hash = (hash ^ (data.get(idx) & 0xff)) * 0x01000193;
+        }
+        return counts[hash & (counts.length - 1)] > 0;
+    }
+
+    //  FNV-1a hash of the first bytes.
+    private int hash(byte[] data, int start)
+    {
+        int hash = 0x811c9dc5;
+        for (int idx = start; idx < start + length; ++idx) {
+            hash = (hash ^ (data[idx] & 0xff)) * 0x01000193;
+        }
+        return hash & (counts.length - 1);
+    }
+}
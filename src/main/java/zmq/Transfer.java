@@ -85,10 +85,8 @@ public interface Transfer
 
             remaining -= sent;
 
-            if (remaining == 0) {
-                channel.close();
-            }
-
+            //  The channel is owned by the message sender, leave it open
+            //  so several regions of the same file can be sent.
             return sent;
         }
 
@@ -0,0 +1,116 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Enumeration;
+
+//  UDP endpoint: [interface;]address:port. The address is either a unicast
+//  address, a multicast group or '*'. The optional interface (name or
+//  address) is the one used to join or send to a multicast group.
+public class UdpAddress extends TcpAddress
+{
+    private String interfaceName;
+    private NetworkInterface networkInterface;
+
+    @Override
+    public String toString()
+    {
+        if (address == null) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder("udp://");
+        if (interfaceName != null) {
+            sb.append(interfaceName).append(';');
+        }
+        if (address.getAddress() instanceof Inet6Address) {
+            sb.append('[').append(address.getAddress().getHostAddress()).append(']');
+        }
+        else {
+            sb.append(address.getAddress().getHostAddress());
+        }
+        return sb.append(':').append(address.getPort()).toString();
+    }
+
+    @Override
+    public void resolve(String name, boolean ipv4only)
+    {
+        int delimiter = name.indexOf(';');
+        if (delimiter >= 0) {
+            interfaceName = name.substring(0, delimiter);
+            name = name.substring(delimiter + 1);
+        }
+        super.resolve(name, ipv4only);
+
+        if (interfaceName != null) {
+            try {
+                networkInterface = NetworkInterface.getByName(interfaceName);
+                if (networkInterface == null) {
+                    networkInterface = NetworkInterface.getByInetAddress(InetAddress.getByName(interfaceName));
+                }
+            }
+            catch (SocketException e) {
+                throw new IllegalArgumentException(e);
+            }
+            catch (UnknownHostException e) {
+                throw new IllegalArgumentException(e);
+            }
+            if (networkInterface == null) {
+                throw new IllegalArgumentException(interfaceName);
+            }
+        }
+    }
+
+    public boolean isMulticast()
+    {
+        return address.getAddress().isMulticastAddress();
+    }
+
+    //  Returns the interface to use for multicast: the one given in the
+    //  endpoint, or else the first one that is up and supports multicast.
+    public NetworkInterface networkInterface() throws SocketException
+    {
+        if (networkInterface != null) {
+            return networkInterface;
+        }
+
+        NetworkInterface fallback = null;
+        Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+        while (interfaces.hasMoreElements()) {
+            NetworkInterface candidate = interfaces.nextElement();
+            if (!candidate.isUp() || !candidate.supportsMulticast()) {
+                continue;
+            }
+            if (!candidate.isLoopback()) {
+                return candidate;
+            }
+            fallback = candidate;
+        }
+        if (fallback == null) {
+            throw new SocketException("No multicast interface");
+        }
+        return fallback;
+    }
+}
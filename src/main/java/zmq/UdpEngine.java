@@ -0,0 +1,317 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+//  Engine sending (RADIO) or receiving (DISH) messages as UDP datagrams.
+//  Each datagram holds one message: the size of the group on one byte,
+//  the group and the body. There is no connection and no handshake;
+//  messages that do not fit in a datagram are dropped, and reading stops
+//  while the pipe is full.
+public class UdpEngine implements IEngine, IPollEvents
+{
+    private final Options options;
+    private final Address addr;
+    private final boolean send;
+    private final boolean recv;
+
+    private DatagramChannel handle;
+    private InetSocketAddress target;
+
+    private final ByteBuffer outBuffer;
+    private final ByteBuffer inBuffer;
+
+    //  True if the datagram in 'outBuffer' is waiting for the socket
+    //  to become writable.
+    private boolean outPending;
+
+    //  Body read from the socket but not yet accepted by the session, its
+    //  group being pushed already.
+    private Msg pendingIn;
+
+    private boolean plugged;
+    private IOObject ioObject;
+    private SessionBase session;
+    private SocketBase socket;
+
+    public UdpEngine(final Options options, final Address addr, boolean send, boolean recv)
+    {
+        assert (send || recv);
+        this.options = options;
+        this.addr = addr;
+        this.send = send;
+        this.recv = recv;
+
+        int size = Config.UDP_MAX_MSG.getValue();
+        outBuffer = send ? ByteBuffer.allocateDirect(size) : null;
+        inBuffer = recv ? ByteBuffer.allocateDirect(size) : null;
+        plugged = false;
+        outPending = false;
+    }
+
+    //  Opens the datagram channel: bound to the endpoint and joined to the
+    //  multicast group, if any, for receiving; set up for the group for
+    //  sending.
+    public void open() throws IOException
+    {
+        UdpAddress address = (UdpAddress) addr.resolved();
+        InetSocketAddress sa = (InetSocketAddress) address.address();
+        InetAddress inet = sa.getAddress();
+        ProtocolFamily family = inet instanceof Inet6Address ? StandardProtocolFamily.INET6
+                : StandardProtocolFamily.INET;
+
+        handle = DatagramChannel.open(family);
+        try {
+            handle.configureBlocking(false);
+            if (recv) {
+                handle.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                if (address.isMulticast()) {
+                    handle.bind(new InetSocketAddress(sa.getPort()));
+                    handle.join(inet, address.networkInterface());
+                }
+                else {
+                    handle.bind(sa);
+                }
+            }
+            if (send) {
+                if (address.isMulticast()) {
+                    handle.setOption(StandardSocketOptions.IP_MULTICAST_TTL, options.multicastHops);
+                    handle.setOption(StandardSocketOptions.IP_MULTICAST_IF, address.networkInterface());
+                }
+                target = sa;
+            }
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void plug(IOThread ioThread, SessionBase session)
+    {
+        assert (!plugged);
+        plugged = true;
+
+        assert (this.session == null);
+        assert (session != null);
+        this.session = session;
+        socket = this.session.getSocket();
+
+        ioObject = new IOObject(null);
+        ioObject.setHandler(this);
+        ioObject.plug(ioThread);
+        ioObject.addHandle(handle);
+
+        //  UDP carries no identities. Let the session consume its
+        //  identity slots right away.
+        if (send) {
+            session.pullMsg();
+            ioObject.setPollOut(handle);
+        }
+        if (recv) {
+            session.pushMsg(new Msg());
+            ioObject.setPollIn(handle);
+        }
+
+        socket.eventConnected(addr.toString(), handle);
+    }
+
+    private void unplug()
+    {
+        assert (plugged);
+        plugged = false;
+
+        ioObject.removeHandle(handle);
+        ioObject.unplug();
+        session = null;
+    }
+
+    @Override
+    public void terminate()
+    {
+        unplug();
+        close();
+    }
+
+    private void close()
+    {
+        if (handle == null) {
+            return;
+        }
+        try {
+            handle.close();
+        }
+        catch (IOException e) {
+        }
+        handle = null;
+    }
+
+    @Override
+    public void inEvent()
+    {
+        if (pendingIn != null) {
+            return;
+        }
+
+        int batch = Config.MAX_IO_EVENTS.getValue();
+        for (int i = 0; i < batch; i++) {
+            inBuffer.clear();
+            try {
+                if (handle.receive(inBuffer) == null) {
+                    break;
+                }
+            }
+            catch (IOException e) {
+                break;
+            }
+            inBuffer.flip();
+
+            //  Drop malformed datagrams.
+            if (!inBuffer.hasRemaining()) {
+                continue;
+            }
+            int groupSize = inBuffer.get() & 0xff;
+            if (inBuffer.remaining() < groupSize) {
+                continue;
+            }
+
+            byte[] group = new byte[groupSize];
+            inBuffer.get(group);
+            Msg groupMsg = new Msg(group);
+            groupMsg.setFlags(Msg.MORE);
+
+            Msg body = options.msgAllocator != null ? options.msgAllocator.allocate(inBuffer.remaining())
+                    : new Msg(inBuffer.remaining());
+            body.put(inBuffer);
+
+            session.pushMsg(groupMsg);
+            if (session.pushMsg(body) != 0) {
+                //  The pipe is full. Stop reading until the session asks
+                //  for more, the body being pushed again then.
+                pendingIn = body;
+                ioObject.resetPollIn(handle);
+                break;
+            }
+        }
+        session.flush();
+    }
+
+    @Override
+    public void outEvent()
+    {
+        int batch = Config.MAX_IO_EVENTS.getValue();
+        for (int i = 0; i < batch; i++) {
+            if (!outPending) {
+                Msg group = session.pullMsg();
+                if (group == null) {
+                    //  Nothing to send, stop polling for output.
+                    ioObject.resetPollOut(handle);
+                    return;
+                }
+                //  The session sends the group as a frame of its own.
+                Msg body = group.hasMore() ? session.pullMsg() : null;
+                if (body == null || group.size() > ZMQ.ZMQ_GROUP_MAX_LENGTH
+                        || 1 + group.size() + body.size() > outBuffer.capacity()) {
+                    continue;
+                }
+
+                outBuffer.clear();
+                outBuffer.put((byte) group.size());
+                outBuffer.put(group.buf());
+                outBuffer.put(body.buf());
+                outBuffer.flip();
+                outPending = true;
+            }
+
+            int nbytes;
+            try {
+                nbytes = handle.send(outBuffer, target);
+            }
+            catch (IOException e) {
+                //  Unreachable destination, etc. UDP is lossy anyway.
+                nbytes = -1;
+            }
+            if (nbytes == 0) {
+                //  The socket buffer is full. Wait until it is writable.
+                return;
+            }
+            outPending = false;
+        }
+    }
+
+    @Override
+    public void activateOut()
+    {
+        if (!send) {
+            return;
+        }
+        ioObject.setPollOut(handle);
+
+        //  Speculative write.
+        outEvent();
+    }
+
+    @Override
+    public void activateIn()
+    {
+        if (!recv) {
+            return;
+        }
+        if (pendingIn != null) {
+            if (session.pushMsg(pendingIn) != 0) {
+                return;
+            }
+            pendingIn = null;
+            session.flush();
+        }
+        ioObject.setPollIn(handle);
+
+        //  Speculative read.
+        inEvent();
+    }
+
+    @Override
+    public void connectEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void acceptEvent()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void timerEvent(int id)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
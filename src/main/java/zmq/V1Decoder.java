@@ -20,6 +20,8 @@
 package zmq;
 
 import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 public class V1Decoder extends DecoderBase
 {
@@ -35,12 +37,23 @@ public class V1Decoder extends DecoderBase
     private final long maxmsgsize;
     private int msgFlags;
 
+    //  Decompressor of the frames carrying the compressed flag, if the
+    //  compression has been negotiated.
+    private final Inflater inflater;
+    private boolean compressed;
+
     public V1Decoder(int bufsize, long maxmsgsize, IMsgSink session)
+    {
+        this(bufsize, maxmsgsize, session, false);
+    }
+
+    public V1Decoder(int bufsize, long maxmsgsize, IMsgSink session, boolean compression)
     {
         super(bufsize);
 
         this.maxmsgsize = maxmsgsize;
         msgSink = session;
+        inflater = compression ? new Inflater() : null;
 
         tmpbuf = new byte[8];
         tmpbufWrap = ByteBuffer.wrap(tmpbuf);
@@ -143,6 +156,7 @@ public class V1Decoder extends DecoderBase
         if ((first & V1Protocol.MORE_FLAG) > 0) {
             msgFlags |= Msg.MORE;
         }
+        compressed = inflater != null && (first & V1Protocol.COMPRESSED_FLAG) > 0;
 
         //  The payload length is either one or eight bytes,
         //  depending on whether the 'large' bit is set.
@@ -168,6 +182,16 @@ public class V1Decoder extends DecoderBase
             return false;
         }
 
+        if (compressed) {
+            inProgress = decompress(inProgress);
+            if (inProgress == null) {
+                decodingError();
+                return false;
+            }
+            //  Do not decompress it again if the sink is full.
+            compressed = false;
+        }
+
         int rc = msgSink.pushMsg(inProgress);
         if (rc != 0) {
             if (rc != ZError.EAGAIN) {
@@ -183,4 +207,57 @@ public class V1Decoder extends DecoderBase
 
         return true;
     }
+
+    //  Returns the original frame, or null if the compressed one is invalid.
+    private Msg decompress(Msg frame)
+    {
+        final byte[] input = frame.data();
+        if (input.length < 4) {
+            return null;
+        }
+        final int size = ByteBuffer.wrap(input).getInt(0);
+
+        //  Message size must not exceed the maximum allowed size.
+        if (size < 0 || (maxmsgsize >= 0 && size > maxmsgsize)) {
+            return null;
+        }
+
+        Msg msg = getMsgAllocator().allocate(size);
+        msg.setFlags(msgFlags);
+
+        ByteBuffer buf = msg.buf();
+        byte[] output;
+        int offset;
+        if (buf.hasArray()) {
+            output = buf.array();
+            offset = buf.arrayOffset() + buf.position();
+        }
+        else {
+            output = new byte[size];
+            offset = 0;
+        }
+
+        inflater.reset();
+        inflater.setInput(input, 4, input.length - 4);
+        int length = 0;
+        try {
+            while (length < size) {
+                int inflated = inflater.inflate(output, offset + length, size - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+        }
+        catch (DataFormatException e) {
+            return null;
+        }
+        if (length != size) {
+            return null;
+        }
+        if (!buf.hasArray()) {
+            msg.put(output, 0, size);
+        }
+        return msg;
+    }
 }
@@ -20,6 +20,7 @@
 package zmq;
 
 import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
 
 // Encoder for 0MQ framing protocol. Converts messages into data stream.
 
@@ -33,12 +34,28 @@ public class V1Encoder extends EncoderBase
     private final ByteBuffer tmpbufWrap;
     private IMsgSource msgSource;
 
+    //  Compressor of the frames at least as large as the threshold, if any.
+    private final Deflater deflater;
+    private final int threshold;
+    private byte[] compressed;
+    //  Body of the frame in progress if it has been compressed.
+    private ByteBuffer compressedWrap;
+
     public V1Encoder(int bufsize, IMsgSource session)
+    {
+        this(bufsize, session, 0);
+    }
+
+    //  Creates an encoder compressing the frames of at least threshold
+    //  bytes, if that makes them smaller. 0 disables compression.
+    public V1Encoder(int bufsize, IMsgSource session, int threshold)
     {
         super(bufsize);
         tmpbuf = new byte[9];
         tmpbufWrap = ByteBuffer.wrap(tmpbuf);
         msgSource = session;
+        this.threshold = threshold;
+        deflater = threshold > 0 ? new Deflater(Deflater.BEST_SPEED) : null;
 
         //  Write 0 bytes to the batch and go to messageReady state.
         nextStep((byte[]) null, 0, MESSAGE_READY, true);
@@ -66,7 +83,12 @@ public class V1Encoder extends EncoderBase
     private boolean sizeReady()
     {
         //  Write message body into the buffer.
-        nextStep(inProgress.buf(), MESSAGE_READY, !inProgress.hasMore());
+        if (compressedWrap != null) {
+            nextStep(compressedWrap, MESSAGE_READY, !inProgress.hasMore());
+        }
+        else {
+            nextStep(inProgress, MESSAGE_READY, !inProgress.hasMore());
+        }
         return true;
     }
 
@@ -86,19 +108,24 @@ public class V1Encoder extends EncoderBase
             return false;
         }
 
+        compressedWrap = compress(inProgress);
+        final int size = compressedWrap != null ? compressedWrap.remaining() : inProgress.size();
+
         int protocolFlags = 0;
         if (inProgress.hasMore()) {
             protocolFlags |= V1Protocol.MORE_FLAG;
         }
-        if (inProgress.size() > 255) {
+        if (size > 255) {
             protocolFlags |= V1Protocol.LARGE_FLAG;
         }
+        if (compressedWrap != null) {
+            protocolFlags |= V1Protocol.COMPRESSED_FLAG;
+        }
         tmpbuf[0] = (byte) protocolFlags;
 
         //  Encode the message length. For messages less then 256 bytes,
         //  the length is encoded as 8-bit unsigned integer. For larger
         //  messages, 64-bit unsigned integer in network byte order is used.
-        final int size = inProgress.size();
         tmpbufWrap.position(0);
         if (size > 255) {
             tmpbufWrap.limit(9);
@@ -112,4 +139,40 @@ public class V1Encoder extends EncoderBase
         }
         return true;
     }
+
+    //  Returns the compressed body of the frame, or null if the frame is to
+    //  be sent as is.
+    private ByteBuffer compress(Msg msg)
+    {
+        final int size = msg.size();
+        if (deflater == null || size < threshold || msg.isFileRegion()) {
+            return null;
+        }
+        if (compressed == null || compressed.length < size) {
+            compressed = new byte[size];
+        }
+
+        deflater.reset();
+        ByteBuffer buf = msg.buf();
+        if (buf.hasArray()) {
+            deflater.setInput(buf.array(), buf.arrayOffset() + buf.position(), size);
+        }
+        else {
+            deflater.setInput(msg.data());
+        }
+        deflater.finish();
+
+        //  The compressed body must be smaller than the frame to be worth it.
+        int length = 4;
+        while (!deflater.finished() && length < size) {
+            length += deflater.deflate(compressed, length, size - length);
+        }
+        if (!deflater.finished()) {
+            return null;
+        }
+
+        ByteBuffer body = ByteBuffer.wrap(compressed, 0, length);
+        body.putInt(0, size);
+        return body;
+    }
 }
@@ -28,4 +28,13 @@ class V1Protocol
     public static final int VERSION = 1;
     public static final int MORE_FLAG = 1;
     public static final int LARGE_FLAG = 2;
+
+    //  Bit of the last byte of the greeting preamble cleared by the sockets
+    //  enabling ZMQ_COMPRESSION, which is 0x7f otherwise. Other peers only
+    //  look at its lowest bit. When both peers clear it and speak this
+    //  version, the frames may carry the compressed flag, and their body is
+    //  then the original size as a 32-bit integer followed by the Deflate
+    //  stream.
+    public static final int COMPRESSION_SIGNAL = 2;
+    public static final int COMPRESSED_FLAG = 4;
 }
@@ -20,7 +20,11 @@
 package zmq;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 
 class XPub extends SocketBase
 {
@@ -59,6 +63,12 @@ class XPub extends SocketBase
     private final Deque<Blob> pendingData;
     private final Deque<Integer> pendingFlags;
 
+    //  Last message of each topic, if enabled, and the subscriptions to
+    //  replay it to once the message being sent is complete.
+    private LastValueCache lastValues;
+    private final Deque<Pipe> pendingPipes;
+    private final Deque<byte[]> pendingTopics;
+
     private static Mtrie.IMtrieHandler markAsMatching;
     private static Mtrie.IMtrieHandler sendUnsubscription;
 
@@ -107,6 +117,9 @@ class XPub extends SocketBase
         dist = new Dist();
         pendingData = new ArrayDeque<Blob>();
         pendingFlags = new ArrayDeque<Integer>();
+        lastValues = null;
+        pendingPipes = new ArrayDeque<Pipe>();
+        pendingTopics = new ArrayDeque<byte[]>();
     }
 
     @Override
@@ -119,6 +132,7 @@ class XPub extends SocketBase
         //  to all data on this pipe, implicitly.
         if (subscribeToAll) {
             subscriptions.add(null, pipe);
+            replay(pipe, new byte[0], 0);
         }
 
         //  The pipe is active when attached. Let's read the subscriptions from
@@ -142,6 +156,7 @@ class XPub extends SocketBase
                 }
                 else {
                     unique = subscriptions.add(data, 1, pipe);
+                    replay(pipe, data, 1);
                 }
 
                 //  If the subscription is not a duplicate, store it so that it can be
@@ -152,6 +167,9 @@ class XPub extends SocketBase
                     pendingFlags.add(0);
                 }
             }
+            else if (size > 0 && data[0] == SubscriptionBatch.BATCH && options.xsubSnapshot == 1) {
+                readSubscriptions(pipe, data);
+            }
             else {
                 //  Process user message coming upstream from xsub socket
                 pendingData.add(Blob.createBlob(data, true));
@@ -160,6 +178,26 @@ class XPub extends SocketBase
         }
     }
 
+    //  Applies a batch of subscriptions. The ones to pass to the user are
+    //  passed as a batch as well, to be forwarded as such.
+    private void readSubscriptions(Pipe pipe, byte[] data)
+    {
+        List<byte[]> topics = SubscriptionBatch.decode(data);
+        List<byte[]> pending = new ArrayList<byte[]>(topics.size());
+        for (byte[] topic : topics) {
+            boolean unique = subscriptions.add(topic, 0, pipe);
+            replay(pipe, topic, 0);
+            if (unique || verboseSubs) {
+                pending.add(topic);
+            }
+        }
+
+        if (options.type == ZMQ.ZMQ_XPUB && !pending.isEmpty()) {
+            pendingData.add(Blob.createBlob(SubscriptionBatch.encode(pending).data(), false));
+            pendingFlags.add(0);
+        }
+    }
+
     @Override
     protected void xwriteActivated(Pipe pipe)
     {
@@ -178,6 +216,13 @@ class XPub extends SocketBase
         else if (option == ZMQ.ZMQ_XPUB_NODROP) {
             lossy = (Integer) optval == 0;
         }
+        else if (option == ZMQ.ZMQ_XPUB_LAST_VALUES) {
+            int capacity = (Integer) optval;
+            if (capacity < 0) {
+                throw new IllegalArgumentException("lastValues " + optval);
+            }
+            lastValues = capacity == 0 ? null : new LastValueCache(capacity);
+        }
         else {
             return false;
         }
@@ -194,6 +239,16 @@ class XPub extends SocketBase
 
         subscriptions.rm(pipe, sendUnsubscription, this, !verboseUnsubs);
 
+        Iterator<Pipe> pipes = pendingPipes.iterator();
+        Iterator<byte[]> topics = pendingTopics.iterator();
+        while (pipes.hasNext()) {
+            topics.next();
+            if (pipes.next() == pipe) {
+                pipes.remove();
+                topics.remove();
+            }
+        }
+
         dist.terminated(pipe);
     }
 
@@ -218,6 +273,13 @@ class XPub extends SocketBase
                     dist.unmatch();
                 }
                 more = msgMore;
+
+                if (lastValues != null) {
+                    lastValues.store(msg);
+                }
+                while (!more && !pendingPipes.isEmpty()) {
+                    replay(pendingPipes.pollFirst(), pendingTopics.pollFirst(), 0);
+                }
                 return true;
             }
         }
@@ -228,6 +290,26 @@ class XPub extends SocketBase
         return false;
     }
 
+    //  Sends the last messages of the topics matching the subscription to
+    //  the subscriber, or once the message being sent is complete.
+    private void replay(Pipe pipe, byte[] topic, int offset)
+    {
+        if (lastValues == null) {
+            return;
+        }
+        if (more) {
+            pendingPipes.add(pipe);
+            pendingTopics.add(Arrays.copyOfRange(topic, offset, topic.length));
+            return;
+        }
+
+        dist.match(pipe);
+        for (Msg msg : lastValues.match(topic, offset)) {
+            dist.sendToMatching(msg);
+        }
+        dist.unmatch();
+    }
+
     @Override
     protected boolean xhasOut()
     {
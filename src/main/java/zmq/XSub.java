@@ -19,6 +19,8 @@
 
 package zmq;
 
+import java.nio.ByteBuffer;
+
 public class XSub extends SocketBase
 {
     public static class XSubSession extends SessionBase
@@ -47,7 +49,12 @@ public class XSub extends SocketBase
     //  If true, part of a multipart message was already received, but
     //  there are following parts still waiting.
     private boolean more;
+
+    //  Prefilter of the messages, checked before the subscriptions if set.
+    private TopicPrefilter prefilter;
+
     private static Trie.ITrieHandler sendSubscription;
+    private static Trie.ITrieHandler countSubscription;
 
     static {
         sendSubscription = new Trie.ITrieHandler()
@@ -72,6 +79,16 @@ public class XSub extends SocketBase
 
             }
         };
+
+        countSubscription = new Trie.ITrieHandler()
+        {
+            @Override
+            public void added(byte[] data, int size, Object arg)
+            {
+                TopicPrefilter prefilter = (TopicPrefilter) arg;
+                prefilter.add(data, 0, size);
+            }
+        };
     }
 
     public XSub(Ctx parent, int tid, int sid)
@@ -81,9 +98,10 @@ public class XSub extends SocketBase
         options.type = ZMQ.ZMQ_XSUB;
         hashMessage = false;
         more = false;
+        prefilter = null;
 
         options.linger = 0;
-        fq = new FQ();
+        fq = new FQ(options);
         dist = new Dist();
         subscriptions = new Trie();
     }
@@ -96,8 +114,7 @@ public class XSub extends SocketBase
         dist.attach(pipe);
 
         //  Send all the cached subscriptions to the new upstream peer.
-        subscriptions.apply(sendSubscription, pipe);
-        pipe.flush();
+        sendSubscriptions(pipe);
     }
 
     @Override
@@ -123,7 +140,21 @@ public class XSub extends SocketBase
     protected void xhiccuped(Pipe pipe)
     {
         //  Send all the cached subscriptions to the hiccuped pipe.
-        subscriptions.apply(sendSubscription, pipe);
+        sendSubscriptions(pipe);
+    }
+
+    private void sendSubscriptions(Pipe pipe)
+    {
+        //  As a single message if the peer supports it, otherwise one by one.
+        if (options.xsubSnapshot == 1) {
+            Msg msg = SubscriptionBatch.encode(subscriptions);
+            if (msg != null) {
+                pipe.write(msg);
+            }
+        }
+        else {
+            subscriptions.apply(sendSubscription, pipe);
+        }
         pipe.flush();
     }
 
@@ -132,10 +163,19 @@ public class XSub extends SocketBase
     {
         byte[] data = msg.data();
         // Malformed subscriptions.
-        if (data.length < 1 || (data[0] != 0 && data[0] != 1)) {
+        boolean batch = data.length > 0 && data[0] == SubscriptionBatch.BATCH && options.xsubSnapshot == 1;
+        if (data.length < 1 || (data[0] != 0 && data[0] != 1 && !batch)) {
             throw new IllegalArgumentException("subscription flag");
         }
 
+        //  Subscriptions forwarded as a batch are forwarded as such.
+        if (batch) {
+            for (byte[] topic : SubscriptionBatch.decode(data)) {
+                subscribe(topic, 0);
+            }
+            return dist.sendToAll(msg);
+        }
+
         // Process the subscription.
         if (data[0] == 1) {
             // this used to filter out duplicate subscriptions,
@@ -143,11 +183,11 @@ public class XSub extends SocketBase
             // doing it here as well breaks ZMQ_XPUB_VERBOSE
             // when there are forwarding devices involved
             //
-            subscriptions.add(data , 1);
+            subscribe(data, 1);
             return dist.sendToAll(msg);
         }
         else {
-            if (subscriptions.rm(data, 1)) {
+            if (unsubscribe(data, 1)) {
                 return dist.sendToAll(msg);
             }
         }
@@ -155,6 +195,43 @@ public class XSub extends SocketBase
         return true;
     }
 
+    private void subscribe(byte[] data, int start)
+    {
+        if (subscriptions.add(data, start) && prefilter != null) {
+            prefilter.add(data, start, data.length);
+        }
+    }
+
+    private boolean unsubscribe(byte[] data, int start)
+    {
+        boolean removed = subscriptions.rm(data, start);
+        if (removed && prefilter != null) {
+            prefilter.rm(data, start, data.length);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean xsetsockopt(int option, Object optval)
+    {
+        if (option != ZMQ.ZMQ_SUB_PREFILTER) {
+            return false;
+        }
+
+        int length = (Integer) optval;
+        if (length < 0) {
+            throw new IllegalArgumentException("prefilter " + optval);
+        }
+        if (length == 0) {
+            prefilter = null;
+        }
+        else {
+            prefilter = new TopicPrefilter(length);
+            subscriptions.apply(countSubscription, prefilter);
+        }
+        return true;
+    }
+
     @Override
     protected boolean xhasOut()
     {
@@ -248,6 +325,10 @@ public class XSub extends SocketBase
 
     private boolean match(Msg msg)
     {
-        return subscriptions.check(msg.buf());
+        ByteBuffer data = msg.buf();
+        if (prefilter != null && !prefilter.check(data)) {
+            return false;
+        }
+        return subscriptions.check(data);
     }
 }
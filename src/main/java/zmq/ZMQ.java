@@ -64,6 +64,9 @@ public class ZMQ
     public static final int ZMQ_PUSH = 8;
     public static final int ZMQ_XPUB = 9;
     public static final int ZMQ_XSUB = 10;
+    public static final int ZMQ_STREAM = 11;
+    public static final int ZMQ_RADIO = 14;
+    public static final int ZMQ_DISH = 15;
 
     /*  Deprecated aliases                                                        */
     @Deprecated
@@ -72,6 +75,7 @@ public class ZMQ
     public static final int ZMQ_XREP = ZMQ_ROUTER;
 
     /*  Socket options.                                                           */
+    public static final int ZMQ_SWAP = 3;
     public static final int ZMQ_AFFINITY = 4;
     public static final int ZMQ_IDENTITY = 5;
     public static final int ZMQ_SUBSCRIBE = 6;
@@ -114,10 +118,36 @@ public class ZMQ
     public static final int ZMQ_ENCODER = 1001;
     public static final int ZMQ_DECODER = 1002;
     public static final int ZMQ_MSG_ALLOCATOR = 1003;
+    public static final int ZMQ_CODEC = 1004;
+    public static final int ZMQ_PARKING = 1005;
+    public static final int ZMQ_COMPRESSION = 1006;
+    public static final int ZMQ_TCP_LISTENERS = 1007;
+    public static final int ZMQ_TCP_CONNECTIONS = 1008;
+    public static final int ZMQ_TCP_RESOLVE_ALL = 1009;
+    public static final int ZMQ_RESOLVER = 1010;
+    public static final int ZMQ_RESOLVE_TTL = 1011;
+    public static final int ZMQ_RECONNECT_RESOLVE = 1012;
+    public static final int ZMQ_LB_STRATEGY = 1013;
+    public static final int ZMQ_LB_WEIGHT = 1014;
+    public static final int ZMQ_FQ_PRIORITY = 1015;
+    public static final int ZMQ_FQ_QUANTUM = 1016;
+    public static final int ZMQ_SWAP_DIR = 1017;
+    public static final int ZMQ_XPUB_LAST_VALUES = 1018;
+    public static final int ZMQ_XSUB_SNAPSHOT = 1019;
+    public static final int ZMQ_SUB_PREFILTER = 1020;
+
+    /*  Load balancing strategies of PUSH, DEALER and REQ sockets                 */
+    public static final int ZMQ_LB_ROUND_ROBIN = 0;
+    public static final int ZMQ_LB_WEIGHTED = 1;
+    public static final int ZMQ_LB_LEAST_QUEUED = 2;
+    public static final int ZMQ_LB_POWER_OF_TWO = 3;
 
     /*  Message options                                                           */
     public static final int ZMQ_MORE = 1;
 
+    /*  Maximum length of a RADIO/DISH group name.                                */
+    public static final int ZMQ_GROUP_MAX_LENGTH = 255;
+
     /*  Send/recv options.                                                        */
     public static final int ZMQ_DONTWAIT = 1;
     public static final int ZMQ_SNDMORE = 2;
@@ -376,6 +406,22 @@ public class ZMQ
         return s.termEndpoint(addr);
     }
 
+    public static boolean join(SocketBase s, String group)
+    {
+        if (s == null || !s.checkTag()) {
+            throw new IllegalStateException();
+        }
+        return s.join(group);
+    }
+
+    public static boolean leave(SocketBase s, String group)
+    {
+        if (s == null || !s.checkTag()) {
+            throw new IllegalStateException();
+        }
+        return s.leave(group);
+    }
+
     // Sending functions.
     public static int send(SocketBase s, String str, int flags)
     {
@@ -554,7 +600,19 @@ public class ZMQ
     }
 
     //  The proxy functionality
-    public static boolean proxy(SocketBase frontend, SocketBase backend, SocketBase control)
+    public static boolean proxy(SocketBase frontend, SocketBase backend, SocketBase capture)
+    {
+        if (frontend == null || backend == null) {
+            throw new IllegalArgumentException();
+        }
+        return Proxy.proxy(
+            frontend,
+            backend,
+            capture);
+    }
+
+    //  The steerable proxy functionality
+    public static boolean proxy(SocketBase frontend, SocketBase backend, SocketBase capture, SocketBase control)
     {
         if (frontend == null || backend == null) {
             throw new IllegalArgumentException();
@@ -562,9 +620,19 @@ public class ZMQ
         return Proxy.proxy(
             frontend,
             backend,
+            capture,
             control);
     }
 
+    //  The sharded proxy functionality
+    public static boolean proxy(SocketBase[] frontends, SocketBase[] backends, SocketBase[] captures)
+    {
+        if (frontends == null || backends == null) {
+            throw new IllegalArgumentException();
+        }
+        return Proxy.proxy(frontends, backends, captures);
+    }
+
     @Deprecated
     public static boolean device(int device, SocketBase insocket,
             SocketBase outsocket)
@@ -750,6 +818,12 @@ public class ZMQ
                 break;
             }
 
+            //  The selector does not block an interrupted thread, stop waiting
+            //  and leave it to the caller to notice the interruption.
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
             //  At this point we are meant to wait for events but there are none.
             //  If timeout is infinite we can just loop until we get some events.
             if (timeout < 0) {
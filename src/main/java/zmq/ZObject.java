@@ -129,6 +129,10 @@ public abstract class ZObject
             processReaped();
             break;
 
+        case RESOLVED:
+            processResolved(cmd.arg);
+            break;
+
         default:
             throw new IllegalArgumentException();
         }
@@ -280,6 +284,14 @@ public abstract class ZObject
         sendCommand(cmd);
     }
 
+    //  Unlike the other commands, may be sent from outside of the threads
+    //  of the context.
+    protected void sendResolved(ZObject destination, Object addrs)
+    {
+        Command cmd = new Command(destination, Command.Type.RESOLVED, addrs);
+        sendCommand(cmd);
+    }
+
     protected void sendDone()
     {
         Command cmd = new Command(null, Command.Type.DONE);
@@ -361,6 +373,11 @@ public abstract class ZObject
         throw new UnsupportedOperationException();
     }
 
+    protected void processResolved(Object addrs)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     //  Special handler called after a command that requires a seqnum
     //  was processed. The implementation should catch up with its counter
     //  of processed commands here.
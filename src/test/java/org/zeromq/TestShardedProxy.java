@@ -0,0 +1,165 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.zeromq.ZMQ.Context;
+import org.zeromq.ZMQ.Socket;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestShardedProxy
+{
+    private static final int SHARDS = 2;
+
+    static class Broker extends Thread
+    {
+        private final Context ctx;
+        private final CountDownLatch bound = new CountDownLatch(1);
+
+        Broker(Context ctx)
+        {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void run()
+        {
+            Socket[] frontends = new Socket[SHARDS];
+            Socket[] backends = new Socket[SHARDS];
+            for (int i = 0; i < SHARDS; i++) {
+                frontends[i] = ctx.socket(ZMQ.ROUTER);
+                frontends[i].bind("inproc://sharded-front-" + i);
+                backends[i] = ctx.socket(ZMQ.DEALER);
+                backends[i].bind("inproc://sharded-back-" + i);
+            }
+            bound.countDown();
+
+            ZMQ.proxy(frontends, backends, null);
+
+            for (int i = 0; i < SHARDS; i++) {
+                frontends[i].close();
+                backends[i].close();
+            }
+        }
+    }
+
+    static class Worker extends Thread
+    {
+        private final Socket s;
+
+        Worker(Context ctx)
+        {
+            //  Connected to every backend, the worker sends replies round-robin,
+            //  so half of them reach a shard which does not own them.
+            s = ctx.socket(ZMQ.DEALER);
+            for (int i = 0; i < SHARDS; i++) {
+                s.connect("inproc://sharded-back-" + i);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                while (true) {
+                    ZMsg msg = ZMsg.recvMsg(s);
+                    if (msg == null) {
+                        break;
+                    }
+                    msg.send(s);
+                }
+            }
+            catch (ZMQException e) {
+                assertThat(e.getErrorCode(), is(ZMQ.Error.ETERM.getCode()));
+            }
+            s.close();
+        }
+    }
+
+    @Test
+    public void testRepliesRoutedToOwningShard() throws Exception
+    {
+        Context ctx = ZMQ.context(1);
+
+        Broker broker = new Broker(ctx);
+        broker.start();
+        broker.bound.await();
+
+        Worker worker = new Worker(ctx);
+        worker.start();
+
+        Socket[] clients = new Socket[SHARDS * 2];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = ctx.socket(ZMQ.REQ);
+            clients[i].setReceiveTimeOut(5000);
+            clients[i].connect("inproc://sharded-front-" + (i % SHARDS));
+        }
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < clients.length; i++) {
+                assertThat(clients[i].send("request " + i + " " + round), is(true));
+            }
+            for (int i = 0; i < clients.length; i++) {
+                assertThat(clients[i].recvStr(), is("request " + i + " " + round));
+            }
+        }
+
+        for (Socket client : clients) {
+            client.close();
+        }
+        ctx.term();
+
+        broker.join();
+        worker.join();
+    }
+
+    @Test
+    public void testShardStoppingStopsOthers() throws Exception
+    {
+        Context ctx = ZMQ.context(1);
+
+        Broker broker = new Broker(ctx);
+        broker.start();
+        broker.bound.await();
+
+        Thread shard = null;
+        while (shard == null) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("proxy-shard-1")) {
+                    shard = thread;
+                }
+            }
+            Thread.sleep(10);
+        }
+        //  Let the shard process the commands of its startup first, as
+        //  sending a command clears the interrupt status of the thread.
+        Thread.sleep(100);
+        shard.interrupt();
+
+        broker.join(5000);
+        assertThat(broker.isAlive(), is(false));
+
+        ctx.term();
+    }
+}
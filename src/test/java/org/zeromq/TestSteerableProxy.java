@@ -0,0 +1,175 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.zeromq.ZMQ.Context;
+import org.zeromq.ZMQ.Socket;
+
+import zmq.Proxy.Statistics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestSteerableProxy
+{
+    static class Main extends Thread
+    {
+        private final Socket frontend;
+        private final Socket backend;
+        private final Socket control;
+        private volatile boolean success;
+
+        Main(Context ctx)
+        {
+            frontend = ctx.socket(ZMQ.PULL);
+            frontend.bind("inproc://steerable-front");
+            backend = ctx.socket(ZMQ.PUSH);
+            backend.bind("inproc://steerable-back");
+            control = ctx.socket(ZMQ.REP);
+            control.bind("inproc://steerable-control");
+        }
+
+        @Override
+        public void run()
+        {
+            success = ZMQ.proxy(frontend, backend, null, control);
+
+            frontend.close();
+            backend.close();
+            control.close();
+        }
+    }
+
+    @Test
+    public void testSteering() throws Exception
+    {
+        Context ctx = ZMQ.context(1);
+
+        Main main = new Main(ctx);
+        main.start();
+
+        Socket producer = ctx.socket(ZMQ.PUSH);
+        producer.connect("inproc://steerable-front");
+        Socket consumer = ctx.socket(ZMQ.PULL);
+        consumer.setReceiveTimeOut(500);
+        consumer.connect("inproc://steerable-back");
+        Socket control = ctx.socket(ZMQ.REQ);
+        control.connect("inproc://steerable-control");
+
+        producer.send("hello", ZMQ.SNDMORE);
+        producer.send("world");
+        assertThat(consumer.recvStr(), is("hello"));
+        assertThat(consumer.recvStr(), is("world"));
+
+        control.send("PAUSE");
+        assertThat(control.recv(), is(new byte[0]));
+        producer.send("paused");
+        assertThat(consumer.recvStr(), nullValue());
+
+        control.send("RESUME");
+        assertThat(control.recv(), is(new byte[0]));
+        assertThat(consumer.recvStr(), is("paused"));
+
+        control.send("STATISTICS");
+        ZMsg reply = ZMsg.recvMsg(control);
+        assertThat(reply.size(), is(6));
+        long[] counters = new long[reply.size()];
+        for (int index = 0; index < counters.length; ++index) {
+            counters[index] = ByteBuffer.wrap(reply.pop().getData()).getLong();
+        }
+        Statistics statistics = new Statistics(counters);
+        assertThat(statistics.get(Statistics.REQUEST_MESSAGES), is(2L));
+        assertThat(statistics.get(Statistics.REQUEST_FRAMES), is(3L));
+        assertThat(statistics.get(Statistics.REQUEST_BYTES), is(16L));
+        assertThat(statistics.get(Statistics.REPLY_MESSAGES), is(0L));
+
+        control.send("TERMINATE");
+        assertThat(control.recv(), is(new byte[0]));
+        main.join();
+        assertThat(main.success, is(true));
+
+        producer.close();
+        consumer.close();
+        control.close();
+        ctx.term();
+    }
+
+    @Test
+    public void testZProxyStatistics()
+    {
+        ZContext ctx = new ZContext();
+        ZProxy proxy = ZProxy.newProxy(ctx, "statistics", new ZProxy.Proxy.SimpleProxy()
+        {
+            @Override
+            public Socket create(ZContext ctx, ZProxy.Plug place, Object[] args)
+            {
+                if (place == ZProxy.Plug.FRONT) {
+                    return ctx.createSocket(ZMQ.PULL);
+                }
+                if (place == ZProxy.Plug.BACK) {
+                    return ctx.createSocket(ZMQ.PUSH);
+                }
+                return null;
+            }
+
+            @Override
+            public void configure(Socket socket, ZProxy.Plug place, Object[] args)
+            {
+                if (place == ZProxy.Plug.FRONT) {
+                    socket.bind("inproc://zproxy-statistics-front");
+                }
+                if (place == ZProxy.Plug.BACK) {
+                    socket.bind("inproc://zproxy-statistics-back");
+                }
+            }
+        }, null);
+        assertThat(proxy.start(true), is(ZProxy.STARTED));
+
+        Socket producer = ctx.createSocket(ZMQ.PUSH);
+        producer.connect("inproc://zproxy-statistics-front");
+        Socket consumer = ctx.createSocket(ZMQ.PULL);
+        consumer.connect("inproc://zproxy-statistics-back");
+
+        for (int index = 0; index < 3; ++index) {
+            producer.send("message", ZMQ.SNDMORE);
+            producer.send("" + index);
+        }
+        for (int index = 0; index < 3; ++index) {
+            assertThat(consumer.recvStr(), is("message"));
+            assertThat(consumer.recvStr(), is("" + index));
+        }
+
+        Statistics statistics = proxy.statistics();
+        assertThat(statistics, notNullValue());
+        assertThat(statistics.get(Statistics.REQUEST_MESSAGES), is(3L));
+        assertThat(statistics.get(Statistics.REQUEST_FRAMES), is(6L));
+        assertThat(statistics.get(Statistics.REQUEST_BYTES), is(24L));
+        assertThat(proxy.status(), is(ZProxy.STARTED));
+
+        proxy.exit();
+        assertThat(proxy.statistics(), nullValue());
+        ctx.close();
+    }
+}
@@ -1,8 +1,10 @@
 package org.zeromq;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -161,4 +163,104 @@ public class TestZActor
 
         System.out.println();
     }
+
+    @Test
+    public void testRuntime() throws Exception
+    {
+        final int count = 20;
+        ZContext context = new ZContext();
+        ZRuntime runtime = new ZRuntime(2);
+
+        List<ZActor> actors = new ArrayList<ZActor>();
+        List<Socket> pushes = new ArrayList<Socket>();
+        for (int index = 0; index < count; ++index) {
+            final String endpoint = "inproc://runtime-" + index;
+            Actor acting = new ZActor.SimpleActor()
+            {
+                private int ticks;
+
+                @Override
+                public List<Socket> createSockets(ZContext ctx, Object[] args)
+                {
+                    Socket pull = ctx.createSocket(ZMQ.PULL);
+                    pull.bind(endpoint);
+                    return Arrays.asList(pull);
+                }
+
+                @Override
+                public void start(Socket pipe, List<Socket> sockets, ZPoller poller)
+                {
+                    poller.register(sockets.get(0), ZPoller.POLLIN);
+                }
+
+                @Override
+                public long looping(Socket pipe, ZPoller poller)
+                {
+                    return 10;
+                }
+
+                @Override
+                public boolean looped(Socket pipe, ZPoller poller)
+                {
+                    ++ticks;
+                    return true;
+                }
+
+                @Override
+                public boolean stage(Socket socket, Socket pipe, ZPoller poller, int events)
+                {
+                    pipe.send("GOT " + socket.recvStr());
+                    return true;
+                }
+
+                @Override
+                public boolean backstage(Socket pipe, ZPoller poller, int events)
+                {
+                    String string = pipe.recvStr();
+                    if ("TICKS".equals(string)) {
+                        pipe.send(Integer.toString(ticks));
+                    }
+                    if ("QUIT".equals(string)) {
+                        pipe.send("EXIT");
+                        return false;
+                    }
+                    return true;
+                }
+            };
+            ZActor actor = new ZActor(runtime, context, null, acting, "LOCK", new Object[0]);
+            actors.add(actor);
+        }
+
+        // stage sockets are bound once the actors are on the loops
+        for (ZActor actor : actors) {
+            actor.send("TICKS");
+            Assert.assertNotNull("Actor is not running", actor.recv());
+        }
+        for (int index = 0; index < count; ++index) {
+            Socket push = context.createSocket(ZMQ.PUSH);
+            push.connect("inproc://runtime-" + index);
+            pushes.add(push);
+            push.send("msg-" + index);
+        }
+        for (int index = 0; index < count; ++index) {
+            ZMsg msg = actors.get(index).recv();
+            Assert.assertEquals("Stage message not processed", "GOT msg-" + index, msg.popString());
+        }
+
+        // timeouts keep the loops running
+        Thread.sleep(100);
+        ZActor first = actors.get(0);
+        first.send("TICKS");
+        int ticks = Integer.parseInt(first.recv().popString());
+        Assert.assertTrue("Actor did not loop on timeouts: " + ticks, ticks > 3);
+
+        for (ZActor actor : actors) {
+            actor.send("QUIT");
+            Assert.assertEquals("EXIT", actor.recv().popString());
+            Assert.assertTrue("Actor did not exit", actor.exit().await(5, TimeUnit.SECONDS));
+        }
+
+        runtime.close();
+        context.close();
+    }
 }
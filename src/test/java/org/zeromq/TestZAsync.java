@@ -0,0 +1,153 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.zeromq.ZMQ.Socket;
+
+public class TestZAsync
+{
+    @Test
+    public void testSendRecv() throws Exception
+    {
+        ZContext ctx = new ZContext();
+        Socket push = ctx.createSocket(ZMQ.PUSH);
+        Socket pull = ctx.createSocket(ZMQ.PULL);
+        push.bind("inproc://async");
+        pull.connect("inproc://async");
+
+        ZAsync async = ctx.getAsync();
+
+        //  receives may be requested before anything is sent
+        List<ZAsync.Promise<ZMsg>> receives = new ArrayList<ZAsync.Promise<ZMsg>>();
+        for (int idx = 0; idx < 10; ++idx) {
+            receives.add(async.recvAsync(pull));
+        }
+        for (int idx = 0; idx < 10; ++idx) {
+            ZAsync.Promise<Boolean> sent = async.sendAsync(push, ZMsg.newStringMsg("hello", Integer.toString(idx)));
+            assertThat(sent.get(5, TimeUnit.SECONDS), is(true));
+        }
+        for (int idx = 0; idx < 10; ++idx) {
+            ZMsg msg = receives.get(idx).get(5, TimeUnit.SECONDS);
+            assertThat(msg.size(), is(2));
+            assertThat(msg.popString(), is("hello"));
+            assertThat(msg.popString(), is(Integer.toString(idx)));
+        }
+
+        ctx.close();
+    }
+
+    @Test
+    public void testCompletionHandler() throws Exception
+    {
+        ZContext ctx = new ZContext();
+        final Socket push = ctx.createSocket(ZMQ.PUSH);
+        final Socket pull = ctx.createSocket(ZMQ.PULL);
+        push.bind("inproc://async-handler");
+        pull.connect("inproc://async-handler");
+
+        final ZAsync async = ctx.getAsync();
+        final int count = 100;
+        final CountDownLatch latch = new CountDownLatch(count);
+        final AtomicInteger errors = new AtomicInteger();
+
+        //  each completion requests the next message from the reactor thread
+        CompletionHandler<ZMsg, Integer> handler = new CompletionHandler<ZMsg, Integer>()
+        {
+            @Override
+            public void completed(ZMsg msg, Integer expected)
+            {
+                if (!msg.popString().equals(Integer.toString(expected))) {
+                    errors.incrementAndGet();
+                }
+                latch.countDown();
+                if (expected + 1 < count) {
+                    async.recvAsync(pull).whenComplete(expected + 1, this);
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Integer expected)
+            {
+                errors.incrementAndGet();
+            }
+        };
+        async.recvAsync(pull).whenComplete(0, handler);
+
+        for (int idx = 0; idx < count; ++idx) {
+            async.sendAsync(push, ZMsg.newStringMsg(Integer.toString(idx)));
+        }
+
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(errors.get(), is(0));
+
+        ctx.close();
+    }
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        ZContext ctx = new ZContext();
+        Socket push = ctx.createSocket(ZMQ.PUSH);
+        Socket pull = ctx.createSocket(ZMQ.PULL);
+        push.bind("inproc://async-cancel");
+        pull.connect("inproc://async-cancel");
+
+        ZAsync async = new ZAsync();
+
+        ZAsync.Promise<ZMsg> cancelled = async.recvAsync(pull);
+        assertThat(cancelled.cancel(false), is(true));
+        assertThat(cancelled.isCancelled(), is(true));
+
+        ZAsync.Promise<ZMsg> received = async.recvAsync(pull);
+        assertThat(async.sendAsync(push, ZMsg.newStringMsg("after")).get(5, TimeUnit.SECONDS), is(true));
+        assertThat(received.get(5, TimeUnit.SECONDS).popString(), is("after"));
+
+        //  closing the reactor cancels the pending operations
+        ZAsync.Promise<ZMsg> pending = async.recvAsync(pull);
+        async.close();
+        assertThat(pending.isCancelled(), is(true));
+        boolean thrown = false;
+        try {
+            pending.get();
+        }
+        catch (CancellationException e) {
+            thrown = true;
+        }
+        assertThat(thrown, is(true));
+
+        //  the sockets are usable again
+        push.send("direct");
+        assertThat(new String(pull.recv(0), ZMQ.CHARSET), is("direct"));
+
+        ctx.close();
+    }
+}
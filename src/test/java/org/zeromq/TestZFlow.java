@@ -0,0 +1,237 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.zeromq.ZMQ.Socket;
+
+public class TestZFlow
+{
+    //  Requests the messages by chunks and records what it received.
+    private static class Collector implements ZFlow.Subscriber<ZMsg>
+    {
+        private final int chunk;
+        private final int expected;
+        private final List<String> received = new CopyOnWriteArrayList<String>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean overflow;
+        private ZFlow.Subscription subscription;
+
+        private Collector(int chunk, int expected)
+        {
+            this.chunk = chunk;
+            this.expected = expected;
+        }
+
+        @Override
+        public void onSubscribe(ZFlow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            requested.addAndGet(chunk);
+            subscription.request(chunk);
+        }
+
+        @Override
+        public void onNext(ZMsg msg)
+        {
+            received.add(msg.popString());
+            if (received.size() > requested.get()) {
+                overflow = true;
+            }
+            if (received.size() == expected) {
+                subscription.cancel();
+                done.countDown();
+            }
+            else if (received.size() == requested.get()) {
+                requested.addAndGet(chunk);
+                subscription.request(chunk);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            done.countDown();
+        }
+    }
+
+    //  Publishes a fixed number of messages as they are requested.
+    private static class Source implements ZFlow.Publisher<ZMsg>
+    {
+        private final int count;
+        private final AtomicLong outstanding = new AtomicLong();
+        private volatile long maxOutstanding;
+
+        private Source(int count)
+        {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(final ZFlow.Subscriber<? super ZMsg> subscriber)
+        {
+            subscriber.onSubscribe(new ZFlow.Subscription()
+            {
+                private int sent;
+                private boolean emitting;
+
+                @Override
+                public synchronized void request(long n)
+                {
+                    long now = outstanding.addAndGet(n);
+                    if (now > maxOutstanding) {
+                        maxOutstanding = now;
+                    }
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (outstanding.get() > 0 && sent < count) {
+                        outstanding.decrementAndGet();
+                        subscriber.onNext(ZMsg.newStringMsg(Integer.toString(sent++)));
+                    }
+                    if (sent == count) {
+                        subscriber.onComplete();
+                    }
+                    emitting = false;
+                }
+
+                @Override
+                public void cancel()
+                {
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testPublisherDemand() throws Exception
+    {
+        ZContext ctx = new ZContext();
+        Socket push = ctx.createSocket(ZMQ.PUSH);
+        Socket pull = ctx.createSocket(ZMQ.PULL);
+        push.bind("inproc://flow-publisher");
+        pull.connect("inproc://flow-publisher");
+
+        for (int idx = 0; idx < 50; ++idx) {
+            push.send(Integer.toString(idx));
+        }
+
+        Collector collector = new Collector(7, 50);
+        ZFlow.publisher(ctx.getAsync(), pull).subscribe(collector);
+
+        assertThat(collector.done.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(collector.overflow, is(false));
+        assertThat(collector.received.size(), is(50));
+        for (int idx = 0; idx < 50; ++idx) {
+            assertThat(collector.received.get(idx), is(Integer.toString(idx)));
+        }
+
+        ctx.close();
+    }
+
+    @Test
+    public void testSingleSubscriber() throws Exception
+    {
+        ZContext ctx = new ZContext();
+        Socket pull = ctx.createSocket(ZMQ.PULL);
+        pull.bind("inproc://flow-single");
+
+        ZFlow.Publisher<ZMsg> publisher = ZFlow.publisher(ctx.getAsync(), pull);
+        publisher.subscribe(new Collector(1, 1));
+
+        final AtomicInteger errors = new AtomicInteger();
+        publisher.subscribe(new Collector(1, 1)
+        {
+            @Override
+            public void onError(Throwable throwable)
+            {
+                errors.incrementAndGet();
+            }
+        });
+        assertThat(errors.get(), is(1));
+
+        ctx.close();
+    }
+
+    @Test
+    public void testSubscriberWindow() throws Exception
+    {
+        ZContext ctx = new ZContext();
+        Socket push = ctx.createSocket(ZMQ.PUSH);
+        Socket pull = ctx.createSocket(ZMQ.PULL);
+        push.bind("inproc://flow-subscriber");
+        pull.connect("inproc://flow-subscriber");
+
+        Source source = new Source(1000);
+        source.subscribe(ZFlow.subscriber(ctx.getAsync(), push, 16));
+
+        for (int idx = 0; idx < 1000; ++idx) {
+            assertThat(new String(pull.recv(0), ZMQ.CHARSET), is(Integer.toString(idx)));
+        }
+        assertThat(source.maxOutstanding <= 16, is(true));
+
+        ctx.close();
+    }
+
+    @Test
+    public void testPipeline() throws Exception
+    {
+        ZContext ctx = new ZContext();
+        Socket in = ctx.createSocket(ZMQ.PULL);
+        Socket out = ctx.createSocket(ZMQ.PUSH);
+        Socket front = ctx.createSocket(ZMQ.PUSH);
+        Socket back = ctx.createSocket(ZMQ.PULL);
+        front.bind("inproc://flow-front");
+        in.connect("inproc://flow-front");
+        out.bind("inproc://flow-back");
+        back.connect("inproc://flow-back");
+
+        //  the stages are plugged without any thread of their own
+        ZAsync async = ctx.getAsync();
+        ZFlow.publisher(async, in).subscribe(ZFlow.subscriber(async, out, 8));
+
+        for (int idx = 0; idx < 500; ++idx) {
+            front.send(Integer.toString(idx));
+        }
+        for (int idx = 0; idx < 500; ++idx) {
+            assertThat(new String(back.recv(0), ZMQ.CHARSET), is(Integer.toString(idx)));
+        }
+
+        ctx.close();
+    }
+}
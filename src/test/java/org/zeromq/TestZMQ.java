@@ -26,9 +26,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
+import java.util.Arrays;
 
 import org.junit.Test;
 import org.zeromq.ZMQ.Context;
@@ -126,6 +130,44 @@ public class TestZMQ
         }
     }
 
+    @Test
+    public void testFileSend() throws Exception
+    {
+        File file = File.createTempFile("jeromq", ".dat");
+        file.deleteOnExit();
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.write(content);
+        FileChannel channel = raf.getChannel();
+
+        ZMQ.Context context = ZMQ.context(1);
+        ZMQ.Socket push = context.socket(ZMQ.PUSH);
+        ZMQ.Socket pull = context.socket(ZMQ.PULL);
+        try {
+            int port = pull.bindToRandomPort("tcp://127.0.0.1");
+            push.connect("tcp://127.0.0.1:" + port);
+
+            assertEquals(10, push.sendFile(channel, 0, 10, ZMQ.SNDMORE));
+            new ZFrame(channel, 10, content.length - 10).send(push, 0);
+
+            byte[] head = pull.recv();
+            assertTrue(pull.hasReceiveMore());
+            byte[] tail = pull.recv();
+            assertArrayEquals(Arrays.copyOfRange(content, 0, 10), head);
+            assertArrayEquals(Arrays.copyOfRange(content, 10, content.length), tail);
+            assertTrue(channel.isOpen());
+        }
+        finally {
+            push.close();
+            pull.close();
+            context.term();
+            raf.close();
+        }
+    }
+
     @Test
     public void testByteBufferRecv() throws InterruptedException, CharacterCodingException
     {
@@ -0,0 +1,116 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zeromq;
+
+import org.junit.Test;
+import org.zeromq.ZMQ.Socket;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestZPump
+{
+    @Test
+    public void testBatch()
+    {
+        ZContext ctx = new ZContext();
+        Socket source = ctx.createSocket(ZMQ.PULL);
+        source.bind("inproc://pump-source");
+        Socket producer = ctx.createSocket(ZMQ.PUSH);
+        producer.connect("inproc://pump-source");
+        Socket destination = ctx.createSocket(ZMQ.PUSH);
+        destination.bind("inproc://pump-destination");
+        Socket consumer = ctx.createSocket(ZMQ.PULL);
+        consumer.setReceiveTimeOut(100);
+        consumer.connect("inproc://pump-destination");
+
+        ZProxy.ZPump pump = new ZProxy.ZPump(null, 3);
+
+        for (int round = 0; round < 2; ++round) {
+            for (int index = 0; index < 5; ++index) {
+                producer.send("header", ZMQ.SNDMORE);
+                producer.send("message " + index);
+            }
+
+            //  the first flow drains a batch, the second one the rest
+            assertThat(pump.flow(ZProxy.Plug.FRONT, source, null, ZProxy.Plug.BACK, destination), is(true));
+            for (int index = 0; index < 3; ++index) {
+                assertThat(consumer.recvStr(), is("header"));
+                assertThat(consumer.recvStr(), is("message " + index));
+            }
+            assertThat(consumer.recvStr(), nullValue());
+
+            assertThat(pump.flow(ZProxy.Plug.FRONT, source, null, ZProxy.Plug.BACK, destination), is(true));
+            for (int index = 3; index < 5; ++index) {
+                assertThat(consumer.recvStr(), is("header"));
+                assertThat(consumer.recvStr(), is("message " + index));
+            }
+            assertThat(consumer.recvStr(), nullValue());
+        }
+
+        ctx.close();
+    }
+
+    @Test
+    public void testBatchTransformer()
+    {
+        ZContext ctx = new ZContext();
+        Socket source = ctx.createSocket(ZMQ.PULL);
+        source.bind("inproc://pump-source-transformed");
+        Socket producer = ctx.createSocket(ZMQ.PUSH);
+        producer.connect("inproc://pump-source-transformed");
+        Socket destination = ctx.createSocket(ZMQ.PUSH);
+        destination.bind("inproc://pump-destination-transformed");
+        Socket consumer = ctx.createSocket(ZMQ.PULL);
+        consumer.connect("inproc://pump-destination-transformed");
+        Socket capture = ctx.createSocket(ZMQ.PUSH);
+        capture.bind("inproc://pump-capture-transformed");
+        Socket captured = ctx.createSocket(ZMQ.PULL);
+        captured.connect("inproc://pump-capture-transformed");
+
+        ZProxy.ZPump pump = new ZProxy.ZPump(new ZProxy.ZPump.Transformer()
+        {
+            @Override
+            public ZMsg transform(ZMsg msg, ZProxy.Plug src, ZProxy.Plug dst)
+            {
+                if (dst == ZProxy.Plug.CAPTURE) {
+                    return msg;
+                }
+                ZMsg upper = new ZMsg();
+                for (ZFrame frame : msg) {
+                    upper.add(frame.toString().toUpperCase());
+                }
+                return upper;
+            }
+        }, 8);
+
+        for (int index = 0; index < 4; ++index) {
+            producer.send("message " + index);
+        }
+        assertThat(pump.flow(ZProxy.Plug.FRONT, source, capture, ZProxy.Plug.BACK, destination), is(true));
+        for (int index = 0; index < 4; ++index) {
+            assertThat(consumer.recvStr(), is("MESSAGE " + index));
+            assertThat(captured.recvStr(), is("message " + index));
+        }
+
+        ctx.close();
+    }
+}
@@ -25,8 +25,10 @@ import org.junit.Test;
 import org.zeromq.ZBeacon.Listener;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ZBeaconTest
 {
@@ -52,4 +54,66 @@ public class ZBeaconTest
         assertEquals(latch.getCount(), 0);
         zbeacon.stop();
     }
+
+    @Test
+    public void testSharedService() throws InterruptedException
+    {
+        final CountDownLatch hydra = new CountDownLatch(1);
+        final CountDownLatch zyre = new CountDownLatch(1);
+        ZBeacon.Service service = new ZBeacon.Service();
+
+        ZBeacon first = new ZBeacon("255.255.255.255", 5671, new byte[] { 'H', 'Y', 'D', 'R', 'A' }, false, service);
+        first.setPrefix(new byte[] { 'Z', 'R', 'E' });
+        first.setListener(new Listener()
+        {
+            @Override
+            public void onBeacon(InetAddress sender, byte[] beacon)
+            {
+                zyre.countDown();
+            }
+        });
+        ZBeacon second = new ZBeacon("255.255.255.255", 5671, new byte[] { 'Z', 'R', 'E' }, false, service);
+        second.setPrefix(new byte[] { 'H', 'Y', 'D' });
+        second.setListener(new Listener()
+        {
+            @Override
+            public void onBeacon(InetAddress sender, byte[] beacon)
+            {
+                hydra.countDown();
+            }
+        });
+
+        first.start();
+        second.start();
+        assertTrue(hydra.await(20, TimeUnit.SECONDS));
+        assertTrue(zyre.await(20, TimeUnit.SECONDS));
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    public void testDeduplication() throws InterruptedException
+    {
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        byte[] beacon = new byte[] { 'H', 'Y', 'D', 'R', 'A', 0x01 };
+        ZBeacon zbeacon = new ZBeacon("255.255.255.255", 5672, beacon, false);
+        zbeacon.setBroadcastInterval(10);
+        zbeacon.setDeduplicationInterval(60000);
+        zbeacon.setListener(new Listener()
+        {
+            @Override
+            public void onBeacon(InetAddress sender, byte[] beacon)
+            {
+                received.incrementAndGet();
+                latch.countDown();
+            }
+        });
+
+        zbeacon.start();
+        assertTrue(latch.await(20, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        zbeacon.stop();
+        assertEquals(1, received.get());
+    }
 }
@@ -71,4 +71,77 @@ public class ZMsgTest
         receiver.close();
         ctx.close();
     }
+
+    @Test
+    public void testRecvPooledMsg() throws Exception
+    {
+        ZMQ.Context ctx = ZMQ.context(0);
+        ZMQ.Socket sender = ctx.socket(ZMQ.PUSH);
+        ZMQ.Socket receiver = ctx.socket(ZMQ.PULL);
+        ZMQ.Socket forwarder = ctx.socket(ZMQ.PUSH);
+        ZMQ.Socket sink = ctx.socket(ZMQ.PULL);
+
+        receiver.bind("inproc://pooled-" + this.hashCode());
+        sender.connect("inproc://pooled-" + this.hashCode());
+        sink.bind("inproc://forwarded-" + this.hashCode());
+        forwarder.connect("inproc://forwarded-" + this.hashCode());
+
+        ZMsg.Pool pool = new ZMsg.Pool(1);
+        for (int idx = 0; idx < 3; ++idx) {
+            ZMsg.newStringMsg("header", "body" + idx).send(sender);
+
+            ZMsg msg = ZMsg.recvMsg(receiver, 0, pool);
+            Assert.assertNotNull(msg);
+            Assert.assertEquals(2, msg.size());
+            Assert.assertEquals(0, pool.messages());
+            Assert.assertEquals(0, pool.frames());
+            Assert.assertTrue(msg.getLast().streq("body" + idx));
+
+            Assert.assertTrue(msg.send(forwarder));
+            Assert.assertEquals(1, pool.messages());
+            Assert.assertEquals(2, pool.frames());
+
+            ZMsg forwarded = ZMsg.recvMsg(sink);
+            Assert.assertEquals(ZMsg.newStringMsg("header", "body" + idx), forwarded);
+        }
+
+        ZMsg msg = ZMsg.recvMsg(receiver, ZMQ.DONTWAIT, pool);
+        Assert.assertNull(msg);
+        Assert.assertEquals(1, pool.messages());
+        Assert.assertEquals(2, pool.frames());
+
+        sender.close();
+        receiver.close();
+        forwarder.close();
+        sink.close();
+        ctx.close();
+    }
+
+    @Test
+    public void testPooledFrameReleasedOnce() throws Exception
+    {
+        ZMQ.Context ctx = ZMQ.context(0);
+        ZMQ.Socket sender = ctx.socket(ZMQ.PUSH);
+        ZMQ.Socket receiver = ctx.socket(ZMQ.PULL);
+
+        receiver.bind("inproc://released-" + this.hashCode());
+        sender.connect("inproc://released-" + this.hashCode());
+
+        ZMsg.Pool pool = new ZMsg.Pool(4);
+        sender.send("hello");
+        ZMsg msg = ZMsg.recvMsg(receiver, 0, pool);
+        ZFrame frame = msg.pop();
+        Assert.assertArrayEquals("hello".getBytes(ZMQ.CHARSET), frame.getData());
+
+        frame.destroy();
+        frame.destroy();
+        msg.destroy();
+        msg.destroy();
+        Assert.assertEquals(1, pool.frames());
+        Assert.assertEquals(1, pool.messages());
+
+        sender.close();
+        receiver.close();
+        ctx.close();
+    }
 }
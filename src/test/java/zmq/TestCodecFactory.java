@@ -0,0 +1,95 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class TestCodecFactory
+{
+    //  Default V1 codec counting the codecs it creates.
+    static class CountingCodec extends CodecFactory.V1
+    {
+        private final AtomicInteger decoders = new AtomicInteger();
+        private final AtomicInteger encoders = new AtomicInteger();
+
+        @Override
+        public DecoderBase createDecoder(int size, long max, IMsgSink sink, int version)
+        {
+            decoders.incrementAndGet();
+            return super.createDecoder(size, max, sink, version);
+        }
+
+        @Override
+        public EncoderBase createEncoder(int size, IMsgSource source, int version)
+        {
+            encoders.incrementAndGet();
+            return super.createEncoder(size, source, version);
+        }
+    }
+
+    @Test
+    public void testRegistry()
+    {
+        assertThat(CodecRegistry.highest(), is(V1Protocol.VERSION));
+        assertThat(CodecRegistry.get(0), instanceOf(CodecFactory.Zmtp10.class));
+        assertThat(CodecRegistry.get(V1Protocol.VERSION), instanceOf(CodecFactory.V1.class));
+
+        //  Later versions are spoken as the highest one we know.
+        assertThat(CodecRegistry.get(3), instanceOf(CodecFactory.V1.class));
+        assertThat(CodecRegistry.get(-1), nullValue());
+    }
+
+    @Test
+    public void testCodecOption() throws Exception
+    {
+        CountingCodec codec = new CountingCodec();
+
+        Ctx ctx = ZMQ.init(1);
+        assertThat(ctx, notNullValue());
+
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        push.setSocketOpt(ZMQ.ZMQ_CODEC, codec);
+        boolean rc = ZMQ.bind(push, "tcp://127.0.0.1:7690");
+        assertThat(rc, is(true));
+
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        rc = ZMQ.connect(pull, "tcp://127.0.0.1:7690");
+        assertThat(rc, is(true));
+
+        int ret = ZMQ.send(push, "hello", 0);
+        assertThat(ret, is(5));
+        Msg msg = ZMQ.recv(pull, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("hello"));
+
+        //  The codecs of the connection came from the factory.
+        assertThat(codec.decoders.get(), is(1));
+        assertThat(codec.encoders.get(), is(1));
+
+        ZMQ.close(pull);
+        ZMQ.close(push);
+        ZMQ.term(ctx);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import zmq.Helper.DummySession;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestCompression
+{
+    private static byte[] compressible(int size)
+    {
+        byte[] data = new byte[size];
+        byte[] pattern = "{\"name\":\"value\",\"count\":42},".getBytes(ZMQ.CHARSET);
+        for (int i = 0; i < size; i++) {
+            data[i] = pattern[i % pattern.length];
+        }
+        return data;
+    }
+
+    private static byte[] encode(EncoderBase encoder) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (true) {
+            Transfer transfer = encoder.getData(null);
+            if (transfer.remaining() == 0) {
+                return out.toByteArray();
+            }
+            while (transfer.remaining() > 0) {
+                transfer.transferTo(channel);
+            }
+        }
+    }
+
+    private static void decode(DecoderBase decoder, byte[] data)
+    {
+        int offset = 0;
+        while (offset < data.length) {
+            ByteBuffer in = decoder.getBuffer();
+            int size = Math.min(in.remaining(), data.length - offset);
+            in.put(data, offset, size);
+            in.flip();
+            assertThat(decoder.processBuffer(in, size), is(size));
+            offset += size;
+        }
+    }
+
+    @Test
+    public void testCodec() throws IOException
+    {
+        byte[] large = compressible(10000);
+        byte[] random = new byte[2000];
+        new Random(42).nextBytes(random);
+
+        DummySession source = new DummySession();
+        Msg msg = new Msg(large);
+        msg.setFlags(Msg.MORE);
+        source.pushMsg(msg);
+        msg = new Msg("small".getBytes(ZMQ.CHARSET));
+        msg.setFlags(Msg.MORE);
+        source.pushMsg(msg);
+        source.pushMsg(new Msg(random));
+
+        byte[] encoded = encode(new V1Encoder(64, source, 100));
+
+        //  The large frame is compressed, the small one and the random one are not.
+        assertTrue(encoded.length < 1000 + 7 + 2000 + 9);
+
+        DummySession sink = new DummySession();
+        decode(new V1Decoder(64, -1, sink, true), encoded);
+
+        assertThat(sink.out.size(), is(3));
+        assertThat(sink.out.get(0).data(), is(large));
+        assertThat(sink.out.get(0).hasMore(), is(true));
+        assertThat(sink.out.get(1).data(), is("small".getBytes(ZMQ.CHARSET)));
+        assertThat(sink.out.get(1).hasMore(), is(true));
+        assertThat(sink.out.get(2).data(), is(random));
+        assertThat(sink.out.get(2).hasMore(), is(false));
+    }
+
+    @Test
+    public void testMaxMsgSize() throws IOException
+    {
+        DummySession source = new DummySession();
+        source.pushMsg(new Msg(compressible(10000)));
+
+        byte[] encoded = encode(new V1Encoder(64, source, 100));
+
+        //  The compressed frame fits, the original one does not.
+        DummySession sink = new DummySession();
+        DecoderBase decoder = new V1Decoder(64, 5000, sink, true);
+        int offset = 0;
+        int processed = 0;
+        while (offset < encoded.length && processed != -1) {
+            ByteBuffer in = decoder.getBuffer();
+            int size = Math.min(in.remaining(), encoded.length - offset);
+            in.put(encoded, offset, size);
+            in.flip();
+            processed = decoder.processBuffer(in, size);
+            offset += size;
+        }
+        assertThat(processed, is(-1));
+        assertThat(sink.out.isEmpty(), is(true));
+    }
+
+    private static void transfer(SocketBase from, SocketBase to, byte[] data)
+    {
+        int rc = ZMQ.send(from, data, data.length, 0);
+        assertThat(rc, is(data.length));
+        Msg msg = ZMQ.recv(to, 0);
+        assertThat(msg, notNullValue());
+        assertTrue(Arrays.equals(msg.data(), data));
+    }
+
+    @Test
+    public void testTcp()
+    {
+        Ctx ctx = ZMQ.init(1);
+
+        SocketBase sb = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        ZMQ.setSocketOption(sb, ZMQ.ZMQ_COMPRESSION, 100);
+        assertThat(ZMQ.bind(sb, "tcp://127.0.0.1:7720"), is(true));
+
+        SocketBase sc = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        ZMQ.setSocketOption(sc, ZMQ.ZMQ_COMPRESSION, 100);
+        assertThat(ZMQ.connect(sc, "tcp://127.0.0.1:7720"), is(true));
+
+        byte[] large = compressible(100000);
+        transfer(sc, sb, large);
+        transfer(sb, sc, large);
+        transfer(sc, sb, "small".getBytes(ZMQ.CHARSET));
+
+        ZMQ.close(sb);
+        ZMQ.close(sc);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testTcpOneSided()
+    {
+        Ctx ctx = ZMQ.init(1);
+
+        //  Only one peer enables compression, which is then not used.
+        SocketBase sb = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        ZMQ.setSocketOption(sb, ZMQ.ZMQ_COMPRESSION, 100);
+        assertThat(ZMQ.bind(sb, "tcp://127.0.0.1:7721"), is(true));
+
+        SocketBase sc = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        assertThat(ZMQ.connect(sc, "tcp://127.0.0.1:7721"), is(true));
+
+        byte[] large = compressible(100000);
+        transfer(sc, sb, large);
+        transfer(sb, sc, large);
+
+        ZMQ.close(sb);
+        ZMQ.close(sc);
+        ZMQ.term(ctx);
+    }
+
+    //  Returns the flags of the first non-empty frame sent by a socket
+    //  with compression to a raw peer announcing the given greeting.
+    private static int rawFrameFlags(int port, int preamble, int version) throws IOException
+    {
+        Ctx ctx = ZMQ.init(1);
+        SocketBase sb = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        ZMQ.setSocketOption(sb, ZMQ.ZMQ_COMPRESSION, 100);
+        assertThat(ZMQ.bind(sb, "tcp://127.0.0.1:" + port), is(true));
+
+        Socket raw = new Socket("127.0.0.1", port);
+        DataOutputStream out = new DataOutputStream(raw.getOutputStream());
+        out.write(0xff);
+        out.writeLong(1);
+        out.write(preamble);
+        out.write(version);
+        out.write(ZMQ.ZMQ_PAIR);
+        out.write(new byte[] {0, 0});
+        out.flush();
+
+        //  The socket signals compression without changing its version.
+        DataInputStream in = new DataInputStream(raw.getInputStream());
+        byte[] greeting = new byte[12];
+        in.readFully(greeting);
+        assertThat(greeting[9] & 0xff, is(0x7f & ~V1Protocol.COMPRESSION_SIGNAL));
+        assertThat(greeting[10] & 0xff, is(CodecRegistry.highest()));
+
+        byte[] large = compressible(1000);
+        assertThat(ZMQ.send(sb, large, large.length, 0), is(large.length));
+        int flags;
+        long size;
+        do {
+            flags = in.readUnsignedByte();
+            size = (flags & V1Protocol.LARGE_FLAG) != 0 ? in.readLong() : in.readUnsignedByte();
+            in.readFully(new byte[(int) size]);
+        } while (size == 0);
+
+        raw.close();
+        ZMQ.close(sb);
+        ZMQ.term(ctx);
+        return flags;
+    }
+
+    @Test
+    public void testRawPeerWithoutSignal() throws IOException
+    {
+        //  A peer announcing a later revision without the signal gets plain frames.
+        assertThat(rawFrameFlags(7722, 0x7f, 2) & V1Protocol.COMPRESSED_FLAG, is(0));
+    }
+
+    @Test
+    public void testRawPeerWithSignal() throws IOException
+    {
+        assertThat(rawFrameFlags(7723, 0x7f & ~V1Protocol.COMPRESSION_SIGNAL, 1) & V1Protocol.COMPRESSED_FLAG,
+                is(V1Protocol.COMPRESSED_FLAG));
+    }
+}
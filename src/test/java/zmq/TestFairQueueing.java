@@ -0,0 +1,154 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestFairQueueing
+{
+    @Test
+    public void testBindPriority()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_FQ_PRIORITY, 1);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7738"), is(true));
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_FQ_PRIORITY, 0);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7739"), is(true));
+
+        SocketBase data = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        SocketBase control = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        assertThat(ZMQ.connect(data, "tcp://127.0.0.1:7739"), is(true));
+        assertThat(ZMQ.connect(control, "tcp://127.0.0.1:7738"), is(true));
+        ZMQ.sleep(1);
+
+        for (int idx = 0; idx < 10; ++idx) {
+            assertThat(ZMQ.send(data, "data", 0), is(4));
+        }
+        for (int idx = 0; idx < 3; ++idx) {
+            assertThat(ZMQ.send(control, "ctrl", 0), is(4));
+        }
+        ZMQ.sleep(1);
+
+        //  The messages of the control peer come first.
+        for (int idx = 0; idx < 13; ++idx) {
+            Msg msg = ZMQ.recv(pull, 0);
+            assertThat(new String(msg.data(), ZMQ.CHARSET), is(idx < 3 ? "ctrl" : "data"));
+        }
+
+        ZMQ.close(data);
+        ZMQ.close(control);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testConnectPriority()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase low = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        SocketBase high = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        assertThat(ZMQ.bind(low, "inproc://fq.low"), is(true));
+        assertThat(ZMQ.bind(high, "inproc://fq.high"), is(true));
+
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.connect(pull, "inproc://fq.low"), is(true));
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_FQ_PRIORITY, 7);
+        assertThat(ZMQ.getSocketOption(pull, ZMQ.ZMQ_FQ_PRIORITY), is(7));
+        assertThat(ZMQ.connect(pull, "inproc://fq.high"), is(true));
+
+        for (int idx = 0; idx < 5; ++idx) {
+            assertThat(ZMQ.send(low, "low", 0), is(3));
+            assertThat(ZMQ.send(high, "high", 0), is(4));
+        }
+        for (int idx = 0; idx < 10; ++idx) {
+            Msg msg = ZMQ.recv(pull, 0);
+            assertThat(new String(msg.data(), ZMQ.CHARSET), is(idx < 5 ? "high" : "low"));
+        }
+
+        ZMQ.close(pull);
+        ZMQ.close(low);
+        ZMQ.close(high);
+        ZMQ.term(ctx);
+    }
+
+    //  Returns the number of large messages among the first twelve
+    //  received, when a peer sends large messages and another small ones.
+    private static int largeMessagesFirst(int quantum)
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_FQ_QUANTUM, quantum);
+        assertThat(ZMQ.bind(pull, "inproc://fq.drr"), is(true));
+
+        SocketBase large = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        SocketBase small = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        assertThat(ZMQ.connect(large, "inproc://fq.drr"), is(true));
+        assertThat(ZMQ.connect(small, "inproc://fq.drr"), is(true));
+
+        for (int idx = 0; idx < 6; ++idx) {
+            assertThat(ZMQ.send(large, new Msg(new byte[3000]), 0), is(3000));
+        }
+        for (int idx = 0; idx < 30; ++idx) {
+            assertThat(ZMQ.send(small, new Msg(new byte[100]), 0), is(100));
+        }
+
+        int count = 0;
+        for (int idx = 0; idx < 36; ++idx) {
+            Msg msg = ZMQ.recv(pull, 0);
+            if (idx < 12 && msg.size() == 3000) {
+                count++;
+            }
+        }
+
+        ZMQ.close(large);
+        ZMQ.close(small);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+        return count;
+    }
+
+    @Test
+    public void testDeficitRoundRobin()
+    {
+        //  A message in turn from each peer.
+        assertThat(largeMessagesFirst(0), is(6));
+
+        //  As many bytes in turn from each peer.
+        assertTrue(largeMessagesFirst(1000) <= 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPriority()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        try {
+            ZMQ.setSocketOption(pull, ZMQ.ZMQ_FQ_PRIORITY, 8);
+        }
+        finally {
+            ZMQ.close(pull);
+            ZMQ.term(ctx);
+        }
+    }
+}
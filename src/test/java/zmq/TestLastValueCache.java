@@ -0,0 +1,112 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestLastValueCache
+{
+    private static String recv(SocketBase sub)
+    {
+        Msg msg = ZMQ.recv(sub, 0);
+        return new String(msg.data(), ZMQ.CHARSET);
+    }
+
+    @Test
+    public void testLateJoiner()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pub = ZMQ.socket(ctx, ZMQ.ZMQ_PUB);
+        ZMQ.setSocketOption(pub, ZMQ.ZMQ_XPUB_LAST_VALUES, 2);
+        assertThat(ZMQ.bind(pub, "inproc://lvc"), is(true));
+
+        //  Published before anyone subscribes, the last value of B evicts A.
+        ZMQ.send(pub, "A", ZMQ.ZMQ_SNDMORE);
+        ZMQ.send(pub, "1", 0);
+        ZMQ.send(pub, "B", ZMQ.ZMQ_SNDMORE);
+        ZMQ.send(pub, "2", 0);
+        ZMQ.send(pub, "B", ZMQ.ZMQ_SNDMORE);
+        ZMQ.send(pub, "3", 0);
+        ZMQ.send(pub, "C", ZMQ.ZMQ_SNDMORE);
+        ZMQ.send(pub, "4", 0);
+
+        SocketBase sub = ZMQ.socket(ctx, ZMQ.ZMQ_SUB);
+        assertThat(ZMQ.connect(sub, "inproc://lvc"), is(true));
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "B");
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_RCVTIMEO, 2000);
+
+        //  The subscription is processed when the publisher is used.
+        ZMQ.getSocketOption(pub, ZMQ.ZMQ_EVENTS);
+        assertThat(recv(sub), is("B"));
+        assertThat(recv(sub), is("3"));
+
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "");
+        ZMQ.getSocketOption(pub, ZMQ.ZMQ_EVENTS);
+        assertThat(recv(sub), is("B"));
+        assertThat(recv(sub), is("3"));
+        assertThat(recv(sub), is("C"));
+        assertThat(recv(sub), is("4"));
+
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_RCVTIMEO, 100);
+        assertThat(ZMQ.recv(sub, 0), nullValue());
+
+        ZMQ.close(sub);
+        ZMQ.close(pub);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testSubscribeDuringMultipart()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pub = ZMQ.socket(ctx, ZMQ.ZMQ_XPUB);
+        ZMQ.setSocketOption(pub, ZMQ.ZMQ_XPUB_LAST_VALUES, 10);
+        assertThat(ZMQ.bind(pub, "inproc://lvc.more"), is(true));
+
+        ZMQ.send(pub, "A", ZMQ.ZMQ_SNDMORE);
+        ZMQ.send(pub, "1", 0);
+
+        SocketBase sub = ZMQ.socket(ctx, ZMQ.ZMQ_SUB);
+        assertThat(ZMQ.connect(sub, "inproc://lvc.more"), is(true));
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "B");
+        ZMQ.getSocketOption(pub, ZMQ.ZMQ_EVENTS);
+        assertThat(recv(pub), is("\u0001B"));
+
+        //  The subscription arrives in the middle of a message, the snapshot
+        //  follows it and holds it already.
+        ZMQ.send(pub, "A", ZMQ.ZMQ_SNDMORE);
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "A");
+        ZMQ.getSocketOption(pub, ZMQ.ZMQ_EVENTS);
+        ZMQ.send(pub, "2", 0);
+
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_RCVTIMEO, 2000);
+        assertThat(recv(sub), is("A"));
+        assertThat(recv(sub), is("2"));
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_RCVTIMEO, 100);
+        assertThat(ZMQ.recv(sub, 0), nullValue());
+
+        ZMQ.close(sub);
+        ZMQ.close(pub);
+        ZMQ.term(ctx);
+    }
+}
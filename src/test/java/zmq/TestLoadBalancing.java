@@ -0,0 +1,136 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestLoadBalancing
+{
+    private static int drain(SocketBase socket)
+    {
+        int count = 0;
+        while (ZMQ.recv(socket, ZMQ.ZMQ_DONTWAIT) != null) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testWeighted()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase heavy = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        SocketBase light = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(heavy, "inproc://lb.heavy"), is(true));
+        assertThat(ZMQ.bind(light, "inproc://lb.light"), is(true));
+
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_LB_STRATEGY, ZMQ.ZMQ_LB_WEIGHTED);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_LB_WEIGHT, 3);
+        assertThat(ZMQ.connect(push, "inproc://lb.heavy"), is(true));
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_LB_WEIGHT, 1);
+        assertThat(ZMQ.connect(push, "inproc://lb.light"), is(true));
+        assertThat(ZMQ.getSocketOption(push, ZMQ.ZMQ_LB_STRATEGY), is(ZMQ.ZMQ_LB_WEIGHTED));
+
+        for (int idx = 0; idx < 40; ++idx) {
+            assertThat(ZMQ.send(push, "msg", 0), is(3));
+        }
+        assertThat(drain(heavy), is(30));
+        assertThat(drain(light), is(10));
+
+        ZMQ.close(push);
+        ZMQ.close(heavy);
+        ZMQ.close(light);
+        ZMQ.term(ctx);
+    }
+
+    //  Sends messages to a fast and a slow peer, the slow one never reading
+    //  them, and returns the number of messages queued to the slow one.
+    private static int queuedToSlowPeer(int strategy)
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase fast = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        SocketBase slow = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(fast, ZMQ.ZMQ_RCVHWM, 4);
+        ZMQ.setSocketOption(slow, ZMQ.ZMQ_RCVHWM, 4);
+        assertThat(ZMQ.bind(fast, "inproc://lb.fast"), is(true));
+        assertThat(ZMQ.bind(slow, "inproc://lb.slow"), is(true));
+
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_SNDHWM, 4);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_LB_STRATEGY, strategy);
+        assertThat(ZMQ.connect(push, "inproc://lb.fast"), is(true));
+        assertThat(ZMQ.connect(push, "inproc://lb.slow"), is(true));
+
+        int received = 0;
+        int sent = 0;
+        for (int idx = 0; idx < 100; ++idx) {
+            if (ZMQ.send(push, "msg", ZMQ.ZMQ_DONTWAIT) == 3) {
+                sent++;
+            }
+            received += drain(fast);
+            //  Let the push socket know of the messages read.
+            ZMQ.getSocketOption(push, ZMQ.ZMQ_EVENTS);
+        }
+        int queued = drain(slow);
+        assertThat(received + queued, is(sent));
+
+        ZMQ.close(push);
+        ZMQ.close(fast);
+        ZMQ.close(slow);
+        ZMQ.term(ctx);
+        return queued;
+    }
+
+    @Test
+    public void testLeastQueued()
+    {
+        //  Round-robin fills the queue of the slow peer up to its high water mark.
+        int roundRobin = queuedToSlowPeer(ZMQ.ZMQ_LB_ROUND_ROBIN);
+        assertThat(roundRobin, is(8));
+
+        int leastQueued = queuedToSlowPeer(ZMQ.ZMQ_LB_LEAST_QUEUED);
+        assertTrue(leastQueued < roundRobin);
+    }
+
+    @Test
+    public void testPowerOfTwo()
+    {
+        int powerOfTwo = queuedToSlowPeer(ZMQ.ZMQ_LB_POWER_OF_TWO);
+        assertTrue(powerOfTwo < 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStrategy()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        try {
+            ZMQ.setSocketOption(push, ZMQ.ZMQ_LB_STRATEGY, 42);
+        }
+        finally {
+            ZMQ.close(push);
+            ZMQ.term(ctx);
+        }
+    }
+}
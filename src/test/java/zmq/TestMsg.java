@@ -20,8 +20,14 @@
 package zmq;
 
 import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+
 public class TestMsg
 {
     @Test(expected = IllegalArgumentException.class)
@@ -40,4 +46,20 @@ public class TestMsg
         buffer.flip();
         new Msg(buffer);
     }
+
+    @Test
+    public void shouldLoadFileRegionOnAccess() throws Exception
+    {
+        File file = File.createTempFile("jeromq", ".dat");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.write("0123456789".getBytes(ZMQ.CHARSET));
+
+        Msg msg = new Msg(raf.getChannel(), 2, 5);
+        assertThat(msg.isFileRegion(), is(true));
+        assertThat(msg.size(), is(5));
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("23456"));
+        assertThat(msg.isFileRegion(), is(false));
+        raf.close();
+    }
 }
@@ -0,0 +1,142 @@
+package zmq;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramSocket;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.Test;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+
+public class TestPairShm
+{
+    @Test
+    public void testPairShm()
+    {
+        //  Two contexts, as if the peers lived in different processes.
+        Ctx ctxb = ZMQ.init(1);
+        assertThat(ctxb, notNullValue());
+        Ctx ctxc = ZMQ.init(1);
+        assertThat(ctxc, notNullValue());
+
+        String endpoint = "shm://tester" + UUID.randomUUID().toString();
+
+        SocketBase sb = ZMQ.socket(ctxb, ZMQ.ZMQ_PAIR);
+        assertThat(sb, notNullValue());
+        boolean brc = ZMQ.bind(sb, endpoint);
+        assertThat(brc, is(true));
+
+        SocketBase sc = ZMQ.socket(ctxc, ZMQ.ZMQ_PAIR);
+        assertThat(sc, notNullValue());
+        brc = ZMQ.connect(sc, endpoint);
+        assertThat(brc, is(true));
+
+        Helper.bounce(sb, sc);
+
+        //  Tear down the wiring.
+        ZMQ.close(sb);
+        ZMQ.close(sc);
+        ZMQ.term(ctxb);
+        ZMQ.term(ctxc);
+    }
+
+    @Test
+    public void testMessagesLargerThanRing()
+    {
+        Ctx ctx = ZMQ.init(1);
+        assertThat(ctx, notNullValue());
+
+        String endpoint = "shm://tester" + UUID.randomUUID().toString();
+
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(pull, notNullValue());
+        boolean brc = ZMQ.bind(pull, endpoint);
+        assertThat(brc, is(true));
+
+        //  Use the smallest rings so that messages wrap and get split.
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        assertThat(push, notNullValue());
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_SNDBUF, 4096);
+        brc = ZMQ.connect(push, endpoint);
+        assertThat(brc, is(true));
+
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            byte[] content = new byte[i * 97];
+            Arrays.fill(content, (byte) i);
+            int rc = ZMQ.send(push, content, content.length, i % 2 == 0 ? ZMQ.ZMQ_SNDMORE : 0);
+            assertThat(rc, is(content.length));
+        }
+
+        for (int i = 0; i < count; i++) {
+            Msg msg = ZMQ.recv(pull, 0);
+            assertThat(msg, notNullValue());
+            byte[] expected = new byte[i * 97];
+            Arrays.fill(expected, (byte) i);
+            assertThat(msg.data(), is(expected));
+            assertThat(msg.hasMore(), is(i % 2 == 0));
+        }
+
+        ZMQ.close(push);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testBindToLiveEndpoint()
+    {
+        Ctx ctxa = ZMQ.init(1);
+        Ctx ctxb = ZMQ.init(1);
+
+        String endpoint = "shm://tester" + UUID.randomUUID().toString();
+
+        SocketBase first = ZMQ.socket(ctxa, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(first, endpoint), is(true));
+
+        //  Another process cannot take the endpoint over.
+        SocketBase second = ZMQ.socket(ctxb, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(second, endpoint), is(false));
+        assertThat(second.errno(), is(ZError.EADDRINUSE));
+
+        //  The first listener is still reached.
+        SocketBase push = ZMQ.socket(ctxb, ZMQ.ZMQ_PUSH);
+        assertThat(ZMQ.connect(push, endpoint), is(true));
+        assertThat(ZMQ.send(push, "live", 0), is(4));
+        Msg msg = ZMQ.recv(first, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("live"));
+
+        ZMQ.close(push);
+        ZMQ.close(second);
+        ZMQ.close(first);
+        ZMQ.term(ctxb);
+        ZMQ.term(ctxa);
+    }
+
+    @Test
+    public void testBindToStaleEndpoint() throws IOException
+    {
+        Ctx ctx = ZMQ.init(1);
+
+        String name = "tester" + UUID.randomUUID().toString();
+
+        //  Left behind by a listener that did not close, its port is free.
+        DatagramSocket gone = new DatagramSocket();
+        int port = gone.getLocalPort();
+        gone.close();
+        File file = new File(System.getProperty("java.io.tmpdir"), "jeromq-shm-" + name);
+        OutputStream output = new FileOutputStream(file);
+        output.write(String.valueOf(port).getBytes(ZMQ.CHARSET));
+        output.close();
+
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(pull, "shm://" + name), is(true));
+
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class TestParking
+{
+    @Test
+    public void testParkedReceivers() throws Exception
+    {
+        final Ctx ctx = ZMQ.init(1);
+        assertThat(ctx, notNullValue());
+
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        boolean rc = ZMQ.bind(push, "inproc://parking");
+        assertThat(rc, is(true));
+
+        //  Many threads block in recv without holding a selector each.
+        final int count = 16;
+        final int[] received = new int[count];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int idx = 0; idx < count; ++idx) {
+            final int id = idx;
+            final SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+            ZMQ.setSocketOption(pull, ZMQ.ZMQ_PARKING, 1);
+            assertThat(ZMQ.getSocketOption(pull, ZMQ.ZMQ_PARKING), is(1));
+            rc = ZMQ.connect(pull, "inproc://parking");
+            assertThat(rc, is(true));
+
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    Msg msg = ZMQ.recv(pull, 0);
+                    if (msg != null) {
+                        received[id] = msg.size();
+                    }
+                    ZMQ.close(pull);
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (int idx = 0; idx < count; ++idx) {
+            int sent = ZMQ.send(push, "parked", 0);
+            assertThat(sent, is(6));
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertThat(thread.isAlive(), is(false));
+        }
+        for (int size : received) {
+            assertThat(size, is(6));
+        }
+
+        ZMQ.close(push);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testParkedTimeout() throws Exception
+    {
+        Ctx ctx = ZMQ.init(1);
+        assertThat(ctx, notNullValue());
+
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_PARKING, 1);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_RCVTIMEO, 100);
+        boolean rc = ZMQ.bind(pull, "inproc://parking-timeout");
+        assertThat(rc, is(true));
+
+        long start = System.currentTimeMillis();
+        Msg msg = ZMQ.recv(pull, 0);
+        long elapsed = System.currentTimeMillis() - start;
+        assertThat(msg, nullValue());
+        assertThat(pull.errno(), is(ZError.EAGAIN));
+        assertThat(elapsed >= 90, is(true));
+
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+}
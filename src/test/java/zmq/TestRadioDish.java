@@ -0,0 +1,254 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package zmq;
+
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+
+import org.junit.Test;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class TestRadioDish
+{
+    private static Msg msg(String group, String body)
+    {
+        Msg msg = new Msg(body.getBytes(ZMQ.CHARSET));
+        msg.setGroup(group);
+        return msg;
+    }
+
+    @Test
+    public void testRadioDishTcp() throws Exception
+    {
+        Ctx ctx = ZMQ.init(1);
+        assertThat(ctx, notNullValue());
+
+        SocketBase radio = ZMQ.socket(ctx, ZMQ.ZMQ_RADIO);
+        assertThat(radio, notNullValue());
+        boolean rc = ZMQ.bind(radio, "tcp://127.0.0.1:7670");
+        assertThat(rc, is(true));
+
+        SocketBase dish = ZMQ.socket(ctx, ZMQ.ZMQ_DISH);
+        assertThat(dish, notNullValue());
+
+        //  Joining the same group twice is an error.
+        assertThat(ZMQ.join(dish, "Movies"), is(true));
+        assertThat(ZMQ.join(dish, "Movies"), is(false));
+        assertThat(dish.errno(), is(ZError.EINVAL));
+
+        rc = ZMQ.connect(dish, "tcp://127.0.0.1:7670");
+        assertThat(rc, is(true));
+
+        ZMQ.sleep(1);
+
+        //  Messages need a group and cannot be multipart.
+        assertThat(radio.send(new Msg("nogroup".getBytes(ZMQ.CHARSET)), 0), is(false));
+        assertThat(radio.send(msg("Movies", "more"), ZMQ.ZMQ_SNDMORE), is(false));
+
+        assertThat(radio.send(msg("TV", "Friends"), 0), is(true));
+        assertThat(radio.send(msg("Movies", "Godfather"), 0), is(true));
+
+        Msg msg = dish.recv(0);
+        assertThat(msg.group(), is("Movies"));
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("Godfather"));
+
+        //  After leaving, nothing is received anymore.
+        assertThat(ZMQ.leave(dish, "Movies"), is(true));
+        ZMQ.sleep(1);
+        assertThat(radio.send(msg("Movies", "Godfather II"), 0), is(true));
+        msg = dish.recv(ZMQ.ZMQ_DONTWAIT);
+        assertThat(msg, nullValue());
+
+        //  DISH sockets cannot send.
+        assertThat(dish.send(msg("Movies", "up"), 0), is(false));
+        assertThat(dish.errno(), is(ZError.ENOTSUP));
+
+        ZMQ.close(dish);
+        ZMQ.close(radio);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testRadioDishUdp() throws Exception
+    {
+        Ctx ctx = ZMQ.init(1);
+        assertThat(ctx, notNullValue());
+
+        SocketBase dish = ZMQ.socket(ctx, ZMQ.ZMQ_DISH);
+        assertThat(dish, notNullValue());
+        boolean rc = ZMQ.bind(dish, "udp://*:7671");
+        assertThat(rc, is(true));
+        assertThat(ZMQ.join(dish, "Movies"), is(true));
+
+        SocketBase radio = ZMQ.socket(ctx, ZMQ.ZMQ_RADIO);
+        assertThat(radio, notNullValue());
+        rc = ZMQ.connect(radio, "udp://127.0.0.1:7671");
+        assertThat(rc, is(true));
+
+        //  UDP is lossy and the dish may not be listening yet, so keep
+        //  publishing until something arrives. Groups not joined are
+        //  filtered out on the receiving side.
+        Msg msg = null;
+        for (int i = 0; i < 100 && msg == null; i++) {
+            assertThat(radio.send(msg("TV", "Friends"), 0), is(true));
+            assertThat(radio.send(msg("Movies", "Godfather"), 0), is(true));
+            Thread.sleep(10);
+            msg = dish.recv(ZMQ.ZMQ_DONTWAIT);
+        }
+        assertThat(msg, notNullValue());
+        assertThat(msg.group(), is("Movies"));
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("Godfather"));
+
+        ZMQ.close(dish);
+        ZMQ.close(radio);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testRadioDishUdpRetry() throws Exception
+    {
+        //  The port is taken, so the dish cannot open its channel at first.
+        DatagramSocket blocker = new DatagramSocket(new InetSocketAddress("127.0.0.1", 7673));
+
+        Ctx ctx = ZMQ.init(1);
+        SocketBase dish = ZMQ.socket(ctx, ZMQ.ZMQ_DISH);
+        ZMQ.setSocketOption(dish, ZMQ.ZMQ_RECONNECT_IVL, 100);
+        assertThat(ZMQ.bind(dish, "udp://127.0.0.1:7673"), is(true));
+        assertThat(ZMQ.join(dish, "Movies"), is(true));
+
+        SocketBase radio = ZMQ.socket(ctx, ZMQ.ZMQ_RADIO);
+        assertThat(ZMQ.connect(radio, "udp://127.0.0.1:7673"), is(true));
+
+        Thread.sleep(300);
+        blocker.close();
+
+        //  Once the port is free, the dish opens its channel on a retry.
+        Msg msg = null;
+        for (int i = 0; i < 200 && msg == null; i++) {
+            assertThat(radio.send(msg("Movies", "Godfather"), 0), is(true));
+            Thread.sleep(10);
+            msg = dish.recv(ZMQ.ZMQ_DONTWAIT);
+        }
+        assertThat(msg, notNullValue());
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("Godfather"));
+
+        ZMQ.close(dish);
+        ZMQ.close(radio);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testRadioDuplicateJoin()
+    {
+        Ctx ctx = ZMQ.init(1);
+        SocketBase radio = ZMQ.socket(ctx, ZMQ.ZMQ_RADIO);
+        assertThat(ZMQ.bind(radio, "inproc://radio"), is(true));
+
+        //  A peer joining twice, as a dish does on a hiccuped pipe, and
+        //  leaving once is not joined anymore.
+        SocketBase peer = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        assertThat(ZMQ.connect(peer, "inproc://radio"), is(true));
+        ZMQ.send(peer, "\u0004JOINMovies", 0);
+        ZMQ.send(peer, "\u0004JOINMovies", 0);
+        ZMQ.send(peer, "\u0005LEAVEMovies", 0);
+        ZMQ.send(peer, "\u0004JOINTV", 0);
+
+        ZMQ.sleep(1);
+        assertThat(radio.send(msg("Movies", "Godfather"), 0), is(true));
+        assertThat(radio.send(msg("TV", "Friends"), 0), is(true));
+
+        Msg msg = peer.recv(0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("Friends"));
+
+        ZMQ.close(peer);
+        ZMQ.close(radio);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testDishFullPipe() throws Exception
+    {
+        Ctx ctx = ZMQ.init(1);
+        SocketBase radio = ZMQ.socket(ctx, ZMQ.ZMQ_RADIO);
+        assertThat(ZMQ.bind(radio, "tcp://127.0.0.1:7674"), is(true));
+
+        SocketBase dish = ZMQ.socket(ctx, ZMQ.ZMQ_DISH);
+        ZMQ.setSocketOption(dish, ZMQ.ZMQ_RCVHWM, 1);
+        assertThat(ZMQ.join(dish, "Movies"), is(true));
+        assertThat(ZMQ.connect(dish, "tcp://127.0.0.1:7674"), is(true));
+        ZMQ.sleep(1);
+
+        //  The pipe of the dish fills up, and the bodies pushed again keep
+        //  their group.
+        for (int i = 0; i < 100; i++) {
+            assertThat(radio.send(msg("Movies", "m" + i), 0), is(true));
+        }
+        Thread.sleep(200);
+        for (int i = 0; i < 10; i++) {
+            Msg msg = dish.recv(0);
+            assertThat(msg.group(), is("Movies"));
+            assertThat(new String(msg.data(), ZMQ.CHARSET).startsWith("m"), is(true));
+            Thread.sleep(10);
+        }
+
+        ZMQ.close(dish);
+        ZMQ.close(radio);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testDishFullPipeUdp() throws Exception
+    {
+        Ctx ctx = ZMQ.init(1);
+        SocketBase dish = ZMQ.socket(ctx, ZMQ.ZMQ_DISH);
+        ZMQ.setSocketOption(dish, ZMQ.ZMQ_RCVHWM, 1);
+        assertThat(ZMQ.bind(dish, "udp://127.0.0.1:7675"), is(true));
+        assertThat(ZMQ.join(dish, "Movies"), is(true));
+        assertThat(ZMQ.join(dish, "TV"), is(true));
+
+        SocketBase radio = ZMQ.socket(ctx, ZMQ.ZMQ_RADIO);
+        assertThat(ZMQ.connect(radio, "udp://127.0.0.1:7675"), is(true));
+        ZMQ.sleep(1);
+
+        //  The pipe of the dish overflows, and every message received
+        //  still has the group it was sent with.
+        for (int i = 0; i < 100; i++) {
+            String group = i % 2 == 0 ? "Movies" : "TV";
+            assertThat(radio.send(msg(group, group + "-" + i), 0), is(true));
+        }
+        Thread.sleep(200);
+        ZMQ.setSocketOption(dish, ZMQ.ZMQ_RCVTIMEO, 200);
+        int count = 0;
+        Msg msg;
+        while ((msg = dish.recv(0)) != null) {
+            assertThat(msg.hasMore(), is(false));
+            assertThat(new String(msg.data(), ZMQ.CHARSET).startsWith(msg.group() + "-"), is(true));
+            count++;
+        }
+        assertThat(count > 1, is(true));
+
+        ZMQ.close(dish);
+        ZMQ.close(radio);
+        ZMQ.term(ctx);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestResolver
+{
+    //  Resolves any host name to the loopback address, once released.
+    private static class StubResolver implements Resolver
+    {
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final CountDownLatch released;
+        private volatile boolean known = true;
+
+        StubResolver(boolean released)
+        {
+            this.released = new CountDownLatch(released ? 0 : 1);
+        }
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException
+        {
+            lookups.incrementAndGet();
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                throw new UnknownHostException(host);
+            }
+            if (!known) {
+                throw new UnknownHostException(host);
+            }
+            return new InetAddress[] {InetAddress.getByName("127.0.0.1")};
+        }
+    }
+
+    @Test
+    public void testConnectDoesNotWaitForLookup()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7736"), is(true));
+
+        StubResolver resolver = new StubResolver(false);
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RESOLVER, resolver);
+
+        long start = System.currentTimeMillis();
+        assertThat(ZMQ.connect(push, "tcp://stub.host:7736"), is(true));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        //  The messages are queued until the lookup completes.
+        assertThat(ZMQ.send(push, "hello", 0), is(5));
+        resolver.released.countDown();
+        Msg msg = ZMQ.recv(pull, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("hello"));
+        assertThat(resolver.lookups.get(), is(1));
+
+        ZMQ.close(push);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testCachedLookups()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7736"), is(true));
+
+        StubResolver resolver = new StubResolver(true);
+        SocketBase first = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(first, ZMQ.ZMQ_RESOLVER, resolver);
+        assertThat(ZMQ.connect(first, "tcp://stub.host:7736"), is(true));
+        assertThat(ZMQ.send(first, "first", 0), is(5));
+        assertThat(ZMQ.recv(pull, 0).size(), is(5));
+
+        //  Another socket with the same resolver uses the cached addresses.
+        SocketBase second = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(second, ZMQ.ZMQ_RESOLVER, resolver);
+        assertThat(ZMQ.connect(second, "tcp://stub.host:7736"), is(true));
+        assertThat(ZMQ.send(second, "second", 0), is(6));
+        assertThat(ZMQ.recv(pull, 0).size(), is(6));
+        assertThat(resolver.lookups.get(), is(1));
+
+        //  Unless the cache is disabled.
+        SocketBase third = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(third, ZMQ.ZMQ_RESOLVER, resolver);
+        ZMQ.setSocketOption(third, ZMQ.ZMQ_RESOLVE_TTL, 0);
+        assertThat(ZMQ.getSocketOption(third, ZMQ.ZMQ_RESOLVE_TTL), is(0));
+        assertThat(ZMQ.connect(third, "tcp://stub.host:7736"), is(true));
+        assertThat(ZMQ.send(third, "third", 0), is(5));
+        assertThat(ZMQ.recv(pull, 0).size(), is(5));
+        assertThat(resolver.lookups.get(), is(2));
+
+        ZMQ.close(first);
+        ZMQ.close(second);
+        ZMQ.close(third);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testReconnectResolve() throws InterruptedException
+    {
+        Ctx ctx = ZMQ.createContext();
+
+        //  Nobody listens there, so the connection is retried.
+        StubResolver resolver = new StubResolver(true);
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RESOLVER, resolver);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RESOLVE_TTL, 0);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RECONNECT_IVL, 20);
+        assertThat(ZMQ.connect(push, "tcp://stub.host:7737"), is(true));
+
+        //  The host name is resolved again before each attempt.
+        for (int idx = 0; idx < 100 && resolver.lookups.get() < 3; ++idx) {
+            Thread.sleep(20);
+        }
+        assertTrue(resolver.lookups.get() >= 3);
+
+        //  Or only once.
+        StubResolver once = new StubResolver(true);
+        SocketBase other = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(other, ZMQ.ZMQ_RESOLVER, once);
+        ZMQ.setSocketOption(other, ZMQ.ZMQ_RESOLVE_TTL, 0);
+        ZMQ.setSocketOption(other, ZMQ.ZMQ_RECONNECT_IVL, 20);
+        ZMQ.setSocketOption(other, ZMQ.ZMQ_RECONNECT_RESOLVE, 0);
+        assertThat(ZMQ.connect(other, "tcp://stub.host:7737"), is(true));
+        Thread.sleep(300);
+        assertThat(once.lookups.get(), is(1));
+
+        ZMQ.close(push);
+        ZMQ.close(other);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testUnknownHost() throws InterruptedException
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7737"), is(true));
+
+        //  A failed lookup is retried as a failed connection.
+        StubResolver resolver = new StubResolver(true);
+        resolver.known = false;
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RESOLVER, resolver);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RECONNECT_IVL, 20);
+        assertThat(ZMQ.connect(push, "tcp://stub.host:7737"), is(true));
+        assertThat(ZMQ.send(push, "hello", 0), is(5));
+        for (int idx = 0; idx < 100 && resolver.lookups.get() < 2; ++idx) {
+            Thread.sleep(20);
+        }
+        assertTrue(resolver.lookups.get() >= 2);
+
+        resolver.known = true;
+        Msg msg = ZMQ.recv(pull, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("hello"));
+
+        ZMQ.close(push);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import org.junit.Test;
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class TestStream
+{
+    @Test
+    public void testStreamToRawClient() throws Exception
+    {
+        Ctx ctx = ZMQ.init(1);
+        assertThat(ctx, notNullValue());
+
+        SocketBase stream = ZMQ.socket(ctx, ZMQ.ZMQ_STREAM);
+        assertThat(stream, notNullValue());
+        boolean rc = ZMQ.bind(stream, "tcp://127.0.0.1:7680");
+        assertThat(rc, is(true));
+
+        Socket client = new Socket("127.0.0.1", 7680);
+        client.setSoTimeout(5000);
+        OutputStream out = client.getOutputStream();
+        InputStream in = client.getInputStream();
+
+        //  A new connection is announced with an empty message.
+        Msg id = ZMQ.recv(stream, 0);
+        assertThat(id, notNullValue());
+        assertThat(id.hasMore(), is(true));
+        Msg msg = ZMQ.recv(stream, 0);
+        assertThat(msg.size(), is(0));
+
+        //  Bytes arrive unframed, prefixed by the connection ID.
+        out.write("GET / HTTP/1.0\r\n\r\n".getBytes(ZMQ.CHARSET));
+        out.flush();
+
+        StringBuilder request = new StringBuilder();
+        while (request.length() < 18) {
+            Msg part = ZMQ.recv(stream, 0);
+            assertThat(part.data(), is(id.data()));
+            part = ZMQ.recv(stream, 0);
+            assertThat(part.hasMore(), is(false));
+            request.append(new String(part.data(), ZMQ.CHARSET));
+        }
+        assertThat(request.toString(), is("GET / HTTP/1.0\r\n\r\n"));
+
+        //  Replies are written verbatim.
+        byte[] reply = "HTTP/1.0 200 OK\r\n\r\nHello".getBytes(ZMQ.CHARSET);
+        assertThat(ZMQ.send(stream, id.data(), id.size(), ZMQ.ZMQ_SNDMORE), is(id.size()));
+        assertThat(ZMQ.send(stream, reply, reply.length, 0), is(reply.length));
+
+        byte[] received = new byte[reply.length];
+        int size = 0;
+        while (size < received.length) {
+            int nbytes = in.read(received, size, received.length - size);
+            assertThat(nbytes > 0, is(true));
+            size += nbytes;
+        }
+        assertThat(received, is(reply));
+
+        //  An empty data frame closes the connection.
+        assertThat(ZMQ.send(stream, id.data(), id.size(), ZMQ.ZMQ_SNDMORE), is(id.size()));
+        assertThat(ZMQ.send(stream, new byte[0], 0, 0), is(0));
+
+        //  Let the socket process the termination of the connection.
+        ZMQ.sleep(1);
+        assertThat(ZMQ.recv(stream, ZMQ.ZMQ_DONTWAIT), nullValue());
+        assertThat(in.read(), is(-1));
+        client.close();
+
+        //  Sending to an unknown connection fails.
+        assertThat(ZMQ.send(stream, id.data(), id.size(), ZMQ.ZMQ_SNDMORE), is(-1));
+        assertThat(stream.errno(), is(ZError.EHOSTUNREACH));
+
+        ZMQ.close(stream);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testRawClientDisconnect() throws Exception
+    {
+        Ctx ctx = ZMQ.init(1);
+        SocketBase stream = ZMQ.socket(ctx, ZMQ.ZMQ_STREAM);
+        boolean rc = ZMQ.bind(stream, "tcp://127.0.0.1:7681");
+        assertThat(rc, is(true));
+
+        Socket client = new Socket("127.0.0.1", 7681);
+        Msg id = ZMQ.recv(stream, 0);
+        Msg msg = ZMQ.recv(stream, 0);
+        assertThat(msg.size(), is(0));
+
+        client.getOutputStream().write('x');
+        client.close();
+
+        msg = ZMQ.recv(stream, 0);
+        assertThat(msg.data(), is(id.data()));
+        msg = ZMQ.recv(stream, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("x"));
+
+        //  The disconnection is announced with an empty message as well.
+        msg = ZMQ.recv(stream, 0);
+        assertThat(msg.data(), is(id.data()));
+        msg = ZMQ.recv(stream, 0);
+        assertThat(msg.size(), is(0));
+
+        ZMQ.close(stream);
+        ZMQ.term(ctx);
+    }
+}
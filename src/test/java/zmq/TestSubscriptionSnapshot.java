@@ -0,0 +1,105 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestSubscriptionSnapshot
+{
+    @Test
+    public void testSnapshotForwarded()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase xpub = ZMQ.socket(ctx, ZMQ.ZMQ_XPUB);
+        ZMQ.setSocketOption(xpub, ZMQ.ZMQ_XSUB_SNAPSHOT, 1);
+        assertThat(ZMQ.bind(xpub, "inproc://snap.down"), is(true));
+        SocketBase xsub = ZMQ.socket(ctx, ZMQ.ZMQ_XSUB);
+        ZMQ.setSocketOption(xsub, ZMQ.ZMQ_XSUB_SNAPSHOT, 1);
+        assertThat(ZMQ.bind(xsub, "inproc://snap.up"), is(true));
+        SocketBase pub = ZMQ.socket(ctx, ZMQ.ZMQ_PUB);
+        ZMQ.setSocketOption(pub, ZMQ.ZMQ_XSUB_SNAPSHOT, 1);
+        assertThat(ZMQ.connect(pub, "inproc://snap.up"), is(true));
+
+        SocketBase sub = ZMQ.socket(ctx, ZMQ.ZMQ_SUB);
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_XSUB_SNAPSHOT, 1);
+        assertThat(ZMQ.getSocketOption(sub, ZMQ.ZMQ_XSUB_SNAPSHOT), is(1));
+        for (int idx = 0; idx < 1000; ++idx) {
+            ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "t" + idx);
+        }
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "t1");
+        assertThat(ZMQ.connect(sub, "inproc://snap.down"), is(true));
+
+        //  All the subscriptions come as a single message.
+        Msg msg = ZMQ.recv(xpub, 0);
+        assertThat(msg.data()[0], is(SubscriptionBatch.BATCH));
+        List<byte[]> topics = SubscriptionBatch.decode(msg.data());
+        assertThat(topics.size(), is(1000));
+        assertThat(ZMQ.recv(xpub, ZMQ.ZMQ_DONTWAIT) == null, is(true));
+
+        //  Which is forwarded as such.
+        assertThat(ZMQ.send(xsub, msg, 0), is(msg.size()));
+        ZMQ.getSocketOption(pub, ZMQ.ZMQ_EVENTS);
+        assertThat(ZMQ.send(pub, "zzz", 0), is(3));
+        assertThat(ZMQ.send(pub, "t500", 0), is(4));
+        msg = ZMQ.recv(xsub, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("t500"));
+
+        //  The following ones come one by one.
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "new");
+        msg = ZMQ.recv(xpub, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("\u0001new"));
+
+        ZMQ.close(sub);
+        ZMQ.close(pub);
+        ZMQ.close(xsub);
+        ZMQ.close(xpub);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testSnapshotIsUserMessageByDefault()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase xpub = ZMQ.socket(ctx, ZMQ.ZMQ_XPUB);
+        assertThat(ZMQ.bind(xpub, "inproc://snap.default"), is(true));
+
+        SocketBase sub = ZMQ.socket(ctx, ZMQ.ZMQ_SUB);
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_XSUB_SNAPSHOT, 1);
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "t1");
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "t2");
+        assertThat(ZMQ.connect(sub, "inproc://snap.default"), is(true));
+
+        //  The batch is passed to the user untouched, and not applied.
+        Msg msg = ZMQ.recv(xpub, 0);
+        assertThat(msg.data()[0], is(SubscriptionBatch.BATCH));
+        assertThat(SubscriptionBatch.decode(msg.data()).size(), is(2));
+        assertThat(ZMQ.send(xpub, "t1", 0), is(2));
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_RCVTIMEO, 100);
+        assertThat(ZMQ.recv(sub, 0) == null, is(true));
+
+        ZMQ.close(sub);
+        ZMQ.close(xpub);
+        ZMQ.term(ctx);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestSwap
+{
+    @Test
+    public void testSwapPastHwm()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_SNDHWM, 10);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_SWAP, 1024L * 1024);
+        assertThat((Long) ZMQ.getSocketOptionExt(push, ZMQ.ZMQ_SWAP), is(1024L * 1024));
+        assertThat(ZMQ.bind(push, "inproc://swap"), is(true));
+
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_RCVHWM, 10);
+        assertThat(ZMQ.connect(pull, "inproc://swap"), is(true));
+
+        //  Way past the high watermarks, none of the messages is refused.
+        for (int idx = 0; idx < 1000; ++idx) {
+            assertThat(ZMQ.send(push, "msg" + idx, ZMQ.ZMQ_SNDMORE | ZMQ.ZMQ_DONTWAIT), is(3 + String.valueOf(idx).length()));
+            assertThat(ZMQ.send(push, "end", ZMQ.ZMQ_DONTWAIT), is(3));
+        }
+
+        //  And they are received in order.
+        for (int idx = 0; idx < 1000; ++idx) {
+            Msg msg = recv(pull, push);
+            assertThat(new String(msg.data(), ZMQ.CHARSET), is("msg" + idx));
+            assertThat(msg.hasMore(), is(true));
+            msg = recv(pull, push);
+            assertThat(new String(msg.data(), ZMQ.CHARSET), is("end"));
+            assertThat(msg.hasMore(), is(false));
+        }
+
+        ZMQ.close(pull);
+        ZMQ.close(push);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testSwapFull()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_SNDHWM, 1);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_SWAP, 100L);
+        assertThat(ZMQ.bind(push, "inproc://swap.full"), is(true));
+
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_RCVHWM, 1);
+        assertThat(ZMQ.connect(pull, "inproc://swap.full"), is(true));
+
+        //  Beyond the swap, the sending blocks again.
+        int sent = 0;
+        while (ZMQ.send(push, "0123456789", ZMQ.ZMQ_DONTWAIT) == 10) {
+            sent++;
+        }
+        assertThat(sent > 2, is(true));
+        assertThat(sent < 20, is(true));
+
+        for (int idx = 0; idx < sent; ++idx) {
+            assertThat(recv(pull, push), notNullValue());
+        }
+        ZMQ.getSocketOption(push, ZMQ.ZMQ_EVENTS);
+        ZMQ.sleep(1);
+        assertThat(ZMQ.recv(pull, ZMQ.ZMQ_DONTWAIT), nullValue());
+
+        ZMQ.close(pull);
+        ZMQ.close(push);
+        ZMQ.term(ctx);
+    }
+
+    //  The messages swapped out are moved to the pipe as the sender
+    //  processes the acknowledgements of the receiver.
+    private Msg recv(SocketBase pull, SocketBase push)
+    {
+        while (true) {
+            Msg msg = ZMQ.recv(pull, ZMQ.ZMQ_DONTWAIT);
+            if (msg != null) {
+                return msg;
+            }
+            ZMQ.getSocketOption(push, ZMQ.ZMQ_EVENTS);
+        }
+    }
+
+    @Test
+    public void testRollback()
+    {
+        Swap swap = new Swap(null, 1024);
+        assertThat(swap.isEmpty(), is(true));
+
+        assertThat(swap.write(new Msg("first".getBytes(ZMQ.CHARSET))), is(true));
+        Msg part = new Msg("part".getBytes(ZMQ.CHARSET));
+        part.setFlags(Msg.MORE);
+        assertThat(swap.write(part), is(true));
+        assertThat(swap.write(part), is(true));
+        swap.rollback();
+
+        Msg msg = swap.read();
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("first"));
+        assertThat(swap.read(), nullValue());
+        assertThat(swap.isEmpty(), is(true));
+
+        swap.close();
+    }
+
+    @Test
+    public void testLongGroup()
+    {
+        Swap swap = new Swap(null, 1024);
+        char[] chars = new char[200];
+        Arrays.fill(chars, 'g');
+        String group = new String(chars);
+
+        Msg msg = new Msg("body".getBytes(ZMQ.CHARSET));
+        msg.setGroup(group);
+        msg.setFlags(Msg.SHARED);
+        assertThat(swap.write(msg), is(true));
+        assertThat(swap.write(new Msg("next".getBytes(ZMQ.CHARSET))), is(true));
+
+        msg = swap.read();
+        assertThat(msg.group(), is(group));
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("body"));
+        assertThat(msg.flags(), is(Msg.SHARED));
+        msg = swap.read();
+        assertThat(msg.group(), nullValue());
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("next"));
+        assertThat(swap.read(), nullValue());
+        assertThat(swap.isEmpty(), is(true));
+
+        swap.close();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+import zmq.TcpAddress.TcpAddressMask;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestTcpAcceptFilter
+{
+    private static InetAddress ip(String addr) throws UnknownHostException
+    {
+        return InetAddress.getByName(addr);
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        assertThat(TcpAcceptFilter.EMPTY.isEmpty(), is(true));
+        assertThat(TcpAcceptFilter.EMPTY.accept(ip("10.0.0.1")), is(true));
+        assertThat(TcpAcceptFilter.EMPTY.accept(ip("::1")), is(true));
+    }
+
+    @Test
+    public void testAllowList() throws Exception
+    {
+        TcpAcceptFilter filter = TcpAcceptFilter.of(false, "192.168.1.0/24", "10.1.2.3", "2001:db8::/32");
+
+        assertThat(filter.size(), is(3));
+        assertThat(filter.accept(ip("192.168.1.0")), is(true));
+        assertThat(filter.accept(ip("192.168.1.255")), is(true));
+        assertThat(filter.accept(ip("192.168.2.1")), is(false));
+        assertThat(filter.accept(ip("10.1.2.3")), is(true));
+        assertThat(filter.accept(ip("10.1.2.4")), is(false));
+        assertThat(filter.accept(ip("2001:db8:1::5")), is(true));
+        assertThat(filter.accept(ip("2001:db9::5")), is(false));
+    }
+
+    @Test
+    public void testMostSpecificRuleDecides() throws Exception
+    {
+        TcpAcceptFilter filter = TcpAcceptFilter.of(false, "10.0.0.0/8", "!10.1.0.0/16", "10.1.1.0/24");
+
+        assertThat(filter.accept(ip("10.2.3.4")), is(true));
+        assertThat(filter.accept(ip("10.1.3.4")), is(false));
+        assertThat(filter.accept(ip("10.1.1.4")), is(true));
+        assertThat(filter.accept(ip("11.1.1.4")), is(false));
+    }
+
+    @Test
+    public void testDenyList() throws Exception
+    {
+        TcpAcceptFilter filter = TcpAcceptFilter.of(false, "!172.16.0.0/12", "!::1");
+
+        assertThat(filter.accept(ip("172.20.1.1")), is(false));
+        assertThat(filter.accept(ip("172.32.1.1")), is(true));
+        assertThat(filter.accept(ip("::1")), is(false));
+        assertThat(filter.accept(ip("::2")), is(true));
+    }
+
+    @Test
+    public void testReplaceRule() throws Exception
+    {
+        TcpAcceptFilter allow = TcpAcceptFilter.of(false, "10.0.0.0/8");
+        TcpAddressMask deny = new TcpAddressMask();
+        deny.resolve("!10.0.0.0/8", false);
+        TcpAcceptFilter denied = allow.add(deny);
+
+        assertThat(denied.size(), is(1));
+        assertThat(denied.accept(ip("10.0.0.1")), is(false));
+        assertThat(denied.accept(ip("11.0.0.1")), is(true));
+        //  The previous filter is unchanged.
+        assertThat(allow.accept(ip("10.0.0.1")), is(true));
+        assertThat(allow.accept(ip("11.0.0.1")), is(false));
+    }
+
+    @Test
+    public void testCatchAll() throws Exception
+    {
+        TcpAcceptFilter filter = TcpAcceptFilter.of(false, "!0.0.0.0/0", "127.0.0.1");
+
+        assertThat(filter.accept(ip("127.0.0.1")), is(true));
+        assertThat(filter.accept(ip("127.0.0.2")), is(false));
+        assertThat(filter.accept(ip("::1")), is(false));
+    }
+
+    @Test
+    public void testLargeAllowList() throws Exception
+    {
+        TcpAcceptFilter filter = TcpAcceptFilter.EMPTY;
+        for (int idx = 0; idx < 4096; ++idx) {
+            TcpAddressMask mask = new TcpAddressMask();
+            mask.resolve("10." + (idx >> 8) + "." + (idx & 0xff) + ".0/24", true);
+            filter = filter.add(mask);
+        }
+        assertThat(filter.size(), is(4096));
+        assertThat(filter.accept(ip("10.15.255.7")), is(true));
+        assertThat(filter.accept(ip("10.16.0.7")), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMask()
+    {
+        new TcpAddressMask().resolve("10.0.0.0/33", false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIpv6WhenIpv4Only()
+    {
+        new TcpAddressMask().resolve("::1/128", true);
+    }
+
+    @Test
+    public void testMatchAddress() throws Exception
+    {
+        TcpAddressMask mask = new TcpAddressMask();
+        mask.resolve("192.168.0.0/17", false);
+
+        assertThat(mask.matchAddress(new InetSocketAddress(ip("192.168.127.1"), 5555)), is(true));
+        assertThat(mask.matchAddress(new InetSocketAddress(ip("192.168.128.1"), 5555)), is(false));
+        assertThat(mask.toString(), is("192.168.0.0/17"));
+    }
+
+    @Test
+    public void testListenerFilter()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_TCP_ACCEPT_FILTER, "!127.0.0.0/8");
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_RCVTIMEO, 300);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7732"), is(true));
+
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_LINGER, 0);
+        assertThat(ZMQ.connect(push, "tcp://127.0.0.1:7732"), is(true));
+        ZMQ.send(push, "denied", ZMQ.ZMQ_DONTWAIT);
+        assertThat(ZMQ.recv(pull, 0), nullValue());
+
+        //  Replacing the rules applies to the bound endpoint.
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_TCP_ACCEPT_FILTER, TcpAcceptFilter.of(true, "127.0.0.1"));
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_RCVTIMEO, 5000);
+        ZMQ.send(push, "allowed", 0);
+        Msg msg = ZMQ.recv(pull, 0);
+        assertThat(msg, notNullValue());
+
+        ZMQ.close(push);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+}
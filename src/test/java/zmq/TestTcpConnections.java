@@ -0,0 +1,135 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestTcpConnections
+{
+    @Test
+    public void testParallelConnections()
+    {
+        Ctx ctx = ZMQ.init(3);
+        SocketBase router = ZMQ.socket(ctx, ZMQ.ZMQ_ROUTER);
+        SocketBase monitor = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        assertThat(ZMQ.monitorSocket(router, "inproc://monitor.connections", ZMQ.ZMQ_EVENT_DISCONNECTED), is(true));
+        assertThat(ZMQ.connect(monitor, "inproc://monitor.connections"), is(true));
+        assertThat(ZMQ.bind(router, "tcp://127.0.0.1:7733"), is(true));
+
+        SocketBase dealer = ZMQ.socket(ctx, ZMQ.ZMQ_DEALER);
+        ZMQ.setSocketOption(dealer, ZMQ.ZMQ_TCP_CONNECTIONS, 3);
+        assertThat(ZMQ.getSocketOption(dealer, ZMQ.ZMQ_TCP_CONNECTIONS), is(3));
+        assertThat(ZMQ.connect(dealer, "tcp://127.0.0.1:7733"), is(true));
+        ZMQ.sleep(1);
+
+        //  The messages are spread over the connections.
+        for (int idx = 0; idx < 6; ++idx) {
+            assertThat(ZMQ.send(dealer, "msg", 0), is(3));
+        }
+        Set<String> identities = new HashSet<String>();
+        for (int idx = 0; idx < 6; ++idx) {
+            Msg identity = ZMQ.recv(router, 0);
+            assertThat(identity, notNullValue());
+            identities.add(Arrays.toString(identity.data()));
+            assertThat(ZMQ.recv(router, 0), notNullValue());
+        }
+        assertThat(identities.size(), is(3));
+
+        //  All the connections are closed with the endpoint.
+        assertThat(ZMQ.disconnect(dealer, "tcp://127.0.0.1:7733"), is(true));
+        ZMQ.setSocketOption(monitor, ZMQ.ZMQ_RCVTIMEO, 100);
+        int disconnected = 0;
+        for (int idx = 0; idx < 50 && disconnected < 3; ++idx) {
+            //  Let the dealer process the termination of its pipes.
+            ZMQ.getSocketOption(dealer, ZMQ.ZMQ_EVENTS);
+            ZMQ.Event event = ZMQ.Event.read(monitor);
+            if (event != null) {
+                assertThat(event.event, is(ZMQ.ZMQ_EVENT_DISCONNECTED));
+                disconnected++;
+            }
+        }
+        assertThat(disconnected, is(3));
+
+        ZMQ.close(dealer);
+        ZMQ.close(router);
+        ZMQ.close(monitor);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testResolveAll()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7734"), is(true));
+
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_TCP_RESOLVE_ALL, 1);
+        assertThat(ZMQ.connect(push, "tcp://localhost:7734"), is(true));
+
+        assertThat(ZMQ.send(push, "hello", 0), is(5));
+        Msg msg = ZMQ.recv(pull, 0);
+        assertThat(new String(msg.data(), ZMQ.CHARSET), is("hello"));
+
+        assertThat(ZMQ.disconnect(push, "tcp://localhost:7734"), is(true));
+
+        ZMQ.close(push);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testDecorrelatedJitter()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase monitor = ZMQ.socket(ctx, ZMQ.ZMQ_PAIR);
+        SocketBase push = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RECONNECT_IVL, 10);
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_RECONNECT_IVL_MAX, 200);
+        assertThat(ZMQ.monitorSocket(push, "inproc://monitor.jitter", ZMQ.ZMQ_EVENT_CONNECT_RETRIED), is(true));
+        assertThat(ZMQ.connect(monitor, "inproc://monitor.jitter"), is(true));
+
+        //  Nobody listens there, so the connection is retried.
+        assertThat(ZMQ.connect(push, "tcp://127.0.0.1:7735"), is(true));
+
+        Set<Integer> intervals = new HashSet<Integer>();
+        for (int idx = 0; idx < 10; ++idx) {
+            ZMQ.Event event = ZMQ.Event.read(monitor);
+            assertThat(event, notNullValue());
+            int interval = (Integer) event.arg;
+            assertTrue("interval " + interval, interval >= 10 && interval <= 200);
+            intervals.add(interval);
+        }
+        assertTrue(intervals.size() > 1);
+
+        ZMQ.setSocketOption(push, ZMQ.ZMQ_LINGER, 0);
+        ZMQ.close(push);
+        ZMQ.close(monitor);
+        ZMQ.term(ctx);
+    }
+}
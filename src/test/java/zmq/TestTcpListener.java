@@ -0,0 +1,125 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestTcpListener
+{
+    //  Connects many clients at once, then receives a message from each.
+    private void storm(Ctx ctx, SocketBase pull, String endpoint, int clients)
+    {
+        SocketBase[] pushes = new SocketBase[clients];
+        for (int idx = 0; idx < clients; ++idx) {
+            pushes[idx] = ZMQ.socket(ctx, ZMQ.ZMQ_PUSH);
+            assertThat(ZMQ.connect(pushes[idx], endpoint), is(true));
+        }
+        for (int idx = 0; idx < clients; ++idx) {
+            assertThat(ZMQ.send(pushes[idx], "client-" + idx, 0), is(("client-" + idx).length()));
+        }
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_RCVTIMEO, 10000);
+        for (int idx = 0; idx < clients; ++idx) {
+            Msg msg = ZMQ.recv(pull, 0);
+            assertThat(msg, notNullValue());
+        }
+        for (SocketBase push : pushes) {
+            ZMQ.setSocketOption(push, ZMQ.ZMQ_LINGER, 0);
+            ZMQ.close(push);
+        }
+    }
+
+    @Test
+    public void testAcceptStorm()
+    {
+        Ctx ctx = ZMQ.init(4);
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_BACKLOG, 500);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7730"), is(true));
+
+        storm(ctx, pull, "tcp://127.0.0.1:7730", 300);
+
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testSeveralListeners()
+    {
+        Ctx ctx = ZMQ.init(4);
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_TCP_LISTENERS, 4);
+        assertThat(ZMQ.getSocketOption(pull, ZMQ.ZMQ_TCP_LISTENERS), is(4));
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7731"), is(true));
+
+        storm(ctx, pull, "tcp://127.0.0.1:7731", 100);
+
+        //  All the listeners are closed with the endpoint.
+        assertThat(ZMQ.unbind(pull, "tcp://127.0.0.1:7731"), is(true));
+        ZMQ.sleep(1);
+        SocketBase other = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        assertThat(ZMQ.bind(other, "tcp://127.0.0.1:7731"), is(true));
+
+        ZMQ.close(other);
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test
+    public void testListenersSpreadOverIoThreads() throws Exception
+    {
+        Ctx ctx = ZMQ.init(4);
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        ZMQ.setSocketOption(pull, ZMQ.ZMQ_TCP_LISTENERS, 4);
+        assertThat(ZMQ.bind(pull, "tcp://127.0.0.1:7740"), is(true));
+
+        //  Each I/O thread polls its mailbox and, once plugged, one listener.
+        int total = 0;
+        for (int wait = 0; wait < 100 && total < 8; ++wait) {
+            Thread.sleep(10);
+            total = 0;
+            for (int idx = 0; idx < 4; ++idx) {
+                total += ctx.chooseIoThread(1L << idx).getLoad();
+            }
+        }
+        for (int idx = 0; idx < 4; ++idx) {
+            assertThat(ctx.chooseIoThread(1L << idx).getLoad(), is(2));
+        }
+
+        ZMQ.close(pull);
+        ZMQ.term(ctx);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidListeners()
+    {
+        Ctx ctx = ZMQ.init(1);
+        SocketBase pull = ZMQ.socket(ctx, ZMQ.ZMQ_PULL);
+        try {
+            ZMQ.setSocketOption(pull, ZMQ.ZMQ_TCP_LISTENERS, 0);
+        }
+        finally {
+            ZMQ.close(pull);
+            ZMQ.term(ctx);
+        }
+    }
+}
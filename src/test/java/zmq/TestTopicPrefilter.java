@@ -0,0 +1,94 @@
+/*
+    Copyright (c) 2007-2014 Contributors as noted in the AUTHORS file
+
+    This file is part of 0MQ.
+
+    0MQ is free software; you can redistribute it and/or modify it under
+    the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 3 of the License, or
+    (at your option) any later version.
+
+    0MQ is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package zmq;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestTopicPrefilter
+{
+    private static ByteBuffer wrap(String data)
+    {
+        return ByteBuffer.wrap(data.getBytes(ZMQ.CHARSET));
+    }
+
+    @Test
+    public void testPrefilter()
+    {
+        TopicPrefilter prefilter = new TopicPrefilter(4);
+        byte[] topic = "\u0001abcdef".getBytes(ZMQ.CHARSET);
+        prefilter.add(topic, 1, topic.length);
+        assertThat(prefilter.check(wrap("abcdxx")), is(true));
+        assertThat(prefilter.check(wrap("abc")), is(false));
+        assertThat(prefilter.check(wrap("zzzzzz")), is(false));
+
+        //  Shorter subscriptions let everything through.
+        byte[] shorter = "ab".getBytes(ZMQ.CHARSET);
+        prefilter.add(shorter, 0, shorter.length);
+        assertThat(prefilter.check(wrap("zzzzzz")), is(true));
+        prefilter.rm(shorter, 0, shorter.length);
+        assertThat(prefilter.check(wrap("zzzzzz")), is(false));
+
+        prefilter.rm(topic, 1, topic.length);
+        assertThat(prefilter.check(wrap("abcdxx")), is(false));
+    }
+
+    @Test
+    public void testSubscriber()
+    {
+        Ctx ctx = ZMQ.createContext();
+        SocketBase pub = ZMQ.socket(ctx, ZMQ.ZMQ_XPUB);
+        assertThat(ZMQ.bind(pub, "inproc://prefilter"), is(true));
+
+        SocketBase sub = ZMQ.socket(ctx, ZMQ.ZMQ_SUB);
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "price.");
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUB_PREFILTER, 4);
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_SUBSCRIBE, "news.a");
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_RCVTIMEO, 100);
+        assertThat(ZMQ.connect(sub, "inproc://prefilter"), is(true));
+
+        //  The subscriptions made before the prefilter still match.
+        ZMQ.recv(pub, 0);
+        ZMQ.recv(pub, 0);
+        ZMQ.send(pub, "trade.1", 0);
+        ZMQ.send(pub, "price.1", 0);
+        ZMQ.send(pub, "news.b", 0);
+        ZMQ.send(pub, "news.a", 0);
+        ZMQ.send(pub, "pri", 0);
+
+        assertThat(new String(ZMQ.recv(sub, 0).data(), ZMQ.CHARSET), is("price.1"));
+        assertThat(new String(ZMQ.recv(sub, 0).data(), ZMQ.CHARSET), is("news.a"));
+        assertThat(ZMQ.recv(sub, 0), nullValue());
+
+        ZMQ.setSocketOption(sub, ZMQ.ZMQ_UNSUBSCRIBE, "price.");
+        ZMQ.getSocketOption(pub, ZMQ.ZMQ_EVENTS);
+        ZMQ.send(pub, "price.2", 0);
+        ZMQ.send(pub, "news.a", 0);
+        assertThat(new String(ZMQ.recv(sub, 0).data(), ZMQ.CHARSET), is("news.a"));
+
+        ZMQ.close(sub);
+        ZMQ.close(pub);
+        ZMQ.term(ctx);
+    }
+}